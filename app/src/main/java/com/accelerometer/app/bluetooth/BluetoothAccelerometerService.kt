@@ -8,23 +8,30 @@ import android.content.Context
 import android.os.SystemClock
 import android.util.Log
 import com.accelerometer.app.data.SensorSample
+import com.inuker.bluetooth.library.connect.BleConnectManager
+import com.inuker.bluetooth.library.connect.BleNotifyDispatcher
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.BluetoothBLE
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.BluetoothSPP
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.WitBluetoothManager
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.exceptions.BluetoothBLEException
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.interfaces.IBluetoothFoundObserver
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfig
+import com.wit.witsdk.sensor.modular.command.roles.SharedPreferencesSnapshotStore
 import com.wit.witsdk.sensor.modular.device.exceptions.OpenDeviceException
 import com.wit.example.ble5.Bwt901ble
-import com.wit.example.ble5.interfaces.IBwt901bleRecordObserver
-import com.wit.example.ble5.data.WitSensorKey
+import com.wit.example.ble5.interfaces.IBwt901bleRecordBatchObserver
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrameBatch
 import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asSharedFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.transform
 import kotlinx.coroutines.launch
 
 /**
@@ -32,15 +39,20 @@ import kotlinx.coroutines.launch
  */
 class BluetoothAccelerometerService(
     private val context: Context
-) : IBluetoothFoundObserver, IBwt901bleRecordObserver {
+) : IBluetoothFoundObserver, IBwt901bleRecordBatchObserver {
 
     companion object {
         private const val TAG = "BluetoothAccelerometer"
+        // Сколько ждать первого кадра перед конфигурацией датчика
+        private const val STREAM_WAIT_MS = 2000L
         // Фильтр по имени устройства. Если пустой список - показываем все BLE устройства
         // Можно добавить другие варианты имен, например: "WT901BLECL", "WIT-MOTION", и т.д.
         private val DEVICE_NAME_FILTER = listOf("WT", "BWT", "WT901", "WIT", "BLECL")
         // Фильтр для телефонов-датчиков
         private const val PHONE_SENSOR_PREFIX = "PhoneSensor"
+        // Пачка кадров от SDK: до 10 кадров или 50 мс (при 200 Гц — 20 вызовов в секунду вместо 200)
+        private const val BATCH_MAX_FRAMES = 10
+        private const val BATCH_MAX_DELAY_MS = 50L
     }
 
     private var bluetoothManager: WitBluetoothManager? = null
@@ -55,13 +67,20 @@ class BluetoothAccelerometerService(
     private val _connectionState = MutableStateFlow(ConnectionState.DISCONNECTED)
     val connectionState: StateFlow<ConnectionState> = _connectionState.asStateFlow()
 
-    // Буфер 512 сэмплов (~5 сек при 100 Hz), при переполнении отбрасываем СТАРЫЕ данные
-    private val _sensorSamples = MutableSharedFlow<SensorSample>(
+    // Сэмплы идут пачками: один tryEmit на пачку кадров от SDK.
+    // Телефон присылает по одному сэмплу в пачке, поэтому буфер 512 пачек — те же 512 сэмплов
+    // (~5 сек при 100 Hz), что и в PhoneSensorClient. При переполнении отбрасываем СТАРЫЕ данные
+    private val _sensorSampleBatches = MutableSharedFlow<List<SensorSample>>(
         replay = 0,
         extraBufferCapacity = 512,
         onBufferOverflow = BufferOverflow.DROP_OLDEST
     )
-    val sensorSamples: SharedFlow<SensorSample> = _sensorSamples.asSharedFlow()
+    val sensorSampleBatches: SharedFlow<List<SensorSample>> = _sensorSampleBatches.asSharedFlow()
+
+    // По одному сэмплу (пачки разворачиваются на стороне подписчика)
+    val sensorSamples: Flow<SensorSample> = sensorSampleBatches.transform { batch ->
+        batch.forEach { emit(it) }
+    }
 
     private val _batteryLevel = MutableStateFlow(0)
     val batteryLevel: StateFlow<Int> = _batteryLevel.asStateFlow()
@@ -70,6 +89,13 @@ class BluetoothAccelerometerService(
     private var sampleCount = 0
     private var lastLogTime = System.currentTimeMillis()
 
+    // Идёт ли запись измерения — на это время фоновый опрос регистров датчика приостановлен
+    @Volatile
+    private var recording = false
+
+    // Снимок регистров по MAC: известный датчик проверяется одним пакетом чтений без перенастройки
+    private val registerSnapshotStore by lazy { SharedPreferencesSnapshotStore(context.applicationContext) }
+
     data class DiscoveredDevice(
         val name: String?,
         val mac: String,
@@ -280,12 +306,12 @@ class BluetoothAccelerometerService(
             devices.add(sensor)
             connectedDevice = sensor
             connectedToPhone = false
-            sensor.registerRecordObserver(this)
+            sensor.registerRecordBatchObserver(this)
+            sensor.setBatchWindow(BATCH_MAX_FRAMES, BATCH_MAX_DELAY_MS)
             sensor.open()
             
-            // ⚡ HIGH PRIORITY автоматически устанавливается через bluetoothkit
-            // (InukerBluetoothBLE.connect() передаёт BleConnectOptions, 
-            //  BleConnectWorker автоматически вызывает requestConnectionPriority(HIGH))
+            // ⚡ Политика канала в bluetoothkit: после подключения MTU 247 и PHY 2M,
+            // приоритет HIGH, пока включены уведомления и идёт поток, BALANCED после его остановки
             
             configureSensor(sensor)
             _connectionState.value = ConnectionState.CONNECTED
@@ -308,8 +334,8 @@ class BluetoothAccelerometerService(
         // Запускаем сборщик данных от телефона
         kotlinx.coroutines.GlobalScope.launch {
             phoneSensorClient?.sensorSamples?.collect { sample ->
-                // С DROP_OLDEST tryEmit всегда успешен
-                _sensorSamples.tryEmit(sample)
+                // С DROP_OLDEST tryEmit всегда успешен; телефон присылает по одному сэмплу
+                _sensorSampleBatches.tryEmit(listOf(sample))
             }
         }
         
@@ -356,6 +382,21 @@ class BluetoothAccelerometerService(
         }
     }
 
+    /**
+     * Начало/конец записи измерения.
+     * Пока идёт запись, SDK не шлёт фоновые чтения регистров (магнитометр, батарея, температура),
+     * и канал BLE занят только потоком данных.
+     */
+    fun setRecording(recording: Boolean) {
+        if (this.recording == recording) return
+        this.recording = recording
+        val sensor = connectedDevice ?: return
+        val poll = sensor.pollScheduler
+        Log.i(TAG, "📡 Recording=$recording, register polling ${String.format("%.0f", poll.pollBytesPerSecond)} B/s " +
+                "(${String.format("%.1f", poll.linkBudgetUsage * 100)}% of link budget)")
+        sensor.setRecording(recording)
+    }
+
     /**
      * Отключение от текущего устройства (WitMotion или телефон).
      */
@@ -370,7 +411,7 @@ class BluetoothAccelerometerService(
         
         // Отключаемся от WitMotion
         devices.forEach {
-            it.removeRecordObserver(this)
+            it.removeRecordBatchObserver(this)
             it.close()
         }
         devices.clear()
@@ -403,13 +444,13 @@ class BluetoothAccelerometerService(
         val sensor = Bwt901ble(bluetoothBLE)
         devices.add(sensor)
         connectedDevice = sensor
-        sensor.registerRecordObserver(this)
+        sensor.registerRecordBatchObserver(this)
+        sensor.setBatchWindow(BATCH_MAX_FRAMES, BATCH_MAX_DELAY_MS)
         try {
             sensor.open()
             
-            // ⚡ HIGH PRIORITY автоматически устанавливается через bluetoothkit
-            // (InukerBluetoothBLE.connect() передаёт BleConnectOptions, 
-            //  BleConnectWorker автоматически вызывает requestConnectionPriority(HIGH))
+            // ⚡ Политика канала в bluetoothkit: после подключения MTU 247 и PHY 2M,
+            // приоритет HIGH, пока включены уведомления и идёт поток, BALANCED после его остановки
             
             // Настраиваем датчик на 50 Гц (RRATE_50HZ = 0x08)
             configureSensor(sensor)
@@ -434,6 +475,7 @@ class BluetoothAccelerometerService(
      * - RRATE (0x03): Частота (RRATE_50HZ=0x08)
      */
     private fun configureSensor(sensor: Bwt901ble) {
+        sensor.setRecording(recording)
         Thread {
             try {
                 Log.i(TAG, "🔧 Configuring sensor for 50 Hz (optimized for BLE)...")
@@ -451,100 +493,35 @@ class BluetoothAccelerometerService(
                     Log.d(TAG, "✅ Sensor is ready (waited ${waitCount * 100}ms)")
                 }
                 
-                // Дополнительная задержка для стабилизации соединения
-                Thread.sleep(500)
-                
-                // === ШАГ 1: Разблокировка регистров ===
-                Log.d(TAG, "→ Sending UNLOCK command...")
-                sensor.unlockReg()
-                Thread.sleep(800)
-                Log.d(TAG, "→ Registers unlocked")
-                
-                // === ШАГ 2: Установка диапазона ±2g (ПЕРВЫМ ДЕЛОМ) ===
-                Log.d(TAG, "→ Setting ACCRANGE=0x00 (±2g)...")
-                for (i in 1..4) {
-                    sensor.unlockReg()
-                    Thread.sleep(300)
-                    // Прямая команда записи в регистр 0x21
-                    sensor.sendProtocolData(byteArrayOf(0xFF.toByte(), 0xAA.toByte(), 0x21, 0x00, 0x00), 500)
-                    Thread.sleep(500)
-                    // Попробуем еще через специальную команду калибровки, иногда это «пробивает» настройки
-                    if (i == 3) {
-                        Log.d(TAG, "  → Special attempt with calibration command...")
-                        sensor.appliedCalibration()
-                        Thread.sleep(800)
-                    }
-                    sensor.saveReg()
-                    Thread.sleep(1000)
-                    
-                    // Проверяем
-                    sensor.sendProtocolData(byteArrayOf(0xFF.toByte(), 0xAA.toByte(), 0x27, 0x21, 0x00))
-                    Thread.sleep(1000)
-                    val check = sensor.getDeviceData("21")
-                    if (check == "0") {
-                        Log.i(TAG, "✅ ACCRANGE set to ±2g (attempt $i)")
-                        break
-                    } else {
-                        Log.w(TAG, "⚠️ ACCRANGE still $check (attempt $i), retrying...")
-                    }
+                // Вместо фиксированной паузы ждём первый кадр: пошли данные — канал готов
+                val streamDeadline = SystemClock.elapsedRealtime() + STREAM_WAIT_MS
+                while (totalSampleCount == 0L && SystemClock.elapsedRealtime() < streamDeadline) {
+                    Thread.sleep(20)
                 }
-
-                // === ШАГ 3: Установка Return Content ===
-                Log.d(TAG, "→ Sending RSW=0x02 (ACC_ONLY) command...")
-                sensor.unlockReg()
-                Thread.sleep(200)
-                sensor.sendProtocolData(byteArrayOf(0xFF.toByte(), 0xAA.toByte(), 0x02, 0x02, 0x00), 500)
-                Thread.sleep(500)
-                sensor.saveReg()
-                Thread.sleep(800)
                 
-                // === ШАГ 4: Установка частоты 50 Hz ===
-                Log.d(TAG, "→ Sending RRATE=0x08 (50Hz) command...")
-                sensor.unlockReg()
-                Thread.sleep(200)
-                sensor.sendProtocolData(byteArrayOf(0xFF.toByte(), 0xAA.toByte(), 0x03, 0x08, 0x00), 500)
-                Thread.sleep(500)
-                sensor.saveReg()
-                Thread.sleep(800)
+                // Одна транзакция: читаем текущие значения одним залпом, пишем только отличия,
+                // каждое значение подтверждаем обратным чтением по приходу ответа 55 71, затем SAVE.
+                // - ACCRANGE (0x21) = 0x00 (±2g)
+                // - RSW (0x02) = 0x02 (ACC_ONLY)
+                // - RRATE (0x03) = 0x08 (50Hz)
+                val config = RegisterConfig()
+                    .put(0x21, 0x00)
+                    .put(0x02, 0x02)
+                    .put(0x03, 0x08)
+                sensor.setRegisterSnapshotStore(registerSnapshotStore)
+                val result = sensor.applyConfig(config)
                 
-                // === ШАГ 5: Финальное сохранение ===
-                Log.d(TAG, "→ Sending final SAVE command...")
-            sensor.unlockReg()
-                Thread.sleep(200)
-                sensor.saveReg()
-                Thread.sleep(1500)
-                Log.d(TAG, "→ Settings saved to EEPROM")
-            
-                // === ШАГ 6: Читаем регистры для проверки ===
-                fun readRegister(regName: String, regAddr: Int, expectedValue: String, maxRetries: Int = 3): String? {
-                    for (attempt in 1..maxRetries) {
-                        Log.d(TAG, "→ Reading $regName register (0x${regAddr.toString(16).uppercase()})... (attempt $attempt/$maxRetries)")
-                        sensor.sendProtocolData(byteArrayOf(0xFF.toByte(), 0xAA.toByte(), 0x27, regAddr.toByte(), 0x00))
-                        Thread.sleep(800)
-                        val value = sensor.getDeviceData(regAddr.toString(16).padStart(2, '0'))
-                        Log.d(TAG, "  → $regName read result: '$value' (expect $expectedValue)")
-                        if (value != null && value.isNotEmpty() && value != "null") {
-                            return value
-                        }
-                        Thread.sleep(500)
-                    }
-                    return null
+                if (result.isSuccess && result.isSnapshotValid) {
+                    Log.i(TAG, "✓ Known sensor, snapshot verified in ${result.elapsedMillis} ms: $result")
+                } else if (result.isSuccess) {
+                    Log.i(TAG, "✓ Sensor configuration complete in ${result.elapsedMillis} ms: $result")
+                } else {
+                    Log.w(TAG, "⚠️ Sensor configuration incomplete in ${result.elapsedMillis} ms: $result")
                 }
-                
-                val rswValue = readRegister("RSW", 0x02, "2=ACC_ONLY")
-                val currentRate = readRegister("RRATE", 0x03, "8=50Hz")
-                val accRange = readRegister("ACCRANGE", 0x21, "0=±2g")
-            
-                Log.i(TAG, "✓ Sensor configuration complete:")
-                Log.i(TAG, "  📤 RSW: ${rswValue ?: "null"}")
-                Log.i(TAG, "  ⏱️ RRATE: ${currentRate ?: "null"}")
-                Log.i(TAG, "  📏 ACCRANGE: ${accRange ?: "null"}")
-                
-                Log.i(TAG, "✓ Sensor configuration complete:")
-                Log.i(TAG, "  📤 RSW (return content): ${rswValue ?: "null"} (expect 2=ACC_ONLY)")
-                Log.i(TAG, "  ⏱️ RRATE (frequency): ${currentRate ?: "null"} (expect 8=50Hz)")
-                Log.i(TAG, "  📏 ACCRANGE: ${accRange ?: "null"} (expect 0=±2g)")
-                Log.i(TAG, "  🎯 Expected result: ~50 samples/sec instead of 10!")
+                Log.i(TAG, "  📤 RSW (return content): ${sensor.getDeviceData("02")} (expect 2=ACC_ONLY)")
+                Log.i(TAG, "  ⏱️ RRATE (frequency): ${sensor.getDeviceData("03")} (expect 8=50Hz)")
+                Log.i(TAG, "  📏 ACCRANGE: ${sensor.getDeviceData("21")} (expect 0=±2g)")
+                Log.i(TAG, "  🧩 Live channels: ${sensor.capabilities}")
                 
         } catch (ex: Exception) {
             Log.w(TAG, "Failed to configure sensor", ex)
@@ -552,10 +529,10 @@ class BluetoothAccelerometerService(
         }.start()
     }
     
-    // ⚡ HIGH PRIORITY автоматически устанавливается через bluetoothkit:
-    // - InukerBluetoothBLE.connect() передаёт BleConnectOptions
-    // - BleConnectWorker.onConnectionStateChange() автоматически вызывает requestConnectionPriority(HIGH)
-    // - Логи можно найти по тегу "BleConnectWorker" в Logcat
+    // ⚡ Параметры канала задаёт bluetoothkit по BleConnectOptions:
+    // - на время подключения и обмена MTU — HIGH
+    // - затем HIGH, пока идёт поток уведомлений (и во время записи), BALANCED после остановки потока
+    // - согласованные MTU / приоритет / PHY видны в логе по тегу "BluetoothBLE" ("link: ...")
 
     override fun onFoundSPP(bluetoothSPP: BluetoothSPP) {
         Log.d(TAG, "🔍 onFoundSPP called (ignored - BLE-only app): name='${bluetoothSPP.name}', mac='${bluetoothSPP.mac}'")
@@ -570,62 +547,69 @@ class BluetoothAccelerometerService(
 
     // Для редкого логирования батареи
     private var lastBatteryLogTime = 0L
+    @Volatile
     private var totalSampleCount = 0L  // Общий счётчик для логов
 
-    override fun onRecord(bwt901ble: Bwt901ble) {
+    override fun onRecordBatch(bwt901ble: Bwt901ble, batch: WitImuFrameBatch) {
+        val size = batch.size()
         // Счётчик частоты (логируем раз в секунду)
-        sampleCount++
-        totalSampleCount++
+        sampleCount += size
+        totalSampleCount += size
         val now = System.currentTimeMillis()
         if (now - lastLogTime >= 1000) {
-            Log.d(TAG, "📊 Sample rate: $sampleCount samples/sec (total: $totalSampleCount)")
+            // Задержка уведомлений в очереди потока данных bluetoothkit за последнюю секунду
+            val queue = BleNotifyDispatcher.getQueueStats()
+            Log.d(TAG, "📊 Sample rate: $sampleCount samples/sec (total: $totalSampleCount, batch: $size), notify queue: $queue")
+            queue.reset()
+            // Очереди рабочих потоков bluetoothkit: у каждого датчика свой поток, задержка не должна расти с числом датчиков
+            for (shard in BleConnectManager.getWorkerShards()) {
+                Log.d(TAG, "🧵 $shard")
+                shard.queueStats.reset()
+            }
             sampleCount = 0
             lastLogTime = now
         }
-        
-        // Получаем RAW данные ускорения (int16)
-        val rawAccX = bwt901ble.getDeviceData("61_0")
-        val rawAccY = bwt901ble.getDeviceData("61_1")
-        val rawAccZ = bwt901ble.getDeviceData("61_2")
-        
-        // SDK парсит ускорения в g
-        val accXgStr = bwt901ble.getDeviceData(WitSensorKey.AccX)
-        val accYgStr = bwt901ble.getDeviceData(WitSensorKey.AccY)
-        val accZgStr = bwt901ble.getDeviceData(WitSensorKey.AccZ)
-        
-        val accXg = parseAccelerationG(accXgStr) ?: 0.0
-        val accYg = parseAccelerationG(accYgStr) ?: 0.0
-        val accZg = parseAccelerationG(accZgStr) ?: 0.0
-        
-        // Логируем проблему с нулевыми данными (только первые несколько раз)
-        if (totalSampleCount <= 5 && (accXg == 0.0 && accYg == 0.0 && accZg == 0.0)) {
-            Log.w(TAG, "⚠️ Zero acceleration data! RAW:($rawAccX,$rawAccY,$rawAccZ) SDK strings: AccX='$accXgStr', AccY='$accYgStr', AccZ='$accZgStr'")
-            Log.w(TAG, "   Check: RSW register should be 0x02 (ACC_ONLY). Current value: ${bwt901ble.getDeviceData("02")}")
-        }
-        
-        // Углы могут быть недоступны если RSW установлен на ACC_ONLY
-        // Используем 0.0 как значение по умолчанию
-        val angleX = parseAngleDegrees(bwt901ble.getDeviceData(WitSensorKey.AngleX)) ?: 0.0
-        val angleY = parseAngleDegrees(bwt901ble.getDeviceData(WitSensorKey.AngleY)) ?: 0.0
-        val angleZ = parseAngleDegrees(bwt901ble.getDeviceData(WitSensorKey.AngleZ)) ?: 0.0
-        
-        // Логируем RAW данные каждые 50 сэмплов (не чаще!)
-        if (totalSampleCount % 50 == 0L) {
-            Log.d(TAG, "📦 RAW:($rawAccX,$rawAccY,$rawAccZ) SDK:(${String.format("%.4f", accXg)}g,${String.format("%.4f", accYg)}g,${String.format("%.4f", accZg)}g)")
+
+        val samples = ArrayList<SensorSample>(size)
+        for (i in 0 until size) {
+            // Ускорения в g уже посчитаны SDK из RAW int16 — без форматирования в строку и обратного парсинга
+            val accXg = batch.getAccX(i)
+            val accYg = batch.getAccY(i)
+            val accZg = batch.getAccZ(i)
+            val sampleNumber = totalSampleCount - size + i + 1
+
+            // Логируем проблему с нулевыми данными (только первые несколько раз)
+            if (sampleNumber <= 5 && (accXg == 0.0 && accYg == 0.0 && accZg == 0.0)) {
+                Log.w(TAG, "⚠️ Zero acceleration data! RAW:(${batch.getRaw(i, WitImuFrame.RAW_ACC_X)},${batch.getRaw(i, WitImuFrame.RAW_ACC_Y)},${batch.getRaw(i, WitImuFrame.RAW_ACC_Z)}) seq=${batch.getSequence(i)}")
+                Log.w(TAG, "   Check: RSW register should be 0x02 (ACC_ONLY). Decode profile: ${bwt901ble.decodeProfile}")
+            }
+
+            // Логируем RAW данные каждые 50 сэмплов (не чаще!)
+            if (sampleNumber % 50 == 0L) {
+                Log.d(TAG, "📦 RAW:(${batch.getRaw(i, WitImuFrame.RAW_ACC_X)},${batch.getRaw(i, WitImuFrame.RAW_ACC_Y)},${batch.getRaw(i, WitImuFrame.RAW_ACC_Z)}) SDK:(${String.format("%.4f", accXg)}g,${String.format("%.4f", accYg)}g,${String.format("%.4f", accZg)}g)")
+            }
+
+            val gapFrames = batch.getGapFrames(i)
+            if (gapFrames > 0) {
+                Log.w(TAG, "⚠️ Lost $gapFrames frame(s) before seq=${batch.getSequence(i)}")
+            }
+            // Время кадра восстановлено SDK по частоте датчика (RRATE): без задержек Binder/Handler и пачек в одном пакете.
+            // Углы равны 0 если RSW установлен на ACC_ONLY: SDK их не декодирует (см. bwt901ble.capabilities)
+            samples.add(
+                SensorSample(
+                    timestampSec = batch.getTimestampNanos(i) / 1_000_000_000.0,
+                    accXg = accXg,
+                    accYg = accYg,
+                    accZg = accZg,
+                    angleXDeg = batch.getAngleX(i),
+                    angleYDeg = batch.getAngleY(i),
+                    angleZDeg = batch.getAngleZ(i),
+                    gapFrames = gapFrames
+                )
+            )
         }
-        
-        val timestampSec = SystemClock.elapsedRealtimeNanos() / 1_000_000_000.0
-        val sample = SensorSample(
-            timestampSec = timestampSec,
-            accXg = accXg,
-            accYg = accYg,
-            accZg = accZg,
-            angleXDeg = angleX,
-            angleYDeg = angleY,
-            angleZDeg = angleZ
-        )
-        // С DROP_OLDEST tryEmit всегда успешен
-        _sensorSamples.tryEmit(sample)
+        // Один tryEmit на пачку; с DROP_OLDEST он всегда успешен
+        _sensorSampleBatches.tryEmit(samples)
 
         // ⚠️ Батарею проверяем РЕДКО (раз в 30 секунд), чтобы не спамить BLE канал!
         if (now - lastBatteryLogTime >= 30_000) {
@@ -646,27 +630,9 @@ class BluetoothAccelerometerService(
         }
     }
 
-    private fun parseAccelerationG(raw: String?): Double? {
-        if (raw.isNullOrBlank()) {
-            return null
-        }
-        // SDK возвращает значения с запятой в качестве разделителя (например "-0,0170")
-        val normalized = raw.replace(',', '.')
-        return normalized.toDoubleOrNull()
-    }
-
-    private fun parseAngleDegrees(raw: String?): Double? {
-        if (raw.isNullOrBlank()) {
-            // Углы могут быть недоступны если RSW установлен на ACC_ONLY - это нормально
-            return null
-        }
-        val normalized = raw.replace(',', '.')
-        return normalized.toDoubleOrNull()
-    }
-
     private fun clearDevices() {
         devices.forEach {
-            it.removeRecordObserver(this)
+            it.removeRecordBatchObserver(this)
             it.close()
         }
         devices.clear()
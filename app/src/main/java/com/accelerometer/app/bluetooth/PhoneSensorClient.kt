@@ -11,9 +11,9 @@ import android.content.Context
 import android.os.Handler
 import android.os.Looper
 import android.os.ParcelUuid
-import android.os.SystemClock
 import android.util.Log
 import com.accelerometer.app.data.SensorSample
+import com.wit.witsdk.sensor.modular.device.utils.FrameClock
 import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -23,6 +23,7 @@ import kotlinx.coroutines.flow.asSharedFlow
 import kotlinx.coroutines.flow.asStateFlow
 import java.nio.ByteBuffer
 import java.nio.ByteOrder
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * BLE-клиент для подключения к телефону (PhoneSensorServer).
@@ -56,6 +57,12 @@ class PhoneSensorClient(
     val sensorSamples: SharedFlow<SensorSample> = _sensorSamples.asSharedFlow()
     
     // Счётчик для логов
+    // Восстановление времени кадров: частота сервера заранее неизвестна, период берётся из подгонки.
+    // FrameClock не потокобезопасен: им пользуется только поток уведомлений GATT,
+    // подключение лишь просит сбросить его перед следующим кадром
+    private val frameClock = FrameClock()
+    private val frameClockResetPending = AtomicBoolean(true)
+
     private var sampleCount = 0
     private var totalSampleCount = 0L
     private var lastLogTime = System.currentTimeMillis()
@@ -133,6 +140,7 @@ class PhoneSensorClient(
         
         Log.i(TAG, "📱 Connecting to ${phone.name} (${phone.address})...")
         _connectionState.value = ConnectionState.CONNECTING
+        frameClockResetPending.set(true)
         
         // Подключение нужно делать из main thread на некоторых устройствах
         Handler(Looper.getMainLooper()).post {
@@ -330,7 +338,10 @@ class PhoneSensorClient(
             val accYg = buffer.float.toDouble()
             val accZg = buffer.float.toDouble()
             
-            val timestampSec = SystemClock.elapsedRealtimeNanos() / 1_000_000_000.0
+            if (frameClockResetPending.getAndSet(false)) {
+                frameClock.reset()
+            }
+            val timestampSec = frameClock.onFrame(System.nanoTime()) / 1_000_000_000.0
             
             val sample = SensorSample(
                 timestampSec = timestampSec,
@@ -339,7 +350,8 @@ class PhoneSensorClient(
                 accZg = accZg,
                 angleXDeg = 0.0, // Телефон не передаёт углы
                 angleYDeg = 0.0,
-                angleZDeg = 0.0
+                angleZDeg = 0.0,
+                gapFrames = frameClock.lastGap.toInt()
             )
             
             // С DROP_OLDEST tryEmit всегда успешен (старые данные удаляются при переполнении)
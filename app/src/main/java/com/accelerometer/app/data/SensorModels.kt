@@ -3,6 +3,9 @@ package com.accelerometer.app.data
 /**
  * Один сэмпл с датчика WT901: ускорение в g + ориентация (градусы).
  * SDK WitMotion возвращает значения уже в единицах g.
+ *
+ * timestampSec — время кадра, восстановленное по частоте датчика (FrameClock), а не время прихода в приложение;
+ * gapFrames — сколько кадров потеряно перед этим (0 — поток непрерывный).
  */
 data class SensorSample(
     val timestampSec: Double,
@@ -11,7 +14,8 @@ data class SensorSample(
     val accZg: Double,
     val angleXDeg: Double,
     val angleYDeg: Double,
-    val angleZDeg: Double
+    val angleZDeg: Double,
+    val gapFrames: Int = 0
 )
 
 /**
@@ -60,5 +64,9 @@ data class MeasurementState(
     val result: MeasurementResult? = null,
     val isValid: Boolean = true,  // Валидность теста (false при обрывах BLE или артефактах)
     val validationMessage: String? = null  // Сообщение о проблеме
-)
+) {
+    // Идёт запись (калибровка или измерение)
+    val isRecording: Boolean
+        get() = status == MeasurementStatus.CALIBRATING || status == MeasurementStatus.RUNNING
+}
 
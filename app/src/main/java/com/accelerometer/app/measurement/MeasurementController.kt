@@ -34,6 +34,7 @@ class MeasurementController(
     private var isValid = true
     private var validationMessage: String? = null
     private var lastSampleTimestamp: Double? = null
+    private var lastFramePeriodSec: Double? = null  // Интервал между соседними кадрами без потерь
     private val maxGapSec = 0.1  // Максимальный пропуск между пакетами (100 мс при 50 Гц)
     private val artifactThresholdMm = 40.0  // Порог артефакта согласно ТЗ
     
@@ -55,6 +56,7 @@ class MeasurementController(
         isValid = true
         validationMessage = null
         lastSampleTimestamp = null
+        lastFramePeriodSec = null
         samplesSinceLastUpdate = 0
         _state.value = MeasurementState(status = status, elapsedSec = 0.0, isValid = true)
     }
@@ -72,10 +74,20 @@ class MeasurementController(
     fun onSample(sample: SensorSample) {
         if (status == MeasurementStatus.IDLE || status == MeasurementStatus.FINISHED) return
         
-        // Проверка обрыва BLE (пропуск пакетов)
+        // Проверка обрыва BLE (пропуск пакетов).
+        // Время кадров восстановлено по частоте датчика и идёт ровно, поэтому потери видны по gapFrames:
+        // пропуск = потерянные кадры + интервал до этого кадра. Скачок времени (переподключение) проверяем отдельно.
         var bleGap: Int? = null
-        if (lastSampleTimestamp != null) {
-            val gap = sample.timestampSec - lastSampleTimestamp!!
+        val previous = lastSampleTimestamp
+        if (previous != null) {
+            val step = sample.timestampSec - previous
+            var gap = step
+            if (sample.gapFrames > 0) {
+                val period = lastFramePeriodSec ?: (step / (sample.gapFrames + 1))
+                gap = maxOf(step, period * (sample.gapFrames + 1))
+            } else if (step > 0 && step <= maxGapSec) {
+                lastFramePeriodSec = step
+            }
             if (gap > maxGapSec) {
                 isValid = false
                 bleGap = (gap * 1000).toInt()
@@ -29,7 +29,8 @@ class MeasurementProcessor(
             azG = sample.accZg,
             angleXDeg = sample.angleXDeg,
             angleYDeg = sample.angleYDeg,
-            timestampSec = timestamp
+            timestampSec = timestamp,
+            gapFrames = sample.gapFrames
         )
         
         // Если калибровка выключена — рисуем сразу; иначе ждём её завершения
@@ -191,18 +191,21 @@ class MicroSwingMotionProcessor(
         azG: Double,
         angleXDeg: Double,
         angleYDeg: Double,
-        timestampSec: Double
+        timestampSec: Double,
+        gapFrames: Int = 0
     ): MotionState {
         sampleCount++
         
         // === dt ===
+        // timestampSec восстановлен по частоте датчика (FrameClock), поэтому rawDt ≈ период датчика
+        // без джиттера доставки; после потери кадров rawDt охватывает и пропущенные кадры
         val dt = if (lastTimestamp != null) {
             val rawDt = timestampSec - lastTimestamp!!
-            if (rawDt > 0) {
+            if (rawDt > 0 && gapFrames == 0) {
                 realSampleRateHz = realSampleRateHz * 0.9 + (1.0 / rawDt) * 0.1
             }
-            // При 50 Hz ожидаем dt ≈ 0.02 сек
-            rawDt.coerceIn(0.01, 0.1)  // Обновлено для 50 Hz
+            // Ограничение оставлено как страховка (например, долгий обрыв): при 50 Hz ожидаем dt ≈ 0.02 сек
+            rawDt.coerceIn(0.01, 0.1)
         } else {
             0.02  // Ожидаем 50 Hz = 0.02 сек между кадрами
         }
@@ -455,6 +455,7 @@ class BalanceTestActivity : AppCompatActivity() {
                 }
                 launch {
                     viewModel.measurementState.collect { state ->
+                        bluetoothService.setRecording(state.isRecording)
                         renderMeasurementState(state)
                     }
                 }
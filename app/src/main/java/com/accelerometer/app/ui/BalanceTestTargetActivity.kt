@@ -438,6 +438,7 @@ class BalanceTestTargetActivity : AppCompatActivity() {
                 }
                 launch {
                     viewModel.measurementState.collect { state ->
+                        bluetoothService.setRecording(state.isRecording)
                         renderMeasurementState(state)
                     }
                 }
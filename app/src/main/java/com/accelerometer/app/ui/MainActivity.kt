@@ -162,7 +162,10 @@ class MainActivity : AppCompatActivity() {
                     }
                 }
                 launch {
-                    viewModel.measurementState.collect { renderMeasurementState(it) }
+                    viewModel.measurementState.collect {
+                        bluetoothService.setRecording(it.isRecording)
+                        renderMeasurementState(it)
+                    }
                 }
             }
         }
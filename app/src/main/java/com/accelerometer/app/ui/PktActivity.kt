@@ -105,6 +105,7 @@ class PktActivity : AppCompatActivity() {
         
         lifecycleScope.launch {
             viewModel.measurementState.collect { state ->
+                bluetoothService.setRecording(state.isRecording)
                 handleMeasurementState(state)
             }
         }
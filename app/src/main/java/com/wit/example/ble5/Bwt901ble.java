@@ -2,18 +2,36 @@ package com.wit.example.ble5;
 
 import com.wit.example.ble5.components.Bwt901bleProcessor;
 import com.wit.example.ble5.components.Bwt901bleResolver;
+import com.wit.example.ble5.interfaces.IBwt901bleFrameObserver;
+import com.wit.example.ble5.interfaces.IBwt901bleRecordBatchObserver;
 import com.wit.example.ble5.interfaces.IBwt901bleRecordObserver;
 import com.wit.witsdk.api.interfaces.IAttitudeSensorApi;
+import com.wit.witsdk.observer.role.ObserverBus;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfig;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfigResult;
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.interfaces.IRegisterSnapshotStore;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterConfigTransaction;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterReadCorrelator;
 import com.wit.witsdk.sensor.modular.connector.enums.ConnectType;
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.BluetoothBLE;
 import com.wit.witsdk.sensor.modular.connector.roles.WitCoreConnect;
 import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrameBatch;
 import com.wit.witsdk.sensor.modular.device.exceptions.OpenDeviceException;
 import com.wit.witsdk.sensor.modular.device.interfaces.IDeviceSendCallback;
+import com.wit.witsdk.sensor.modular.device.interfaces.IFrameBatchObserver;
 import com.wit.witsdk.sensor.modular.device.interfaces.IListenKeyUpdateObserver;
+import com.wit.witsdk.sensor.modular.processor.entity.DecodeProfile;
+import com.wit.witsdk.sensor.modular.processor.enums.SensorCapability;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 蓝牙5.0传感器模型
@@ -21,7 +39,7 @@ import java.util.List;
  * @author huangyajun
  * @date 2022/6/28 20:50
  */
-public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
+public class Bwt901ble implements IListenKeyUpdateObserver, IFrameBatchObserver, IAttitudeSensorApi {
 
     /**
      * 设备模型
@@ -33,11 +51,31 @@ public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
      */
     private BluetoothBLE bluetoothBLE;
 
+    /**
+     * 数据处理器
+     */
+    private final Bwt901bleProcessor processor = new Bwt901bleProcessor();
+
     /**
      * 监控数据的人
      */
     private List<IBwt901bleRecordObserver> recordObservers = new ArrayList<>();
 
+    /**
+     * 接收实时数据帧的人
+     */
+    private List<IBwt901bleFrameObserver> frameObservers = new ArrayList<>();
+
+    /**
+     * 批量接收实时数据帧的人，界面线程登记，接收线程发布
+     */
+    private final ObserverBus<IBwt901bleRecordBatchObserver> batchObservers = new ObserverBus<>(new IBwt901bleRecordBatchObserver[0]);
+
+    /**
+     * 寄存器快照存储，按MAC保存上次校验过的配置
+     */
+    private IRegisterSnapshotStore registerSnapshotStore;
+
     /**
      * 构造方法
      *
@@ -48,7 +86,7 @@ public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
         // 创建一个连接蓝牙的设备模型
         DeviceModel deviceModel = new DeviceModel(bluetoothBLE.getName() + "(" + bluetoothBLE.getMac() + ")",
                 new Bwt901bleResolver(),
-                new Bwt901bleProcessor(),
+                processor,
                 "61_0");
         WitCoreConnect witCoreConnect = new WitCoreConnect();
         witCoreConnect.setConnectType(ConnectType.BluetoothBLE);
@@ -182,6 +220,73 @@ public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
         sendProtocolData(new byte[]{(byte) 0xff, (byte) 0xaa, (byte) 0x03, rate, (byte) 0x00,});
     }
 
+    /**
+     * 把寄存器配置成期望值（阻塞到完成）
+     * <p>
+     * 设置了快照存储时，已知设备只需一次批量读取核对，没有变化就不重新配置
+     */
+    @Override
+    public RegisterConfigResult applyConfig(RegisterConfig config) throws InterruptedException {
+        RegisterConfigTransaction transaction = new RegisterConfigTransaction(deviceModel, config);
+        if (registerSnapshotStore != null) {
+            transaction.setSnapshotStore(registerSnapshotStore, getMac());
+        }
+        return transaction.execute();
+    }
+
+    /**
+     * 读取多个寄存器，相邻的寄存器合并成一次读命令
+     */
+    @Override
+    public Map<Integer, Short> readRegisters(Collection<Integer> registers) throws InterruptedException {
+        return deviceModel.readRegisters(registers, RegisterReadCorrelator.DEFAULT_TIMEOUT_MS,
+                RegisterReadCorrelator.DEFAULT_RETRIES, CommandPriority.Config).get();
+    }
+
+    /**
+     * 设置寄存器快照存储
+     */
+    public void setRegisterSnapshotStore(IRegisterSnapshotStore registerSnapshotStore) {
+        this.registerSnapshotStore = registerSnapshotStore;
+    }
+
+    /**
+     * 开始或结束记录测量，记录期间暂停后台轮询，通道只留给实时数据。
+     * 数据流打开期间链路一直是高优先级，结束记录不会把它降到平衡模式
+     */
+    public void setRecording(boolean recording) {
+        deviceModel.getPollScheduler().setRecording(recording);
+        bluetoothBLE.setLinkActive(recording);
+    }
+
+    /**
+     * 后台轮询调度（间隔、通道预算、占用统计）
+     */
+    public RegisterPollScheduler getPollScheduler() {
+        return deviceModel.getPollScheduler();
+    }
+
+    /**
+     * 当前的解码配置，由 RSW 寄存器决定
+     */
+    public DecodeProfile getDecodeProfile() {
+        return processor.getDecodeProfile();
+    }
+
+    /**
+     * 传感器实际回传的内容，没有的内容在帧里一直是0
+     */
+    public Set<SensorCapability> getCapabilities() {
+        return processor.getDecodeProfile().getCapabilities();
+    }
+
+    /**
+     * 四元数是否由设备主动上传（否则按间隔轮询寄存器51）
+     */
+    public boolean isQuaternionStreamed() {
+        return deviceModel.getPollScheduler().isStreamed(0x51);
+    }
+
     /**
      * 获得设备名称
      *
@@ -219,7 +324,7 @@ public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
      * @date 2022/6/28 21:02
      */
     public void registerRecordObserver(IBwt901bleRecordObserver record) {
-        deviceModel.registerListenKeyUpdateObserver(this);
+        listenDeviceModel();
         recordObservers.add(record);
     }
 
@@ -230,11 +335,87 @@ public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
      * @date 2022/6/28 21:02
      */
     public void removeRecordObserver(IBwt901bleRecordObserver record) {
-        deviceModel.removeListenKeyUpdateObserver(this);
-
         if (!recordObservers.isEmpty()) {
             recordObservers.remove(record);
         }
+        stopListeningIfIdle();
+    }
+
+    /**
+     * 注册实时数据帧监听
+     */
+    public void registerFrameObserver(IBwt901bleFrameObserver observer) {
+        listenDeviceModel();
+        frameObservers.add(observer);
+    }
+
+    /**
+     * 移除实时数据帧监听
+     */
+    public void removeFrameObserver(IBwt901bleFrameObserver observer) {
+        if (!frameObservers.isEmpty()) {
+            frameObservers.remove(observer);
+        }
+        stopListeningIfIdle();
+    }
+
+    /**
+     * 注册批量接收实时数据帧，一个数据包（或一个攒批窗口）里的帧一次收到
+     *
+     * @see #setBatchWindow(int, long)
+     */
+    public void registerRecordBatchObserver(IBwt901bleRecordBatchObserver observer) {
+        synchronized (batchObservers) {
+            if (batchObservers.add(observer)) {
+                deviceModel.registerFrameBatchObserver(this);
+            }
+        }
+    }
+
+    /**
+     * 移除批量接收实时数据帧
+     */
+    public void removeRecordBatchObserver(IBwt901bleRecordBatchObserver observer) {
+        synchronized (batchObservers) {
+            if (batchObservers.remove(observer) && batchObservers.isEmpty()) {
+                deviceModel.removeFrameBatchObserver(this);
+            }
+        }
+    }
+
+    /**
+     * 攒批：凑够 maxFrames 帧或者第一帧已经等了 maxDelayMs 才发出一批，都为0时每个数据包发一次
+     */
+    public void setBatchWindow(int maxFrames, long maxDelayMs) {
+        deviceModel.setFrameBatchWindow(maxFrames, maxDelayMs);
+    }
+
+    /**
+     * 批量记录数据
+     */
+    @Override
+    public void onFrameBatch(DeviceModel deviceModel, WitImuFrameBatch batch) {
+        for (IBwt901bleRecordBatchObserver observer : batchObservers.snapshot()) {
+            observer.onRecordBatch(this, batch);
+        }
+    }
+
+    /**
+     * 监听设备模型的数据刷新（只注册一次）
+     */
+    private void listenDeviceModel() {
+        if (recordObservers.isEmpty() && frameObservers.isEmpty()) {
+            deviceModel.registerListenKeyUpdateObserver(this);
+        }
+    }
+
+    /**
+     * 没有任何监听者时不再监听设备模型
+     */
+    private void stopListeningIfIdle() {
+        if (recordObservers.isEmpty() && frameObservers.isEmpty()) {
+            deviceModel.removeListenKeyUpdateObserver(this);
+        }
     }
 
     /**
@@ -256,6 +437,10 @@ public class Bwt901ble implements IListenKeyUpdateObserver, IAttitudeSensorApi {
      */
     @Override
     public void deviceModel_OnListenKeyUpdate(DeviceModel deviceModel) {
+        WitImuFrame frame = deviceModel.getImuFrame();
+        for (int i = 0; i < frameObservers.size(); i++) {
+            frameObservers.get(i).onFrame(this, frame);
+        }
         for (int i = 0; i < recordObservers.size(); i++) {
             IBwt901bleRecordObserver iBwt901bleRecordObserver = recordObservers.get(i);
             iBwt901bleRecordObserver.onRecord(this);
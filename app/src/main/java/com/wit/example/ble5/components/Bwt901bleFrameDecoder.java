@@ -0,0 +1,147 @@
+package com.wit.example.ble5.components;
+
+import com.wit.witsdk.sensor.utils.WitProtocolUtils;
+import com.wit.witsdk.utils.ByteRingBuffer;
+
+/**
+ * 蓝牙5.0传感器 55 61 / 55 71 数据流的帧解码器
+ * <p>
+ * 收到的字节写入原始byte[]环形缓冲区，在缓冲区内直接对齐帧头、取出int16字段，
+ * 解码过程中不分配对象。解出的值放在复用的数组里交给监听者，
+ * 监听者需要在回调内用完或自行复制。
+ */
+public class Bwt901bleFrameDecoder {
+
+    /**
+     * 帧长度
+     */
+    public static final int FRAME_LENGTH = 20;
+
+    /**
+     * 帧头
+     */
+    public static final byte HEADER = 0x55;
+
+    /**
+     * 实时数据帧标识
+     */
+    public static final byte TYPE_DATA = 0x61;
+
+    /**
+     * 读寄存器返回帧标识
+     */
+    public static final byte TYPE_REGISTER = 0x71;
+
+    /**
+     * 每帧字段数量（加速度、角速度、角度各3个）
+     */
+    public static final int FIELD_COUNT = 9;
+
+    /**
+     * 读寄存器返回帧里的寄存器个数
+     */
+    public static final int REGISTER_VALUE_COUNT = 4;
+
+    /**
+     * 解码结果监听
+     */
+    public interface IFrameListener {
+
+        /**
+         * 解出一帧 55 61 数据，values 在回调返回后会被下一帧覆盖
+         */
+        void onDataFrame(short[] values);
+
+        /**
+         * 解出一帧 55 71 读寄存器返回，values 为从 register 开始的4个值，回调返回后会被覆盖
+         */
+        default void onRegisterFrame(int register, short[] values) {
+        }
+    }
+
+    /**
+     * 待解析的数据
+     */
+    private final ByteRingBuffer buffer = new ByteRingBuffer(256);
+
+    /**
+     * 复用的字段数组
+     */
+    private final short[] values = new short[FIELD_COUNT];
+
+    /**
+     * 复用的寄存器值数组
+     */
+    private final short[] registerValues = new short[REGISTER_VALUE_COUNT];
+
+    /**
+     * 解出的数据帧数量
+     */
+    private long frameCount;
+
+    /**
+     * 解出的读寄存器返回帧数量
+     */
+    private long registerFrameCount;
+
+    /**
+     * 对齐帧头时丢弃的字节数
+     */
+    private long droppedBytes;
+
+    /**
+     * 写入收到的数据，并解出其中所有完整的帧
+     */
+    public void receive(byte[] data, int off, int len, IFrameListener listener) {
+        buffer.write(data, off, len);
+
+        while (buffer.size() >= 2) {
+            // 对齐帧头：跳过不是完整帧的字节，数据里的 55 61 / 55 71 由 findFrame 排除
+            int start = WitProtocolUtils.findFrame(buffer, WitProtocolUtils.ANY_BLE_TYPE);
+            if (start != 0) {
+                int skip = start > 0 ? start : WitProtocolUtils.discardableBytes(buffer, FRAME_LENGTH);
+                buffer.skip(skip);
+                droppedBytes += skip;
+                if (start < 0) {
+                    break;
+                }
+            }
+
+            if (buffer.get(1) == TYPE_DATA) {
+                for (int i = 0; i < FIELD_COUNT; i++) {
+                    values[i] = buffer.getShortLE(2 + i * 2);
+                }
+                buffer.skip(FRAME_LENGTH);
+                frameCount++;
+                listener.onDataFrame(values);
+            } else {
+                int register = buffer.getShortLE(2) & 0xffff;
+                for (int i = 0; i < REGISTER_VALUE_COUNT; i++) {
+                    registerValues[i] = buffer.getShortLE(4 + i * 2);
+                }
+                buffer.skip(FRAME_LENGTH);
+                registerFrameCount++;
+                listener.onRegisterFrame(register, registerValues);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存的数据
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getRegisterFrameCount() {
+        return registerFrameCount;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+}
@@ -1,17 +1,18 @@
 package com.wit.example.ble5.components;
 
-import android.util.Log;
-
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
 import com.wit.witsdk.sensor.modular.connector.entity.BluetoothBLEOption;
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.WitBluetoothManager;
 import com.wit.witsdk.sensor.modular.connector.roles.WitCoreConnect;
 import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
 import com.wit.example.ble5.data.WitSensorKey;
+import com.wit.witsdk.sensor.modular.processor.entity.DecodeProfile;
+import com.wit.witsdk.sensor.modular.processor.enums.SensorCapability;
 import com.wit.witsdk.sensor.modular.processor.interfaces.IDataProcessor;
+import com.wit.witsdk.sensor.modular.processor.roles.DerivedValueEngine;
 import com.wit.witsdk.sensor.utils.DipSensorMagHelper;
-import com.wit.witsdk.utils.BitConvert;
 import com.wit.witsdk.utils.NumberFormat;
-import com.wit.witsdk.utils.StringUtils;
 
 /**
  * 蓝牙5.0传感器数据解析
@@ -22,97 +23,100 @@ import com.wit.witsdk.utils.StringUtils;
 public class Bwt901bleProcessor implements IDataProcessor {
 
     /**
-     * 控制自动读取线程
+     * 磁场、四元数的读取间隔(ms)
+     */
+    private static final long MOTION_POLL_MS = 300;
+
+    /**
+     * 温度的读取间隔(ms)
+     */
+    private static final long TEMPERATURE_POLL_MS = 10000;
+
+    /**
+     * 电量的读取间隔(ms)
+     */
+    private static final long POWER_POLL_MS = 30000;
+
+    /**
+     * 信号强度的刷新间隔(ms)
+     */
+    private static final long RSSI_POLL_MS = 1500;
+
+    /**
+     * 回传速率寄存器
      */
-    private boolean readDataThreadRuning = false;
+    private static final int REG_RRATE = 0x03;
 
     // 设备模型
     private DeviceModel deviceModel;
 
-    @Override
-    public void OnOpen(DeviceModel deviceModel) {
-        this.deviceModel = deviceModel;
-        readDataThreadRuning = true;
-        Thread thread = new Thread(this::readDataThread);
-        thread.start();
-    }
+    /**
+     * 加速度范围(g)，寄存器21没读到时按16g
+     */
+    private volatile double accRange = 16.0;
 
     /**
-     * 发送协议数据
-     *
-     * @author huangyajun
-     * @date 2023/2/27 19:23
+     * 当前的解码配置，RSW 读到之前为默认配置
      */
-    private void sendProtocolData(DeviceModel deviceModel, byte[] bytes, int delay) {
-        deviceModel.sendProtocolData(bytes, delay);// 磁场
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            System.out.println(e.getMessage());
-            return;
-        }
-    }
+    private volatile DecodeProfile decodeProfile = DecodeProfile.DEFAULT;
 
     /**
-     * 读取数据线程
-     *
-     * @author huangyajun
-     * @date 2022/5/24 11:39
+     * 由寄存器推导出来的数据，只在依赖的寄存器变化时计算
      */
-    private void readDataThread() {
-        int count = 0;
-        try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    private final DerivedValueEngine derivedValues = new DerivedValueEngine()
+            .add(this::updateDecodeProfile, RegisterPollScheduler.REG_RSW)
+            .add(this::updateOutputRate, REG_RRATE)
+            .add(this::updateAccRange, 0x21)
+            .add(this::updateVersion, 0x2E, 0x2F)
+            .add(this::updateMag, 0x3A, 0x3B, 0x3C, 0x72)
+            .add(this::updateTemperature, 0x40)
+            .add(this::updatePower, 0x64)
+            .add(this::updateQuaternion, 0x51, 0x52, 0x53, 0x54);
 
-        while (readDataThreadRuning) {
-            try {
-
-                String reg21 = deviceModel.getDeviceData("21");// ACCRANGE
-                if (StringUtils.IsNullOrEmpty(reg21)) {
-                    // 读取21寄存器, 加速度范围
-                    sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, 0x21, 0x00}, 150);
-                }
-
-                String magType = deviceModel.getDeviceData("72");// 磁场类型
-                if (StringUtils.IsNullOrEmpty(magType)) {
-                    // 读取72磁场类型寄存器,后面解析磁场的时候要用到
-                    sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, 0x72, 0x00}, 150);
-                    sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, 0x72, 0x00}, 150);
-                }
-
-                String reg2e = deviceModel.getDeviceData("2E");// 版本号
-                String reg2f = deviceModel.getDeviceData("2F");// 版本号
-                if (StringUtils.IsNullOrEmpty(reg2e) || StringUtils.IsNullOrEmpty(reg2f)) {
-                    // 读版本号
-                    sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, 0x2E, 0x00}, 150);
-                }
-
-                sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, (byte) 0x27, (byte) 0x3a, (byte) 0x00}, 150);// 磁场
-                sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, (byte) 0x27, (byte) 0x51, (byte) 0x00}, 150);// 四元数
-
-                // 不需要读那么快的数据
-                if (count++ % 50 == 0 || count < 5) {
-                    sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, (byte) 0x27, (byte) 0x64, (byte) 0x00}, 150);// 电量
-                    sendProtocolData(deviceModel, new byte[]{(byte) 0xff, (byte) 0xaa, (byte) 0x27, (byte) 0x40, (byte) 0x00}, 150);// 温度
-
-
-                }
-
-                // 读取信号
-                if (count % 5 == 0) {
-                    WitCoreConnect coreConnect = deviceModel.getCoreConnect();
-                    BluetoothBLEOption bluetoothBLEOption = coreConnect.getConfig().getBluetoothBLEOption();
-                    deviceModel.setDeviceData(WitSensorKey.Rssi, WitBluetoothManager.getRssi(bluetoothBLEOption.getMac()) + "");
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                Log.i("", "BWT901BLECL5_0DataProcessor:自动读取数据异常");
-            }
-        }
+    /**
+     * 打开设备时配置后台轮询
+     * <p>
+     * 加速度、角速度、角度由实时数据帧上传，不需要轮询；
+     * 磁场和四元数只在 RSW 打开了对应内容时读取，其余寄存器各自按间隔读取。
+     */
+    @Override
+    public void OnOpen(DeviceModel deviceModel) {
+        this.deviceModel = deviceModel;
+        derivedValues.invalidate();
+        decodeProfile = DecodeProfile.DEFAULT;
+        RegisterPollScheduler scheduler = deviceModel.getPollScheduler();
+        scheduler.clear();
+        scheduler
+                // RSW，决定要轮询哪些内容
+                .pollOnce(RegisterPollScheduler.REG_RSW, 0)
+                // 回传速率，时间戳重建要用到
+                .pollOnce(REG_RRATE, 0)
+                // 加速度范围
+                .pollOnce(0x21, 0)
+                // 版本号
+                .pollOnce(0x2E, 0)
+                // 磁场类型，解析磁场的时候要用到
+                .pollOnce(0x72, SensorCapability.Mag.getRswMask())
+                // 磁场
+                .poll(0x3A, MOTION_POLL_MS, SensorCapability.Mag.getRswMask())
+                // 四元数
+                .poll(0x51, MOTION_POLL_MS, SensorCapability.Quaternion.getRswMask())
+                // 温度
+                .poll(0x40, TEMPERATURE_POLL_MS, 0)
+                // 电量
+                .poll(0x64, POWER_POLL_MS, 0)
+                // 信号
+                .every(RSSI_POLL_MS, this::updateRssi);
+        scheduler.start();
+    }
+
+    /**
+     * 读取信号强度（蓝牙管理器缓存的值，不占用通道）
+     */
+    private void updateRssi() {
+        WitCoreConnect coreConnect = deviceModel.getCoreConnect();
+        BluetoothBLEOption bluetoothBLEOption = coreConnect.getConfig().getBluetoothBLEOption();
+        deviceModel.setDeviceData(WitSensorKey.Rssi, WitBluetoothManager.getRssi(bluetoothBLEOption.getMac()) + "");
     }
 
     /**
@@ -123,177 +127,209 @@ public class Bwt901bleProcessor implements IDataProcessor {
      */
     @Override
     public void OnClose() {
-        // 停止线程
-        readDataThreadRuning = false;
+        // 停止轮询
+        if (deviceModel != null) {
+            deviceModel.getPollScheduler().stop();
+        }
     }
 
     /**
      * 解算数据
+     * <p>
+     * 每个实时数据帧只换算 RSW 打开了的加速度、角速度、角度，其余数据由 {@link #derivedValues} 在寄存器变化时计算
      *
      * @author huangyajun
      * @date 2022/4/27 14:39
      */
     @Override
     public void OnUpdate(DeviceModel deviceModel) {
-        // 加速度
-        String regAx = deviceModel.getDeviceData("61_0");
-        String regAy = deviceModel.getDeviceData("61_1");
-        String regAz = deviceModel.getDeviceData("61_2");
-        // 角速度
-        String regWx = deviceModel.getDeviceData("61_3");
-        String regWy = deviceModel.getDeviceData("61_4");
-        String regWz = deviceModel.getDeviceData("61_5");
-        // 角度
-        String regAngleX = deviceModel.getDeviceData("61_6");
-        String regAngleY = deviceModel.getDeviceData("61_7");
-        String regAngleZ = deviceModel.getDeviceData("61_8");
-
-        // 四元数
-        String regQ1 = deviceModel.getDeviceData("51");
-        String regQ2 = deviceModel.getDeviceData("52");
-        String regQ3 = deviceModel.getDeviceData("53");
-        String regQ4 = deviceModel.getDeviceData("54");
-        // 温度和电量
-        String regTemperature = deviceModel.getDeviceData("40");
-        String regPower = deviceModel.getDeviceData("64");
-
-
-        // 版本号
-        String reg2e = deviceModel.getDeviceData("2E");// 版本号
-        String reg2f = deviceModel.getDeviceData("2F");// 版本号
-
-        // 如果有版本号
-        if (StringUtils.IsNullOrEmpty(reg2e) == false &&
-                StringUtils.IsNullOrEmpty(reg2f) == false) {
-            short reg2eValue = Short.parseShort(reg2e);
-            short reg2fValue = Short.parseShort(reg2f);
-
-            int tempVerSion = BitConvert.byte2Int(new byte[]{
-                    BitConvert.short2byte(reg2fValue)[0],
-                    BitConvert.short2byte(reg2fValue)[1],
-                    BitConvert.short2byte(reg2eValue)[0],
-                    BitConvert.short2byte(reg2eValue)[1]
-            });
-
-            // UInt32 tempVerSion = BitConverter.ToUInt32(Buffer, 2);
-            String sbinary = Integer.toBinaryString(tempVerSion);// Convert.ToString(tempVerSion, 2);
-            sbinary = StringUtils.padLeft(sbinary, 32, '0');
-            if (sbinary.substring(0, 1).equals("1"))//新版本号
-            {
-                String tempNewVS = Integer.parseInt(sbinary.substring(2, 18), 2) + "";
-                tempNewVS += "." + Integer.parseInt(sbinary.substring(19, 19 + 5), 2);
-                tempNewVS += "." + Integer.parseInt(sbinary.substring(25), 2);
-                //Public.Common.Version_Number = tempNewVS;
-                deviceModel.setDeviceData(WitSensorKey.VersionNumber, tempNewVS);
-            } else {
-                int tempNewVS = BitConvert.byte2Int(new byte[]{
-                        0,
-                        0,
-                        BitConvert.short2byte(reg2eValue)[0],
-                        BitConvert.short2byte(reg2eValue)[1]
-                });
-                deviceModel.setDeviceData(WitSensorKey.VersionNumber, tempNewVS + "");
-            }
+        // 寄存器推导出来的数据，寄存器没有变化时不计算
+        derivedValues.update(deviceModel);
+
+        // 实时数据帧，原始值已由解析器写入；只换算 RSW 打开了的内容
+        WitImuFrame frame = deviceModel.getImuFrame();
+        DecodeProfile profile = decodeProfile;
+
+        if (profile.has(SensorCapability.Acc)) {
+            double range = accRange;
+            frame.setAcc(frame.getRaw(WitImuFrame.RAW_ACC_X) / 32768.0 * range,
+                    frame.getRaw(WitImuFrame.RAW_ACC_Y) / 32768.0 * range,
+                    frame.getRaw(WitImuFrame.RAW_ACC_Z) / 32768.0 * range);
+            // 按key读取的旧接口仍然使用字符串数据
+            deviceModel.setDeviceData(WitSensorKey.AccX, NumberFormat.formatDoubleToString("%.4f", frame.getAccX()));
+            deviceModel.setDeviceData(WitSensorKey.AccY, NumberFormat.formatDoubleToString("%.4f", frame.getAccY()));
+            deviceModel.setDeviceData(WitSensorKey.AccZ, NumberFormat.formatDoubleToString("%.4f", frame.getAccZ()));
         }
 
-        // 加速度解算
-        double range = 16.0;
-        String regRange = deviceModel.getDeviceData("21");
-        if (!StringUtils.IsNullOrEmpty(regRange)) {
-            try {
-                int rangeIdx = Integer.parseInt(regRange);
-                switch (rangeIdx) {
-                    case 0: range = 2.0; break;
-                    case 1: range = 4.0; break;
-                    case 2: range = 8.0; break;
-                    case 3: range = 16.0; break;
-                }
-            } catch (Exception e) {
-                range = 16.0;
-            }
+        // 角速度解算
+        if (profile.has(SensorCapability.Gyro)) {
+            frame.setGyro(frame.getRaw(WitImuFrame.RAW_GYRO_X) / 32768.0 * 2000,
+                    frame.getRaw(WitImuFrame.RAW_GYRO_Y) / 32768.0 * 2000,
+                    frame.getRaw(WitImuFrame.RAW_GYRO_Z) / 32768.0 * 2000);
+            deviceModel.setDeviceData(WitSensorKey.AsX, NumberFormat.formatDoubleToString("%.3f", frame.getGyroX()));
+            deviceModel.setDeviceData(WitSensorKey.AsY, NumberFormat.formatDoubleToString("%.3f", frame.getGyroY()));
+            deviceModel.setDeviceData(WitSensorKey.AsZ, NumberFormat.formatDoubleToString("%.3f", frame.getGyroZ()));
         }
 
-        if (!StringUtils.IsNullOrEmpty(regAx)) {
-            deviceModel.setDeviceData(WitSensorKey.AccX, NumberFormat.formatDoubleToString("%.4f", Double.parseDouble(regAx) / 32768.0 * range) + "");
-        }
-        if (!StringUtils.IsNullOrEmpty(regAy)) {
-            deviceModel.setDeviceData(WitSensorKey.AccY, NumberFormat.formatDoubleToString("%.4f", Double.parseDouble(regAy) / 32768.0 * range));
-        }
-        if (!StringUtils.IsNullOrEmpty(regAz)) {
-            deviceModel.setDeviceData(WitSensorKey.AccZ, NumberFormat.formatDoubleToString("%.4f", Double.parseDouble(regAz) / 32768.0 * range));
+        // 角度
+        if (profile.has(SensorCapability.Angle)) {
+            frame.setAngle(frame.getRaw(WitImuFrame.RAW_ANGLE_X) / 32768.0 * 180,
+                    frame.getRaw(WitImuFrame.RAW_ANGLE_Y) / 32768.0 * 180,
+                    frame.getRaw(WitImuFrame.RAW_ANGLE_Z) / 32768.0 * 180);
+            deviceModel.setDeviceData(WitSensorKey.AngleX, NumberFormat.formatDoubleToString("%.3f", frame.getAngleX()));
+            deviceModel.setDeviceData(WitSensorKey.AngleY, NumberFormat.formatDoubleToString("%.3f", frame.getAngleY()));
+            deviceModel.setDeviceData(WitSensorKey.AngleZ, NumberFormat.formatDoubleToString("%.3f", frame.getAngleZ()));
         }
+    }
 
-        // 角速度解算
-        if (!StringUtils.IsNullOrEmpty(regWx)) {
-            deviceModel.setDeviceData(WitSensorKey.AsX, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regWx) / 32768 * 2000));
-        }
-        if (!StringUtils.IsNullOrEmpty(regWy)) {
-            deviceModel.setDeviceData(WitSensorKey.AsY, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regWy) / 32768 * 2000));
+    /**
+     * 解码配置，跟随 RSW 寄存器
+     * <p>
+     * 关掉的内容不再换算，帧里对应的物理量清零
+     */
+    private void updateDecodeProfile(DeviceModel deviceModel) {
+        DecodeProfile profile = DecodeProfile.fromRsw(deviceModel.getRegister(RegisterPollScheduler.REG_RSW));
+        if (profile.equals(decodeProfile)) {
+            return;
         }
-        if (!StringUtils.IsNullOrEmpty(regWz)) {
-            deviceModel.setDeviceData(WitSensorKey.AsZ, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regWz) / 32768 * 2000));
+        WitImuFrame frame = deviceModel.getImuFrame();
+        if (!profile.has(SensorCapability.Acc)) {
+            frame.setAcc(0, 0, 0);
         }
-
-        // 角度
-        if (!StringUtils.IsNullOrEmpty(regAngleX)) {
-            deviceModel.setDeviceData(WitSensorKey.AngleX, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regAngleX) / 32768 * 180));
+        if (!profile.has(SensorCapability.Gyro)) {
+            frame.setGyro(0, 0, 0);
         }
-        if (!StringUtils.IsNullOrEmpty(regAngleY)) {
-            deviceModel.setDeviceData(WitSensorKey.AngleY, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regAngleY) / 32768 * 180));
+        if (!profile.has(SensorCapability.Angle)) {
+            frame.setAngle(0, 0, 0);
         }
-        if (!StringUtils.IsNullOrEmpty(regAngleZ)) {
-            String anZ = NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regAngleZ) / 32768 * 180);
-            deviceModel.setDeviceData(WitSensorKey.AngleZ, anZ);
+        decodeProfile = profile;
+    }
+
+    /**
+     * 回传速率，作为实时数据帧时间戳重建的名义频率
+     */
+    private void updateOutputRate(DeviceModel deviceModel) {
+        double hz = rateOfRrate(deviceModel.getRegister(REG_RRATE));
+        deviceModel.getFrameClock().setNominalRate(hz);
+    }
+
+    /**
+     * RRATE 寄存器值对应的回传频率(Hz)，单次回传、不回传和未知的值返回0
+     */
+    static double rateOfRrate(int rrate) {
+        switch (rrate) {
+            case 0x01: return 0.2;
+            case 0x02: return 0.5;
+            case 0x03: return 1;
+            case 0x04: return 2;
+            case 0x05: return 5;
+            case 0x06: return 10;
+            case 0x07: return 20;
+            case 0x08: return 50;
+            case 0x09: return 100;
+            case 0x0A: return 125;
+            case 0x0B: return 200;
+            default: return 0;
         }
+    }
 
-        // 磁场
-        String regHX = deviceModel.getDeviceData("3A");
-        String regHY = deviceModel.getDeviceData("3B");
-        String regHZ = deviceModel.getDeviceData("3C");
-        // 磁场类型
-        String magType = deviceModel.getDeviceData("72");
-        if (!StringUtils.IsNullOrEmpty(regHX) &&
-                !StringUtils.IsNullOrEmpty(regHY) &&
-                !StringUtils.IsNullOrEmpty(regHZ) &&
-                !StringUtils.IsNullOrEmpty(magType)
-        ) {
-            short type = Short.parseShort(magType);
-            // 解算数据,并且保存到设备数据里
-            deviceModel.setDeviceData(WitSensorKey.HX, DipSensorMagHelper.GetMagToUt(type, Double.parseDouble(regHX)) + "");
-            deviceModel.setDeviceData(WitSensorKey.HY, DipSensorMagHelper.GetMagToUt(type, Double.parseDouble(regHY)) + "");
-            deviceModel.setDeviceData(WitSensorKey.HZ, DipSensorMagHelper.GetMagToUt(type, Double.parseDouble(regHZ)) + "");
+    /**
+     * 加速度范围
+     */
+    private void updateAccRange(DeviceModel deviceModel) {
+        switch (deviceModel.getRegister(0x21)) {
+            case 0: accRange = 2.0; break;
+            case 1: accRange = 4.0; break;
+            case 2: accRange = 8.0; break;
+            case 3: accRange = 16.0; break;
         }
+    }
 
+    /**
+     * 版本号
+     * <p>
+     * 2F:2E 组成32位版本号，最高位为1时是新版本号：bit29~14.bit12~8.bit6~0，否则是2E的值
+     */
+    private void updateVersion(DeviceModel deviceModel) {
+        int reg2eValue = deviceModel.getRegister(0x2E) & 0xffff;
+        int reg2fValue = deviceModel.getRegister(0x2F) & 0xffff;
+        deviceModel.setDeviceData(WitSensorKey.VersionNumber, formatVersion(reg2fValue << 16 | reg2eValue));
+    }
 
-        // 温度
-        if (!StringUtils.IsNullOrEmpty(regTemperature)) {
-            deviceModel.setDeviceData(WitSensorKey.T, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regTemperature) / 100));
+    /**
+     * 32位版本号转字符串
+     */
+    static String formatVersion(int version) {
+        if (version < 0) {
+            // 新版本号
+            return ((version >>> 14) & 0xffff) + "." + ((version >>> 8) & 0x1f) + "." + (version & 0x7f);
         }
+        return (version & 0xffff) + "";
+    }
 
-        // 电量
-        if (!StringUtils.IsNullOrEmpty(regPower)) {
+    /**
+     * 磁场，解算需要磁场类型
+     * <p>
+     * 3A~3D 由设备主动上传的 55 71 包或轮询返回更新，两者格式相同
+     */
+    private void updateMag(DeviceModel deviceModel) {
+        short type = deviceModel.getRegister(0x72);
+        double hx = DipSensorMagHelper.GetMagToUt(type, deviceModel.getRegister(0x3A));
+        double hy = DipSensorMagHelper.GetMagToUt(type, deviceModel.getRegister(0x3B));
+        double hz = DipSensorMagHelper.GetMagToUt(type, deviceModel.getRegister(0x3C));
+        deviceModel.getImuFrame().setMag(hx, hy, hz);
+        deviceModel.setDeviceData(WitSensorKey.HX, hx + "");
+        deviceModel.setDeviceData(WitSensorKey.HY, hy + "");
+        deviceModel.setDeviceData(WitSensorKey.HZ, hz + "");
+    }
 
-            int regPowerValue = Integer.parseInt(regPower);
+    /**
+     * 温度
+     */
+    private void updateTemperature(DeviceModel deviceModel) {
+        deviceModel.setDeviceData(WitSensorKey.T, NumberFormat.formatDoubleToString("%.3f", deviceModel.getRegister(0x40) / 100.0));
+    }
 
-            float eqPercent = getEqPercent((float) (regPowerValue / 100.0));
-            deviceModel.setDeviceData(WitSensorKey.ElectricQuantityPercentage, eqPercent + "");
-            // 电量原始值
-            deviceModel.setDeviceData(WitSensorKey.ElectricQuantity, regPowerValue + "");
-        }
+    /**
+     * 电量
+     */
+    private void updatePower(DeviceModel deviceModel) {
+        int regPowerValue = deviceModel.getRegister(0x64);
+        float eqPercent = getEqPercent((float) (regPowerValue / 100.0));
+        deviceModel.setDeviceData(WitSensorKey.ElectricQuantityPercentage, eqPercent + "");
+        // 电量原始值
+        deviceModel.setDeviceData(WitSensorKey.ElectricQuantity, regPowerValue + "");
+    }
 
-        // 四元数
-        if (!StringUtils.IsNullOrEmpty(regQ1)) {
-            deviceModel.setDeviceData(WitSensorKey.Q0, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regQ1) / 32768.0));
-        }
-        if (!StringUtils.IsNullOrEmpty(regQ2)) {
-            deviceModel.setDeviceData(WitSensorKey.Q1, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regQ2) / 32768.0));
-        }
-        if (!StringUtils.IsNullOrEmpty(regQ3)) {
-            deviceModel.setDeviceData(WitSensorKey.Q2, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regQ3) / 32768.0));
-        }
-        if (!StringUtils.IsNullOrEmpty(regQ4)) {
-            deviceModel.setDeviceData(WitSensorKey.Q3, NumberFormat.formatDoubleToString("%.3f", Double.parseDouble(regQ4) / 32768.0));
-        }
+    /**
+     * 四元数
+     * <p>
+     * 51~54 由设备主动上传的 55 71 包或轮询返回更新，两者格式相同
+     */
+    private void updateQuaternion(DeviceModel deviceModel) {
+        double q0 = deviceModel.getRegister(0x51) / 32768.0;
+        double q1 = deviceModel.getRegister(0x52) / 32768.0;
+        double q2 = deviceModel.getRegister(0x53) / 32768.0;
+        double q3 = deviceModel.getRegister(0x54) / 32768.0;
+        deviceModel.getImuFrame().setQuaternion(q0, q1, q2, q3);
+        deviceModel.setDeviceData(WitSensorKey.Q0, NumberFormat.formatDoubleToString("%.3f", q0));
+        deviceModel.setDeviceData(WitSensorKey.Q1, NumberFormat.formatDoubleToString("%.3f", q1));
+        deviceModel.setDeviceData(WitSensorKey.Q2, NumberFormat.formatDoubleToString("%.3f", q2));
+        deviceModel.setDeviceData(WitSensorKey.Q3, NumberFormat.formatDoubleToString("%.3f", q3));
+    }
+
+    /**
+     * 当前的解码配置（传感器实际回传哪些内容）
+     */
+    public DecodeProfile getDecodeProfile() {
+        return decodeProfile;
+    }
+
+    /**
+     * 寄存器推导数据
+     */
+    public DerivedValueEngine getDerivedValues() {
+        return derivedValues;
     }
 
     /**
@@ -330,9 +366,4 @@ public class Bwt901bleProcessor implements IDataProcessor {
         }
         return v;
     }
-
-    private void ReadMagType(DeviceModel deviceModel) {
-        // 读取72磁场类型寄存器,后面解析磁场的时候要用到
-        deviceModel.sendProtocolData(new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, 0x72, 0x00});
-    }
 }
@@ -1,15 +1,11 @@
 package com.wit.example.ble5.components;
 
 import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.device.utils.FrameClock;
 import com.wit.witsdk.sensor.modular.resolver.entity.SendDataResult;
 import com.wit.witsdk.sensor.modular.resolver.interfaces.IProtocolResolver;
 import com.wit.witsdk.sensor.modular.resolver.interfaces.ISendDataCallback;
-import com.wit.witsdk.utils.BitConvert;
-import com.wit.witsdk.utils.StringUtils;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * 蓝牙5.0传感器协议解析器
@@ -17,17 +13,22 @@ import java.util.List;
  * @Author haungyajun
  * @Date 2022/4/26 15:26 （可以根据需要修改）
  */
-public class Bwt901bleResolver implements IProtocolResolver {
+public class Bwt901bleResolver implements IProtocolResolver, Bwt901bleFrameDecoder.IFrameListener {
 
     /**
-     * 要解析的数据
+     * 帧解码器
      */
-    private List<Byte> activeByteDataBuffer = new ArrayList<>();
+    private final Bwt901bleFrameDecoder frameDecoder = new Bwt901bleFrameDecoder();
 
     /**
-     * 临时Byte
+     * 正在接收数据的设备模型
      */
-    private List<Byte> activeByteTemp = new ArrayList<>();
+    private DeviceModel receivingModel;
+
+    /**
+     * 正在解析的数据包到达的时间(ns)，同一个包里的帧到达时间相同
+     */
+    private long receiveNanos;
 
     /**
      * 发送数据，并且指定等待时长
@@ -42,42 +43,22 @@ public class Bwt901bleResolver implements IProtocolResolver {
             waitTime = 100;
         }
 
-        try {
-            deviceModel.sendData(sendData, (rtnBytes) -> {
-                Byte[] returnData = rtnBytes;
-                if (sendData != null && sendData.length >= 5 && sendData[2] == 0x27 && returnData != null && returnData.length >= 20) {
-
-                    returnData = findReturnData(returnData);
-                    if (returnData != null && returnData.length == 20) {
-                        int readReg = sendData[4] << 8 | sendData[3];
-                        int rtnReg = returnData[3] << 8 | returnData[2];
-
-                        if (readReg == rtnReg) {
-                            short[] Pack = new short[9];
-
-                            for (int i = 0; i < 4; i++) {
-                                Pack[i] = BitConvert.byte2short(new byte[]{returnData[5 + (i * 2)], returnData[4 + (i * 2)]});
+        // 读寄存器：等 55 71 返回帧到达即回调，不再固定等待
+        if (sendData != null && sendData.length >= 5 && sendData[2] == 0x27) {
+            int readReg = sendData[3] & 0xff;
+            deviceModel.readRegister(readReg, waitTime, 0)
+                    .whenComplete((register, values, error) -> callback.run(new SendDataResult(error == null)));
+            return;
+        }
 
-                                String reg = Integer.toHexString(readReg + i).toUpperCase();
-                                reg = StringUtils.padLeft(reg, 2, '0');
-                                deviceModel.setDeviceData(reg, Pack[i] + "");
-                            }
-                        }
-                    }
-                }
-                // 调用回调方法
-                Thread th = new Thread(() -> {
-                    callback.run(new SendDataResult(true));
-                });
-                th.start();
-            }, waitTime, 1);
-        } catch (Exception ex) {
-            // 调用回调方法
-            Thread th = new Thread(() -> {
-                callback.run(new SendDataResult(false));
-            });
-            th.start();
+        // 写命令：在命令线程上发出并等待设备处理完，再回调
+        boolean success = deviceModel.sendData(sendData);
+        try {
+            Thread.sleep(waitTime);
+        } catch (InterruptedException e) {
+            success = false;
         }
+        callback.run(new SendDataResult(success));
     }
 
     /**
@@ -92,31 +73,6 @@ public class Bwt901bleResolver implements IProtocolResolver {
         });
     }
 
-    /**
-     * 查找传感器返回的值
-     *
-     * @author huangyajun
-     * @date 2022/5/23 14:17
-     */
-    public static Byte[] findReturnData(Byte[] returnData) {
-
-        List<Byte> bytes = Arrays.asList(returnData);
-
-        List<Byte> tempArr;
-
-        for (int i = 0; i < bytes.size(); i++) {
-            if (bytes.size() - i >= 20) {
-                tempArr = bytes.subList(i, i + 20);//  .Skip(i).Take(20).ToArray(); ;
-                if (tempArr.size() == 20 && tempArr.get(0) == 0x55 && tempArr.get(1) == 0x71) {
-                    Byte[] rtn = tempArr.toArray(new Byte[tempArr.size()]);
-                    return rtn;
-
-                }
-            }
-        }
-        return null;
-    }
-
     /**
      * 解析传感器主动回传的数据
      *
@@ -130,29 +86,33 @@ public class Bwt901bleResolver implements IProtocolResolver {
             return;
         }
 
-        for (int i = 0; i < data.length; i++) {
-            activeByteDataBuffer.add(data[i]);
-        }
-
-        while (activeByteDataBuffer.size() > 1 && activeByteDataBuffer.get(0) != 0x55 && activeByteDataBuffer.get(1) != 0x61) {
-            activeByteDataBuffer.remove(0);
-        }
+        receivingModel = deviceModel;
+        receiveNanos = System.nanoTime();
+        frameDecoder.receive(data, 0, data.length, this);
+    }
 
-        while (activeByteDataBuffer.size() >= 20) {
-            activeByteTemp = new ArrayList<>(activeByteDataBuffer.subList(0, 20));
-            activeByteDataBuffer = new ArrayList<>(activeByteDataBuffer.subList(20, activeByteDataBuffer.size()));
+    /**
+     * 解出一帧 55 61 数据
+     */
+    @Override
+    public void onDataFrame(short[] values) {
+        WitImuFrame frame = receivingModel.getImuFrame();
+        FrameClock clock = receivingModel.getFrameClock();
+        long timestamp = clock.onFrame(receiveNanos);
+        frame.setTiming(receiveNanos, timestamp, clock.getLastGap());
+        frame.setRaw(values);
+        receivingModel.putStreamData(values);
+    }
 
-            // 必须是55 61的数据包
-            if (activeByteTemp.get(0) == 0x55 && activeByteTemp.get(1) == 0x61 && activeByteTemp.size() == 20) {
-                float[] fData = new float[9];
-                int iStart = 0;
-                for (int i = 0; i < 9; i++) {
-                    fData[i] = (((short) activeByteTemp.get(iStart + i * 2 + 3)) << 8) | ((short) activeByteTemp.get(iStart + i * 2 + 2) & 0xff);
-                    String Identify = Integer.toHexString(activeByteTemp.get(1));
-                    Identify = StringUtils.padLeft(Identify, 2, '0');
-                    deviceModel.setDeviceData(Identify + "_" + i, (fData[i]) + "");
-                }
-            }
+    /**
+     * 解出一帧 55 71 读寄存器返回
+     */
+    @Override
+    public void onRegisterFrame(int register, short[] values) {
+        receivingModel.onRegisterReply(register, values);
+        // 四元数、磁场可能由传感器主动回传，每个包都提交，不合并到下一个 55 61
+        if (register == 0x51 || register == 0x3A) {
+            receivingModel.commitRegisters();
         }
     }
 }
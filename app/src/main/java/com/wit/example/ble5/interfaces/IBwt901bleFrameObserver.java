@@ -0,0 +1,16 @@
+package com.wit.example.ble5.interfaces;
+
+import com.wit.example.ble5.Bwt901ble;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+
+/**
+ * 实时数据帧通知（原始值和物理量，不经过字符串）
+ */
+public interface IBwt901bleFrameObserver {
+
+    /**
+     * 接收一帧数据，frame 是复用的实例，只在回调内有效
+     */
+    void onFrame(Bwt901ble bwt901ble, WitImuFrame frame);
+
+}
@@ -0,0 +1,16 @@
+package com.wit.example.ble5.interfaces;
+
+import com.wit.example.ble5.Bwt901ble;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrameBatch;
+
+/**
+ * 实时数据帧批量通知（一次回调收到一个数据包或一个攒批窗口里的所有帧）
+ */
+public interface IBwt901bleRecordBatchObserver {
+
+    /**
+     * 接收一批帧，batch 是复用的实例，只在回调内有效
+     */
+    void onRecordBatch(Bwt901ble bwt901ble, WitImuFrameBatch batch);
+
+}
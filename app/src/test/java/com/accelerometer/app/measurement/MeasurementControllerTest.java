@@ -0,0 +1,49 @@
+package com.accelerometer.app.measurement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.accelerometer.app.data.MeasurementState;
+import com.accelerometer.app.data.SensorSample;
+
+import org.junit.Test;
+
+/**
+ * Обрыв BLE определяется по потерянным кадрам: восстановленное время кадров идёт ровно и пропуска не показывает.
+ */
+public class MeasurementControllerTest {
+
+    private static final double PERIOD_SEC = 0.02;
+
+    /**
+     * 100 кадров по 50 Гц, перед 50-м потеряно gapFrames кадров; время ровное, как после FrameClock
+     */
+    private static MeasurementState measure(int gapFrames) {
+        MeasurementController controller = new MeasurementController();
+        controller.startMeasurement(10.0);
+        for (int i = 0; i < 100; i++) {
+            int gap = i == 50 ? gapFrames : 0;
+            controller.onSample(new SensorSample(i * PERIOD_SEC, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0, gap));
+        }
+        controller.stopMeasurement(false);
+        return controller.getState().getValue();
+    }
+
+    @Test
+    public void lostFramesInvalidateMeasurement() {
+        MeasurementState state = measure(10);
+
+        assertFalse(state.isValid());
+        // 10 потерянных кадров + интервал до следующего ≈ 220 мс
+        assertTrue(state.getValidationMessage(), state.getValidationMessage().startsWith("Обрыв BLE: пропуск 2"));
+    }
+
+    @Test
+    public void singleLostFrameIsTolerated() {
+        MeasurementState state = measure(1);
+
+        assertTrue(state.isValid());
+        assertNull(state.getValidationMessage());
+    }
+}
@@ -0,0 +1,140 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.utils.StringUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор потока 55 61 через {@link Bwt901bleFrameDecoder} даёт те же значения, что прежний разбор
+ * через ArrayList&lt;Byte&gt;, и восстанавливается после мусора.
+ */
+public class Bwt901bleFrameDecoderTest {
+
+    @Test
+    public void decoderMatchesLegacyResolver() {
+        byte[][] stream = buildStream(500);
+
+        DeviceModel legacyModel = newModel();
+        LegacyResolver legacy = new LegacyResolver();
+        DeviceModel ringModel = newModel();
+        Bwt901bleResolver resolver = new Bwt901bleResolver();
+
+        for (byte[] chunk : stream) {
+            legacy.passiveReceiveData(chunk, legacyModel);
+            resolver.passiveReceiveData(chunk, ringModel);
+        }
+
+        for (int i = 0; i < 9; i++) {
+            assertEquals(legacyModel.getDeviceData("61_" + i), ringModel.getDeviceData("61_" + i));
+        }
+    }
+
+    @Test
+    public void decoderResyncsAfterGarbage() {
+        Bwt901bleFrameDecoder decoder = new Bwt901bleFrameDecoder();
+        byte[] frame = frame(1, 2, 3);
+        byte[] noisy = new byte[7 + frame.length];
+        noisy[0] = 0x55;
+        noisy[1] = 0x13;
+        noisy[2] = 0x55;
+        System.arraycopy(frame, 0, noisy, 7, frame.length);
+
+        final int[] count = {0};
+        final short[] last = new short[9];
+        decoder.receive(noisy, 0, noisy.length, values -> {
+            count[0]++;
+            System.arraycopy(values, 0, last, 0, 9);
+        });
+
+        assertEquals(1, count[0]);
+        assertEquals(1, last[0]);
+        assertEquals(3, last[2]);
+        assertEquals(7, decoder.getDroppedBytes());
+    }
+
+    static DeviceModel newModel() {
+        return new DeviceModel("bench", null, null, "61_0");
+    }
+
+    /**
+     * Поток из frames кадров 55 61, нарезанный на уведомления разной длины
+     * (как при разных MTU / упаковке в connection event).
+     */
+    static byte[][] buildStream(int frames) {
+        int[] chunkSizes = {20, 20, 40, 13, 27, 60, 20};
+        byte[] all = new byte[frames * 20];
+        for (int f = 0; f < frames; f++) {
+            byte[] fr = frame(f, -f, f * 3);
+            System.arraycopy(fr, 0, all, f * 20, 20);
+        }
+        List<byte[]> chunks = new ArrayList<>();
+        int pos = 0;
+        int n = 0;
+        while (pos < all.length) {
+            int len = Math.min(chunkSizes[n++ % chunkSizes.length], all.length - pos);
+            byte[] chunk = new byte[len];
+            System.arraycopy(all, pos, chunk, 0, len);
+            chunks.add(chunk);
+            pos += len;
+        }
+        return chunks.toArray(new byte[0][]);
+    }
+
+    static byte[] frame(int ax, int ay, int az) {
+        byte[] fr = new byte[20];
+        fr[0] = 0x55;
+        fr[1] = 0x61;
+        int[] v = {ax, ay, az, 10, 20, 30, 100, 200, 300};
+        for (int i = 0; i < 9; i++) {
+            fr[2 + i * 2] = (byte) v[i];
+            fr[3 + i * 2] = (byte) (v[i] >> 8);
+        }
+        return fr;
+    }
+
+    /**
+     * Прежняя реализация Bwt901bleResolver.passiveReceiveData — эталон для сравнения.
+     */
+    static class LegacyResolver {
+
+        private List<Byte> activeByteDataBuffer = new ArrayList<>();
+
+        private List<Byte> activeByteTemp = new ArrayList<>();
+
+        void passiveReceiveData(byte[] data, DeviceModel deviceModel) {
+            if (data.length < 1) {
+                return;
+            }
+
+            for (int i = 0; i < data.length; i++) {
+                activeByteDataBuffer.add(data[i]);
+            }
+
+            while (activeByteDataBuffer.size() > 1 && activeByteDataBuffer.get(0) != 0x55 && activeByteDataBuffer.get(1) != 0x61) {
+                activeByteDataBuffer.remove(0);
+            }
+
+            while (activeByteDataBuffer.size() >= 20) {
+                activeByteTemp = new ArrayList<>(activeByteDataBuffer.subList(0, 20));
+                activeByteDataBuffer = new ArrayList<>(activeByteDataBuffer.subList(20, activeByteDataBuffer.size()));
+
+                if (activeByteTemp.get(0) == 0x55 && activeByteTemp.get(1) == 0x61 && activeByteTemp.size() == 20) {
+                    float[] fData = new float[9];
+                    int iStart = 0;
+                    for (int i = 0; i < 9; i++) {
+                        fData[i] = (((short) activeByteTemp.get(iStart + i * 2 + 3)) << 8) | ((short) activeByteTemp.get(iStart + i * 2 + 2) & 0xff);
+                        String Identify = Integer.toHexString(activeByteTemp.get(1));
+                        Identify = StringUtils.padLeft(Identify, 2, '0');
+                        deviceModel.setDeviceData(Identify + "_" + i, (fData[i]) + "");
+                    }
+                }
+            }
+        }
+    }
+}
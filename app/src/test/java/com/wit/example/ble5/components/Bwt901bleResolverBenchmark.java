@@ -0,0 +1,86 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Сравнение разбора потока 55 61: прежний разбор через ArrayList&lt;Byte&gt;
+ * и {@link Bwt901bleFrameDecoder} на кольцевом буфере.
+ * <p>
+ * Байты аллокаций считаются через HotSpot ThreadMXBean. В обычный прогон тестов
+ * не входит: {@code ./gradlew test -Pbenchmark}.
+ */
+public class Bwt901bleResolverBenchmark {
+
+    private static final int FRAMES = 200_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    @Test
+    public void decoderThroughputAndAllocation() {
+        byte[][] stream = Bwt901bleFrameDecoderTest.buildStream(FRAMES);
+        long[] sink = new long[1];
+        Bwt901bleFrameDecoder.IFrameListener listener = values -> sink[0] += values[0];
+
+        Bwt901bleFrameDecoder decoder = new Bwt901bleFrameDecoder();
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            feed(decoder, stream, listener);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        feed(decoder, stream, listener);
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+
+        assertTrue("ring decoder: " + perFrame(elapsed, bytes), bytes / (double) FRAMES < 1.0);
+    }
+
+    @Test
+    public void resolverThroughputAndAllocation() {
+        byte[][] stream = Bwt901bleFrameDecoderTest.buildStream(FRAMES);
+
+        DeviceModel legacyModel = Bwt901bleFrameDecoderTest.newModel();
+        Bwt901bleFrameDecoderTest.LegacyResolver legacy = new Bwt901bleFrameDecoderTest.LegacyResolver();
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (byte[] chunk : stream) legacy.passiveReceiveData(chunk, legacyModel);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (byte[] chunk : stream) legacy.passiveReceiveData(chunk, legacyModel);
+        long legacyElapsed = System.nanoTime() - start;
+        long legacyBytes = allocatedBytes() - bytesBefore;
+
+        DeviceModel ringModel = Bwt901bleFrameDecoderTest.newModel();
+        Bwt901bleResolver resolver = new Bwt901bleResolver();
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (byte[] chunk : stream) resolver.passiveReceiveData(chunk, ringModel);
+        }
+        bytesBefore = allocatedBytes();
+        start = System.nanoTime();
+        for (byte[] chunk : stream) resolver.passiveReceiveData(chunk, ringModel);
+        long ringElapsed = System.nanoTime() - start;
+        long ringBytes = allocatedBytes() - bytesBefore;
+
+        assertTrue("ring resolver " + perFrame(ringElapsed, ringBytes)
+                + " vs legacy " + perFrame(legacyElapsed, legacyBytes), ringBytes < legacyBytes);
+    }
+
+    private static void feed(Bwt901bleFrameDecoder decoder, byte[][] stream, Bwt901bleFrameDecoder.IFrameListener listener) {
+        for (byte[] chunk : stream) {
+            decoder.receive(chunk, 0, chunk.length, listener);
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String perFrame(long elapsedNs, long bytes) {
+        return elapsedNs / FRAMES + " ns, " + bytes / FRAMES + " bytes per frame";
+    }
+}
@@ -0,0 +1,87 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.example.ble5.data.WitSensorKey;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.processor.entity.DecodeProfile;
+import com.wit.witsdk.sensor.modular.processor.enums.SensorCapability;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+/**
+ * Профиль декодирования по регистру RSW: пересчитываются и публикуются только передаваемые поля.
+ */
+public class DecodeProfileTest {
+
+    /**
+     * Кадр 55 61, в котором заполнены все 9 полей
+     */
+    private static byte[] fullFrame(int value) {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x61;
+        for (int i = 0; i < 9; i++) {
+            frame[2 + i * 2] = (byte) value;
+            frame[3 + i * 2] = (byte) (value >> 8);
+        }
+        return frame;
+    }
+
+    @Test
+    public void capabilitiesFollowRswBits() {
+        assertEquals(EnumSet.of(SensorCapability.Acc), DecodeProfile.fromRsw(0x02).getCapabilities());
+        assertEquals(EnumSet.of(SensorCapability.Time, SensorCapability.Acc, SensorCapability.Gyro,
+                        SensorCapability.Angle, SensorCapability.Mag, SensorCapability.Quaternion),
+                DecodeProfile.fromRsw(0x021F).getCapabilities());
+        assertFalse(DecodeProfile.DEFAULT.isKnown());
+        assertTrue(DecodeProfile.DEFAULT.has(SensorCapability.Angle));
+    }
+
+    @Test
+    public void accOnlySensorSkipsGyroAndAngle() {
+        Bwt901bleProcessor processor = new Bwt901bleProcessor();
+        DeviceModel model = new DeviceModel("profile", new Bwt901bleResolver(), processor, "61_0");
+
+        model.onRegisterReply(0x02, new short[]{0x02, 0x08, 0, 0});
+        model.getProtocolResolver().passiveReceiveData(fullFrame(16384), model);
+
+        assertEquals(EnumSet.of(SensorCapability.Acc), processor.getDecodeProfile().getCapabilities());
+        assertEquals(8.0, model.getImuFrame().getAccX(), 1e-9);
+        assertEquals(0.0, model.getImuFrame().getGyroX(), 0);
+        assertEquals(0.0, model.getImuFrame().getAngleZ(), 0);
+        assertEquals(8.0, Double.parseDouble(model.getDeviceData(WitSensorKey.AccX)), 1e-9);
+        assertNull(model.getDeviceData(WitSensorKey.AsX));
+        assertNull(model.getDeviceData(WitSensorKey.AngleX));
+    }
+
+    @Test
+    public void unknownRswDecodesWholeFrame() {
+        Bwt901bleProcessor processor = new Bwt901bleProcessor();
+        DeviceModel model = new DeviceModel("profile", new Bwt901bleResolver(), processor, "61_0");
+
+        model.getProtocolResolver().passiveReceiveData(fullFrame(16384), model);
+
+        assertFalse(processor.getDecodeProfile().isKnown());
+        assertEquals(1000.0, model.getImuFrame().getGyroX(), 1e-9);
+        assertEquals(90.0, model.getImuFrame().getAngleZ(), 1e-9);
+    }
+
+    @Test
+    public void disablingAngleClearsItInFrame() {
+        Bwt901bleProcessor processor = new Bwt901bleProcessor();
+        DeviceModel model = new DeviceModel("profile", new Bwt901bleResolver(), processor, "61_0");
+
+        model.getProtocolResolver().passiveReceiveData(fullFrame(16384), model);
+        model.onRegisterReply(0x02, new short[]{0x06, 0x08, 0, 0});
+        model.getProtocolResolver().passiveReceiveData(fullFrame(16384), model);
+
+        assertEquals(1000.0, model.getImuFrame().getGyroX(), 1e-9);
+        assertEquals(0.0, model.getImuFrame().getAngleX(), 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+
+import com.wit.example.ble5.data.WitSensorKey;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.processor.roles.DerivedValueEngine;
+
+import org.junit.Test;
+
+/**
+ * Производные значения процессора пересчитываются только при изменении их регистров.
+ */
+public class DerivedValueTest {
+
+    private static byte[] frame(int accX) {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x61;
+        frame[2] = (byte) accX;
+        frame[3] = (byte) (accX >> 8);
+        return frame;
+    }
+
+    /**
+     * Прежний разбор версии через двоичную строку
+     */
+    private static String legacyVersion(int version) {
+        StringBuilder binary = new StringBuilder(Integer.toBinaryString(version));
+        while (binary.length() < 32) {
+            binary.insert(0, '0');
+        }
+        String s = binary.toString();
+        if (s.charAt(0) == '1') {
+            return Integer.parseInt(s.substring(2, 18), 2)
+                    + "." + Integer.parseInt(s.substring(19, 24), 2)
+                    + "." + Integer.parseInt(s.substring(25), 2);
+        }
+        return (version & 0xffff) + "";
+    }
+
+    @Test
+    public void versionMatchesLegacyParsing() {
+        int[] versions = {0, 0x1234, 0x7fff_ffff, 0x8000_0000, 0xffff_ffff, 0x8000_c1a5, 0xc003_5e21, 0x8124_7f7f};
+        for (int version : versions) {
+            assertEquals(Integer.toHexString(version), legacyVersion(version), Bwt901bleProcessor.formatVersion(version));
+        }
+    }
+
+    @Test
+    public void framesDoNotRecomputeRegisterValues() {
+        Bwt901bleProcessor processor = new Bwt901bleProcessor();
+        DeviceModel model = new DeviceModel("derived", new Bwt901bleResolver(), processor, "61_0");
+        DerivedValueEngine engine = processor.getDerivedValues();
+
+        model.onRegisterReply(0x40, new short[]{2512, 0, 0, 0});
+        model.onRegisterReply(0x64, new short[]{390, 0, 0, 0});
+        // производные значения считаются при фиксации кадра
+        model.getProtocolResolver().passiveReceiveData(frame(0), model);
+        long afterRegisters = engine.getComputeCount();
+        for (int i = 1; i < 100; i++) {
+            model.getProtocolResolver().passiveReceiveData(frame(i), model);
+        }
+
+        // температура и заряд посчитаны по одному разу, кадры ничего не пересчитали
+        assertEquals(2, afterRegisters);
+        assertEquals(afterRegisters, engine.getComputeCount());
+        assertEquals("25.120", model.getDeviceData(WitSensorKey.T));
+        assertEquals("390", model.getDeviceData(WitSensorKey.ElectricQuantity));
+
+        model.onRegisterReply(0x40, new short[]{2600, 0, 0, 0});
+        model.getProtocolResolver().passiveReceiveData(frame(1), model);
+        assertEquals(afterRegisters + 1, engine.getComputeCount());
+        assertEquals("26.000", model.getDeviceData(WitSensorKey.T));
+    }
+
+    @Test
+    public void valueWaitsForAllOfItsRegisters() {
+        Bwt901bleProcessor processor = new Bwt901bleProcessor();
+        DeviceModel model = new DeviceModel("derived", new Bwt901bleResolver(), processor, "61_0");
+
+        model.onRegisterReply(0x72, new short[]{0, 0, 0, 0});
+        model.getProtocolResolver().passiveReceiveData(frame(0), model);
+        assertEquals(0, processor.getDerivedValues().getComputeCount());
+
+        // 3A..3D одним ответом, теперь магнитометр можно посчитать
+        model.onRegisterReply(0x3A, new short[]{100, 200, 300, 0});
+        model.getProtocolResolver().passiveReceiveData(frame(0), model);
+        assertEquals(1, processor.getDerivedValues().getComputeCount());
+    }
+
+    @Test
+    public void accRangeFollowsRegister() {
+        DeviceModel model = new DeviceModel("derived", new Bwt901bleResolver(), new Bwt901bleProcessor(), "61_0");
+
+        model.getProtocolResolver().passiveReceiveData(frame(16384), model);
+        assertEquals(8.0, model.getImuFrame().getAccX(), 1e-9);
+
+        model.onRegisterReply(0x21, new short[]{1, 0, 0, 0});
+        model.getProtocolResolver().passiveReceiveData(frame(16384), model);
+        assertEquals(2.0, model.getImuFrame().getAccX(), 1e-9);
+    }
+}
@@ -0,0 +1,48 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+
+import com.wit.example.ble5.data.WitSensorKey;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.DeviceRegisterFile;
+
+import org.junit.Test;
+
+/**
+ * Ключи портов D0–D3 и регистры 0xD0–0xD3 лежат в разных слотах и не затирают друг друга.
+ */
+public class DeviceRegisterFileTest {
+
+    @Test
+    public void portKeysAndRegistersUseSeparateSlots() {
+        for (int i = 0; i < DeviceRegisterFile.PORT_SLOT_COUNT; i++) {
+            int port = DeviceRegisterFile.slotOf("D" + i);
+            int register = DeviceRegisterFile.slotOf("0xD" + i);
+            assertEquals(DeviceRegisterFile.PORT_BASE + i, port);
+            assertEquals(0xD0 + i, register);
+            assertEquals("D" + i, DeviceRegisterFile.keyOf(port));
+            assertEquals(register, DeviceRegisterFile.slotOf(DeviceRegisterFile.keyOf(register)));
+        }
+        assertEquals(0x2E, DeviceRegisterFile.slotOf("2e"));
+        assertEquals(DeviceRegisterFile.STREAM_BASE + 8, DeviceRegisterFile.slotOf("61_8"));
+        assertEquals(-1, DeviceRegisterFile.slotOf("D4x"));
+    }
+
+    @Test
+    public void registerWriteKeepsPortValue() {
+        DeviceModel model = new DeviceModel("ports", new Bwt901bleResolver(), null, "61_0");
+
+        model.setDeviceData(WitSensorKey.D0, "12");
+        model.setDeviceData(WitSensorKey.D3, "-7");
+        model.onRegisterReply(0xD0, new short[]{100, 101, 102, 103});
+
+        assertEquals("12", model.getDeviceData(WitSensorKey.D0));
+        assertEquals("-7", model.getDeviceData(WitSensorKey.D3));
+        assertEquals(100, model.getRegister(0xD0));
+        assertEquals(103, model.getRegister(0xD3));
+        assertEquals("101", model.getDeviceData("0xD1"));
+
+        model.setDeviceData(WitSensorKey.D1, "5");
+        assertEquals(101, model.getRegister(0xD1));
+    }
+}
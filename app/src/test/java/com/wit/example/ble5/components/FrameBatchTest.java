@@ -0,0 +1,150 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrameBatch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная доставка кадров: один вызов на пакет BLE или на окно накопления.
+ */
+public class FrameBatchTest {
+
+    /**
+     * Пакет из count кадров 55 61, accX кадра i = first + i
+     */
+    private static byte[] packet(int first, int count) {
+        byte[] packet = new byte[20 * count];
+        for (int i = 0; i < count; i++) {
+            int accX = first + i;
+            packet[i * 20] = 0x55;
+            packet[i * 20 + 1] = 0x61;
+            packet[i * 20 + 2] = (byte) accX;
+            packet[i * 20 + 3] = (byte) (accX >> 8);
+        }
+        return packet;
+    }
+
+    private static DeviceModel newModel() {
+        return new DeviceModel("batch", new Bwt901bleResolver(), new Bwt901bleProcessor(), "61_0");
+    }
+
+    @Test
+    public void multiFramePacketIsDeliveredAsOneBatch() {
+        DeviceModel model = newModel();
+        List<Integer> sizes = new ArrayList<>();
+        List<Short> accX = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        model.registerFrameBatchObserver((deviceModel, batch) -> {
+            sizes.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                accX.add(batch.getRaw(i, WitImuFrame.RAW_ACC_X));
+                timestamps.add(batch.getTimestampNanos(i));
+            }
+        });
+        int[] frames = {0};
+        model.registerListenKeyUpdateObserver(deviceModel -> frames[0]++);
+
+        model.update(packet(100, 5));
+
+        assertEquals("[5]", sizes.toString());
+        assertEquals("[100, 101, 102, 103, 104]", accX.toString());
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+        }
+        // покадровые наблюдатели работают как раньше
+        assertEquals(5, frames[0]);
+    }
+
+    @Test
+    public void batchCarriesConvertedValues() {
+        DeviceModel model = newModel();
+        double[] acc = new double[1];
+        model.registerFrameBatchObserver((deviceModel, batch) -> acc[0] = batch.getAccX(batch.size() - 1));
+
+        model.update(packet(16384, 1));
+
+        // диапазон по умолчанию 16g: 16384 / 32768 * 16 = 8g
+        assertEquals(8.0, acc[0], 1e-9);
+    }
+
+    @Test
+    public void windowCoalescesNotifications() {
+        DeviceModel model = newModel();
+        model.setFrameBatchWindow(10, 60000);
+        List<Integer> sizes = new ArrayList<>();
+        long[] lastSequence = {0};
+        model.registerFrameBatchObserver((deviceModel, batch) -> {
+            sizes.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(lastSequence[0] + 1, batch.getSequence(i));
+                lastSequence[0] = batch.getSequence(i);
+            }
+        });
+
+        // 200 кадров по одному в уведомлении (MTU 23): 20 вызовов вместо 200
+        for (int i = 0; i < 200; i++) {
+            model.update(packet(i, 1));
+        }
+        assertEquals(20, sizes.size());
+        assertEquals(10, (int) sizes.get(0));
+
+        // остаток отдаётся при закрытии устройства
+        for (int i = 0; i < 3; i++) {
+            model.update(packet(i, 1));
+        }
+        model.closeDevice();
+        assertEquals(3, (int) sizes.get(sizes.size() - 1));
+        assertEquals(203, lastSequence[0]);
+    }
+
+    @Test
+    public void partialBatchIsFlushedWhenWindowCloses() throws Exception {
+        DeviceModel model = newModel();
+        model.setFrameBatchWindow(10, 20);
+        CountDownLatch delivered = new CountDownLatch(1);
+        int[] size = new int[1];
+        model.registerFrameBatchObserver((deviceModel, batch) -> {
+            size[0] = batch.size();
+            delivered.countDown();
+        });
+
+        // три кадра, затем связь замолкает: новых пакетов нет, окно закрывает таймер
+        for (int i = 0; i < 3; i++) {
+            model.update(packet(i, 1));
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(3, size[0]);
+    }
+
+    @Test
+    public void batchGrowsBeyondDefaultCapacity() {
+        WitImuFrameBatch batch = new WitImuFrameBatch(2);
+        WitImuFrame frame = new WitImuFrame();
+        short[] raw = new short[WitImuFrame.RAW_COUNT];
+        for (int i = 0; i < 5; i++) {
+            raw[WitImuFrame.RAW_ANGLE_Z] = (short) i;
+            frame.setRaw(raw);
+            frame.setAngle(0, 0, i * 1.5);
+            batch.add(frame);
+        }
+
+        assertEquals(5, batch.size());
+        assertTrue(batch.capacity() >= 5);
+        assertEquals(4, batch.getRaw(4, WitImuFrame.RAW_ANGLE_Z));
+        assertEquals(6.0, batch.getAngleZ(4), 0);
+        assertEquals(6.0, batch.getAngleArray()[4 * 3 + 2], 0);
+        batch.clear();
+        assertTrue(batch.isEmpty());
+    }
+}
@@ -0,0 +1,208 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.device.utils.FrameClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Восстановление времени кадров: джиттер доставки и пачки кадров в одном пакете
+ * не портят dt, потерянные кадры обнаруживаются, уход частоты датчика отслеживается.
+ */
+public class FrameClockTest {
+
+    private static final long MS = 1000000L;
+
+    /**
+     * Время прихода кадров: датчик выдаёт кадр каждые periodNanos, кадры приходят пачками по 1–3
+     * с задержкой 5–35 мс; dropCount кадров начиная с dropFrom не приходят совсем
+     */
+    private static long[] arrivals(int count, double periodNanos, long seed, int dropFrom, int dropCount) {
+        Random random = new Random(seed);
+        List<Long> result = new ArrayList<>();
+        long previous = 0;
+        int index = 0;
+        while (index < count) {
+            int bunch = 1 + random.nextInt(3);
+            // пакет уходит после последнего кадра пачки
+            long arrival = (long) ((index + bunch - 1) * periodNanos + 5 * MS + random.nextDouble() * 30 * MS);
+            for (int i = 0; i < bunch && index < count; i++, index++) {
+                if (index >= dropFrom && index < dropFrom + dropCount) {
+                    continue;
+                }
+                previous = Math.max(previous, arrival);
+                result.add(previous);
+            }
+        }
+        long[] array = new long[result.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = result.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Пропускает кадры через часы, возвращает восстановленное время
+     */
+    private static long[] run(FrameClock clock, long[] arrivals, List<String> gaps) {
+        long[] timestamps = new long[arrivals.length];
+        for (int i = 0; i < arrivals.length; i++) {
+            timestamps[i] = clock.onFrame(arrivals[i]);
+            if (clock.getLastGap() != 0) {
+                gaps.add(clock.getLastGap() + "@" + i);
+            }
+            if (i > 0) {
+                assertTrue("время идёт назад на кадре " + i, timestamps[i] > timestamps[i - 1]);
+            }
+        }
+        return timestamps;
+    }
+
+    /**
+     * Наибольшее отклонение dt от периода после прогрева, кадры с пропуском не учитываются
+     */
+    private static double maxDeviation(long[] timestamps, double periodNanos, int from) {
+        double max = 0;
+        for (int i = Math.max(1, from); i < timestamps.length; i++) {
+            double dt = timestamps[i] - timestamps[i - 1];
+            if (dt < 1.5 * periodNanos) {
+                max = Math.max(max, Math.abs(dt - periodNanos));
+            }
+        }
+        return max;
+    }
+
+    @Test
+    public void jitterAndBunchingDoNotProduceFalseGaps() {
+        FrameClock clock = new FrameClock();
+        clock.setNominalRate(50);
+        List<String> gaps = new ArrayList<>();
+
+        long[] timestamps = run(clock, arrivals(3000, 20 * MS, 1, -1, 0), gaps);
+
+        assertEquals("[]", gaps.toString());
+        assertEquals(0, clock.getDroppedFrames());
+        // джиттер доставки 30 мс, а dt отклоняется от 20 мс не больше чем на 3 мс
+        double deviation = maxDeviation(timestamps, 20 * MS, 100);
+        assertTrue("dt deviation: " + deviation / MS, deviation < 3 * MS);
+        assertEquals(20.0, clock.getPeriodNanos() / MS, 0.05);
+    }
+
+    @Test
+    public void droppedFramesAreDetected() {
+        FrameClock clock = new FrameClock();
+        clock.setNominalRate(50);
+        List<String> gaps = new ArrayList<>();
+
+        long[] arrivals = arrivals(3000, 20 * MS, 3, 1000, 5);
+        long[] timestamps = run(clock, arrivals, gaps);
+
+        assertEquals(5, clock.getDroppedFrames());
+        // время последнего кадра сходится с временем выдачи датчиком с учётом потерянных кадров,
+        // отстаёт не больше чем на задержку доставки
+        double lag = (timestamps[timestamps.length - 1] - (3000 - 1) * 20 * MS) / (double) MS;
+        assertTrue("lag: " + lag, lag >= 0 && lag < 35);
+
+        // после переподключения счёт потерь начинается заново
+        clock.reset();
+        run(clock, arrivals(500, 20 * MS, 5, -1, 0), new ArrayList<>());
+        assertEquals(0, clock.getDroppedFrames());
+    }
+
+    @Test
+    public void sensorClockDriftIsTracked() {
+        FrameClock clock = new FrameClock();
+        // датчик на 3% медленнее номинальных 50 Гц
+        clock.setNominalRate(50);
+        List<String> gaps = new ArrayList<>();
+
+        long[] timestamps = run(clock, arrivals(3000, 20.6 * MS, 2, -1, 0), gaps);
+
+        assertEquals("[]", gaps.toString());
+        assertEquals(20.6, clock.getPeriodNanos() / MS, 0.05);
+        double deviation = maxDeviation(timestamps, 20.6 * MS, 100);
+        assertTrue("dt deviation: " + deviation / MS, deviation < 3 * MS);
+    }
+
+    @Test
+    public void schedulingStallIsNotCountedAsDrop() {
+        FrameClock clock = new FrameClock();
+        clock.setNominalRate(50);
+        long[] arrivals = arrivals(2000, 20 * MS, 4, -1, 0);
+        // приложение 200 мс не получает данные, потом все накопившиеся кадры приходят разом
+        long stallEnd = 500 * 20 * MS + 200 * MS;
+        for (int i = 0; i < arrivals.length; i++) {
+            if (arrivals[i] >= 500 * 20 * MS && arrivals[i] < stallEnd) {
+                arrivals[i] = stallEnd;
+            }
+        }
+        List<String> gaps = new ArrayList<>();
+
+        long[] timestamps = run(clock, arrivals, gaps);
+
+        assertEquals(0, clock.getDroppedFrames());
+        double deviation = maxDeviation(timestamps, 20 * MS, 100);
+        assertTrue("dt deviation: " + deviation / MS, deviation < 3 * MS);
+    }
+
+    @Test
+    public void unknownRateIsFitted() {
+        FrameClock clock = new FrameClock();
+        Random random = new Random(5);
+        long[] arrivals = new long[1000];
+        for (int i = 0; i < arrivals.length; i++) {
+            arrivals[i] = (long) (i * 7.5 * MS + 5 * MS + random.nextDouble() * 10 * MS);
+            if (i > 0) {
+                arrivals[i] = Math.max(arrivals[i], arrivals[i - 1]);
+            }
+        }
+        List<String> gaps = new ArrayList<>();
+
+        long[] timestamps = run(clock, arrivals, gaps);
+
+        assertEquals("[]", gaps.toString());
+        assertEquals(7.5, clock.getPeriodNanos() / MS, 0.05);
+        double deviation = maxDeviation(timestamps, 7.5 * MS, 100);
+        assertTrue("dt deviation: " + deviation / MS, deviation < MS);
+    }
+
+    @Test
+    public void resolverStampsFramesAtRateFromRrate() {
+        Bwt901bleProcessor processor = new Bwt901bleProcessor();
+        DeviceModel model = new DeviceModel("clock", new Bwt901bleResolver(), processor, "61_0");
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x61;
+
+        // RRATE = 0x09 (100 Гц), производные значения применяются при фиксации кадра
+        model.onRegisterReply(0x03, new short[]{0x09, 0, 0, 0});
+        model.getProtocolResolver().passiveReceiveData(frame, model);
+        assertEquals(10 * MS, model.getFrameClock().getNominalPeriodNanos());
+
+        // два кадра в одном пакете получают разное время
+        byte[] packet = new byte[40];
+        System.arraycopy(frame, 0, packet, 0, 20);
+        System.arraycopy(frame, 0, packet, 20, 20);
+        List<Long> timestamps = new ArrayList<>();
+        List<Long> arrivals = new ArrayList<>();
+        model.registerListenKeyUpdateObserver(deviceModel -> {
+            WitImuFrame imuFrame = deviceModel.getImuFrame();
+            timestamps.add(imuFrame.getTimestampNanos());
+            arrivals.add(imuFrame.getArrivalNanos());
+        });
+        model.getProtocolResolver().passiveReceiveData(packet, model);
+
+        assertEquals(2, timestamps.size());
+        assertEquals(arrivals.get(0), arrivals.get(1));
+        assertTrue(timestamps.get(1) > timestamps.get(0));
+        assertEquals(0, model.getImuFrame().getGapFrames());
+    }
+}
@@ -0,0 +1,142 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.example.ble5.data.WitSensorKey;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.interfaces.IKeyUpdateObserver;
+import com.wit.witsdk.sensor.modular.device.interfaces.IListenKeyUpdateObserver;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Рассылка обновлений: подписки по ключу и одна фиксация кадра на кадр 55 61.
+ */
+public class FrameDispatchTest {
+
+    private static byte[] frame(int accX) {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x61;
+        frame[2] = (byte) accX;
+        frame[3] = (byte) (accX >> 8);
+        return frame;
+    }
+
+    private static DeviceModel newModel() {
+        return new DeviceModel("dispatch", new Bwt901bleResolver(), new Bwt901bleProcessor(), "61_0");
+    }
+
+    @Test
+    public void frameIsCommittedOncePerDecodedFrame() {
+        DeviceModel model = newModel();
+        int[] commits = {0};
+        model.registerListenKeyUpdateObserver(deviceModel -> commits[0]++);
+
+        for (int i = 0; i < 50; i++) {
+            model.getProtocolResolver().passiveReceiveData(frame(i * 100), model);
+        }
+
+        assertEquals(50, commits[0]);
+        assertEquals(49 * 100, model.getImuFrame().getRaw(0));
+    }
+
+    @Test
+    public void keyedObserverOnlySeesItsKey() {
+        DeviceModel model = newModel();
+        List<String> accX = new ArrayList<>();
+        List<String> power = new ArrayList<>();
+        model.registerKeyUpdateObserver(WitSensorKey.AccX, (deviceModel, key, value) -> accX.add(key));
+        model.registerKeyUpdateObserver("64", (deviceModel, key, value) -> power.add(key + "=" + value));
+
+        for (int i = 0; i < 10; i++) {
+            model.getProtocolResolver().passiveReceiveData(frame(i), model);
+        }
+        model.onRegisterReply(0x64, new short[]{390, 0, 0, 0});
+
+        assertEquals(10, accX.size());
+        assertEquals("[64=390]", power.toString());
+    }
+
+    @Test
+    public void removedObserverIsNotNotified() {
+        DeviceModel model = newModel();
+        int[] count = {0};
+        IKeyUpdateObserver observer = (deviceModel, key, value) -> count[0]++;
+        model.registerKeyUpdateObserver("61_3", observer);
+
+        model.getProtocolResolver().passiveReceiveData(frame(1), model);
+        model.removeKeyUpdateObserver("61_3", observer);
+        model.getProtocolResolver().passiveReceiveData(frame(2), model);
+
+        assertEquals(1, count[0]);
+    }
+
+    @Test
+    public void observerWithoutKeyStillSeesEveryKey() {
+        DeviceModel model = newModel();
+        List<String> keys = new ArrayList<>();
+        model.registerKeyUpdateObserver((deviceModel, key, value) -> keys.add(key));
+
+        model.getProtocolResolver().passiveReceiveData(frame(1), model);
+
+        // 9 полей кадра и производные значения процессора
+        assertEquals("61_8", keys.get(0));
+        assertEquals("61_0", keys.get(8));
+        assertTrue(keys.contains(WitSensorKey.AccX));
+    }
+
+    @Test
+    public void observerCanUnsubscribeWhileBeingNotified() {
+        DeviceModel model = newModel();
+        int[] count = {0, 0};
+        IListenKeyUpdateObserver second = deviceModel -> count[1]++;
+        model.registerListenKeyUpdateObserver(new IListenKeyUpdateObserver() {
+            @Override
+            public void update(DeviceModel deviceModel) {
+                count[0]++;
+                deviceModel.removeListenKeyUpdateObserver(this);
+            }
+        });
+        model.registerListenKeyUpdateObserver(second);
+
+        model.getProtocolResolver().passiveReceiveData(frame(1), model);
+        model.getProtocolResolver().passiveReceiveData(frame(2), model);
+
+        // отписка во время рассылки действует со следующего кадра, второй наблюдатель не пропускает кадры
+        assertEquals(1, count[0]);
+        assertEquals(2, count[1]);
+    }
+
+    @Test
+    public void subscriptionsFromOtherThreadsDoNotBreakDispatch() throws Exception {
+        DeviceModel model = newModel();
+        int[] commits = {0};
+        model.registerListenKeyUpdateObserver(deviceModel -> commits[0]++);
+        Thread churn = new Thread(() -> {
+            IListenKeyUpdateObserver observer = deviceModel -> { };
+            IKeyUpdateObserver keyObserver = (deviceModel, key, value) -> { };
+            while (!Thread.currentThread().isInterrupted()) {
+                model.registerListenKeyUpdateObserver(observer);
+                model.registerKeyUpdateObserver("61_0", keyObserver);
+                model.removeListenKeyUpdateObserver(observer);
+                model.removeKeyUpdateObserver("61_0", keyObserver);
+            }
+        });
+        churn.start();
+        try {
+            for (int i = 0; i < 20000; i++) {
+                model.update(frame(i));
+            }
+        } finally {
+            churn.interrupt();
+            churn.join();
+        }
+
+        assertEquals(20000, commits[0]);
+    }
+}
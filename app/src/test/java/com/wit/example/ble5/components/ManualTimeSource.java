@@ -0,0 +1,61 @@
+package com.wit.example.ble5.components;
+
+import com.wit.witsdk.sensor.modular.command.interfaces.ITimeSource;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ручные часы для планировщика опроса: время идёт только в {@link #run}, после каждого tick
+ * тест дожидается ответов датчика, поэтому число чтений не зависит от загрузки машины.
+ */
+class ManualTimeSource implements ITimeSource {
+
+    /**
+     * Не с нуля: 0 у планировщика означает «ещё не было»
+     */
+    private volatile long nanos = TimeUnit.SECONDS.toNanos(1);
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    void advance(long ms) {
+        nanos += TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    /**
+     * Вызывает tick() с шагом stepMs в течение durationMs
+     */
+    void run(RegisterPollScheduler scheduler, long durationMs, long stepMs) throws InterruptedException {
+        run(scheduler, durationMs, stepMs, null);
+    }
+
+    /**
+     * То же, beforeTick вызывается перед каждым tick (например, датчик сам присылает кадр)
+     */
+    void run(RegisterPollScheduler scheduler, long durationMs, long stepMs, Runnable beforeTick) throws InterruptedException {
+        for (long elapsed = 0; elapsed < durationMs; elapsed += stepMs) {
+            if (beforeTick != null) {
+                beforeTick.run();
+            }
+            scheduler.tick();
+            settle(scheduler);
+            advance(stepMs);
+        }
+    }
+
+    /**
+     * Ждёт, пока завершатся все чтения опроса
+     */
+    static void settle(RegisterPollScheduler scheduler) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getInFlightCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("poll reads did not complete");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Кватернион и магнитометр из пакетов 55 71, которые датчик присылает сам:
+ * попадают в типизированный кадр, регистры 0x51/0x3A при этом не опрашиваются.
+ */
+public class OrientationStreamTest {
+
+    private static byte[] dataFrame() {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x61;
+        return frame;
+    }
+
+    private static byte[] registerFrame(int start, int... values) {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x71;
+        frame[2] = (byte) start;
+        for (int i = 0; i < values.length; i++) {
+            frame[4 + i * 2] = (byte) values[i];
+            frame[5 + i * 2] = (byte) (values[i] >> 8);
+        }
+        return frame;
+    }
+
+    @Test
+    public void streamedQuaternionReachesTypedFrame() {
+        DeviceModel model = new DeviceModel("orientation", new Bwt901bleResolver(), new Bwt901bleProcessor(), "61_0");
+        WitImuFrame frame = model.getImuFrame();
+
+        model.update(dataFrame());
+        assertFalse(frame.hasQuaternion());
+
+        for (int i = 1; i <= 5; i++) {
+            model.update(registerFrame(0x51, 16384, 0, 0, -16384 + i));
+            model.update(dataFrame());
+        }
+        // 0x61 без нового пакета не меняет номер кватерниона
+        model.update(dataFrame());
+
+        assertEquals(5, frame.getQuaternionSequence());
+        assertEquals(0.5, frame.getQ0(), 1e-9);
+        assertEquals((-16384 + 5) / 32768.0, frame.getQ3(), 1e-9);
+    }
+
+    @Test
+    public void streamedMagReachesTypedFrame() {
+        DeviceModel model = new DeviceModel("orientation", new Bwt901bleResolver(), new Bwt901bleProcessor(), "61_0");
+
+        model.update(registerFrame(0x72, 0, 0, 0, 0));
+        model.update(registerFrame(0x3A, 100, -200, 300, 0));
+        model.update(dataFrame());
+
+        assertTrue(model.getImuFrame().hasMag());
+        assertEquals(1, model.getImuFrame().getMagSequence());
+    }
+
+    @Test
+    public void everyStreamedQuaternionIsCommitted() {
+        DeviceModel model = new DeviceModel("orientation", new Bwt901bleResolver(), new Bwt901bleProcessor(), "61_0");
+        WitImuFrame frame = model.getImuFrame();
+        List<Long> updates = new ArrayList<>();
+        model.registerListenKeyUpdateObserver(m -> updates.add(m.getImuFrame().getQuaternionSequence()));
+
+        model.update(dataFrame());
+        // кватернион приходит чаще, чем 55 61: каждый пакет — отдельное обновление
+        for (int i = 1; i <= 3; i++) {
+            model.update(registerFrame(0x51, 16384, 0, 0, i));
+        }
+        model.update(dataFrame());
+
+        assertEquals("[0, 1, 2, 3, 3]", updates.toString());
+        assertEquals(3 / 32768.0, frame.getQ3(), 1e-9);
+    }
+
+    @Test
+    public void quaternionIsPolledOnlyWithoutStream() throws Exception {
+        SimulatedBwt901ble sensor = new SimulatedBwt901ble();
+        DeviceModel model = new DeviceModel("sim", new Bwt901bleResolver(), null, "61_0");
+        model.setCoreConnect(sensor);
+        model.openDevice();
+        try {
+            RegisterPollScheduler scheduler = model.getPollScheduler();
+            ManualTimeSource clock = new ManualTimeSource();
+            scheduler.setTimeSource(clock);
+            scheduler.setLinkBudget(1000000, 1f);
+            sensor.registers[0x02] = 0x02 | 0x0200;
+            model.putRegister(0x02, sensor.registers[0x02]);
+            scheduler.poll(0x51, 30, 0x0200);
+
+            // датчик сам присылает кватернион каждые 10 мс
+            int[] step = {0};
+            clock.run(scheduler, 200, 5, () -> {
+                if (step[0]++ % 2 == 0) {
+                    sensor.notifyObserver(sensor.replyFrame(0x51));
+                }
+            });
+            assertEquals(0, sensor.countCommands("27:51"));
+
+            // поток прекратился — через 30 мс после последнего пакета возвращаемся к опросу, дальше каждые 30 мс
+            clock.run(scheduler, 200, 5);
+            assertEquals(6, sensor.countCommands("27:51"));
+        } finally {
+            model.closeDevice();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfig;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfigResult;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterSnapshot;
+import com.wit.witsdk.sensor.modular.command.interfaces.IRegisterSnapshotStore;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterConfigTransaction;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Конфигурация регистров на имитированном датчике: чтение одним залпом,
+ * запись только отличающихся регистров, проверка обратным чтением.
+ */
+public class RegisterConfigTransactionTest {
+
+    private SimulatedBwt901ble sensor;
+
+    private DeviceModel deviceModel;
+
+    @Before
+    public void setUp() throws Exception {
+        sensor = new SimulatedBwt901ble();
+        deviceModel = new DeviceModel("sim", new Bwt901bleResolver(), null, "61_0");
+        deviceModel.setCoreConnect(sensor);
+        deviceModel.openDevice();
+    }
+
+    @After
+    public void tearDown() {
+        deviceModel.closeDevice();
+    }
+
+    /**
+     * Та же конфигурация, что в BluetoothAccelerometerService: ±2g, только ускорение, 50 Гц
+     */
+    private static RegisterConfig accOnly50Hz() {
+        return new RegisterConfig()
+                .put(0x21, 0x00)
+                .put(0x02, 0x02)
+                .put(0x03, 0x08)
+                .setUnlockWait(0)
+                .setWriteWait(0);
+    }
+
+    @Test
+    public void writesOnlyDifferingRegistersAndVerifies() throws Exception {
+        sensor.registers[0x02] = 0x1E;
+        sensor.registers[0x03] = 0x08;
+        sensor.registers[0x21] = 0x03;
+
+        RegisterConfigResult result = new RegisterConfigTransaction(deviceModel, accOnly50Hz()).execute();
+
+        assertTrue(result.isSuccess());
+        assertEquals(2, sensor.registers[0x02]);
+        assertEquals(0, sensor.registers[0x21]);
+        // 02 и 03 приходят одним ответом 55 71
+        assertEquals("[27:02, 27:21, 69, 02=2, 21=0, 27:02, 27:21, 00]", sensor.commands.toString());
+        assertEquals(2, result.getWriteCount());
+        assertTrue(result.isSaved());
+        assertTrue("took " + result.getElapsedMillis() + " ms", result.getElapsedMillis() < 500);
+    }
+
+    @Test
+    public void alreadyConfiguredSensorIsOnlyRead() throws Exception {
+        sensor.registers[0x02] = 0x02;
+        sensor.registers[0x03] = 0x08;
+
+        RegisterConfigResult result = new RegisterConfigTransaction(deviceModel, accOnly50Hz()).execute();
+
+        assertTrue(result.isSuccess());
+        assertEquals(2, result.getReadCount());
+        assertEquals(0, result.getWriteCount());
+        assertFalse(result.isSaved());
+        assertEquals(0, sensor.countCommands("69"));
+    }
+
+    @Test
+    public void rewritesRegisterUntilReadBackMatches() throws Exception {
+        sensor.registers[0x21] = 0x03;
+        sensor.ignoredWrites[0x21] = 2;
+
+        RegisterConfigResult result = new RegisterConfigTransaction(deviceModel, accOnly50Hz()).execute();
+
+        assertTrue(result.isSuccess());
+        assertEquals(0, sensor.registers[0x21]);
+        assertEquals(3, sensor.countCommands("21="));
+        assertEquals(1, sensor.saveCount);
+    }
+
+    @Test
+    public void reportsRegisterThatNeverTakesEffect() throws Exception {
+        sensor.ignoredWrites[0x21] = 100;
+        sensor.registers[0x21] = 0x03;
+
+        RegisterConfigResult result = new RegisterConfigTransaction(deviceModel, accOnly50Hz().setWriteRetries(1)).execute();
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getFailedRegisters().size());
+        assertEquals(0x21, (int) result.getFailedRegisters().get(0));
+        assertFalse(result.isSaved());
+    }
+
+    @Test
+    public void knownSensorIsValidatedWithOneBatchedRead() throws Exception {
+        MemorySnapshotStore store = new MemorySnapshotStore();
+        sensor.registers[0x21] = 0x03;
+        sensor.registers[0x2E] = 0x1234;
+        sensor.registers[0x72] = 0x02;
+
+        RegisterConfigResult first = configure(store);
+        assertTrue(first.isSuccess());
+        assertFalse(first.isSnapshotUsed());
+        assertEquals("0,02=2,03=8,21=0,2E=4660,2F=0,72=2", store.saved.get("AA:BB").replaceFirst("^\\d+", "0"));
+
+        // Переподключение: новый DeviceModel, тот же датчик
+        tearDown();
+        setUp();
+        sensor.registers[0x21] = 0x00;
+        sensor.registers[0x02] = 0x02;
+        sensor.registers[0x03] = 0x08;
+        sensor.registers[0x2E] = 0x1234;
+        sensor.registers[0x72] = 0x02;
+        sensor.commands.clear();
+
+        RegisterConfigResult second = configure(store);
+        assertTrue(second.isSuccess());
+        assertTrue(second.isSnapshotValid());
+        // только чтения конфигурации 02-05 и 21-24, без разблокировки и записи;
+        // версия и тип магнитометра берутся из проверенного снимка
+        assertEquals("[27:02, 27:21]", sensor.commands.toString());
+        assertEquals(0x02, deviceModel.getRegister(0x72));
+        assertEquals(0x1234, deviceModel.getRegister(0x2E));
+    }
+
+    @Test
+    public void staleSnapshotIsNotApplied() throws Exception {
+        // снимок от другой конфигурации: ±16g и другой тип магнитометра
+        MemorySnapshotStore store = new MemorySnapshotStore();
+        store.save("AA:BB", new RegisterSnapshot().put(0x02, (short) 2).put(0x03, (short) 8).put(0x21, (short) 3)
+                .put(0x2E, (short) 0x1234).put(0x2F, (short) 0).put(0x72, (short) 2));
+        sensor.registers[0x02] = 0x02;
+        sensor.registers[0x03] = 0x08;
+        List<Object> ranges = new ArrayList<>();
+        deviceModel.registerKeyUpdateObserver("21", (model, key, value) -> ranges.add(value));
+
+        RegisterConfigResult result = configure(store);
+
+        assertFalse(result.isSnapshotValid());
+        assertTrue(result.isSuccess());
+        // в модель попал только прочитанный с датчика диапазон
+        assertEquals("[0]", ranges.toString());
+        assertFalse(deviceModel.hasRegister(0x72));
+    }
+
+    @Test
+    public void driftedSensorIsReconfigured() throws Exception {
+        MemorySnapshotStore store = new MemorySnapshotStore();
+        store.save("AA:BB", new RegisterSnapshot().put(0x02, (short) 2).put(0x03, (short) 8).put(0x21, (short) 0));
+        sensor.registers[0x02] = 0x02;
+        sensor.registers[0x03] = 0x06;
+
+        RegisterConfigResult result = configure(store);
+
+        assertTrue(result.isSnapshotUsed());
+        assertFalse(result.isSnapshotValid());
+        assertTrue(result.isSuccess());
+        assertEquals(1, result.getWriteCount());
+        assertEquals(8, sensor.registers[0x03]);
+        assertTrue(store.saved.get("AA:BB").endsWith("03=8,21=0,2E=0,2F=0,72=0"));
+    }
+
+    @Test
+    public void snapshotIsUpdatedWhenConfigChanges() throws Exception {
+        // датчик совпадает со снимком, но новая конфигурация требует 50 Гц вместо 20 Гц
+        MemorySnapshotStore store = new MemorySnapshotStore();
+        store.save("AA:BB", new RegisterSnapshot().put(0x02, (short) 2).put(0x03, (short) 7).put(0x21, (short) 0));
+        sensor.registers[0x02] = 0x02;
+        sensor.registers[0x03] = 0x07;
+
+        RegisterConfigResult result = configure(store);
+
+        assertTrue(result.isSnapshotValid());
+        assertTrue(result.isSuccess());
+        assertEquals(1, result.getWriteCount());
+        assertTrue(store.saved.get("AA:BB").contains("03=8"));
+    }
+
+    private RegisterConfigResult configure(IRegisterSnapshotStore store) throws InterruptedException {
+        return new RegisterConfigTransaction(deviceModel, accOnly50Hz()).setSnapshotStore(store, "AA:BB").execute();
+    }
+
+    private static class MemorySnapshotStore implements IRegisterSnapshotStore {
+
+        final Map<String, String> saved = new HashMap<>();
+
+        @Override
+        public RegisterSnapshot load(String deviceKey) {
+            return RegisterSnapshot.parse(saved.get(deviceKey));
+        }
+
+        @Override
+        public void save(String deviceKey, RegisterSnapshot snapshot) {
+            saved.put(deviceKey, snapshot.format());
+        }
+
+        @Override
+        public void remove(String deviceKey) {
+            saved.remove(deviceKey);
+        }
+    }
+}
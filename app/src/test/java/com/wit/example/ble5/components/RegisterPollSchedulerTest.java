@@ -0,0 +1,180 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.roles.DeviceCommandExecutor;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterReadCorrelator;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Фоновый опрос регистров на имитированном датчике: учёт RSW,
+ * пауза на время записи, регистры из потока не опрашиваются, бюджет канала.
+ */
+public class RegisterPollSchedulerTest {
+
+    private SimulatedBwt901ble sensor;
+
+    private DeviceModel deviceModel;
+
+    private RegisterPollScheduler scheduler;
+
+    private ManualTimeSource clock;
+
+    @Before
+    public void setUp() throws Exception {
+        sensor = new SimulatedBwt901ble();
+        deviceModel = new DeviceModel("sim", new Bwt901bleResolver(), null, "61_0");
+        deviceModel.setCoreConnect(sensor);
+        deviceModel.openDevice();
+        scheduler = deviceModel.getPollScheduler();
+        clock = new ManualTimeSource();
+        scheduler.setTimeSource(clock);
+        // бюджет проверяется отдельным тестом
+        scheduler.setLinkBudget(1000000, 1f);
+    }
+
+    @After
+    public void tearDown() {
+        deviceModel.closeDevice();
+    }
+
+    private void run(long durationMs, long stepMs) throws InterruptedException {
+        clock.run(scheduler, durationMs, stepMs);
+    }
+
+    @Test
+    public void accOnlyRswSkipsMagnetometerAndQuaternion() throws Exception {
+        sensor.registers[0x02] = 0x02;
+        scheduler.pollOnce(RegisterPollScheduler.REG_RSW, 0)
+                .poll(0x3A, 20, 0x10)
+                .poll(0x51, 20, 0x0200)
+                .poll(0x64, 20, 0);
+
+        run(200, 5);
+
+        assertEquals(1, sensor.countCommands("27:02"));
+        assertEquals(0, sensor.countCommands("27:3A"));
+        assertEquals(0, sensor.countCommands("27:51"));
+        // 0, 20, ... 180 мс
+        assertEquals(10, sensor.countCommands("27:64"));
+    }
+
+    @Test
+    public void enabledContentIsPolledAtItsOwnInterval() throws Exception {
+        sensor.registers[0x02] = 0x1E | 0x0200;
+        scheduler.pollOnce(RegisterPollScheduler.REG_RSW, 0)
+                .poll(0x3A, 30, 0x10)
+                .poll(0x40, 10000, 0);
+
+        run(300, 5);
+
+        // RSW читается на 0 мс, магнитометр включён с 5 мс и ждёт интервал: 35, 65, ... 275 мс
+        assertEquals(9, sensor.countCommands("27:3A"));
+        assertEquals(1, sensor.countCommands("27:40"));
+    }
+
+    @Test
+    public void recordingSuspendsRegisterPolling() throws Exception {
+        sensor.registers[0x02] = 0x1E;
+        scheduler.pollOnce(RegisterPollScheduler.REG_RSW, 0)
+                .poll(0x3A, 10, 0x10)
+                .poll(0x64, 10, 0);
+        scheduler.setRecording(true);
+
+        run(150, 5);
+        assertEquals("[]", sensor.commands.toString());
+
+        scheduler.setRecording(false);
+        run(100, 5);
+        assertEquals(1, sensor.countCommands("27:02"));
+        assertEquals(9, sensor.countCommands("27:3A"));
+        assertEquals(10, sensor.countCommands("27:64"));
+    }
+
+    @Test
+    public void recordingBacksOffWhenScaleIsSet() throws Exception {
+        scheduler.poll(0x64, 10, 0);
+        scheduler.setRecordingIntervalScale(10);
+        scheduler.setRecording(true);
+
+        run(250, 5);
+
+        // интервал 10 мс x 10: 0, 100, 200 мс
+        assertEquals(3, sensor.countCommands("27:64"));
+    }
+
+    @Test
+    public void streamedRegisterIsNotPolled() throws Exception {
+        sensor.registers[0x02] = 0x1E;
+        deviceModel.putRegister(0x02, (short) 0x1E);
+        scheduler.poll(0x3A, 50, 0x10);
+
+        // датчик сам присылает 55 71 с магнитометром каждые 10 мс
+        long[] step = new long[1];
+        clock.run(scheduler, 300, 5, () -> {
+            if (step[0]++ % 2 == 0) {
+                sensor.notifyObserver(sensor.replyFrame(0x3A));
+            }
+        });
+
+        assertEquals(0, sensor.countCommands("27:3A"));
+        assertTrue(scheduler.isStreamed(0x3A));
+    }
+
+    @Test
+    public void pollResumesAfterItsReadIsEvictedFromFullQueue() throws Exception {
+        scheduler.poll(0x64, 10, 0);
+        DeviceCommandExecutor executor = deviceModel.getCommandExecutor();
+
+        // командный поток занят долгой записью
+        deviceModel.sendProtocolData(new byte[]{(byte) 0xff, (byte) 0xaa, 0x69, (byte) 0x88, (byte) 0xb5}, 200,
+                CommandPriority.Config, null);
+        while (executor.getQueuedCount() > 0) {
+            Thread.sleep(1);
+        }
+
+        // первым в очередь встаёт чтение 0x64 от планировщика, остальное место занимают другие чтения опроса
+        scheduler.tick();
+        for (int register = 0; executor.getQueuedCount() < DeviceCommandExecutor.DEFAULT_CAPACITY; register++) {
+            deviceModel.readRegister(register, RegisterReadCorrelator.DEFAULT_TIMEOUT_MS,
+                    RegisterReadCorrelator.DEFAULT_RETRIES, CommandPriority.Poll);
+        }
+
+        // команда конфигурации вытесняет самое старое чтение опроса — чтение 0x64
+        deviceModel.sendProtocolData(new byte[]{(byte) 0xff, (byte) 0xaa, 0x03, 0x08, 0x00}, 0,
+                CommandPriority.Config, null);
+        assertEquals(1, executor.getRejectedCount());
+        while (executor.getQueuedCount() > 0) {
+            Thread.sleep(1);
+        }
+
+        run(100, 5);
+
+        assertEquals(0, scheduler.getInFlightCount());
+        assertTrue("0x64 reads: " + sensor.countCommands("27:64"), sensor.countCommands("27:64") > 0);
+    }
+
+    @Test
+    public void pollingStaysWithinLinkBudget() throws Exception {
+        // 250 байт/с = 10 чтений в секунду
+        scheduler.setLinkBudget(250, 1f);
+        for (int register = 0x40; register < 0x48; register++) {
+            scheduler.poll(register, 1, 0);
+        }
+
+        run(1105, 5);
+
+        // два чтения из запаса и по одному каждые 100 мс
+        assertEquals(13, sensor.countCommands("27:"));
+        // окно первой секунды: запас 50 байт + 250 байт/с
+        assertEquals(1.1, scheduler.getLinkBudgetUsage(), 1e-6);
+        assertTrue(scheduler.getDeferredCount() > 0);
+    }
+}
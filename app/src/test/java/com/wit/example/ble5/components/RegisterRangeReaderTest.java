@@ -0,0 +1,85 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterRangeRead;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterRangeReader;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Чтение набора регистров минимальным числом команд 0x27 (по 4 регистра на ответ).
+ */
+public class RegisterRangeReaderTest {
+
+    private SimulatedBwt901ble sensor;
+
+    private DeviceModel deviceModel;
+
+    @Before
+    public void setUp() throws Exception {
+        sensor = new SimulatedBwt901ble();
+        deviceModel = new DeviceModel("sim", new Bwt901bleResolver(), null, "61_0");
+        deviceModel.setCoreConnect(sensor);
+        deviceModel.openDevice();
+    }
+
+    @After
+    public void tearDown() {
+        deviceModel.closeDevice();
+    }
+
+    @Test
+    public void planCoversRegistersWithFewestReads() {
+        assertArrayEquals(new int[]{0x2E, 0x3A}, RegisterRangeReader.plan(Arrays.asList(0x3C, 0x2E, 0x3A, 0x2F, 0x3B)));
+        assertArrayEquals(new int[]{0x02, 0x21}, RegisterRangeReader.plan(Arrays.asList(0x02, 0x03, 0x21)));
+        assertArrayEquals(new int[]{0x40, 0x44}, RegisterRangeReader.plan(Arrays.asList(0x40, 0x43, 0x44, 0x47)));
+        assertArrayEquals(new int[0], RegisterRangeReader.plan(Arrays.<Integer>asList()));
+    }
+
+    @Test
+    public void readFansRepliesOutToRegisterFile() throws Exception {
+        sensor.registers[0x2E] = 0x1234;
+        sensor.registers[0x2F] = (short) 0x8001;
+        sensor.registers[0x3A] = 100;
+        sensor.registers[0x3B] = 200;
+        sensor.registers[0x3C] = 300;
+
+        RegisterRangeRead read = deviceModel.readRegisters(Arrays.asList(0x2E, 0x2F, 0x3A, 0x3B, 0x3C), 300, 2, CommandPriority.Config);
+        Map<Integer, Short> values = read.get();
+
+        assertEquals(2, read.getReadCount());
+        assertEquals("[27:2E, 27:3A]", sensor.commands.toString());
+        assertEquals(5, values.size());
+        assertEquals((short) 0x8001, (short) values.get(0x2F));
+        assertEquals(300, deviceModel.getRegister(0x3C));
+    }
+
+    @Test
+    public void schedulerMergesNeighbouringTasks() throws Exception {
+        RegisterPollScheduler scheduler = deviceModel.getPollScheduler();
+        ManualTimeSource clock = new ManualTimeSource();
+        scheduler.setTimeSource(clock);
+        scheduler.setLinkBudget(1000000, 1f);
+        scheduler.pollOnce(0x2E, 0).pollOnce(0x2F, 0).poll(0x40, 10000, 0).poll(0x41, 10000, 0);
+
+        clock.run(scheduler, 150, 5);
+
+        assertEquals(1, sensor.countCommands("27:2E"));
+        assertEquals(0, sensor.countCommands("27:2F"));
+        assertEquals(1, sensor.countCommands("27:40"));
+        assertEquals(0, sensor.countCommands("27:41"));
+        assertTrue(deviceModel.hasRegister(0x41));
+        assertEquals(2, scheduler.getPollCount());
+    }
+}
@@ -0,0 +1,124 @@
+package com.wit.example.ble5.components;
+
+import com.wit.witsdk.observer.interfaces.Observer;
+import com.wit.witsdk.sensor.modular.connector.roles.WitCoreConnect;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Имитация BWT901BLE поверх WitCoreConnect: регистры, разблокировка,
+ * ответы 55 71 на чтение с задержкой канала, без BLE.
+ */
+class SimulatedBwt901ble extends WitCoreConnect {
+
+    final short[] registers = new short[256];
+
+    /**
+     * Команды в порядке получения: "69", "21=0", "27:21", "00"
+     */
+    final List<String> commands = new CopyOnWriteArrayList<>();
+
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService link = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SimulatedBwt901ble");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    volatile long replyDelayMicros = 500;
+
+    /**
+     * Сколько первых записей в регистр игнорировать (регистр "не принимает" значение)
+     */
+    final int[] ignoredWrites = new int[256];
+
+    private volatile boolean open;
+
+    private volatile boolean unlocked;
+
+    int saveCount;
+
+    @Override
+    public void open() {
+        open = true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void registerObserver(Observer o) {
+        observers.add(o);
+    }
+
+    @Override
+    public void removeObserver(Observer o) {
+        observers.remove(o);
+    }
+
+    @Override
+    public void notifyObserver(byte[] data) {
+        for (Observer observer : observers) {
+            observer.update(data);
+        }
+    }
+
+    @Override
+    public void sendData(byte[] data) {
+        if (data.length < 5 || (data[0] & 0xff) != 0xff || (data[1] & 0xff) != 0xaa) {
+            return;
+        }
+        int cmd = data[2] & 0xff;
+        short value = (short) ((data[3] & 0xff) | (data[4] << 8));
+        if (cmd == 0x27) {
+            int start = data[3] & 0xff;
+            commands.add(String.format("27:%02X", start));
+            link.schedule(() -> notifyObserver(replyFrame(start)), replyDelayMicros, TimeUnit.MICROSECONDS);
+        } else if (cmd == 0x69) {
+            commands.add("69");
+            unlocked = true;
+        } else if (cmd == 0x00) {
+            commands.add("00");
+            saveCount++;
+            unlocked = false;
+        } else {
+            commands.add(String.format("%02X=%d", cmd, value));
+            if (unlocked) {
+                if (ignoredWrites[cmd] > 0) {
+                    ignoredWrites[cmd]--;
+                } else {
+                    registers[cmd] = value;
+                }
+            }
+        }
+    }
+
+    byte[] replyFrame(int start) {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = 0x71;
+        frame[2] = (byte) start;
+        for (int i = 0; i < 4; i++) {
+            short v = registers[(start + i) & 0xff];
+            frame[4 + i * 2] = (byte) v;
+            frame[5 + i * 2] = (byte) (v >> 8);
+        }
+        return frame;
+    }
+
+    long countCommands(String prefix) {
+        return commands.stream().filter(c -> c.startsWith(prefix)).count();
+    }
+}
@@ -0,0 +1,63 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.resolver.roles.WitLegacyFrameDecoder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Скорость и аллокации {@link WitLegacyFrameDecoder} на потоке 11-байтных кадров.
+ * <p>
+ * В обычный прогон тестов не входит: {@code ./gradlew test -Pbenchmark}.
+ */
+public class WitLegacyDecoderBenchmark {
+
+    private static final int CYCLES = 50_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    @Test
+    public void decoderThroughputAndAllocation() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int n = 0; n < CYCLES; n++) {
+            out.write(WitLegacyResolverTest.cycle(n), 0, 66);
+        }
+        byte[] bytes = out.toByteArray();
+        long[] sink = new long[1];
+        WitLegacyFrameDecoder.IFrameListener listener = values -> sink[0] += values[0];
+
+        WitLegacyFrameDecoder decoder = new WitLegacyFrameDecoder();
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            feed(decoder, bytes, listener);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        feed(decoder, bytes, listener);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - bytesBefore;
+
+        // 921600 бод = 92160 байт/с: во сколько раз разбор быстрее потока
+        long baudHeadroom = (long) (bytes.length / (elapsed / 1e9) / 92160);
+        assertTrue("legacy decoder " + elapsed / CYCLES + " ns, " + allocated / CYCLES + " bytes per cycle, "
+                        + baudHeadroom + "x 921600 baud",
+                allocated / (double) CYCLES < 1.0);
+        assertTrue(sink[0] != 0);
+    }
+
+    /**
+     * Подаёт поток кусками по 64 байта, как читает CH340
+     */
+    private static void feed(WitLegacyFrameDecoder decoder, byte[] bytes, WitLegacyFrameDecoder.IFrameListener listener) {
+        for (int off = 0; off < bytes.length; off += 64) {
+            decoder.receive(bytes, off, Math.min(64, bytes.length - off), listener);
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
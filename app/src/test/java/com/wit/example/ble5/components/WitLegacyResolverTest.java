@@ -0,0 +1,202 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.resolver.roles.WitLegacyFrameDecoder;
+import com.wit.witsdk.sensor.modular.resolver.roles.WitLegacyResolver;
+import com.wit.witsdk.sensor.utils.WitProtocolUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Разбор 11-байтного протокола (UART / SPP / CH340 / UDP): сборка кадра по циклу вывода,
+ * контрольная сумма, ресинхронизация, ответы 55 5F без адреса регистра.
+ */
+public class WitLegacyResolverTest {
+
+    private static byte[] packet(int type, int v0, int v1, int v2, int v3) {
+        byte[] packet = new byte[11];
+        packet[0] = 0x55;
+        packet[1] = (byte) type;
+        int[] values = {v0, v1, v2, v3};
+        for (int i = 0; i < 4; i++) {
+            packet[2 + i * 2] = (byte) values[i];
+            packet[3 + i * 2] = (byte) (values[i] >> 8);
+        }
+        packet[10] = (byte) WitProtocolUtils.checksum(packet, 0, 10);
+        return packet;
+    }
+
+    /**
+     * Один цикл вывода: время, ускорение (accX = n), угловая скорость, углы, магнитное поле, кватернион
+     */
+    static byte[] cycle(int n) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(packet(0x50, 0x0A18, 0x0C12, 0x1E0F, 500), 0, 11);
+        out.write(packet(0x51, n, 2, 2048, 3600), 0, 11);
+        out.write(packet(0x52, 4, 5, 6, 0), 0, 11);
+        out.write(packet(0x53, 7, 8, n * 2, 0), 0, 11);
+        out.write(packet(0x54, 100, 200, 300, 0), 0, 11);
+        out.write(packet(0x59, 32767, 0, 0, 0), 0, 11);
+        return out.toByteArray();
+    }
+
+    private static DeviceModel newModel(WitLegacyResolver resolver) {
+        return new DeviceModel("serial", resolver, new Bwt901bleProcessor(), "61_0");
+    }
+
+    @Test
+    public void cyclesAreCommittedAsFrames() {
+        WitLegacyResolver resolver = new WitLegacyResolver();
+        DeviceModel model = newModel(resolver);
+        List<Short> accX = new ArrayList<>();
+        model.registerListenKeyUpdateObserver(deviceModel -> accX.add(deviceModel.getImuFrame().getRaw(WitImuFrame.RAW_ACC_X)));
+
+        // куски произвольной длины, как приходят из USB / сокета
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int n = 1; n <= 100; n++) {
+            stream.write(cycle(n), 0, 66);
+        }
+        byte[] bytes = stream.toByteArray();
+        Random random = new Random(1);
+        for (int off = 0; off < bytes.length; ) {
+            int len = Math.min(1 + random.nextInt(40), bytes.length - off);
+            byte[] chunk = new byte[len];
+            System.arraycopy(bytes, off, chunk, 0, len);
+            resolver.passiveReceiveData(chunk, model);
+            off += len;
+        }
+
+        // первый цикл отдаётся в начале второго, дальше — по последнему пакету цикла
+        assertEquals(100, accX.size());
+        for (int n = 1; n <= 100; n++) {
+            assertEquals(n, (int) accX.get(n - 1));
+        }
+        WitImuFrame frame = model.getImuFrame();
+        assertEquals(200, frame.getRaw(WitImuFrame.RAW_ANGLE_Z));
+        // 2048 / 32768 * 16g
+        assertEquals(1.0, frame.getAccZ(), 1e-9);
+        assertEquals(300, model.getRegister(0x3C));
+        assertEquals(3600, model.getRegister(0x40));
+        assertEquals(32767, model.getRegister(0x51));
+        assertEquals(0x1E0F, model.getRegister(0x32));
+        assertTrue(frame.hasQuaternion());
+        assertEquals(600, resolver.getFrameDecoder().getPacketCount());
+        assertEquals(0, resolver.getFrameDecoder().getDroppedBytes());
+    }
+
+    @Test
+    public void corruptedPacketIsSkippedAndStreamResyncs() {
+        WitLegacyFrameDecoder decoder = new WitLegacyFrameDecoder();
+        List<Short> angleZ = new ArrayList<>();
+        WitLegacyFrameDecoder.IFrameListener listener = values -> angleZ.add(values[8]);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int n = 1; n <= 5; n++) {
+            byte[] cycle = cycle(n);
+            if (n == 3) {
+                // испорченная сумма в пакете углов и мусор с ложным заголовком перед следующим циклом
+                cycle[3 * 11 + 10]++;
+                stream.write(cycle, 0, cycle.length);
+                stream.write(new byte[]{0x55, 0x13, 0x55, 0x51, 1, 2}, 0, 6);
+            } else {
+                stream.write(cycle, 0, cycle.length);
+            }
+        }
+        byte[] bytes = stream.toByteArray();
+        decoder.receive(bytes, 0, bytes.length, listener);
+
+        assertEquals(5, angleZ.size());
+        // в цикле 3 углы остались от цикла 2
+        assertEquals("[2, 4, 4, 8, 10]", angleZ.toString());
+        // испорченный пакет и ложный заголовок 55 51 в мусоре
+        assertEquals(2, decoder.getChecksumErrors());
+        assertEquals(29, decoder.getPacketCount());
+    }
+
+    @Test
+    public void droppedCycleEndCommitsOncePerCycle() {
+        WitLegacyFrameDecoder decoder = new WitLegacyFrameDecoder();
+        List<Short> accX = new ArrayList<>();
+        WitLegacyFrameDecoder.IFrameListener listener = values -> accX.add(values[0]);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int n = 1; n <= 10; n++) {
+            stream.write(packet(0x51, n, 0, 0, 0), 0, 11);
+            stream.write(packet(0x52, 0, 0, 0, 0), 0, 11);
+            // в цикле 4 пакет углов (последний в цикле) потерян
+            if (n != 4) {
+                stream.write(packet(0x53, 0, 0, n, 0), 0, 11);
+            }
+        }
+        byte[] bytes = stream.toByteArray();
+        decoder.receive(bytes, 0, bytes.length, listener);
+
+        // по одному кадру на цикл: цикл 4 отдаётся в начале цикла 5, последний пакет цикла не переучивается
+        assertEquals("[1, 2, 3, 4, 5, 6, 7, 8, 9, 10]", accX.toString());
+    }
+
+    @Test
+    public void strayReplyHeaderInNoiseKeepsPendingReads() {
+        WitLegacyResolver resolver = new WitLegacyResolver();
+        DeviceModel model = newModel(resolver);
+        resolver.onDataSent(WitProtocolUtils.getRead(0x21), model);
+        resolver.onDataSent(WitProtocolUtils.getRead(0x03), model);
+
+        // данные, затем шум: выравнивание потеряно
+        ByteArrayOutputStream noisy = new ByteArrayOutputStream();
+        noisy.write(cycle(1), 0, 66);
+        noisy.write(new byte[]{0x13, 0x27, 0x04}, 0, 3);
+        resolver.passiveReceiveData(noisy.toByteArray(), model);
+
+        // в шуме встречается 55 5F с неверной суммой — это не потерянный ответ
+        byte[] stray = {0x55, 0x5F, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x00};
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        replies.write(stray, 0, stray.length);
+        replies.write(packet(0x5F, 2, 0, 0, 0), 0, 11);
+        replies.write(packet(0x5F, 0x0006, 0, 0, 0), 0, 11);
+        resolver.passiveReceiveData(replies.toByteArray(), model);
+
+        assertEquals(2, model.getRegister(0x21));
+        assertEquals(6, model.getRegister(0x03));
+    }
+
+    @Test
+    public void registerRepliesArePairedInReadOrder() {
+        WitLegacyResolver resolver = new WitLegacyResolver();
+        DeviceModel model = newModel(resolver);
+
+        resolver.onDataSent(WitProtocolUtils.getRead(0x21), model);
+        resolver.onDataSent(WitProtocolUtils.getRead(0x03), model);
+        resolver.onDataSent(WitProtocolUtils.getRead(0x2E), model);
+        // запись в регистр не ждёт ответа
+        resolver.onDataSent(WitProtocolUtils.getWrite(0x69, (short) 0xB588), model);
+
+        byte[] lost = packet(0x5F, 9, 0, 0, 0);
+        lost[10]++;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(packet(0x5F, 2, 0, 0, 0), 0, 11);
+        stream.write(lost, 0, 11);
+        stream.write(packet(0x5F, 0x1234, 0x0102, 0, 0), 0, 11);
+        byte[] bytes = stream.toByteArray();
+        resolver.passiveReceiveData(bytes, model);
+
+        assertEquals(2, model.getRegister(0x21));
+        assertFalse(model.hasRegister(0x03));
+        assertEquals(0x1234, model.getRegister(0x2E));
+        assertEquals(0x0102, model.getRegister(0x2F));
+
+        // ответ без запроса никуда не записывается
+        resolver.passiveReceiveData(packet(0x5F, 7, 0, 0, 0), model);
+        assertEquals(2, model.getRegister(0x21));
+    }
+}
@@ -0,0 +1,77 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.utils.WitProtocolUtils;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Поиск кадров WIT в сыром потоке: прежний findReturnData на Byte[] и
+ * {@link WitProtocolUtils#findFrame} на byte[] / ByteBuffer со скользящей контрольной суммой.
+ * <p>
+ * Поток смешанный: 11-байтные кадры 0x51..0x54 и 0x5F, 20-байтные 0x61 / 0x71,
+ * шум (в том числе ложные 0x55 и кадры с неверной суммой).
+ * <p>
+ * В обычный прогон тестов не входит: {@code ./gradlew test -Pbenchmark}.
+ */
+public class WitProtocolScanBenchmark {
+
+    private static final int SCANS = 200_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    @Test
+    public void scanThroughputAndAllocation() {
+        List<int[]> expected = new ArrayList<>();
+        byte[] stream = WitProtocolUtilsTest.mixedStream(20, 4, expected);
+        Byte[] boxed = WitProtocolUtilsTest.box(stream);
+        long[] sink = new long[1];
+
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            legacyScans(boxed, SCANS / 10, sink);
+            scans(stream, SCANS, sink);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        legacyScans(boxed, SCANS / 10, sink);
+        long legacyElapsed = System.nanoTime() - start;
+        long legacyBytes = allocatedBytes() - bytesBefore;
+
+        bytesBefore = allocatedBytes();
+        start = System.nanoTime();
+        scans(stream, SCANS, sink);
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+
+        assertTrue("byte[] scan " + perScan(SCANS, elapsed, bytes)
+                        + " vs legacy Byte[] " + perScan(SCANS / 10, legacyElapsed, legacyBytes),
+                bytes / (double) SCANS < 1.0);
+        assertTrue(sink[0] != 0);
+    }
+
+    private static void legacyScans(Byte[] stream, int count, long[] sink) {
+        for (int n = 0; n < count; n++) {
+            Byte[] frame = WitProtocolUtilsTest.LegacyScan.findReturnData(stream);
+            sink[0] += frame == null ? 1 : frame[2];
+        }
+    }
+
+    private static void scans(byte[] stream, int count, long[] sink) {
+        for (int n = 0; n < count; n++) {
+            sink[0] += WitProtocolUtils.findReturnData(stream, 0, stream.length) + 1;
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String perScan(int scans, long elapsedNs, long bytes) {
+        return elapsedNs / scans + " ns, " + bytes / scans + " bytes per scan";
+    }
+}
@@ -0,0 +1,321 @@
+package com.wit.example.ble5.components;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wit.witsdk.sensor.utils.WitProtocolUtils;
+import com.wit.witsdk.utils.ByteRingBuffer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Поиск кадров WIT в сыром потоке: смешанный поток 11- и 20-байтных кадров с шумом, совпадение с прежним
+ * findReturnData, а также байты 55 61 / 55 71 в данных кадров, которые не должны приниматься за кадры
+ * после потери выравнивания.
+ */
+public class WitProtocolUtilsTest {
+
+    private static final int FRAMES = 30;
+
+    /**
+     * Поток 20-байтных кадров 0x61/0x71, в данных каждого кадра есть 55 61 и 55 71 (в соседних кадрах на разных местах)
+     */
+    private static byte[] bleStream() {
+        byte[] stream = new byte[FRAMES * 20];
+        for (int f = 0; f < FRAMES; f++) {
+            int at = f * 20;
+            stream[at] = 0x55;
+            stream[at + 1] = (byte) (f % 2 == 0 ? 0x61 : 0x71);
+            for (int i = 2; i < 20; i++) {
+                stream[at + i] = (byte) ((f * 5 + i * 11) % 0x50);
+            }
+            stream[at + 3] = 0;
+            int shift = 2 * (f % 3);
+            stream[at + 4 + shift] = 0x55;
+            stream[at + 5 + shift] = 0x61;
+            stream[at + 12 + shift] = 0x55;
+            stream[at + 13 + shift] = 0x71;
+        }
+        return stream;
+    }
+
+    /**
+     * Поток 11-байтных кадров, в данных которых есть 55 61 / 55 71
+     */
+    private static byte[] legacyStream() {
+        byte[] stream = new byte[FRAMES * 11];
+        for (int f = 0; f < FRAMES; f++) {
+            int at = f * 11;
+            stream[at] = 0x55;
+            stream[at + 1] = (byte) (0x51 + f % 3);
+            stream[at + 2] = 0x55;
+            stream[at + 3] = (byte) (f % 2 == 0 ? 0x61 : 0x71);
+            for (int i = 4; i < 10; i++) {
+                stream[at + i] = (byte) (f + i);
+            }
+            stream[at + 10] = (byte) WitProtocolUtils.checksum(stream, at, 10);
+        }
+        return stream;
+    }
+
+    private static List<Integer> scan(byte[] stream, int off, int type) {
+        List<Integer> found = new ArrayList<>();
+        while (true) {
+            int at = WitProtocolUtils.findFrame(stream, off, stream.length - off, type);
+            if (at < 0) {
+                return found;
+            }
+            found.add(at);
+            off = at + WitProtocolUtils.frameLength(stream[at + 1]);
+        }
+    }
+
+    @Test
+    public void embeddedBleHeadersAreNotFrames() {
+        byte[] stream = bleStream();
+
+        // выравнивание потеряно внутри первого кадра
+        List<Integer> found = scan(stream, 1, WitProtocolUtils.ANY_TYPE);
+
+        assertEquals(FRAMES - 1, found.size());
+        for (int i = 0; i < found.size(); i++) {
+            assertEquals((i + 1) * 20, (int) found.get(i));
+        }
+        assertEquals(found, scan(stream, 1, WitProtocolUtils.ANY_BLE_TYPE));
+    }
+
+    @Test
+    public void legacyScanIgnoresBleHeadersInPayload() {
+        byte[] stream = legacyStream();
+
+        List<Integer> found = scan(stream, 1, WitProtocolUtils.ANY_LEGACY_TYPE);
+
+        assertEquals(FRAMES - 1, found.size());
+        for (int i = 0; i < found.size(); i++) {
+            assertEquals((i + 1) * 11, (int) found.get(i));
+        }
+    }
+
+    @Test
+    public void ringBufferScanMatchesArrayScan() {
+        byte[] stream = bleStream();
+        ByteRingBuffer ring = new ByteRingBuffer(64);
+        // начало не с нулевого индекса, чтобы данные переходили через конец массива
+        ring.write(new byte[40], 0, 40);
+        ring.skip(40);
+        ring.write(stream, 7, 60);
+
+        assertEquals(WitProtocolUtils.findFrame(stream, 7, 60, WitProtocolUtils.ANY_BLE_TYPE) - 7,
+                WitProtocolUtils.findFrame(ring, WitProtocolUtils.ANY_BLE_TYPE));
+    }
+
+    @Test
+    public void decoderResyncsPastEmbeddedHeaders() {
+        byte[] stream = bleStream();
+        Bwt901bleFrameDecoder decoder = new Bwt901bleFrameDecoder();
+        List<Short> first = new ArrayList<>();
+        Bwt901bleFrameDecoder.IFrameListener listener = new Bwt901bleFrameDecoder.IFrameListener() {
+            @Override
+            public void onDataFrame(short[] values) {
+                first.add(values[0]);
+            }
+
+            @Override
+            public void onRegisterFrame(int register, short[] values) {
+                first.add((short) register);
+            }
+        };
+
+        // начало потока потеряно, остальное приходит кусками по 7 байт
+        for (int off = 9; off < stream.length; off += 7) {
+            decoder.receive(stream, off, Math.min(7, stream.length - off), listener);
+        }
+
+        assertEquals(FRAMES - 1, first.size());
+        assertEquals(FRAMES - 1, decoder.getFrameCount() + decoder.getRegisterFrameCount());
+        assertEquals(20 - 9, decoder.getDroppedBytes());
+    }
+
+    @Test
+    public void scannerFindsEveryFrameInMixedStream() {
+        List<int[]> expected = new ArrayList<>();
+        byte[] stream = mixedStream(2000, 1, expected);
+
+        List<int[]> found = new ArrayList<>();
+        int off = 0;
+        while (true) {
+            int at = WitProtocolUtils.findFrame(stream, off, stream.length - off, WitProtocolUtils.ANY_TYPE);
+            if (at < 0) {
+                break;
+            }
+            int type = stream[at + 1] & 0xff;
+            found.add(new int[]{at, type});
+            off = at + WitProtocolUtils.frameLength(type);
+        }
+
+        assertEquals(expected.size(), found.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), found.get(i));
+        }
+    }
+
+    @Test
+    public void byteBufferScannerMatchesArrayScanner() {
+        List<int[]> expected = new ArrayList<>();
+        byte[] stream = mixedStream(500, 2, expected);
+        ByteBuffer direct = ByteBuffer.allocateDirect(stream.length + 7);
+        direct.position(7);
+        direct.put(stream);
+        direct.position(7);
+
+        int off = 0;
+        for (int[] frame : expected) {
+            int at = WitProtocolUtils.findFrame(stream, off, stream.length - off, WitProtocolUtils.ANY_TYPE);
+            assertEquals(frame[0], at);
+            assertEquals(at + 7, WitProtocolUtils.findFrame(direct, WitProtocolUtils.ANY_TYPE));
+            off = at + WitProtocolUtils.frameLength(frame[1]);
+            direct.position(off + 7);
+        }
+    }
+
+    @Test
+    public void registerReplyMatchesLegacyScan() {
+        Random random = new Random(3);
+        for (int n = 0; n < 2000; n++) {
+            byte[] data = new byte[8 + random.nextInt(40)];
+            random.nextBytes(data);
+            if (random.nextBoolean() && data.length > 11) {
+                byte[] reply = legacyFrame(0x5F, n);
+                if (random.nextInt(4) == 0) {
+                    reply[10]++;
+                }
+                System.arraycopy(reply, 0, data, random.nextInt(data.length - 10), 11);
+            }
+            Byte[] boxed = box(data);
+
+            Byte[] legacy = LegacyScan.findReturnData(boxed);
+            Byte[] current = WitProtocolUtils.findReturnData(boxed);
+            assertTrue(Arrays.equals(legacy, current));
+            int offset = WitProtocolUtils.findReturnData(data, 0, data.length);
+            assertEquals(legacy == null, offset < 0);
+        }
+    }
+
+    /**
+     * 11-байтный кадр с контрольной суммой
+     */
+    private static byte[] legacyFrame(int type, int seed) {
+        byte[] frame = new byte[11];
+        frame[0] = 0x55;
+        frame[1] = (byte) type;
+        for (int i = 2; i < 10; i++) {
+            // без 0x55 внутри, чтобы ожидаемая разметка была однозначной
+            frame[i] = (byte) ((seed * 7 + i * 13) % 0x50);
+        }
+        frame[10] = (byte) WitProtocolUtils.checksum(frame, 0, 10);
+        return frame;
+    }
+
+    private static byte[] bleFrame(int type, int seed) {
+        byte[] frame = new byte[20];
+        frame[0] = 0x55;
+        frame[1] = (byte) type;
+        for (int i = 2; i < 20; i++) {
+            frame[i] = (byte) ((seed * 5 + i * 11) % 0x50);
+        }
+        // старший байт адреса регистра
+        frame[3] = 0;
+        return frame;
+    }
+
+    /**
+     * Смешанный поток; в expected записываются смещение и тип каждого настоящего кадра
+     */
+    static byte[] mixedStream(int frames, long seed, List<int[]> expected) {
+        Random random = new Random(seed);
+        int[] legacyTypes = {0x51, 0x52, 0x53, 0x54, 0x5F};
+        byte[] stream = new byte[frames * 24];
+        int pos = 0;
+        boolean afterBle = false;
+        for (int f = 0; f < frames; f++) {
+            // шум: обычные байты, ложный заголовок 55 13, кадр с испорченной суммой.
+            // За 20-байтным кадром сразу идёт заголовок: без этого он не проходит проверку правдоподобия
+            switch (random.nextInt(6)) {
+                case 0:
+                    if (!afterBle) {
+                        stream[pos++] = (byte) random.nextInt(0x50);
+                    }
+                    break;
+                case 1:
+                    stream[pos++] = 0x55;
+                    stream[pos++] = 0x13;
+                    break;
+                case 2:
+                    if (pos + 11 < stream.length) {
+                        byte[] bad = legacyFrame(0x53, f);
+                        bad[10]++;
+                        System.arraycopy(bad, 0, stream, pos, 11);
+                        pos += 11;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            byte[] frame;
+            if (random.nextInt(4) == 0) {
+                frame = bleFrame(random.nextBoolean() ? 0x61 : 0x71, f);
+            } else {
+                frame = legacyFrame(legacyTypes[random.nextInt(legacyTypes.length)], f);
+            }
+            if (pos + frame.length > stream.length) {
+                break;
+            }
+            expected.add(new int[]{pos, frame[1] & 0xff});
+            System.arraycopy(frame, 0, stream, pos, frame.length);
+            pos += frame.length;
+            afterBle = frame.length == WitProtocolUtils.BLE_FRAME_LENGTH;
+        }
+        return Arrays.copyOf(stream, pos);
+    }
+
+    static Byte[] box(byte[] data) {
+        Byte[] boxed = new Byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            boxed[i] = data[i];
+        }
+        return boxed;
+    }
+
+    /**
+     * Прежняя реализация WitProtocolUtils.findReturnData — эталон для сравнения.
+     */
+    static class LegacyScan {
+
+        static Byte[] findReturnData(Byte[] returnData) {
+            List<Byte> bytes = Arrays.asList(returnData);
+            for (int i = 0; i < bytes.size() && i + 11 <= bytes.size(); i++) {
+                List<Byte> tempList = bytes.subList(i, i + 11);
+                Byte[] tempArr = tempList.toArray(new Byte[tempList.size()]);
+                if (tempArr.length == 11 && tempArr[0] == 0x55 && tempArr[1] == 0x5f && checkSUM(tempArr)) {
+                    return tempArr;
+                }
+            }
+            return null;
+        }
+
+        private static boolean checkSUM(Byte[] dataPack) {
+            int sum = 0;
+            for (int i = 0; i < dataPack.length - 1; i++) {
+                sum = sum + dataPack[i];
+            }
+            return dataPack[dataPack.length - 1] == (byte) sum;
+        }
+    }
+}
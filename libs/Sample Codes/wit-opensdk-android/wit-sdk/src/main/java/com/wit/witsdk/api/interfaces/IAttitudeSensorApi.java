@@ -1,9 +1,14 @@
 package com.wit.witsdk.api.interfaces;
 
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfig;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfigResult;
 import com.wit.witsdk.sensor.modular.device.DeviceModel;
 import com.wit.witsdk.sensor.modular.device.exceptions.OpenDeviceException;
 import com.wit.witsdk.sensor.modular.device.interfaces.IDeviceSendCallback;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * 姿态传感器API接口
  *
@@ -116,6 +121,20 @@ public interface IAttitudeSensorApi {
      */
     void setReturnRate(byte rate);
 
+    /**
+     * 把寄存器配置成期望值：一次读出当前值，只写不同的寄存器，回读校验后保存
+     * <param name="config">期望的寄存器值</param>
+     * 会阻塞到配置完成，返回结果中包含耗时
+     */
+    RegisterConfigResult applyConfig(RegisterConfig config) throws InterruptedException;
+
+    /**
+     * 读取多个寄存器：按每次返回4个寄存器合并成最少的读命令，阻塞到全部返回
+     * <param name="registers">寄存器地址</param>
+     * 返回读到的值，读取失败的寄存器不在结果里
+     */
+    Map<Integer, Short> readRegisters(Collection<Integer> registers) throws InterruptedException;
+
     /**
      * 获得设备名称
      *
@@ -0,0 +1,118 @@
+package com.wit.witsdk.observer.role;
+
+import java.util.Arrays;
+
+/**
+ * 写时复制的观察者列表
+ * <p>
+ * 登记和移除在锁内复制数组后整体替换；发布时只读一次volatile数组，不加锁也不分配对象：
+ * <pre>
+ * for (IXxxObserver observer : bus.snapshot()) {
+ *     observer.onXxx(...);
+ * }
+ * </pre>
+ * 发布过程中登记或移除的观察者从下一次发布开始生效。同一个观察者重复登记只保留一个。
+ */
+public class ObserverBus<T> {
+
+    /**
+     * 没有观察者时的数组，同时决定数组的元素类型
+     */
+    private final T[] empty;
+
+    /**
+     * 当前的观察者，只整体替换，不修改内容
+     */
+    private volatile T[] observers;
+
+    private final Object lock = new Object();
+
+    /**
+     * @param empty 长度为0的观察者数组，如 new Observer[0]
+     */
+    public ObserverBus(T[] empty) {
+        if (empty.length != 0) {
+            throw new IllegalArgumentException("需要长度为0的数组");
+        }
+        this.empty = empty;
+        this.observers = empty;
+    }
+
+    /**
+     * 登记观察者
+     *
+     * @return 是否新加入（已经登记过返回false）
+     */
+    public boolean add(T observer) {
+        if (observer == null) {
+            return false;
+        }
+        synchronized (lock) {
+            T[] current = observers;
+            if (indexOf(current, observer) >= 0) {
+                return false;
+            }
+            T[] copy = Arrays.copyOf(current, current.length + 1);
+            copy[current.length] = observer;
+            observers = copy;
+            return true;
+        }
+    }
+
+    /**
+     * 移除观察者
+     *
+     * @return 是否移除了
+     */
+    public boolean remove(T observer) {
+        synchronized (lock) {
+            T[] current = observers;
+            int index = indexOf(current, observer);
+            if (index < 0) {
+                return false;
+            }
+            if (current.length == 1) {
+                observers = empty;
+                return true;
+            }
+            T[] copy = Arrays.copyOf(empty, current.length - 1);
+            System.arraycopy(current, 0, copy, 0, index);
+            System.arraycopy(current, index + 1, copy, index, current.length - index - 1);
+            observers = copy;
+            return true;
+        }
+    }
+
+    /**
+     * 移除所有观察者
+     */
+    public void clear() {
+        synchronized (lock) {
+            observers = empty;
+        }
+    }
+
+    /**
+     * 当前观察者的快照，只读，不要修改
+     */
+    public T[] snapshot() {
+        return observers;
+    }
+
+    public int size() {
+        return observers.length;
+    }
+
+    public boolean isEmpty() {
+        return observers.length == 0;
+    }
+
+    private static int indexOf(Object[] array, Object observer) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == observer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
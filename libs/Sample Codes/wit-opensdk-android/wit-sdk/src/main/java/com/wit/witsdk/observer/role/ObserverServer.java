@@ -3,27 +3,18 @@ package com.wit.witsdk.observer.role;
 import com.wit.witsdk.observer.interfaces.Observer;
 import com.wit.witsdk.observer.interfaces.Observerable;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ObserverServer implements Observerable {
 
-    private List<Observer> list; //面向接口编程
-
-    public ObserverServer() {
-        list = new ArrayList<>();
-    }
+    private final ObserverBus<Observer> observers = new ObserverBus<>(new Observer[0]);
 
     @Override
     public void registerObserver(Observer observer) {
-        list.add(observer);
+        observers.add(observer);
     }
 
     @Override
     public void removeObserver(Observer observer) {
-        if (!list.isEmpty()) {
-            list.remove(observer);
-        }
+        observers.remove(observer);
     }
 
     /**
@@ -34,8 +25,7 @@ public class ObserverServer implements Observerable {
      */
     @Override
     public void notifyObserver(byte[] data) {
-        for (int i = 0; i < list.size(); i++) {
-            Observer observer = list.get(i);
+        for (Observer observer : observers.snapshot()) {
             observer.update(data);//通知Observer调用update方法
         }
     }
@@ -47,6 +37,6 @@ public class ObserverServer implements Observerable {
      * @date 2022/5/10 18:09
      */
     public int observerSize() {
-        return list.size();
+        return observers.size();
     }
 }
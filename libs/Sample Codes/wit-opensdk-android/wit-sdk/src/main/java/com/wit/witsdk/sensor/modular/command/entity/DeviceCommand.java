@@ -0,0 +1,139 @@
+package com.wit.witsdk.sensor.modular.command.entity;
+
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterReadFuture;
+import com.wit.witsdk.sensor.modular.resolver.entity.SendDataResult;
+import com.wit.witsdk.sensor.modular.resolver.interfaces.ISendDataCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 排队等待发送的设备命令
+ * <p>
+ * 读寄存器命令（FF AA 27 reg）带有寄存器地址，队列里同一寄存器的读命令会合并成一条，
+ * 合并后所有调用方的回调都会收到结果。
+ */
+public class DeviceCommand {
+
+    /**
+     * 命令数据
+     */
+    private final byte[] data;
+
+    /**
+     * 发送后的等待时长(ms)，小于0使用解析器的默认值
+     */
+    private final int waitTime;
+
+    /**
+     * 优先级，合并时可能被提升
+     */
+    private CommandPriority priority;
+
+    /**
+     * 读取的寄存器地址，不是读命令时为-1
+     */
+    private final int readRegister;
+
+    /**
+     * 已登记的读寄存器请求，没有时为null
+     */
+    private RegisterReadFuture readFuture;
+
+    /**
+     * 完成回调
+     */
+    private final List<ISendDataCallback> callbacks = new ArrayList<>(1);
+
+    /**
+     * 是否已完成
+     */
+    private boolean completed;
+
+    public DeviceCommand(byte[] data, int waitTime, CommandPriority priority, ISendDataCallback callback) {
+        this.data = data;
+        this.waitTime = waitTime;
+        this.priority = priority;
+        this.readRegister = parseReadRegister(data);
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+    }
+
+    /**
+     * 发出已登记的读寄存器请求
+     */
+    public DeviceCommand(RegisterReadFuture readFuture, CommandPriority priority) {
+        this(new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, (byte) readFuture.getRegister(), 0x00}, -1, priority, null);
+        this.readFuture = readFuture;
+    }
+
+    /**
+     * 把另一条读同一寄存器的命令合并进来
+     */
+    public synchronized void merge(DeviceCommand other) {
+        if (other.priority.getCode() < priority.getCode()) {
+            priority = other.priority;
+        }
+        if (readFuture == null) {
+            readFuture = other.readFuture;
+        }
+        callbacks.addAll(other.callbacks);
+    }
+
+    /**
+     * 命令完成（或被取消），通知所有回调，只通知一次
+     */
+    public void complete(SendDataResult result) {
+        List<ISendDataCallback> toCall;
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            toCall = new ArrayList<>(callbacks);
+        }
+        for (ISendDataCallback callback : toCall) {
+            callback.run(result);
+        }
+    }
+
+    /**
+     * 是否是读寄存器命令
+     */
+    public boolean isRead() {
+        return readRegister >= 0;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWaitTime() {
+        return waitTime;
+    }
+
+    public synchronized CommandPriority getPriority() {
+        return priority;
+    }
+
+    public int getReadRegister() {
+        return readRegister;
+    }
+
+    public synchronized RegisterReadFuture getReadFuture() {
+        return readFuture;
+    }
+
+    /**
+     * 解析读寄存器命令 FF AA 27 reg 00 的寄存器地址，不是读命令返回-1
+     */
+    public static int parseReadRegister(byte[] data) {
+        if (data != null && data.length >= 5
+                && data[0] == (byte) 0xff && data[1] == (byte) 0xaa && data[2] == 0x27) {
+            return data[3] & 0xff;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.wit.witsdk.sensor.modular.command.entity;
+
+import com.wit.witsdk.sensor.modular.command.roles.RegisterReadCorrelator;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 期望的寄存器配置
+ * <p>
+ * 只描述寄存器最终应该是什么值，怎么读、写、校验由 RegisterConfigTransaction 决定。
+ */
+public class RegisterConfig {
+
+    /**
+     * 寄存器地址 -> 期望值，按地址排序
+     */
+    private final TreeMap<Integer, Short> registers = new TreeMap<>();
+
+    /**
+     * 写完并校验通过后是否保存到设备
+     */
+    private boolean save = true;
+
+    /**
+     * 解锁命令发出后的等待时长(ms)
+     */
+    private int unlockWait = 100;
+
+    /**
+     * 每条写命令发出后的等待时长(ms)
+     */
+    private int writeWait = 50;
+
+    /**
+     * 读寄存器单次等待时长(ms)
+     */
+    private long readTimeout = RegisterReadCorrelator.DEFAULT_TIMEOUT_MS;
+
+    /**
+     * 读寄存器超时重发次数
+     */
+    private int readRetries = RegisterReadCorrelator.DEFAULT_RETRIES;
+
+    /**
+     * 回读不一致时最多重写几轮
+     */
+    private int writeRetries = 3;
+
+    /**
+     * 设置寄存器的期望值
+     */
+    public RegisterConfig put(int register, int value) {
+        if (register < 0 || register > 0xff) {
+            throw new IllegalArgumentException("寄存器地址超出范围: " + register);
+        }
+        registers.put(register, (short) value);
+        return this;
+    }
+
+    public Map<Integer, Short> getRegisters() {
+        return Collections.unmodifiableMap(registers);
+    }
+
+    public boolean isSave() {
+        return save;
+    }
+
+    public RegisterConfig setSave(boolean save) {
+        this.save = save;
+        return this;
+    }
+
+    public int getUnlockWait() {
+        return unlockWait;
+    }
+
+    public RegisterConfig setUnlockWait(int unlockWait) {
+        this.unlockWait = unlockWait;
+        return this;
+    }
+
+    public int getWriteWait() {
+        return writeWait;
+    }
+
+    public RegisterConfig setWriteWait(int writeWait) {
+        this.writeWait = writeWait;
+        return this;
+    }
+
+    public long getReadTimeout() {
+        return readTimeout;
+    }
+
+    public RegisterConfig setReadTimeout(long readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    public int getReadRetries() {
+        return readRetries;
+    }
+
+    public RegisterConfig setReadRetries(int readRetries) {
+        this.readRetries = readRetries;
+        return this;
+    }
+
+    public int getWriteRetries() {
+        return writeRetries;
+    }
+
+    public RegisterConfig setWriteRetries(int writeRetries) {
+        this.writeRetries = writeRetries;
+        return this;
+    }
+}
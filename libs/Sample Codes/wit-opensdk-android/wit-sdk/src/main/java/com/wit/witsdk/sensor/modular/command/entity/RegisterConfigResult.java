@@ -0,0 +1,171 @@
+package com.wit.witsdk.sensor.modular.command.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 寄存器配置的执行结果
+ */
+public class RegisterConfigResult {
+
+    /**
+     * 所有寄存器是否都已是期望值
+     */
+    private boolean success;
+
+    /**
+     * 总耗时(ms)
+     */
+    private long elapsedMillis;
+
+    /**
+     * 执行前读到的值，没读到的寄存器不在里面
+     */
+    private final Map<Integer, Short> initialValues = new TreeMap<>();
+
+    /**
+     * 写过的寄存器
+     */
+    private final List<Integer> writtenRegisters = new ArrayList<>();
+
+    /**
+     * 最终仍不是期望值（或读不到）的寄存器
+     */
+    private final List<Integer> failedRegisters = new ArrayList<>();
+
+    /**
+     * 发出的读命令数
+     */
+    private int readCount;
+
+    /**
+     * 发出的写命令数（不含解锁和保存）
+     */
+    private int writeCount;
+
+    /**
+     * 是否保存到了设备
+     */
+    private boolean saved;
+
+    /**
+     * 是否有上次保存的快照
+     */
+    private boolean snapshotUsed;
+
+    /**
+     * 快照是否和读到的值一致
+     */
+    private boolean snapshotValid;
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Map<Integer, Short> getInitialValues() {
+        return initialValues;
+    }
+
+    public List<Integer> getWrittenRegisters() {
+        return writtenRegisters;
+    }
+
+    public List<Integer> getFailedRegisters() {
+        return failedRegisters;
+    }
+
+    public int getReadCount() {
+        return readCount;
+    }
+
+    public void addReadCount(int count) {
+        readCount += count;
+    }
+
+    public int getWriteCount() {
+        return writeCount;
+    }
+
+    public void addWriteCount(int count) {
+        writeCount += count;
+    }
+
+    public boolean isSaved() {
+        return saved;
+    }
+
+    public void setSaved(boolean saved) {
+        this.saved = saved;
+    }
+
+    public boolean isSnapshotUsed() {
+        return snapshotUsed;
+    }
+
+    public void setSnapshotUsed(boolean snapshotUsed) {
+        this.snapshotUsed = snapshotUsed;
+    }
+
+    public boolean isSnapshotValid() {
+        return snapshotValid;
+    }
+
+    public void setSnapshotValid(boolean snapshotValid) {
+        this.snapshotValid = snapshotValid;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(success ? "成功" : "失败").append(", 耗时").append(elapsedMillis).append("ms");
+        sb.append(", 读").append(readCount).append("次, 写").append(writeCount).append("次");
+        sb.append(", 初始值").append(hex(initialValues));
+        sb.append(", 写入").append(hex(writtenRegisters));
+        if (!failedRegisters.isEmpty()) {
+            sb.append(", 未生效").append(hex(failedRegisters));
+        }
+        if (saved) {
+            sb.append(", 已保存");
+        }
+        if (snapshotUsed) {
+            sb.append(snapshotValid ? ", 快照一致" : ", 快照已变化");
+        }
+        return sb.toString();
+    }
+
+    private static String hex(List<Integer> registers) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < registers.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%02X", registers.get(i)));
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String hex(Map<Integer, Short> values) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<Integer, Short> entry : values.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%02X=%d", entry.getKey(), entry.getValue()));
+        }
+        return sb.append("}").toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.wit.witsdk.sensor.modular.command.entity;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 设备寄存器快照
+ * <p>
+ * 保存上次校验通过的关键寄存器，重连时用一次批量读取核对，没有变化就不用重新配置。
+ * 以 "02=2,03=8,21=0" 的文本形式持久化。
+ */
+public class RegisterSnapshot {
+
+    /**
+     * 默认保存的寄存器：RSW、RRATE、ACCRANGE、版本号(2E/2F)、磁场类型
+     */
+    public static final int[] DEFAULT_REGISTERS = {0x02, 0x03, 0x21, 0x2E, 0x2F, 0x72};
+
+    /**
+     * 寄存器地址 -> 值
+     */
+    private final TreeMap<Integer, Short> values = new TreeMap<>();
+
+    /**
+     * 保存时间
+     */
+    private long savedAt;
+
+    public RegisterSnapshot put(int register, short value) {
+        values.put(register, value);
+        return this;
+    }
+
+    public Map<Integer, Short> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public void setSavedAt(long savedAt) {
+        this.savedAt = savedAt;
+    }
+
+    /**
+     * 只比较读取过的寄存器，快照里这些寄存器全部一致时返回true（读失败的按不一致处理）
+     */
+    public boolean matches(Map<Integer, Short> actual, Collection<Integer> read) {
+        for (Map.Entry<Integer, Short> entry : values.entrySet()) {
+            if (read.contains(entry.getKey()) && !entry.getValue().equals(actual.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 转换成保存用的文本
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(savedAt);
+        for (Map.Entry<Integer, Short> entry : values.entrySet()) {
+            sb.append(',').append(String.format("%02X", entry.getKey())).append('=').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 从保存的文本解析，格式不对返回null
+     */
+    public static RegisterSnapshot parse(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = text.split(",");
+            RegisterSnapshot snapshot = new RegisterSnapshot();
+            snapshot.setSavedAt(Long.parseLong(parts[0]));
+            for (int i = 1; i < parts.length; i++) {
+                int eq = parts[i].indexOf('=');
+                int register = Integer.parseInt(parts[i].substring(0, eq), 16);
+                short value = Short.parseShort(parts[i].substring(eq + 1));
+                snapshot.put(register, value);
+            }
+            return snapshot;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
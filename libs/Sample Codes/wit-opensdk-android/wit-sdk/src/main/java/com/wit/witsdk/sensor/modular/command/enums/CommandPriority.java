@@ -0,0 +1,27 @@
+package com.wit.witsdk.sensor.modular.command.enums;
+
+/**
+ * 命令优先级，队列里总是先发高优先级的命令
+ */
+public enum CommandPriority {
+
+    /**
+     * 用户发起的配置命令（解锁、写寄存器、保存、校准等）
+     */
+    Config(0),
+
+    /**
+     * 后台轮询读取
+     */
+    Poll(1);
+
+    private final int code;
+
+    CommandPriority(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
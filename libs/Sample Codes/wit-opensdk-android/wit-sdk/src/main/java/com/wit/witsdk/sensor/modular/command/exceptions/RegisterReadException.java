@@ -0,0 +1,12 @@
+package com.wit.witsdk.sensor.modular.command.exceptions;
+
+/**
+ * 读寄存器失败（超时、发送失败或被取消）
+ */
+public class RegisterReadException extends Exception {
+
+    public RegisterReadException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.wit.witsdk.sensor.modular.command.interfaces;
+
+import com.wit.witsdk.sensor.modular.command.entity.DeviceCommand;
+
+/**
+ * 在命令线程上执行一条命令
+ */
+@FunctionalInterface
+public interface ICommandHandler {
+
+    /**
+     * 执行命令：写命令在返回前完成发送和等待，读命令发出后即可返回，
+     * 结果通过 {@link DeviceCommand#complete} 通知
+     */
+    void execute(DeviceCommand command) throws Exception;
+
+    /**
+     * 命令没有执行成功就被丢弃（队列满被挤掉或拒绝、关闭时清空、执行出错），
+     * 在 {@link DeviceCommand#complete} 之前调用，用来释放命令关联的资源，例如还没发出的读寄存器请求
+     */
+    default void discard(DeviceCommand command) {
+    }
+}
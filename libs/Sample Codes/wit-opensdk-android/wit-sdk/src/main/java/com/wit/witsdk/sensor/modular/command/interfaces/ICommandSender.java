@@ -0,0 +1,13 @@
+package com.wit.witsdk.sensor.modular.command.interfaces;
+
+/**
+ * 把命令写到设备的发送通道
+ */
+@FunctionalInterface
+public interface ICommandSender {
+
+    /**
+     * 发送命令，没有连接或写入失败时返回false
+     */
+    boolean send(byte[] command);
+}
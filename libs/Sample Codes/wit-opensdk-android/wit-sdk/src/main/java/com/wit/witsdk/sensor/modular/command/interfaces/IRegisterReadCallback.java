@@ -0,0 +1,17 @@
+package com.wit.witsdk.sensor.modular.command.interfaces;
+
+/**
+ * 读寄存器完成的回调
+ */
+@FunctionalInterface
+public interface IRegisterReadCallback {
+
+    /**
+     * 读取完成
+     *
+     * @param register 寄存器地址
+     * @param values   从该寄存器开始的4个值，失败时为null
+     * @param error    失败原因，成功时为null
+     */
+    void onComplete(int register, short[] values, Exception error);
+}
@@ -0,0 +1,24 @@
+package com.wit.witsdk.sensor.modular.command.interfaces;
+
+import com.wit.witsdk.sensor.modular.command.entity.RegisterSnapshot;
+
+/**
+ * 按设备(MAC)保存寄存器快照
+ */
+public interface IRegisterSnapshotStore {
+
+    /**
+     * 读取设备的快照，没有时返回null
+     */
+    RegisterSnapshot load(String deviceKey);
+
+    /**
+     * 保存设备的快照
+     */
+    void save(String deviceKey, RegisterSnapshot snapshot);
+
+    /**
+     * 删除设备的快照
+     */
+    void remove(String deviceKey);
+}
@@ -0,0 +1,17 @@
+package com.wit.witsdk.sensor.modular.command.interfaces;
+
+/**
+ * 调度用的单调时钟，测试中可以换成手动推进的时钟
+ */
+public interface ITimeSource {
+
+    /**
+     * 系统单调时钟
+     */
+    ITimeSource SYSTEM = System::nanoTime;
+
+    /**
+     * 当前时间(ns)，只用来计算间隔
+     */
+    long nanoTime();
+}
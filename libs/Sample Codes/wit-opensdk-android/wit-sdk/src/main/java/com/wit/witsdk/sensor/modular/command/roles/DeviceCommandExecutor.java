@@ -0,0 +1,266 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import android.util.Log;
+
+import com.wit.witsdk.sensor.modular.command.entity.DeviceCommand;
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.interfaces.ICommandHandler;
+import com.wit.witsdk.sensor.modular.resolver.entity.SendDataResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个设备的命令队列
+ * <p>
+ * 所有发往设备的命令进入一个有界队列，由一个工作线程按顺序取出执行，命令之间不会在写通道上互相穿插。
+ * 配置命令总是排在轮询命令前面；队列里还没发出的同一寄存器的读命令合并成一条。
+ * 队列满时轮询命令直接拒绝，配置命令会挤掉最早的轮询命令。
+ * 关闭后队列里的命令全部以失败结束，工作线程退出，再次提交时重新启动。
+ * 没有执行成功的命令先交给 {@link ICommandHandler#discard}，再以失败结束。
+ */
+public class DeviceCommandExecutor {
+
+    /**
+     * 默认队列容量
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * 线程名
+     */
+    private final String name;
+
+    /**
+     * 命令执行者
+     */
+    private final ICommandHandler handler;
+
+    /**
+     * 队列容量
+     */
+    private final int capacity;
+
+    /**
+     * 按优先级分开的队列，下标为 {@link CommandPriority#getCode()}
+     */
+    private final ArrayDeque<DeviceCommand>[] queues;
+
+    private final Object lock = new Object();
+
+    /**
+     * 工作线程，空闲时也保留，关闭时退出
+     */
+    private Thread worker;
+
+    /**
+     * 已执行的命令数
+     */
+    private long executedCount;
+
+    /**
+     * 合并掉的命令数
+     */
+    private long coalescedCount;
+
+    /**
+     * 因队列满被拒绝或挤掉的命令数
+     */
+    private long rejectedCount;
+
+    @SuppressWarnings("unchecked")
+    public DeviceCommandExecutor(String name, ICommandHandler handler, int capacity) {
+        this.name = name;
+        this.handler = handler;
+        this.capacity = Math.max(1, capacity);
+        CommandPriority[] priorities = CommandPriority.values();
+        queues = new ArrayDeque[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * 提交命令
+     *
+     * @return 是否进入队列（包括被合并），被拒绝的命令已经以失败结束
+     */
+    public boolean submit(DeviceCommand command) {
+        DeviceCommand evicted = null;
+        boolean accepted = true;
+        synchronized (lock) {
+            DeviceCommand same = command.isRead() ? findQueuedRead(command.getReadRegister()) : null;
+            if (same != null) {
+                CommandPriority before = same.getPriority();
+                same.merge(command);
+                if (same.getPriority() != before) {
+                    queues[before.getCode()].remove(same);
+                    queues[same.getPriority().getCode()].addLast(same);
+                }
+                coalescedCount++;
+                return true;
+            }
+
+            if (queuedCount() >= capacity) {
+                evicted = command.getPriority() == CommandPriority.Poll ? null : queues[CommandPriority.Poll.getCode()].pollFirst();
+                if (evicted == null) {
+                    accepted = false;
+                }
+                rejectedCount++;
+            }
+
+            if (accepted) {
+                queues[command.getPriority().getCode()].addLast(command);
+                ensureWorker();
+                lock.notifyAll();
+            }
+        }
+
+        if (evicted != null) {
+            drop(evicted);
+        }
+        if (!accepted) {
+            drop(command);
+        }
+        return accepted;
+    }
+
+    /**
+     * 关闭：清空队列（全部以失败结束），停止工作线程
+     */
+    public void close() {
+        List<DeviceCommand> dropped = new ArrayList<>();
+        Thread stopping;
+        synchronized (lock) {
+            for (ArrayDeque<DeviceCommand> queue : queues) {
+                dropped.addAll(queue);
+                queue.clear();
+            }
+            stopping = worker;
+            worker = null;
+            lock.notifyAll();
+        }
+        if (stopping != null && stopping != Thread.currentThread()) {
+            // 打断正在执行的写命令的等待
+            stopping.interrupt();
+        }
+        for (DeviceCommand command : dropped) {
+            drop(command);
+        }
+    }
+
+    /**
+     * 没有执行成功的命令：先让执行者释放它关联的资源，再以失败结束
+     */
+    private void drop(DeviceCommand command) {
+        try {
+            handler.discard(command);
+        } catch (Exception e) {
+            Log.e("", "丢弃命令错误: " + e.getMessage());
+        }
+        command.complete(new SendDataResult(false));
+    }
+
+    /**
+     * 当前线程是否是命令线程（在命令执行过程中再发出的命令可以直接执行）
+     */
+    public boolean isWorkerThread() {
+        synchronized (lock) {
+            return worker == Thread.currentThread();
+        }
+    }
+
+    /**
+     * 队列中的命令数
+     */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queuedCount();
+        }
+    }
+
+    public long getExecutedCount() {
+        synchronized (lock) {
+            return executedCount;
+        }
+    }
+
+    public long getCoalescedCount() {
+        synchronized (lock) {
+            return coalescedCount;
+        }
+    }
+
+    public long getRejectedCount() {
+        synchronized (lock) {
+            return rejectedCount;
+        }
+    }
+
+    private int queuedCount() {
+        int count = 0;
+        for (ArrayDeque<DeviceCommand> queue : queues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    private DeviceCommand findQueuedRead(int register) {
+        for (ArrayDeque<DeviceCommand> queue : queues) {
+            for (DeviceCommand queued : queue) {
+                if (queued.getReadRegister() == register) {
+                    return queued;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void ensureWorker() {
+        if (worker == null) {
+            worker = new Thread(this::workLoop, "WitCommand-" + name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void workLoop() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            DeviceCommand command = null;
+            synchronized (lock) {
+                while (worker == self && command == null) {
+                    for (ArrayDeque<DeviceCommand> queue : queues) {
+                        command = queue.pollFirst();
+                        if (command != null) {
+                            break;
+                        }
+                    }
+                    if (command == null) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            // 关闭时被打断，回到循环检查是否还是工作线程
+                        }
+                    }
+                }
+                if (command == null) {
+                    return;
+                }
+                executedCount++;
+            }
+
+            try {
+                handler.execute(command);
+            } catch (InterruptedException e) {
+                drop(command);
+            } catch (Exception e) {
+                Log.e("", "命令执行错误: " + e.getMessage());
+                drop(command);
+            }
+            // 清除执行过程中被设置的打断标志，是否退出由 worker 字段决定
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfig;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterConfigResult;
+import com.wit.witsdk.sensor.modular.command.entity.RegisterSnapshot;
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.interfaces.IRegisterSnapshotStore;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 寄存器配置事务
+ * <p>
+ * 1. 用 {@link RegisterRangeReader} 一次性发出所有读命令（每条 55 71 返回连续4个寄存器，相邻寄存器合并为一次读）；
+ * 2. 只写和期望值不同的寄存器，写之前解锁；
+ * 3. 写完立即回读，返回帧一到就校验，不一致的再重写，最多 {@link RegisterConfig#getWriteRetries()} 轮；
+ * 4. 全部生效后按需保存。
+ * <p>
+ * 设置了快照存储时，期望寄存器的读命令顺带带回的快照寄存器（每条读命令返回连续4个）用来核对快照，
+ * 不增加读命令；快照缺少的寄存器另外读取。核对一致后才用快照填充其余寄存器（版本号、磁场类型），
+ * 不会让过期的量程先参与解析。没有漂移就不解锁、不写、不保存。
+ * 成功后保存新的快照，失败时删除旧快照。
+ * <p>
+ * 所有命令都以配置优先级进入设备的命令队列，写命令之间只等待配置里的短暂间隔。
+ * 会阻塞调用线程直到完成，不要在主线程、接收线程或命令线程上调用。
+ */
+public class RegisterConfigTransaction {
+
+    private final DeviceModel deviceModel;
+
+    /**
+     * 合并读取
+     */
+    private final RegisterRangeReader rangeReader;
+
+    private final RegisterConfig config;
+
+    /**
+     * 快照存储，可以为null
+     */
+    private IRegisterSnapshotStore snapshotStore;
+
+    /**
+     * 快照的key（设备MAC）
+     */
+    private String snapshotKey;
+
+    public RegisterConfigTransaction(DeviceModel deviceModel, RegisterConfig config) {
+        this.deviceModel = deviceModel;
+        this.config = config;
+        this.rangeReader = new RegisterRangeReader(deviceModel);
+    }
+
+    /**
+     * 使用快照存储，deviceKey 一般为设备MAC
+     */
+    public RegisterConfigTransaction setSnapshotStore(IRegisterSnapshotStore snapshotStore, String deviceKey) {
+        this.snapshotStore = snapshotStore;
+        this.snapshotKey = deviceKey;
+        return this;
+    }
+
+    /**
+     * 执行配置
+     */
+    public RegisterConfigResult execute() throws InterruptedException {
+        if (deviceModel.getCommandExecutor().isWorkerThread()) {
+            throw new IllegalStateException("不能在命令线程上执行配置事务");
+        }
+
+        long start = System.nanoTime();
+        RegisterConfigResult result = new RegisterConfigResult();
+        Map<Integer, Short> desired = config.getRegisters();
+
+        // 上次的快照：和期望寄存器在同一批读取里核对
+        RegisterSnapshot snapshot = loadSnapshot();
+        Set<Integer> toRead = new TreeSet<>(desired.keySet());
+        if (snapshotStore != null) {
+            for (int register : RegisterSnapshot.DEFAULT_REGISTERS) {
+                if (snapshot == null || !snapshot.getValues().containsKey(register) || isCovered(register, desired.keySet())) {
+                    toRead.add(register);
+                }
+            }
+        }
+
+        // 读取当前值
+        Map<Integer, Short> current = readAll(toRead, result);
+        result.getInitialValues().putAll(current);
+        if (snapshot != null) {
+            result.setSnapshotUsed(true);
+            result.setSnapshotValid(snapshot.matches(current, toRead));
+            if (result.isSnapshotValid()) {
+                applySnapshot(snapshot, toRead);
+            }
+        }
+        List<Integer> pending = diff(desired.keySet(), desired, current);
+
+        // 写入不同的值并回读校验
+        for (int round = 0; !pending.isEmpty() && round <= config.getWriteRetries(); round++) {
+            sendConfig(new byte[]{(byte) 0xff, (byte) 0xaa, 0x69, (byte) 0x88, (byte) 0xb5}, config.getUnlockWait());
+            for (int register : pending) {
+                int value = desired.get(register);
+                sendConfig(new byte[]{(byte) 0xff, (byte) 0xaa, (byte) register, (byte) value, (byte) (value >> 8)}, config.getWriteWait());
+                if (!result.getWrittenRegisters().contains(register)) {
+                    result.getWrittenRegisters().add(register);
+                }
+            }
+            result.addWriteCount(pending.size());
+            pending = diff(pending, desired, readAll(pending, result));
+        }
+
+        result.getFailedRegisters().addAll(pending);
+        result.setSuccess(pending.isEmpty());
+
+        // 保存
+        if (config.isSave() && result.isSuccess() && !result.getWrittenRegisters().isEmpty()) {
+            result.setSaved(sendConfigAndWait(new byte[]{(byte) 0xff, (byte) 0xaa, 0x00, 0x00, 0x00}, config.getWriteWait()));
+        }
+
+        saveSnapshot(result, current);
+
+        result.setElapsedMillis((System.nanoTime() - start) / 1000000);
+        return result;
+    }
+
+    private RegisterSnapshot loadSnapshot() {
+        if (snapshotStore == null || snapshotKey == null) {
+            return null;
+        }
+        RegisterSnapshot snapshot = snapshotStore.load(snapshotKey);
+        return snapshot == null || snapshot.isEmpty() ? null : snapshot;
+    }
+
+    /**
+     * 寄存器是否在期望寄存器的读命令返回范围内
+     */
+    private static boolean isCovered(int register, Collection<Integer> registers) {
+        for (int start : RegisterRangeReader.plan(registers)) {
+            if (register >= start && register < start + RegisterRangeReader.SPAN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 核对通过后用快照填充没有读取的寄存器
+     */
+    private void applySnapshot(RegisterSnapshot snapshot, Collection<Integer> read) {
+        for (Map.Entry<Integer, Short> entry : snapshot.getValues().entrySet()) {
+            if (!read.contains(entry.getKey()) && !deviceModel.hasRegister(entry.getKey())) {
+                deviceModel.putRegister(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 成功时保存校验过的值，失败时删除快照
+     */
+    private void saveSnapshot(RegisterConfigResult result, Map<Integer, Short> current) {
+        if (snapshotStore == null || snapshotKey == null) {
+            return;
+        }
+        if (!result.isSuccess()) {
+            snapshotStore.remove(snapshotKey);
+            return;
+        }
+        // 快照有效且什么都没写时设备状态没变，不用重新保存
+        if (result.isSnapshotValid() && result.getWrittenRegisters().isEmpty()) {
+            return;
+        }
+        RegisterSnapshot snapshot = new RegisterSnapshot();
+        for (int register : RegisterSnapshot.DEFAULT_REGISTERS) {
+            Short value = current.get(register);
+            if (value != null) {
+                snapshot.put(register, value);
+            } else if (deviceModel.hasRegister(register)) {
+                // 这次没读的寄存器（核对通过后由快照填充，或轮询读到的值）
+                snapshot.put(register, deviceModel.getRegister(register));
+            }
+        }
+        // 写过的寄存器以期望值为准（已经回读校验）
+        for (Map.Entry<Integer, Short> entry : config.getRegisters().entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue());
+        }
+        snapshot.setSavedAt(System.currentTimeMillis());
+        snapshotStore.save(snapshotKey, snapshot);
+    }
+
+    /**
+     * 同时读取多个寄存器，返回读到的值
+     */
+    private Map<Integer, Short> readAll(Collection<Integer> registers, RegisterConfigResult result) throws InterruptedException {
+        RegisterRangeRead read = rangeReader.read(registers, config.getReadTimeout(), config.getReadRetries(), CommandPriority.Config);
+        result.addReadCount(read.getReadCount());
+        return read.get();
+    }
+
+    /**
+     * 和期望值不同（或没读到）的寄存器
+     */
+    private static List<Integer> diff(Collection<Integer> registers, Map<Integer, Short> desired, Map<Integer, Short> actual) {
+        List<Integer> different = new ArrayList<>();
+        for (int register : registers) {
+            if (!desired.get(register).equals(actual.get(register))) {
+                different.add(register);
+            }
+        }
+        return different;
+    }
+
+    private void sendConfig(byte[] data, int waitTime) {
+        deviceModel.sendProtocolData(data, waitTime, CommandPriority.Config, null);
+    }
+
+    /**
+     * 发送配置命令并等到它从队列里发出，返回是否发送成功
+     */
+    private boolean sendConfigAndWait(byte[] data, int waitTime) throws InterruptedException {
+        CountDownLatch sent = new CountDownLatch(1);
+        boolean[] success = new boolean[1];
+        deviceModel.sendProtocolData(data, waitTime, CommandPriority.Config, result -> {
+            success[0] = result.isSuccess();
+            sent.countDown();
+        });
+        sent.await();
+        return success[0];
+    }
+}
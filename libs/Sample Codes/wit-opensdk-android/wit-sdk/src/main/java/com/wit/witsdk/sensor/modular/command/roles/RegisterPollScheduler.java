@@ -0,0 +1,515 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import android.util.Log;
+
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.interfaces.ITimeSource;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台轮询调度
+ * <p>
+ * 取代处理器里固定周期的读取线程：
+ * 1. 每个寄存器按自己的间隔读取，间隔内寄存器已经被更新过（轮询返回或设备主动上传）就不读；
+ * 2. 受 RSW 控制的任务只在 RSW 打开了对应内容时才读，RSW 还没读到时先等待；
+ *    打开后先等一个间隔，设备主动上传（如 55 71 磁场、四元数包）时不再轮询；
+ * 3. 轮询占用的通道字节数受预算限制，超出时推迟到下一个tick；
+ * 4. 记录测量期间按 {@link #setRecordingIntervalScale} 放大间隔，默认暂停所有寄存器轮询；
+ * 5. 读取失败时间隔按2的幂退避，最多 {@link #MAX_BACKOFF_SHIFT} 次；
+ * 6. 同一个tick里到期的相邻寄存器（相距不到4）合并成一次读取，和 {@link RegisterRangeReader} 一样。
+ * <p>
+ * 读命令以轮询优先级进入设备的命令队列，配置命令总是先发。
+ */
+public class RegisterPollScheduler {
+
+    /**
+     * RSW 寄存器
+     */
+    public static final int REG_RSW = 0x02;
+
+    /**
+     * 默认通道预算(字节/秒)
+     */
+    public static final int DEFAULT_LINK_BUDGET = 2000;
+
+    /**
+     * 默认轮询最多占用预算的比例
+     */
+    public static final float DEFAULT_MAX_POLL_SHARE = 0.1f;
+
+    /**
+     * 一次读寄存器占用的通道字节数：5字节读命令 + 20字节返回帧
+     */
+    public static final int READ_COST_BYTES = 5 + 20;
+
+    /**
+     * 调度间隔(ms)
+     */
+    private static final long TICK_MS = 50;
+
+    /**
+     * 没读到的一次性寄存器的重试间隔(ms)
+     */
+    private static final long ONCE_RETRY_MS = 1000;
+
+    /**
+     * 最大退避次数（间隔最多放大 2^n 倍）
+     */
+    private static final int MAX_BACKOFF_SHIFT = 4;
+
+    /**
+     * 统计速率的窗口(ms)
+     */
+    private static final long RATE_WINDOW_MS = 1000;
+
+    /**
+     * 按寄存器地址排序
+     */
+    private static final Comparator<RegisterPollTask> BY_REGISTER = new Comparator<RegisterPollTask>() {
+        @Override
+        public int compare(RegisterPollTask a, RegisterPollTask b) {
+            return a.getRegister() - b.getRegister();
+        }
+    };
+
+    private final DeviceModel deviceModel;
+
+    private final List<RegisterPollTask> tasks = new ArrayList<>();
+
+    private final Object lock = new Object();
+
+    /**
+     * 时钟
+     */
+    private ITimeSource timeSource = ITimeSource.SYSTEM;
+
+    /**
+     * 工作线程，停止时为null
+     */
+    private Thread worker;
+
+    /**
+     * 通道预算(字节/秒)
+     */
+    private int linkBudget = DEFAULT_LINK_BUDGET;
+
+    /**
+     * 轮询最多占用预算的比例
+     */
+    private float maxPollShare = DEFAULT_MAX_POLL_SHARE;
+
+    /**
+     * 是否正在记录测量
+     */
+    private boolean recording;
+
+    /**
+     * 记录期间间隔放大倍数，0 表示暂停
+     */
+    private int recordingIntervalScale;
+
+    /**
+     * 可用的轮询字节数（令牌桶）
+     */
+    private double tokens = -1;
+
+    /**
+     * 上次补充令牌的时间(ns)
+     */
+    private long lastRefillNanos;
+
+    /**
+     * 当前统计窗口开始时间(ns)和窗口内的轮询字节数
+     */
+    private long windowStartNanos;
+
+    private long windowBytes;
+
+    /**
+     * 上一个统计窗口的轮询速率(字节/秒)
+     */
+    private double pollBytesPerSecond;
+
+    /**
+     * 已发出的读命令数
+     */
+    private long pollCount;
+
+    /**
+     * 因预算不足推迟的次数
+     */
+    private long deferredCount;
+
+    public RegisterPollScheduler(DeviceModel deviceModel) {
+        this.deviceModel = deviceModel;
+    }
+
+    /**
+     * 按间隔读取寄存器
+     *
+     * @param register   寄存器地址
+     * @param intervalMs 间隔(ms)
+     * @param rswMask    RSW 中对应的回传内容位，0 表示总是读取
+     */
+    public RegisterPollScheduler poll(int register, long intervalMs, int rswMask) {
+        return add(new RegisterPollTask(register, intervalMs, rswMask, false, null));
+    }
+
+    /**
+     * 读取寄存器直到读到为止（版本号、量程等不会自己变化的寄存器）
+     */
+    public RegisterPollScheduler pollOnce(int register, int rswMask) {
+        return add(new RegisterPollTask(register, ONCE_RETRY_MS, rswMask, true, null));
+    }
+
+    /**
+     * 按间隔执行不占用通道的本地任务
+     */
+    public RegisterPollScheduler every(long intervalMs, Runnable action) {
+        return add(new RegisterPollTask(-1, intervalMs, 0, false, action));
+    }
+
+    private RegisterPollScheduler add(RegisterPollTask task) {
+        if (!task.isLocal() && (task.getRegister() < 0 || task.getRegister() > 0xff)) {
+            throw new IllegalArgumentException("寄存器地址超出范围: " + task.getRegister());
+        }
+        synchronized (lock) {
+            tasks.add(task);
+        }
+        return this;
+    }
+
+    /**
+     * 移除所有任务
+     */
+    public void clear() {
+        synchronized (lock) {
+            tasks.clear();
+        }
+    }
+
+    /**
+     * 启动工作线程
+     */
+    public void start() {
+        synchronized (lock) {
+            if (worker != null) {
+                return;
+            }
+            worker = new Thread(this::workLoop, "WitPoll-" + deviceModel.getDeviceName());
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * 停止工作线程，在途的读命令照常完成
+     */
+    public void stop() {
+        synchronized (lock) {
+            worker = null;
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return worker != null;
+        }
+    }
+
+    /**
+     * 开始或结束记录测量
+     */
+    public void setRecording(boolean recording) {
+        synchronized (lock) {
+            this.recording = recording;
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isRecording() {
+        synchronized (lock) {
+            return recording;
+        }
+    }
+
+    /**
+     * 记录期间的间隔放大倍数，0 表示暂停寄存器轮询（默认）
+     */
+    public void setRecordingIntervalScale(int scale) {
+        synchronized (lock) {
+            this.recordingIntervalScale = Math.max(0, scale);
+        }
+    }
+
+    /**
+     * 设置时钟，测试中用手动推进的时钟配合 {@link #tick()} 驱动调度
+     */
+    public void setTimeSource(ITimeSource timeSource) {
+        synchronized (lock) {
+            this.timeSource = timeSource;
+            tokens = -1;
+        }
+    }
+
+    /**
+     * 设置通道预算(字节/秒)和轮询最多占用的比例
+     */
+    public void setLinkBudget(int bytesPerSecond, float maxPollShare) {
+        synchronized (lock) {
+            this.linkBudget = Math.max(1, bytesPerSecond);
+            this.maxPollShare = Math.max(0f, Math.min(1f, maxPollShare));
+            tokens = -1;
+        }
+    }
+
+    /**
+     * 执行一次调度，工作线程每个tick调用一次
+     */
+    public void tick() {
+        List<List<RegisterPollTask>> reads = new ArrayList<>();
+        List<RegisterPollTask> due = new ArrayList<>();
+        List<Runnable> actions = new ArrayList<>();
+
+        synchronized (lock) {
+            long now = timeSource.nanoTime();
+            refill(now);
+            int rsw = deviceModel.hasRegister(REG_RSW) ? deviceModel.getRegister(REG_RSW) & 0xffff : -1;
+            boolean suspended = recording && recordingIntervalScale == 0;
+            int scale = recording ? Math.max(1, recordingIntervalScale) : 1;
+
+            for (RegisterPollTask task : tasks) {
+                if (task.isLocal()) {
+                    if (task.lastAttemptNanos == 0 || now - task.lastAttemptNanos >= millis(task.getIntervalMs())) {
+                        task.lastAttemptNanos = now;
+                        actions.add(task.getAction());
+                    }
+                    continue;
+                }
+
+                observe(task, now);
+                if (task.inFlight || suspended) {
+                    continue;
+                }
+                if (task.isOnce() && deviceModel.hasRegister(task.getRegister())) {
+                    continue;
+                }
+                if (task.getRswMask() != 0 && (rsw < 0 || (rsw & task.getRswMask()) == 0)) {
+                    // RSW 未知或没有打开这项内容
+                    continue;
+                }
+                if (task.getRswMask() != 0 && task.lastUpdateNanos == 0 && task.lastAttemptNanos == 0) {
+                    // 内容刚打开，先等一个间隔：设备主动上传这项内容时就不需要轮询
+                    task.lastAttemptNanos = now;
+                    continue;
+                }
+
+                long interval = millis(task.getIntervalMs()) * scale << Math.min(task.failures, MAX_BACKOFF_SHIFT);
+                if ((task.lastUpdateNanos != 0 && now - task.lastUpdateNanos < interval)
+                        || (task.lastAttemptNanos != 0 && now - task.lastAttemptNanos < interval)) {
+                    // 间隔内已经更新过或者读过
+                    continue;
+                }
+                due.add(task);
+            }
+
+            // 同一个tick里相距不到4的寄存器合并成一次读取
+            Collections.sort(due, BY_REGISTER);
+            int i = 0;
+            while (i < due.size()) {
+                int start = due.get(i).getRegister();
+                int end = i + 1;
+                while (end < due.size() && due.get(end).getRegister() < start + RegisterRangeReader.SPAN) {
+                    end++;
+                }
+                if (tokens < READ_COST_BYTES) {
+                    deferredCount += end - i;
+                    i = end;
+                    continue;
+                }
+
+                tokens -= READ_COST_BYTES;
+                windowBytes += READ_COST_BYTES;
+                pollCount++;
+                List<RegisterPollTask> group = new ArrayList<>(due.subList(i, end));
+                for (RegisterPollTask task : group) {
+                    task.pollCount++;
+                    task.inFlight = true;
+                    task.lastAttemptNanos = now;
+                }
+                reads.add(group);
+                i = end;
+            }
+        }
+
+        for (List<RegisterPollTask> group : reads) {
+            deviceModel.readRegister(group.get(0).getRegister(), RegisterReadCorrelator.DEFAULT_TIMEOUT_MS,
+                    RegisterReadCorrelator.DEFAULT_RETRIES, CommandPriority.Poll)
+                    .whenComplete((register, values, error) -> onComplete(register, group, error));
+        }
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (Exception e) {
+                Log.e("", "轮询任务错误: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 检查寄存器版本号，记录最近一次更新的时间和来源，需持有lock
+     */
+    private void observe(RegisterPollTask task, long now) {
+        long version = deviceModel.getRegisterFile().getVersion(task.getRegister());
+        if (version != task.lastVersion) {
+            task.lastVersion = version;
+            task.lastUpdateNanos = now;
+            task.streamed = !task.inFlight;
+        }
+    }
+
+    private void onComplete(int start, List<RegisterPollTask> group, Exception error) {
+        synchronized (lock) {
+            long now = timeSource.nanoTime();
+            for (RegisterPollTask task : group) {
+                task.inFlight = false;
+                if (error == null) {
+                    task.failures = 0;
+                } else {
+                    task.failures++;
+                }
+            }
+            if (error == null) {
+                // 返回帧里的4个寄存器都是轮询读到的，包括顺带读到的其它任务的寄存器
+                for (RegisterPollTask task : tasks) {
+                    if (!task.isLocal() && task.getRegister() >= start && task.getRegister() < start + RegisterRangeReader.SPAN) {
+                        observe(task, now);
+                        task.streamed = false;
+                    }
+                }
+            }
+        }
+        if (error != null) {
+            Log.i("", "轮询读取失败: " + error.getMessage());
+        }
+    }
+
+    /**
+     * 补充令牌并滚动统计窗口，需持有lock
+     */
+    private void refill(long now) {
+        double perSecond = linkBudget * maxPollShare;
+        // 最多积攒0.1秒的预算（至少够同一tick里的两次读取），避免空闲后突发
+        double capacity = Math.max(2 * READ_COST_BYTES, perSecond / 10);
+        if (tokens < 0) {
+            tokens = capacity;
+            lastRefillNanos = now;
+            windowStartNanos = now;
+        }
+        tokens = Math.min(capacity, tokens + perSecond * (now - lastRefillNanos) / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+
+        long windowNanos = now - windowStartNanos;
+        if (windowNanos >= millis(RATE_WINDOW_MS)) {
+            pollBytesPerSecond = windowBytes * (double) TimeUnit.SECONDS.toNanos(1) / windowNanos;
+            windowBytes = 0;
+            windowStartNanos = now;
+        }
+    }
+
+    private static long millis(long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    private void workLoop() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            synchronized (lock) {
+                if (worker != self) {
+                    return;
+                }
+            }
+            try {
+                tick();
+            } catch (Exception e) {
+                Log.e("", "轮询调度错误: " + e.getMessage());
+            }
+            synchronized (lock) {
+                if (worker != self) {
+                    return;
+                }
+                try {
+                    lock.wait(TICK_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 最近一个统计窗口里轮询占用的字节数/秒
+     */
+    public double getPollBytesPerSecond() {
+        synchronized (lock) {
+            return pollBytesPerSecond;
+        }
+    }
+
+    /**
+     * 轮询占用通道预算的比例（0~1）
+     */
+    public double getLinkBudgetUsage() {
+        synchronized (lock) {
+            return pollBytesPerSecond / linkBudget;
+        }
+    }
+
+    /**
+     * 寄存器是否由设备主动上传（最近一次更新不是来自轮询）
+     */
+    public boolean isStreamed(int register) {
+        synchronized (lock) {
+            for (RegisterPollTask task : tasks) {
+                if (task.getRegister() == register) {
+                    return task.streamed;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 已发出还没完成的轮询读取涉及的任务数
+     */
+    public int getInFlightCount() {
+        synchronized (lock) {
+            int count = 0;
+            for (RegisterPollTask task : tasks) {
+                if (task.inFlight) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    public long getPollCount() {
+        synchronized (lock) {
+            return pollCount;
+        }
+    }
+
+    public long getDeferredCount() {
+        synchronized (lock) {
+            return deferredCount;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+/**
+ * 一个轮询任务
+ * <p>
+ * 寄存器任务按自己的间隔读一个寄存器；寄存器在间隔内被更新过（轮询返回或设备主动上传）就不读。
+ * 本地任务（register 为 -1）不占用通道，只按间隔执行 action，例如刷新信号强度。
+ * 运行状态由 {@link RegisterPollScheduler} 在它的锁内维护。
+ */
+public class RegisterPollTask {
+
+    /**
+     * 寄存器地址，本地任务为-1
+     */
+    private final int register;
+
+    /**
+     * 轮询间隔(ms)
+     */
+    private final long intervalMs;
+
+    /**
+     * RSW 中对应的回传内容位，0 表示不受 RSW 控制
+     */
+    private final int rswMask;
+
+    /**
+     * 只读到一次为止
+     */
+    private final boolean once;
+
+    /**
+     * 本地任务的动作
+     */
+    private final Runnable action;
+
+    /**
+     * 上次看到的寄存器版本号
+     */
+    long lastVersion;
+
+    /**
+     * 寄存器上次被更新的时间(ns)，0 表示还没更新过
+     */
+    long lastUpdateNanos;
+
+    /**
+     * 上次发出读命令（或执行本地任务）的时间(ns)
+     */
+    long lastAttemptNanos;
+
+    /**
+     * 是否有读命令在途
+     */
+    boolean inFlight;
+
+    /**
+     * 连续失败次数，用于退避
+     */
+    int failures;
+
+    /**
+     * 最近一次更新不是来自轮询（设备在主动上传这个寄存器）
+     */
+    boolean streamed;
+
+    /**
+     * 已发出的读命令数
+     */
+    long pollCount;
+
+    RegisterPollTask(int register, long intervalMs, int rswMask, boolean once, Runnable action) {
+        this.register = register;
+        this.intervalMs = Math.max(1, intervalMs);
+        this.rswMask = rswMask;
+        this.once = once;
+        this.action = action;
+    }
+
+    public int getRegister() {
+        return register;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public int getRswMask() {
+        return rswMask;
+    }
+
+    public boolean isOnce() {
+        return once;
+    }
+
+    /**
+     * 是否本地任务
+     */
+    public boolean isLocal() {
+        return action != null;
+    }
+
+    Runnable getAction() {
+        return action;
+    }
+}
@@ -0,0 +1,74 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 一次合并读取的结果，由 {@link RegisterRangeReader} 创建
+ */
+public class RegisterRangeRead {
+
+    /**
+     * 需要的寄存器
+     */
+    private final Set<Integer> registers;
+
+    /**
+     * 每条读命令的请求
+     */
+    private final List<RegisterReadFuture> futures;
+
+    RegisterRangeRead(Collection<Integer> registers, List<RegisterReadFuture> futures) {
+        this.registers = new TreeSet<>(registers);
+        this.futures = futures;
+    }
+
+    /**
+     * 等待所有读命令完成，返回读到的寄存器值（读失败的寄存器不在结果里）
+     */
+    public Map<Integer, Short> get() throws InterruptedException {
+        Map<Integer, Short> values = new TreeMap<>();
+        for (RegisterReadFuture future : futures) {
+            short[] reply;
+            try {
+                reply = future.get();
+            } catch (ExecutionException e) {
+                continue;
+            }
+            for (int i = 0; i < reply.length; i++) {
+                int register = future.getRegister() + i;
+                if (registers.contains(register)) {
+                    values.put(register, reply[i]);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 发出的读命令数
+     */
+    public int getReadCount() {
+        return futures.size();
+    }
+
+    /**
+     * 每条读命令的请求
+     */
+    public List<RegisterReadFuture> getFutures() {
+        return Collections.unmodifiableList(futures);
+    }
+
+    /**
+     * 需要的寄存器
+     */
+    public Set<Integer> getRegisters() {
+        return Collections.unmodifiableSet(registers);
+    }
+}
@@ -0,0 +1,77 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 合并读取多个寄存器
+ * <p>
+ * 每条读命令(FF AA 27 reg 00)的 55 71 返回帧带回从 reg 开始的连续4个寄存器，
+ * 按地址排序后从最小的还没覆盖的寄存器开始读，能得到最少的读命令数，
+ * 例如 2E、2F、3A、3B、3C 只需要读 2E 和 3A 两次。
+ * 返回的值由设备模型写入寄存器表，同时交给 {@link RegisterRangeRead}。
+ */
+public class RegisterRangeReader {
+
+    /**
+     * 每次读命令返回的寄存器个数
+     */
+    public static final int SPAN = RegisterReadCorrelator.REPLY_VALUE_COUNT;
+
+    private final DeviceModel deviceModel;
+
+    public RegisterRangeReader(DeviceModel deviceModel) {
+        this.deviceModel = deviceModel;
+    }
+
+    /**
+     * 计算覆盖所有寄存器需要的最少读命令，返回每条读命令的起始地址（升序）
+     */
+    public static int[] plan(Collection<Integer> registers) {
+        List<Integer> starts = new ArrayList<>();
+        int end = -1;
+        for (int register : new TreeSet<>(registers)) {
+            if (register < 0 || register > 0xff) {
+                throw new IllegalArgumentException("寄存器地址超出范围: " + register);
+            }
+            if (register >= end) {
+                starts.add(register);
+                end = register + SPAN;
+            }
+        }
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 使用默认超时和重发次数，以配置优先级读取
+     */
+    public RegisterRangeRead read(Collection<Integer> registers) {
+        return read(registers, RegisterReadCorrelator.DEFAULT_TIMEOUT_MS, RegisterReadCorrelator.DEFAULT_RETRIES, CommandPriority.Config);
+    }
+
+    /**
+     * 一次性发出覆盖所有寄存器的读命令，不阻塞
+     *
+     * @param registers 需要的寄存器
+     * @param timeoutMs 每次发送后的等待时长
+     * @param retries   超时后最多重发次数
+     * @param priority  优先级
+     */
+    public RegisterRangeRead read(Collection<Integer> registers, long timeoutMs, int retries, CommandPriority priority) {
+        int[] starts = plan(registers);
+        List<RegisterReadFuture> futures = new ArrayList<>(starts.length);
+        for (int start : starts) {
+            futures.add(deviceModel.readRegister(start, timeoutMs, retries, priority));
+        }
+        return new RegisterRangeRead(registers, futures);
+    }
+}
@@ -0,0 +1,245 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import com.wit.witsdk.sensor.modular.command.exceptions.RegisterReadException;
+import com.wit.witsdk.sensor.modular.command.interfaces.ICommandSender;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读寄存器请求与 55 71 返回帧的配对
+ * <p>
+ * 每个寄存器地址最多有一个等待中的请求，不同寄存器的请求可以同时在途。
+ * 返回帧一到就按起始寄存器地址找到请求并完成，不再固定睡眠后扫描接收缓存。
+ * 同一寄存器重复读取时返回同一个请求（设备的返回帧无法区分是哪一次读的）。
+ * 超时后按请求的重试次数重发，全部用完才以 {@link RegisterReadException} 失败。
+ * <p>
+ * 需要排队发送时先 {@link #prepare} 登记请求，轮到它时再 {@link #dispatch} 发出，
+ * 超时从真正发出时开始计算。
+ */
+public class RegisterReadCorrelator {
+
+    /**
+     * 默认单次等待时长(ms)
+     */
+    public static final long DEFAULT_TIMEOUT_MS = 300;
+
+    /**
+     * 默认重发次数
+     */
+    public static final int DEFAULT_RETRIES = 2;
+
+    /**
+     * 每帧返回的寄存器个数
+     */
+    public static final int REPLY_VALUE_COUNT = 4;
+
+    /**
+     * 寄存器数量
+     */
+    private static final int REGISTER_COUNT = 0x100;
+
+    /**
+     * 所有设备共用的超时线程
+     */
+    private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER = createScheduler();
+
+    /**
+     * 发送通道
+     */
+    private final ICommandSender sender;
+
+    /**
+     * 按寄存器地址保存的等待中的请求
+     */
+    private final RegisterReadFuture[] pending = new RegisterReadFuture[REGISTER_COUNT];
+
+    /**
+     * 等待中的请求数
+     */
+    private int pendingCount;
+
+    private final Object lock = new Object();
+
+    public RegisterReadCorrelator(ICommandSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * 使用默认超时和重发次数读取寄存器
+     */
+    public RegisterReadFuture read(int register) {
+        return read(register, DEFAULT_TIMEOUT_MS, DEFAULT_RETRIES);
+    }
+
+    /**
+     * 读取寄存器，不阻塞
+     *
+     * @param register  寄存器地址 0x00~0xFF
+     * @param timeoutMs 每次发送后的等待时长
+     * @param retries   超时后最多重发次数
+     */
+    public RegisterReadFuture read(int register, long timeoutMs, int retries) {
+        RegisterReadFuture future = prepare(register, timeoutMs, retries);
+        dispatch(future);
+        return future;
+    }
+
+    /**
+     * 登记读寄存器请求但不发送，已有等待中的同一寄存器请求时返回它
+     */
+    public RegisterReadFuture prepare(int register, long timeoutMs, int retries) {
+        if (register < 0 || register >= REGISTER_COUNT) {
+            throw new IllegalArgumentException("寄存器地址超出范围: " + register);
+        }
+        synchronized (lock) {
+            RegisterReadFuture future = pending[register];
+            if (future == null) {
+                future = new RegisterReadFuture(register, Math.max(1, timeoutMs), Math.max(0, retries));
+                pending[register] = future;
+                pendingCount++;
+            }
+            return future;
+        }
+    }
+
+    /**
+     * 发出登记过的请求，已经发出或已完成的请求忽略
+     */
+    public void dispatch(RegisterReadFuture future) {
+        synchronized (future) {
+            if (future.dispatched) {
+                return;
+            }
+            future.dispatched = true;
+        }
+        send(future);
+    }
+
+    /**
+     * 放弃还没发出的请求（例如排队失败），以 reason 失败
+     */
+    public void abandon(RegisterReadFuture future, String reason) {
+        synchronized (lock) {
+            remove(future.getRegister(), future);
+        }
+        future.fail(new RegisterReadException(reason));
+    }
+
+    /**
+     * 收到 55 71 返回帧
+     *
+     * @param register 返回帧里的起始寄存器地址
+     * @param values   从起始寄存器开始的值，只在调用期间有效
+     * @return 是否有等待这个寄存器的请求
+     */
+    public boolean onReply(int register, short[] values) {
+        if (register < 0 || register >= REGISTER_COUNT) {
+            return false;
+        }
+        RegisterReadFuture future;
+        synchronized (lock) {
+            future = remove(register, null);
+        }
+        if (future == null) {
+            return false;
+        }
+        short[] result = new short[REPLY_VALUE_COUNT];
+        System.arraycopy(values, 0, result, 0, Math.min(values.length, REPLY_VALUE_COUNT));
+        future.complete(result);
+        return true;
+    }
+
+    /**
+     * 取消所有等待中的请求（关闭设备时调用）
+     */
+    public void cancelAll() {
+        RegisterReadFuture[] toCancel;
+        synchronized (lock) {
+            toCancel = new RegisterReadFuture[pendingCount];
+            int n = 0;
+            for (int i = 0; i < REGISTER_COUNT; i++) {
+                if (pending[i] != null) {
+                    toCancel[n++] = pending[i];
+                    pending[i] = null;
+                }
+            }
+            pendingCount = 0;
+        }
+        for (RegisterReadFuture future : toCancel) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 等待中的请求数
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * 发送一次读命令并安排超时
+     */
+    private void send(RegisterReadFuture future) {
+        synchronized (future) {
+            if (future.isDone()) {
+                return;
+            }
+            future.attempts++;
+            future.timeoutTask = TIMEOUT_SCHEDULER.schedule(() -> onTimeout(future), future.timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        int register = future.getRegister();
+        if (!sender.send(new byte[]{(byte) 0xff, (byte) 0xaa, 0x27, (byte) register, 0x00})) {
+            synchronized (lock) {
+                remove(register, future);
+            }
+            future.fail(new RegisterReadException("发送读寄存器命令失败: " + Integer.toHexString(register)));
+        }
+    }
+
+    private void onTimeout(RegisterReadFuture future) {
+        int register = future.getRegister();
+        boolean resend;
+        synchronized (lock) {
+            if (pending[register] != future) {
+                return;
+            }
+            resend = future.getAttempts() <= future.retries;
+            if (!resend) {
+                remove(register, future);
+            }
+        }
+        if (resend) {
+            send(future);
+        } else {
+            future.fail(new RegisterReadException("读取寄存器超时: " + Integer.toHexString(register)
+                    + "，共发送" + future.getAttempts() + "次"));
+        }
+    }
+
+    /**
+     * 移除等待中的请求，expected 不为null时只在它仍是当前请求时移除，需持有lock
+     */
+    private RegisterReadFuture remove(int register, RegisterReadFuture expected) {
+        RegisterReadFuture future = pending[register];
+        if (future == null || (expected != null && future != expected)) {
+            return null;
+        }
+        pending[register] = null;
+        pendingCount--;
+        return future;
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "WitRegisterReadTimeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
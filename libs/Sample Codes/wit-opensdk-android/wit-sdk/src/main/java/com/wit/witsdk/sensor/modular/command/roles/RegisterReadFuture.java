@@ -0,0 +1,213 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import com.wit.witsdk.sensor.modular.command.exceptions.RegisterReadException;
+import com.wit.witsdk.sensor.modular.command.interfaces.IRegisterReadCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一次读寄存器请求的结果
+ * <p>
+ * 收到对应寄存器的 55 71 返回帧时完成，值为从该寄存器开始的4个int16。
+ * 回调在完成它的线程上执行（接收线程或超时线程），不要在回调里做耗时操作。
+ */
+public class RegisterReadFuture implements Future<short[]> {
+
+    /**
+     * 寄存器地址
+     */
+    private final int register;
+
+    /**
+     * 单次等待时长
+     */
+    final long timeoutMs;
+
+    /**
+     * 超时后最多重发次数
+     */
+    final int retries;
+
+    /**
+     * 是否已经交给发送通道
+     */
+    boolean dispatched;
+
+    /**
+     * 已发送次数
+     */
+    int attempts;
+
+    /**
+     * 当前的超时任务
+     */
+    ScheduledFuture<?> timeoutTask;
+
+    /**
+     * 登记请求的时间
+     */
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 完成耗时
+     */
+    private volatile long elapsedNanos = -1;
+
+    private volatile short[] values;
+
+    private volatile Exception error;
+
+    private volatile boolean cancelled;
+
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    /**
+     * 完成前注册的回调
+     */
+    private List<IRegisterReadCallback> callbacks;
+
+    RegisterReadFuture(int register, long timeoutMs, int retries) {
+        this.register = register;
+        this.timeoutMs = timeoutMs;
+        this.retries = retries;
+    }
+
+    /**
+     * 完成后回调，已经完成时立即在当前线程回调
+     */
+    public RegisterReadFuture whenComplete(IRegisterReadCallback callback) {
+        synchronized (this) {
+            if (doneLatch.getCount() > 0) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>(1);
+                }
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        callback.onComplete(register, values, error);
+        return this;
+    }
+
+    /**
+     * 以读到的值完成
+     */
+    boolean complete(short[] result) {
+        return finish(result, null);
+    }
+
+    /**
+     * 以错误完成
+     */
+    boolean fail(Exception e) {
+        return finish(null, e);
+    }
+
+    private boolean finish(short[] result, Exception e) {
+        List<IRegisterReadCallback> toCall;
+        synchronized (this) {
+            if (doneLatch.getCount() == 0) {
+                return false;
+            }
+            values = result;
+            error = e;
+            elapsedNanos = System.nanoTime() - startNanos;
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+                timeoutTask = null;
+            }
+            toCall = callbacks;
+            callbacks = null;
+            doneLatch.countDown();
+        }
+        if (toCall != null) {
+            for (IRegisterReadCallback callback : toCall) {
+                callback.onComplete(register, result, e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (fail(new RegisterReadException("读取寄存器已取消: " + Integer.toHexString(register)))) {
+            cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return doneLatch.getCount() == 0;
+    }
+
+    @Override
+    public short[] get() throws InterruptedException, ExecutionException {
+        doneLatch.await();
+        return result();
+    }
+
+    @Override
+    public short[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!doneLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private short[] result() throws ExecutionException {
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return values;
+    }
+
+    /**
+     * 寄存器地址
+     */
+    public int getRegister() {
+        return register;
+    }
+
+    /**
+     * 是否已经发出（排队中的请求为false）
+     */
+    public synchronized boolean isDispatched() {
+        return dispatched;
+    }
+
+    /**
+     * 已发送次数（含重发）
+     */
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 从登记请求到完成的耗时(ms)，包含排队时间，未完成返回-1
+     */
+    public long getElapsedMillis() {
+        long nanos = elapsedNanos;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * 失败原因，成功或未完成时为null
+     */
+    public Exception getError() {
+        return error;
+    }
+}
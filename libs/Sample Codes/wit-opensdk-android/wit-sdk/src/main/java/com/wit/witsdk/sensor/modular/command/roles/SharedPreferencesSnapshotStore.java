@@ -0,0 +1,39 @@
+package com.wit.witsdk.sensor.modular.command.roles;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.wit.witsdk.sensor.modular.command.entity.RegisterSnapshot;
+import com.wit.witsdk.sensor.modular.command.interfaces.IRegisterSnapshotStore;
+
+/**
+ * 用 SharedPreferences 保存寄存器快照，key 为设备MAC
+ */
+public class SharedPreferencesSnapshotStore implements IRegisterSnapshotStore {
+
+    /**
+     * 文件名
+     */
+    private static final String SP_NAME = "sp_register_snapshot";
+
+    private final SharedPreferences sp;
+
+    public SharedPreferencesSnapshotStore(Context context) {
+        this.sp = context.getSharedPreferences(SP_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public RegisterSnapshot load(String deviceKey) {
+        return RegisterSnapshot.parse(sp.getString(deviceKey, null));
+    }
+
+    @Override
+    public void save(String deviceKey, RegisterSnapshot snapshot) {
+        sp.edit().putString(deviceKey, snapshot.format()).apply();
+    }
+
+    @Override
+    public void remove(String deviceKey) {
+        sp.edit().remove(deviceKey).apply();
+    }
+}
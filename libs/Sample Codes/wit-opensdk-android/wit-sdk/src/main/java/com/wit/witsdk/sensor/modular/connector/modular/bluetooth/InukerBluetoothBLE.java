@@ -14,7 +14,9 @@ import android.util.Log;
 import com.inuker.bluetooth.library.BluetoothClient;
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
 import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleLinkParams;
 import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
 import com.inuker.bluetooth.library.connect.response.BleReadRssiResponse;
 import com.inuker.bluetooth.library.connect.response.BleWriteResponse;
@@ -44,9 +46,6 @@ public class InukerBluetoothBLE implements Observerable {
     // 服务uuid
     private UUID UUID_SERVICE = UUID.fromString("49535343-fe7d-4ae5-8fa9-9fafd205e455");
 
-    // 当前状态枚举
-    private enum State {Work, Leisure}
-
     // 当前连接状态
     public int connectStatus = STATUS_DEVICE_DISCONNECTED;
 
@@ -59,12 +58,29 @@ public class InukerBluetoothBLE implements Observerable {
     // 蓝牙名称
     private String name;
 
-    // 蓝牙状态
-    private State mState = State.Leisure;
-
     // 蓝牙客户端
     private BluetoothClient mClient;
 
+    // 应用要求链路活跃（记录中）
+    private boolean linkActive;
+
+    // 通知已打开，数据在流
+    private boolean streaming;
+
+    // 协商后的链路参数（MTU、连接优先级、PHY）
+    private BleLinkParams linkParams;
+
+    // 链路参数回调
+    private final BleLinkResponse linkResponse = new BleLinkResponse() {
+        @Override
+        public void onResponse(int code, BleLinkParams data) {
+            if (code == REQUEST_SUCCESS && data != null) {
+                linkParams = data;
+                Log.i("BluetoothBLE", "link: active = " + isLinkActive() + ", " + data);
+            }
+        }
+    };
+
     // 观察服务
     private ObserverServer observerServer = new ObserverServer();
 
@@ -122,8 +138,8 @@ public class InukerBluetoothBLE implements Observerable {
         if ((connectStatus == STATUS_CONNECTING) || (connectStatus == STATUS_CONNECTED)) return;
         connectStatus = STATUS_CONNECTING;
 
-        // ⚡ Используем BleConnectOptions для передачи параметров подключения
-        // bluetoothkit автоматически вызовет requestConnectionPriority(HIGH) в BleConnectWorker
+        // ⚡ BleConnectOptions задаёт и политику канала: после обнаружения сервисов bluetoothkit
+        // согласует MTU 247 и PHY 2M, затем держит HIGH при активном канале и BALANCED в простое
         BleConnectOptions.Builder builder = new BleConnectOptions.Builder();
         builder.setConnectRetry(1);
         builder.setConnectTimeout(10000);
@@ -142,14 +158,16 @@ public class InukerBluetoothBLE implements Observerable {
                 Log.e("BluetoothBLE", "mac:" + mac.toString());
                 Log.e("BluetoothBLE", "UUID_SERVICE:" + UUID_SERVICE.toString());
                 Log.e("BluetoothBLE", "UUID_READ:" + UUID_READ.toString());
-                    Log.i("BluetoothBLE", "✅ Connection established. bluetoothkit should call requestConnectionPriority(HIGH) automatically.");
 
+                // ⚡ при переподключении bluetoothkit уже включил подписку из кэша GATT (BleGattCache),
+                // поэтому notify завершается сразу, без повторной записи дескриптора
                 setNotify();
             }
 
             if (code == REQUEST_FAILED) {
                 Log.e("BluetoothBLE", "连接断开");
                 connectStatus = STATUS_DISCONNECTED;
+                streaming = false;
                 }
             }
         });
@@ -165,12 +183,38 @@ public class InukerBluetoothBLE implements Observerable {
 
             @Override
             public void onResponse(int code) {
-                if (code == REQUEST_SUCCESS) {
-                }
+                // 通知打开后数据一直在流，链路保持高优先级；应答在链路协商（MTU、PHY）完成后到达
+                streaming = code == REQUEST_SUCCESS;
+                mClient.setLinkActive(mac, isLinkActive(), linkResponse);
             }
         });
     }
 
+    /**
+     * 设置链路是否活跃（例如记录测量）。通知打开期间链路本来就是活跃的，
+     * 活跃时用高优先级连接间隔，数据流停止后才降到平衡模式
+     */
+    public void setLinkActive(boolean active) {
+        linkActive = active;
+        if (connectStatus == STATUS_CONNECTED) {
+            mClient.setLinkActive(mac, isLinkActive(), linkResponse);
+        }
+    }
+
+    /**
+     * 数据在流或应用要求活跃
+     */
+    public boolean isLinkActive() {
+        return streaming || linkActive;
+    }
+
+    /**
+     * 获得协商后的链路参数，连接完成前为null
+     */
+    public BleLinkParams getLinkParams() {
+        return linkParams;
+    }
+
     /**
      * 断开蓝牙连接
      *
@@ -181,6 +225,7 @@ public class InukerBluetoothBLE implements Observerable {
         if (observerServer.observerSize() == 0) {
             mClient.disconnect(mac);
             connectStatus = STATUS_DISCONNECTED;
+            streaming = false;
         }
     }
 
@@ -225,32 +270,13 @@ public class InukerBluetoothBLE implements Observerable {
         final BleWriteResponse response = new BleWriteResponse() {
             @Override
             public void onResponse(int code) {
-                if (code == REQUEST_SUCCESS) {
-                    mState = State.Leisure;
-                    Log.e("--", "send OK");
-                }
-                if (code == REQUEST_FAILED) {
-                    mState = State.Leisure;
-                    Log.e("--", "send Error");
+                if (code != REQUEST_SUCCESS) {
+                    Log.e("--", "send Error: " + code);
                 }
-
             }
         };
-        // 阻止频繁写入
-        int retry = 5;
-        while ((mState != State.Leisure) && (retry > 0)) {
-            try {
-                retry -= 1;
-                Log.e("--", "bluetooth busy");
-                Thread.sleep(20);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
-
-        Log.e("--", "bluetooth idle");
-        mState = State.Work;
-        mClient.write(mac, UUID_SERVICE, UUID_SEND, data, response);
+        // 无响应写入：bluetoothkit 按顺序排队，收到协议栈回调立即发下一条，不需要在这里等待
+        mClient.writeNoRsp(mac, UUID_SERVICE, UUID_SEND, data, response);
         Log.e("--", String.format(" L:%d S: %2x %2x %2x %2x %2x", data.length, data[0], data[1], data[2], data[3], data[4]));
     }
 
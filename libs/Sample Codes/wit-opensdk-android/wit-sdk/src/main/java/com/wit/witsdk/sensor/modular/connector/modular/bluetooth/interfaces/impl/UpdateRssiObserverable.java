@@ -1,5 +1,6 @@
 package com.wit.witsdk.sensor.modular.connector.modular.bluetooth.interfaces.impl;
 
+import com.wit.witsdk.observer.role.ObserverBus;
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.BluetoothBLE;
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.BluetoothSPP;
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.interfaces.IBluetoothFoundObserver;
@@ -7,9 +8,6 @@ import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.interfaces.IBlu
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.interfaces.IUpdateRssiObserver;
 import com.wit.witsdk.sensor.modular.connector.modular.bluetooth.interfaces.IUpdateRssiObserverable;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * 蓝牙状态改变被观察者
  *
@@ -18,28 +16,21 @@ import java.util.List;
  */
 public class UpdateRssiObserverable implements IUpdateRssiObserverable {
 
-    private List<IUpdateRssiObserver> list;
-
-    public UpdateRssiObserverable() {
-        list = new ArrayList<>();
-    }
+    private final ObserverBus<IUpdateRssiObserver> observers = new ObserverBus<>(new IUpdateRssiObserver[0]);
 
     @Override
     public void registerObserver(IUpdateRssiObserver o) {
-        list.add(o);
+        observers.add(o);
     }
 
     @Override
     public void removeObserver(IUpdateRssiObserver o) {
-        if (!list.isEmpty()) {
-            list.remove(o);
-        }
+        observers.remove(o);
     }
 
     @Override
     public void onUpdateRssi(String mac, int rssi) {
-        for (int i = 0; i < list.size(); i++) {
-            IUpdateRssiObserver observer = list.get(i);
+        for (IUpdateRssiObserver observer : observers.snapshot()) {
             observer.onUpdateRssi(mac, rssi);
         }
     }
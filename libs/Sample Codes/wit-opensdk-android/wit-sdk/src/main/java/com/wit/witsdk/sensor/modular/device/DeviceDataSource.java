@@ -12,8 +12,8 @@ import com.wit.witsdk.sensor.modular.device.interfaces.IListenKeyUpdateObservera
 import com.wit.witsdk.sensor.modular.device.interfaces.impl.KeyUpdateObserverServer;
 import com.wit.witsdk.sensor.modular.device.interfaces.impl.ListenKeyUpdateObserverServer;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 设备数据源操作类
@@ -29,9 +29,14 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
     public final static String ADDR_KEY = "ADDR";
 
     /**
-     * 设备数据
+     * 设备数据（寄存器以外的数据）
      */
-    private Map<String, Object> deviceData = new HashMap<>();
+    private Map<String, Object> deviceData = new ConcurrentHashMap<>();
+
+    /**
+     * 寄存器数据
+     */
+    private final DeviceRegisterFile registerFile = new DeviceRegisterFile();
 
     /**
      * key改变时
@@ -51,13 +56,116 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      * @date 2022/4/25 15:12
      */
     public void put(String key, Object value) {
-        deviceData.put(key, value);
+        int slot = DeviceRegisterFile.slotOf(key);
+        if (slot >= 0 && (value instanceof Short || value instanceof Integer)) {
+            putRegister(slot, ((Number) value).shortValue());
+            return;
+        }
+        if (slot >= 0 && value instanceof String && isShort((String) value)) {
+            putRegister(slot, Short.parseShort((String) value));
+            return;
+        }
+
+        if (value == null) {
+            deviceData.remove(key);
+        } else {
+            deviceData.put(key, value);
+        }
         if (this instanceof DeviceModel) {
             // Key刷新通知
             notifyKeyUpdateObserver((DeviceModel) this, key, value);
         }
     }
 
+    /**
+     * 设置寄存器数据
+     */
+    public void putRegister(int slot, short value) {
+        registerFile.put(slot, value);
+        notifySlotUpdate(slot, value);
+    }
+
+    /**
+     * 设置从firstReg开始的连续count个寄存器
+     */
+    public void putRegisters(int firstReg, short[] values, int count) {
+        registerFile.putRange(firstReg, values, count);
+        for (int i = 0; i < count && firstReg + i < DeviceRegisterFile.SLOT_COUNT; i++) {
+            notifySlotUpdate(firstReg + i, values[i]);
+        }
+    }
+
+    /**
+     * 设置一帧实时数据(55 61的9个字段)
+     * <p>
+     * 9个槽一次写完，只通知订阅了这些槽的观察者，最后提交一次整帧
+     */
+    public void putStreamData(short[] values) {
+        registerFile.putRange(DeviceRegisterFile.STREAM_BASE, values, DeviceRegisterFile.STREAM_SLOT_COUNT);
+        for (int i = DeviceRegisterFile.STREAM_SLOT_COUNT - 1; i >= 0; i--) {
+            notifySlotUpdate(DeviceRegisterFile.STREAM_BASE + i, values[i]);
+        }
+        commitFrame();
+    }
+
+    /**
+     * 一帧数据解码完成，每帧调用一次
+     * <p>
+     * 设备模型在这里解算数据并通知监听者，不再按字段逐个判断
+     */
+    public void commitFrame() {
+    }
+
+    /**
+     * 寄存器文件，可按地址直接读取原始值、版本号和快照
+     */
+    public DeviceRegisterFile getRegisterFile() {
+        return registerFile;
+    }
+
+    /**
+     * 寄存器是否有值
+     */
+    public boolean hasRegister(int slot) {
+        return registerFile.has(slot);
+    }
+
+    /**
+     * 读取寄存器原始值
+     */
+    public short getRegister(int slot) {
+        return registerFile.get(slot);
+    }
+
+    private void notifySlotUpdate(int slot, short value) {
+        if (this instanceof DeviceModel) {
+            onKeyUpdate.notifySlotUpdate((DeviceModel) this, slot, value);
+        }
+    }
+
+    /**
+     * 是否是int16整数字符串
+     */
+    private static boolean isShort(String value) {
+        int len = value.length();
+        if (len == 0 || len > 6) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == len) {
+            return false;
+        }
+        int v = 0;
+        for (int i = start; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return start == 1 ? -v >= Short.MIN_VALUE : v <= Short.MAX_VALUE;
+    }
+
     /**
      * 设置设备数据
      *
@@ -75,12 +183,12 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      * @date 2022/4/25 15:12
      */
     public String getDeviceData(String key) {
-        if (deviceData.containsKey(key)) {
-            Object o = deviceData.get(key);
-            return o.toString();
-        } else {
-            return null;
+        int slot = DeviceRegisterFile.slotOf(key);
+        if (slot >= 0 && registerFile.has(slot)) {
+            return registerFile.format(slot);
         }
+        Object o = deviceData.get(key);
+        return o == null ? null : o.toString();
     }
 
     /**
@@ -101,8 +209,8 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      */
     public String getDeviceData(StringKey dataKey) {
         String key = dataKey.getKey();
-        if (deviceData.containsKey(key)) {
-            Object o = deviceData.get(key);
+        Object o = deviceData.get(key);
+        if (o != null) {
             if (o instanceof String) {
                 return (String) o;
             }
@@ -130,8 +238,8 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      */
     public Float getDeviceData(FloatKey dataKey) {
         String key = dataKey.getKey();
-        if (deviceData.containsKey(key)) {
-            Object o = deviceData.get(key);
+        Object o = deviceData.get(key);
+        if (o != null) {
             if (o instanceof Float) {
                 return (Float) o;
             }
@@ -160,8 +268,8 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      */
     public Double getDeviceData(DoubleKey dataKey) {
         String key = dataKey.getKey();
-        if (deviceData.containsKey(key)) {
-            Object o = deviceData.get(key);
+        Object o = deviceData.get(key);
+        if (o != null) {
             if (o instanceof Double) {
                 return (Double) o;
             }
@@ -189,8 +297,12 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      */
     public Short getDeviceData(ShortKey dataKey) {
         String key = dataKey.getKey();
-        if (deviceData.containsKey(key)) {
-            Object o = deviceData.get(key);
+        int slot = DeviceRegisterFile.slotOf(key);
+        if (slot >= 0 && registerFile.has(slot)) {
+            return registerFile.get(slot);
+        }
+        Object o = deviceData.get(key);
+        if (o != null) {
             if (o instanceof Short) {
                 return (Short) o;
             }
@@ -218,8 +330,8 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
      */
     public Byte getDeviceData(ByteKey dataKey) {
         String key = dataKey.getKey();
-        if (deviceData.containsKey(key)) {
-            Object o = deviceData.get(key);
+        Object o = deviceData.get(key);
+        if (o != null) {
             if (o instanceof Byte) {
                 return (Byte) o;
             }
@@ -260,6 +372,16 @@ public class DeviceDataSource implements IKeyUpdateObserverable, IListenKeyUpdat
         onKeyUpdate.removeKeyUpdateObserver(o);
     }
 
+    @Override
+    public void registerKeyUpdateObserver(String key, IKeyUpdateObserver o) {
+        onKeyUpdate.registerKeyUpdateObserver(key, o);
+    }
+
+    @Override
+    public void removeKeyUpdateObserver(String key, IKeyUpdateObserver o) {
+        onKeyUpdate.removeKeyUpdateObserver(key, o);
+    }
+
     @Override
     public void notifyKeyUpdateObserver(DeviceModel deviceModel, String key, Object value) {
         onKeyUpdate.notifyKeyUpdateObserver(deviceModel, key, value);
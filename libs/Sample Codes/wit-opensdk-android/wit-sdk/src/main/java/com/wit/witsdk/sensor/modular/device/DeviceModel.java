@@ -3,17 +3,35 @@ package com.wit.witsdk.sensor.modular.device;
 import android.util.Log;
 
 import com.wit.witsdk.observer.interfaces.Observer;
+import com.wit.witsdk.observer.role.ObserverBus;
+import com.wit.witsdk.sensor.modular.command.entity.DeviceCommand;
+import com.wit.witsdk.sensor.modular.command.enums.CommandPriority;
+import com.wit.witsdk.sensor.modular.command.interfaces.ICommandHandler;
+import com.wit.witsdk.sensor.modular.command.roles.DeviceCommandExecutor;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterPollScheduler;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterRangeRead;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterRangeReader;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterReadCorrelator;
+import com.wit.witsdk.sensor.modular.command.roles.RegisterReadFuture;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrameBatch;
+import com.wit.witsdk.sensor.modular.device.utils.FrameClock;
 import com.wit.witsdk.sensor.modular.device.exceptions.OpenDeviceException;
 import com.wit.witsdk.sensor.modular.device.interfaces.IDeviceSendCallback;
+import com.wit.witsdk.sensor.modular.device.interfaces.IFrameBatchObserver;
 import com.wit.witsdk.sensor.modular.connector.roles.WitCoreConnect;
 import com.wit.witsdk.sensor.modular.device.interfaces.IKeyUpdateObserver;
 import com.wit.witsdk.sensor.modular.processor.interfaces.IDataProcessor;
+import com.wit.witsdk.sensor.modular.resolver.entity.SendDataResult;
 import com.wit.witsdk.sensor.modular.resolver.interfaces.IProtocolResolver;
 import com.wit.witsdk.sensor.modular.resolver.interfaces.ISendDataCallback;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 设备模型，在程序中作为设备的代理
@@ -73,10 +91,70 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
      */
     private Object sendLock = new Object();
 
+    /**
+     * 接收锁，保证协议解析器按顺序处理字节流
+     */
     private Object revLock = new Object();
 
     private Object sendLock2 = new Object();
 
+    /**
+     * 实时数据帧（复用同一个实例）
+     */
+    private final WitImuFrame imuFrame = new WitImuFrame();
+
+    /**
+     * 攒批发出的实时数据帧，持有 revLock 时使用
+     */
+    private final WitImuFrameBatch frameBatch = new WitImuFrameBatch();
+
+    /**
+     * 所有设备共用的攒批定时线程
+     */
+    private static final ScheduledThreadPoolExecutor BATCH_TIMER = createBatchTimer();
+
+    /**
+     * 批量接收实时数据帧的观察者
+     */
+    private final ObserverBus<IFrameBatchObserver> frameBatchObservers = new ObserverBus<>(new IFrameBatchObserver[0]);
+
+    /**
+     * 一批最多的帧数和最长的等待时间(ns)，为0时每个数据包发一次
+     */
+    private volatile int batchMaxFrames;
+
+    private volatile long batchMaxDelayNanos;
+
+    /**
+     * 当前批次第一帧的到达时间(ns)
+     */
+    private long batchStartNanos;
+
+    /**
+     * 实时数据帧的时间戳重建，由协议解析器在接收线程上使用
+     */
+    private final FrameClock frameClock = new FrameClock();
+
+    /**
+     * 读寄存器请求与返回帧的配对
+     */
+    private final RegisterReadCorrelator registerReader = new RegisterReadCorrelator(this::sendData);
+
+    /**
+     * 合并读取多个寄存器
+     */
+    private final RegisterRangeReader rangeReader = new RegisterRangeReader(this);
+
+    /**
+     * 命令队列，所有协议命令都由它的工作线程依次发出
+     */
+    private final DeviceCommandExecutor commandExecutor;
+
+    /**
+     * 后台轮询调度，由数据处理器配置任务
+     */
+    private final RegisterPollScheduler pollScheduler = new RegisterPollScheduler(this);
+
     /**
      * 构造方法
      *
@@ -88,7 +166,18 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
         this.protocolResolver = protocolResolver;
         this.listenerKey = listenerKey;
         this.deviceName = deviceName;
-        this.registerKeyUpdateObserver(this);
+        this.commandExecutor = new DeviceCommandExecutor(deviceName, new ICommandHandler() {
+            @Override
+            public void execute(DeviceCommand command) {
+                executeCommand(command);
+            }
+
+            @Override
+            public void discard(DeviceCommand command) {
+                discardCommand(command);
+            }
+        }, DeviceCommandExecutor.DEFAULT_CAPACITY);
+        subscribeListenerKey(listenerKey);
     }
 
     /**
@@ -100,6 +189,10 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
     public void openDevice() throws OpenDeviceException {
 
         try {
+            frameClock.reset();
+            synchronized (revLock) {
+                frameBatch.clear();
+            }
             if (coreConnect.isOpen() == false) {
                 coreConnect.open();
                 coreConnect.removeObserver(this);
@@ -149,6 +242,11 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
         }
         isOpen = false;
         closing = false;
+        pollScheduler.stop();
+        commandExecutor.close();
+        registerReader.cancelAll();
+        // 攒着的帧不再等
+        flushFrameBatch(true);
 
         // 关闭事件
         if (this.dataProcessor != null)
@@ -214,10 +312,80 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
                 e.printStackTrace();
                 return false;
             }
+            if (protocolResolver != null) {
+                protocolResolver.onDataSent(data, this);
+            }
             return true;
         }
     }
 
+    /**
+     * 异步读取寄存器，使用默认超时和重发次数
+     */
+    public RegisterReadFuture readRegister(int register) {
+        return readRegister(register, RegisterReadCorrelator.DEFAULT_TIMEOUT_MS, RegisterReadCorrelator.DEFAULT_RETRIES, CommandPriority.Config);
+    }
+
+    /**
+     * 异步读取寄存器
+     *
+     * @param register  寄存器地址
+     * @param timeoutMs 每次发送后的等待时长
+     * @param retries   超时后最多重发次数
+     */
+    public RegisterReadFuture readRegister(int register, long timeoutMs, int retries) {
+        return readRegister(register, timeoutMs, retries, CommandPriority.Config);
+    }
+
+    /**
+     * 异步读取寄存器，读命令按优先级进入命令队列
+     * <p>
+     * 同一寄存器已有等待中的读取时返回同一个请求；在命令线程上调用时直接发出。
+     *
+     * @param register  寄存器地址
+     * @param timeoutMs 每次发送后的等待时长，从发出时开始计算
+     * @param retries   超时后最多重发次数
+     * @param priority  优先级
+     */
+    public RegisterReadFuture readRegister(int register, long timeoutMs, int retries, CommandPriority priority) {
+        RegisterReadFuture future = registerReader.prepare(register, timeoutMs, retries);
+        if (!future.isDispatched()) {
+            if (commandExecutor.isWorkerThread()) {
+                registerReader.dispatch(future);
+            } else {
+                // 队列满被拒绝时由 discardCommand 放弃这个请求
+                commandExecutor.submit(new DeviceCommand(future, priority));
+            }
+        }
+        return future;
+    }
+
+    /**
+     * 合并读取多个寄存器，按4个一组发出最少的读命令，不阻塞
+     *
+     * @param registers 需要的寄存器
+     * @param timeoutMs 每次发送后的等待时长
+     * @param retries   超时后最多重发次数
+     * @param priority  优先级
+     */
+    public RegisterRangeRead readRegisters(Collection<Integer> registers, long timeoutMs, int retries, CommandPriority priority) {
+        return rangeReader.read(registers, timeoutMs, retries, priority);
+    }
+
+    /**
+     * 协议解析器收到 55 71 返回帧时调用：保存寄存器值并完成等待这个寄存器的请求
+     *
+     * @param register 起始寄存器地址
+     * @param values   从起始寄存器开始的4个值
+     */
+    public void onRegisterReply(int register, short[] values) {
+        if (register >= DeviceRegisterFile.REGISTER_COUNT) {
+            return;
+        }
+        putRegisters(register, values, RegisterReadCorrelator.REPLY_VALUE_COUNT);
+        registerReader.onReply(register, values);
+    }
+
     /**
      * 发送数据需要回调
      *
@@ -225,16 +393,16 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
      * @Date 2023/2/25 0025 15:37
      */
     public boolean sendProtocolData(byte[] data, int waitTime, ISendDataCallback callback) {
-        try {
-            Thread thread = new Thread(() -> {
-                protocolResolver.sendData(data, this, waitTime, callback);
-            });
-            thread.start();
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
+        return sendProtocolData(data, waitTime, CommandPriority.Config, callback);
+    }
+
+    /**
+     * 发送协议数据，按优先级进入命令队列，由命令线程依次发出
+     *
+     * @return 是否进入队列，队列满时返回false并以失败回调
+     */
+    public boolean sendProtocolData(byte[] data, int waitTime, CommandPriority priority, ISendDataCallback callback) {
+        return commandExecutor.submit(new DeviceCommand(data, waitTime, priority, callback));
     }
 
     /**
@@ -255,18 +423,47 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
      * @date 2022/4/26 14:06
      */
     public boolean sendProtocolData(byte[] data) {
-        try {
-            Thread thread = new Thread(() -> {
-                protocolResolver.sendData(data, this);
-            });
-            thread.start();
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+        return sendProtocolData(data, -1, null);
+    }
+
+    /**
+     * 在命令线程上执行一条命令
+     */
+    private void executeCommand(DeviceCommand command) {
+        RegisterReadFuture future = command.getReadFuture();
+        if (future != null) {
+            registerReader.dispatch(future);
+            future.whenComplete((register, values, error) -> command.complete(new SendDataResult(error == null)));
+            return;
+        }
+        protocolResolver.sendData(command.getData(), this, command.getWaitTime(), command::complete);
+    }
+
+    /**
+     * 命令没有执行就被丢弃：还没发出的读寄存器请求不会有超时，
+     * 从等待表里移除并以失败结束，等它的调用方（如轮询任务）才能收到结果
+     */
+    private void discardCommand(DeviceCommand command) {
+        RegisterReadFuture future = command.getReadFuture();
+        if (future != null && !future.isDispatched()) {
+            registerReader.abandon(future, "读寄存器命令被丢弃: " + Integer.toHexString(future.getRegister()));
         }
     }
 
+    /**
+     * 命令队列
+     */
+    public DeviceCommandExecutor getCommandExecutor() {
+        return commandExecutor;
+    }
+
+    /**
+     * 后台轮询调度
+     */
+    public RegisterPollScheduler getPollScheduler() {
+        return pollScheduler;
+    }
+
     /**
      * 接收数据
      *
@@ -274,8 +471,9 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
      * @date 2022/4/26 11:36
      */
     @Override
-    public synchronized void update(byte[] message) {
-
+    public void update(byte[] message) {
+        // 观察者列表已经是写时复制的，这里只需要保证协议解析器按顺序收到字节流，
+        // 不再和 synchronized 的 sendData 争同一把锁
         synchronized (revLock) {
             if (closing) {
                 return;
@@ -287,9 +485,75 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
                 }
             }
             protocolResolver.passiveReceiveData(message, this);
+            flushFrameBatch(false);
         }
     }
 
+    /**
+     * 注册批量接收实时数据帧
+     */
+    public void registerFrameBatchObserver(IFrameBatchObserver observer) {
+        frameBatchObservers.add(observer);
+    }
+
+    /**
+     * 移除批量接收实时数据帧
+     */
+    public void removeFrameBatchObserver(IFrameBatchObserver observer) {
+        frameBatchObservers.remove(observer);
+    }
+
+    /**
+     * 设置攒批：凑够 maxFrames 帧或者第一帧已经等了 maxDelayMs 就发出一批。
+     * 都为0时每个数据包解析完发一次，不增加延迟；链路停顿时由定时器按时发出不满的一批
+     */
+    public void setFrameBatchWindow(int maxFrames, long maxDelayMs) {
+        batchMaxFrames = Math.max(0, maxFrames);
+        batchMaxDelayNanos = Math.max(0, maxDelayMs) * 1000000L;
+    }
+
+    /**
+     * 发出攒好的一批帧，和接收数据用同一把锁
+     *
+     * @param force 不管攒批设置，有帧就发
+     */
+    void flushFrameBatch(boolean force) {
+        synchronized (revLock) {
+            int size = frameBatch.size();
+            if (size == 0) {
+                return;
+            }
+            if (!force && batchMaxFrames > 0 && size < batchMaxFrames
+                    && System.nanoTime() - batchStartNanos < batchMaxDelayNanos) {
+                return;
+            }
+            for (IFrameBatchObserver observer : frameBatchObservers.snapshot()) {
+                observer.onFrameBatch(this, frameBatch);
+            }
+            frameBatch.clear();
+        }
+    }
+
+    /**
+     * 一批的第一帧进来时定时：到时间还没发出（链路停顿，没有新的数据包）就由定时器发出
+     */
+    private void scheduleBatchFlush() {
+        long delay = batchMaxDelayNanos;
+        if (batchMaxFrames > 0 && delay > 0) {
+            BATCH_TIMER.schedule(() -> flushFrameBatch(false), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createBatchTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "WitFrameBatchTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
     public String getDeviceName() {
         return deviceName;
     }
@@ -334,22 +598,81 @@ public class DeviceModel extends DeviceDataSource implements Observer, IKeyUpdat
         this.protocolResolver = protocolResolver;
     }
 
+    /**
+     * 获得实时数据帧，由协议解析器填入原始值、数据处理器填入物理量
+     */
+    public WitImuFrame getImuFrame() {
+        return imuFrame;
+    }
+
+    /**
+     * 实时数据帧的时间戳重建
+     */
+    public FrameClock getFrameClock() {
+        return frameClock;
+    }
+
     public String getListenerKey() {
         return listenerKey;
     }
 
     public void setListenerKey(String listenerKey) {
+        if (this.listenerKey != null) {
+            removeKeyUpdateObserver(this.listenerKey, this);
+        }
         this.listenerKey = listenerKey;
+        subscribeListenerKey(listenerKey);
+    }
+
+    /**
+     * 只订阅监听key，其它key的刷新不会通知到这里
+     * <p>
+     * 实时数据槽(61_n)由 {@link #putStreamData} 整帧提交，不需要订阅
+     */
+    private void subscribeListenerKey(String listenerKey) {
+        if (listenerKey == null) {
+            return;
+        }
+        if (!DeviceRegisterFile.isStreamSlot(DeviceRegisterFile.slotOf(listenerKey))) {
+            registerKeyUpdateObserver(listenerKey, this);
+        }
     }
 
+    /**
+     * 监听key刷新：提交一帧
+     */
     @Override
     public void update(DeviceModel deviceModel, String key, Object value) {
-        // 触发实时数据更新
-        if (listenerKey != null && listenerKey.equals(key)) {
-            // 刷新数据处理器
-            if (dataProcessor != null) dataProcessor.OnUpdate(this);
-            // 数据记录事件
-            notifyListenKeyUpdateObserver(this);
+        commitFrame();
+    }
+
+    /**
+     * 一帧数据解码完成
+     */
+    @Override
+    public void commitFrame() {
+        // 刷新数据处理器
+        if (dataProcessor != null) dataProcessor.OnUpdate(this);
+        // 数据记录事件
+        notifyListenKeyUpdateObserver(this);
+        // 批量通知，数据包解析完以后发出
+        if (!frameBatchObservers.isEmpty()) {
+            if (frameBatch.isEmpty()) {
+                batchStartNanos = System.nanoTime();
+                scheduleBatchFlush();
+            }
+            frameBatch.add(imuFrame);
         }
     }
+
+    /**
+     * 实时数据帧之间单独回传的寄存器（四元数、磁场）解码完成
+     * <p>
+     * 刷新数据处理器并通知监听者，每个回传包各更新一次，不用等下一个实时数据帧；
+     * 实时数据没有变化，所以不进批量帧
+     */
+    public void commitRegisters() {
+        if (dataProcessor != null) dataProcessor.OnUpdate(this);
+        notifyListenKeyUpdateObserver(this);
+    }
 }
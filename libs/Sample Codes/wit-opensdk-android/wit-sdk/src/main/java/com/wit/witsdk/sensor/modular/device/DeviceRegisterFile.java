@@ -0,0 +1,245 @@
+package com.wit.witsdk.sensor.modular.device;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 设备寄存器文件
+ * <p>
+ * 按整数寄存器地址(0x00~0xFF)保存int16原始值，后面再跟9个实时数据槽(55 61帧的9个字段)
+ * 和4个端口数据槽(D0~D3)。
+ * 每个槽是一个long：高48位是版本号，低16位是值，版本号为0表示从未写过。
+ * <p>
+ * 写入由写锁串行化；读取不加锁：单个槽直接读，多个槽用 {@link #snapshot} 读出一致的快照
+ * （写入批次前后各改一次序列号，读者发现序列号变化就重读）。
+ */
+public class DeviceRegisterFile {
+
+    /**
+     * 寄存器数量
+     */
+    public static final int REGISTER_COUNT = 0x100;
+
+    /**
+     * 实时数据槽数量
+     */
+    public static final int STREAM_SLOT_COUNT = 9;
+
+    /**
+     * 第一个实时数据槽
+     */
+    public static final int STREAM_BASE = REGISTER_COUNT;
+
+    /**
+     * 端口数据槽数量
+     */
+    public static final int PORT_SLOT_COUNT = 4;
+
+    /**
+     * 第一个端口数据槽
+     */
+    public static final int PORT_BASE = STREAM_BASE + STREAM_SLOT_COUNT;
+
+    /**
+     * 槽总数
+     */
+    public static final int SLOT_COUNT = PORT_BASE + PORT_SLOT_COUNT;
+
+    /**
+     * 实时数据槽对应的旧key
+     */
+    private static final String STREAM_KEY_PREFIX = "61_";
+
+    /**
+     * 端口数据的key前缀，D0~D3 是端口数据，不是寄存器 0xD0~0xD3
+     */
+    private static final char PORT_KEY_PREFIX = 'D';
+
+    /**
+     * 寄存器 0xD0~0xD3 的key前缀，避免和端口数据重名
+     */
+    private static final String REGISTER_KEY_PREFIX = "0x";
+
+    /**
+     * 每个槽对应的字符串key（寄存器为两位大写十六进制，0xD0~0xD3 为 "0xD0" 形式，实时数据为61_n，端口数据为Dn）
+     */
+    private static final String[] SLOT_KEYS = new String[SLOT_COUNT];
+
+    static {
+        char[] hex = "0123456789ABCDEF".toCharArray();
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            SLOT_KEYS[i] = new String(new char[]{hex[i >> 4], hex[i & 0x0f]});
+        }
+        for (int i = 0; i < PORT_SLOT_COUNT; i++) {
+            SLOT_KEYS[0xD0 + i] = REGISTER_KEY_PREFIX + SLOT_KEYS[0xD0 + i];
+        }
+        for (int i = 0; i < STREAM_SLOT_COUNT; i++) {
+            SLOT_KEYS[STREAM_BASE + i] = STREAM_KEY_PREFIX + i;
+        }
+        for (int i = 0; i < PORT_SLOT_COUNT; i++) {
+            SLOT_KEYS[PORT_BASE + i] = PORT_KEY_PREFIX + Integer.toString(i);
+        }
+    }
+
+    /**
+     * 版本号 << 16 | 值
+     */
+    private final AtomicLongArray slots = new AtomicLongArray(SLOT_COUNT);
+
+    /**
+     * 批量写入序列号，奇数表示正在写
+     */
+    private final AtomicInteger writeSequence = new AtomicInteger();
+
+    /**
+     * 写锁
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * 写入一个槽
+     */
+    public void put(int slot, short value) {
+        synchronized (writeLock) {
+            writeSequence.incrementAndGet();
+            write(slot, value);
+            writeSequence.incrementAndGet();
+        }
+    }
+
+    /**
+     * 写入从firstSlot开始的连续count个槽
+     */
+    public void putRange(int firstSlot, short[] values, int count) {
+        synchronized (writeLock) {
+            writeSequence.incrementAndGet();
+            for (int i = 0; i < count && firstSlot + i < SLOT_COUNT; i++) {
+                write(firstSlot + i, values[i]);
+            }
+            writeSequence.incrementAndGet();
+        }
+    }
+
+    private void write(int slot, short value) {
+        long old = slots.get(slot);
+        slots.set(slot, (((old >>> 16) + 1) << 16) | (value & 0xffffL));
+    }
+
+    /**
+     * 槽是否写过
+     */
+    public boolean has(int slot) {
+        return slots.get(slot) >>> 16 != 0;
+    }
+
+    /**
+     * 读取槽的值，没写过返回0
+     */
+    public short get(int slot) {
+        return (short) slots.get(slot);
+    }
+
+    /**
+     * 读取槽的版本号，每写一次加一，没写过为0
+     */
+    public long getVersion(int slot) {
+        return slots.get(slot) >>> 16;
+    }
+
+    /**
+     * 读取所有槽的一致快照，数组长度至少为 {@link #SLOT_COUNT}，versions 可以为null
+     */
+    public void snapshot(short[] values, long[] versions) {
+        snapshot(0, SLOT_COUNT, values, versions);
+    }
+
+    /**
+     * 读取[firstSlot, firstSlot+count)的一致快照，写入数组下标从0开始
+     */
+    public void snapshot(int firstSlot, int count, short[] values, long[] versions) {
+        while (true) {
+            int before = writeSequence.get();
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                long v = slots.get(firstSlot + i);
+                values[i] = (short) v;
+                if (versions != null) {
+                    versions[i] = v >>> 16;
+                }
+            }
+            if (writeSequence.get() == before) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 旧接口使用的字符串形式：寄存器为整数，实时数据为浮点（与原来保存的 "123.0" 一致）
+     */
+    public String format(int slot) {
+        short value = get(slot);
+        if (isStreamSlot(slot)) {
+            return Float.toString(value);
+        }
+        return Short.toString(value);
+    }
+
+    /**
+     * 槽对应的字符串key
+     */
+    public static String keyOf(int slot) {
+        return SLOT_KEYS[slot];
+    }
+
+    /**
+     * 是否是实时数据槽
+     */
+    public static boolean isStreamSlot(int slot) {
+        return slot >= STREAM_BASE && slot < STREAM_BASE + STREAM_SLOT_COUNT;
+    }
+
+    /**
+     * 把字符串key转换成槽，不是寄存器key时返回-1
+     * <p>
+     * 支持两位十六进制寄存器名（如 "2E"、"2e"）、带 0x 前缀的寄存器名（如 "0xD0"）、
+     * 实时数据 "61_0"~"61_8" 和端口数据 "D0"~"D3"，不分配对象。
+     * "D0"~"D3" 是端口数据，寄存器 0xD0~0xD3 只能用 "0xD0" 形式或整数地址访问。
+     */
+    public static int slotOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        int len = key.length();
+        if (len == 2) {
+            if (key.charAt(0) == PORT_KEY_PREFIX) {
+                int n = key.charAt(1) - '0';
+                if (n >= 0 && n < PORT_SLOT_COUNT) {
+                    return PORT_BASE + n;
+                }
+            }
+            return hexRegister(key, 0);
+        }
+        if (len == 4 && key.startsWith(REGISTER_KEY_PREFIX)) {
+            return hexRegister(key, 2);
+        }
+        if (len == 4 && key.startsWith(STREAM_KEY_PREFIX)) {
+            int n = key.charAt(3) - '0';
+            if (n >= 0 && n < STREAM_SLOT_COUNT) {
+                return STREAM_BASE + n;
+            }
+        }
+        return -1;
+    }
+
+    private static int hexRegister(String key, int offset) {
+        int hi = Character.digit(key.charAt(offset), 16);
+        int lo = Character.digit(key.charAt(offset + 1), 16);
+        if (hi < 0 || lo < 0) {
+            return -1;
+        }
+        return hi << 4 | lo;
+    }
+}
@@ -0,0 +1,262 @@
+package com.wit.witsdk.sensor.modular.device.entity;
+
+/**
+ * 一帧姿态传感器实时数据（原始int16和换算后的物理量）
+ * <p>
+ * 每个设备模型只有一个实例，每收到一帧就原地覆盖，不产生新对象。
+ * 只在回调内有效，需要保存的话请复制出需要的字段。
+ * <p>
+ * 磁场和四元数不在实时数据帧里，由单独的数据包（设备主动上传或轮询）更新，
+ * 帧里保留最近一次的值，用各自的序号判断是否有新数据。
+ * <p>
+ * 时间：到达时间是协议解析器收到这帧的时间，时间戳是按传感器输出频率重建的时间
+ * （见 {@link com.wit.witsdk.sensor.modular.device.utils.FrameClock}），两者同一个时钟（System.nanoTime）。
+ * 计算dt请用时间戳。
+ */
+public class WitImuFrame {
+
+    /**
+     * 原始数据下标：加速度X/Y/Z、角速度X/Y/Z、角度X/Y/Z
+     */
+    public static final int RAW_ACC_X = 0;
+    public static final int RAW_ACC_Y = 1;
+    public static final int RAW_ACC_Z = 2;
+    public static final int RAW_GYRO_X = 3;
+    public static final int RAW_GYRO_Y = 4;
+    public static final int RAW_GYRO_Z = 5;
+    public static final int RAW_ANGLE_X = 6;
+    public static final int RAW_ANGLE_Y = 7;
+    public static final int RAW_ANGLE_Z = 8;
+
+    /**
+     * 原始数据个数
+     */
+    public static final int RAW_COUNT = 9;
+
+    /**
+     * 帧序号，每解出一帧加一
+     */
+    private long sequence;
+
+    /**
+     * 到达时间(ns)
+     */
+    private long arrivalNanos;
+
+    /**
+     * 重建的时间戳(ns)
+     */
+    private long timestampNanos;
+
+    /**
+     * 这一帧前面丢掉的帧数，0 表示连续
+     */
+    private long gapFrames;
+
+    /**
+     * 原始int16数据
+     */
+    private final short[] raw = new short[RAW_COUNT];
+
+    /**
+     * 加速度(g)
+     */
+    private double accX;
+    private double accY;
+    private double accZ;
+
+    /**
+     * 角速度(°/s)
+     */
+    private double gyroX;
+    private double gyroY;
+    private double gyroZ;
+
+    /**
+     * 角度(°)
+     */
+    private double angleX;
+    private double angleY;
+    private double angleZ;
+
+    /**
+     * 磁场(uT)
+     */
+    private double magX;
+    private double magY;
+    private double magZ;
+
+    /**
+     * 磁场序号，每更新一次加一，0 表示还没有磁场数据
+     */
+    private long magSequence;
+
+    /**
+     * 四元数
+     */
+    private double q0;
+    private double q1;
+    private double q2;
+    private double q3;
+
+    /**
+     * 四元数序号，每更新一次加一，0 表示还没有四元数
+     */
+    private long quaternionSequence;
+
+    /**
+     * 写入新一帧的原始数据，序号加一
+     */
+    public void setRaw(short[] values) {
+        System.arraycopy(values, 0, raw, 0, RAW_COUNT);
+        sequence++;
+    }
+
+    public short getRaw(int index) {
+        return raw[index];
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 写入这一帧的时间
+     */
+    public void setTiming(long arrivalNanos, long timestampNanos, long gapFrames) {
+        this.arrivalNanos = arrivalNanos;
+        this.timestampNanos = timestampNanos;
+        this.gapFrames = gapFrames;
+    }
+
+    public long getArrivalNanos() {
+        return arrivalNanos;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public long getGapFrames() {
+        return gapFrames;
+    }
+
+    public void setAcc(double x, double y, double z) {
+        accX = x;
+        accY = y;
+        accZ = z;
+    }
+
+    public void setGyro(double x, double y, double z) {
+        gyroX = x;
+        gyroY = y;
+        gyroZ = z;
+    }
+
+    public void setAngle(double x, double y, double z) {
+        angleX = x;
+        angleY = y;
+        angleZ = z;
+    }
+
+    public double getAccX() {
+        return accX;
+    }
+
+    public double getAccY() {
+        return accY;
+    }
+
+    public double getAccZ() {
+        return accZ;
+    }
+
+    public double getGyroX() {
+        return gyroX;
+    }
+
+    public double getGyroY() {
+        return gyroY;
+    }
+
+    public double getGyroZ() {
+        return gyroZ;
+    }
+
+    public double getAngleX() {
+        return angleX;
+    }
+
+    public double getAngleY() {
+        return angleY;
+    }
+
+    public double getAngleZ() {
+        return angleZ;
+    }
+
+    /**
+     * 写入新的磁场数据，磁场序号加一
+     */
+    public void setMag(double x, double y, double z) {
+        magX = x;
+        magY = y;
+        magZ = z;
+        magSequence++;
+    }
+
+    /**
+     * 写入新的四元数，四元数序号加一
+     */
+    public void setQuaternion(double q0, double q1, double q2, double q3) {
+        this.q0 = q0;
+        this.q1 = q1;
+        this.q2 = q2;
+        this.q3 = q3;
+        quaternionSequence++;
+    }
+
+    public double getMagX() {
+        return magX;
+    }
+
+    public double getMagY() {
+        return magY;
+    }
+
+    public double getMagZ() {
+        return magZ;
+    }
+
+    public long getMagSequence() {
+        return magSequence;
+    }
+
+    public boolean hasMag() {
+        return magSequence != 0;
+    }
+
+    public double getQ0() {
+        return q0;
+    }
+
+    public double getQ1() {
+        return q1;
+    }
+
+    public double getQ2() {
+        return q2;
+    }
+
+    public double getQ3() {
+        return q3;
+    }
+
+    public long getQuaternionSequence() {
+        return quaternionSequence;
+    }
+
+    public boolean hasQuaternion() {
+        return quaternionSequence != 0;
+    }
+}
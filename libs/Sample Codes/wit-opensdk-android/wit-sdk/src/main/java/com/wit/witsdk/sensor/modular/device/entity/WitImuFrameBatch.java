@@ -0,0 +1,187 @@
+package com.wit.witsdk.sensor.modular.device.entity;
+
+import java.util.Arrays;
+
+/**
+ * 连续的一批实时数据帧
+ * <p>
+ * 每个字段放在一个基本类型数组里，第i帧的数据在下标 i（时间、序号、丢帧数）、
+ * i * 3 + 0..2（加速度、角速度、角度的X/Y/Z）或 i * RAW_COUNT + n（原始值）。
+ * 数组只在容量不够时重新分配，批次发出后清空复用，只在回调内有效。
+ */
+public class WitImuFrameBatch {
+
+    /**
+     * 默认容量（帧数）
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * 帧数
+     */
+    private int size;
+
+    private long[] sequence;
+    private long[] arrivalNanos;
+    private long[] timestampNanos;
+    private int[] gapFrames;
+    private short[] raw;
+    private double[] acc;
+    private double[] gyro;
+    private double[] angle;
+
+    public WitImuFrameBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public WitImuFrameBatch(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        sequence = sequence == null ? new long[capacity] : Arrays.copyOf(sequence, capacity);
+        arrivalNanos = arrivalNanos == null ? new long[capacity] : Arrays.copyOf(arrivalNanos, capacity);
+        timestampNanos = timestampNanos == null ? new long[capacity] : Arrays.copyOf(timestampNanos, capacity);
+        gapFrames = gapFrames == null ? new int[capacity] : Arrays.copyOf(gapFrames, capacity);
+        raw = raw == null ? new short[capacity * WitImuFrame.RAW_COUNT] : Arrays.copyOf(raw, capacity * WitImuFrame.RAW_COUNT);
+        acc = acc == null ? new double[capacity * 3] : Arrays.copyOf(acc, capacity * 3);
+        gyro = gyro == null ? new double[capacity * 3] : Arrays.copyOf(gyro, capacity * 3);
+        angle = angle == null ? new double[capacity * 3] : Arrays.copyOf(angle, capacity * 3);
+    }
+
+    /**
+     * 追加一帧（复制帧里的值）
+     */
+    public void add(WitImuFrame frame) {
+        if (size == sequence.length) {
+            allocate(size * 2);
+        }
+        int i = size;
+        sequence[i] = frame.getSequence();
+        arrivalNanos[i] = frame.getArrivalNanos();
+        timestampNanos[i] = frame.getTimestampNanos();
+        gapFrames[i] = (int) frame.getGapFrames();
+        int r = i * WitImuFrame.RAW_COUNT;
+        for (int n = 0; n < WitImuFrame.RAW_COUNT; n++) {
+            raw[r + n] = frame.getRaw(n);
+        }
+        int v = i * 3;
+        acc[v] = frame.getAccX();
+        acc[v + 1] = frame.getAccY();
+        acc[v + 2] = frame.getAccZ();
+        gyro[v] = frame.getGyroX();
+        gyro[v + 1] = frame.getGyroY();
+        gyro[v + 2] = frame.getGyroZ();
+        angle[v] = frame.getAngleX();
+        angle[v + 1] = frame.getAngleY();
+        angle[v + 2] = frame.getAngleZ();
+        size++;
+    }
+
+    /**
+     * 清空（不释放数组）
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 当前容量（帧数）
+     */
+    public int capacity() {
+        return sequence.length;
+    }
+
+    public long getSequence(int i) {
+        return sequence[i];
+    }
+
+    public long getArrivalNanos(int i) {
+        return arrivalNanos[i];
+    }
+
+    /**
+     * 第i帧重建的时间戳(ns)
+     */
+    public long getTimestampNanos(int i) {
+        return timestampNanos[i];
+    }
+
+    /**
+     * 第i帧前面丢掉的帧数
+     */
+    public int getGapFrames(int i) {
+        return gapFrames[i];
+    }
+
+    public short getRaw(int i, int index) {
+        return raw[i * WitImuFrame.RAW_COUNT + index];
+    }
+
+    public double getAccX(int i) {
+        return acc[i * 3];
+    }
+
+    public double getAccY(int i) {
+        return acc[i * 3 + 1];
+    }
+
+    public double getAccZ(int i) {
+        return acc[i * 3 + 2];
+    }
+
+    public double getGyroX(int i) {
+        return gyro[i * 3];
+    }
+
+    public double getGyroY(int i) {
+        return gyro[i * 3 + 1];
+    }
+
+    public double getGyroZ(int i) {
+        return gyro[i * 3 + 2];
+    }
+
+    public double getAngleX(int i) {
+        return angle[i * 3];
+    }
+
+    public double getAngleY(int i) {
+        return angle[i * 3 + 1];
+    }
+
+    public double getAngleZ(int i) {
+        return angle[i * 3 + 2];
+    }
+
+    /**
+     * 整块数据（只读，只有前 size() 帧有效），批量复制时使用
+     */
+    public long[] getTimestampArray() {
+        return timestampNanos;
+    }
+
+    public short[] getRawArray() {
+        return raw;
+    }
+
+    public double[] getAccArray() {
+        return acc;
+    }
+
+    public double[] getGyroArray() {
+        return gyro;
+    }
+
+    public double[] getAngleArray() {
+        return angle;
+    }
+}
@@ -0,0 +1,16 @@
+package com.wit.witsdk.sensor.modular.device.interfaces;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrameBatch;
+
+/**
+ * 实时数据帧批量通知
+ */
+public interface IFrameBatchObserver {
+
+    /**
+     * 接收一批连续的帧，batch 是复用的实例，只在回调内有效
+     */
+    void onFrameBatch(DeviceModel deviceModel, WitImuFrameBatch batch);
+
+}
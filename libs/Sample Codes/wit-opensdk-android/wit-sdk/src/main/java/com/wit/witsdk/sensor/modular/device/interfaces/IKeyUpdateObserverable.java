@@ -26,6 +26,16 @@ public interface IKeyUpdateObserverable {
      */
     void removeKeyUpdateObserver(IKeyUpdateObserver o);
 
+    /**
+     * 添加只关心某个key的观察者
+     */
+    void registerKeyUpdateObserver(String key, IKeyUpdateObserver o);
+
+    /**
+     * 删除只关心某个key的观察者
+     */
+    void removeKeyUpdateObserver(String key, IKeyUpdateObserver o);
+
     /**
      * 通知观察者
      *
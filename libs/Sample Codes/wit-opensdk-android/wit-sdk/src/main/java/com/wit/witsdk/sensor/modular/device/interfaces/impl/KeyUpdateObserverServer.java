@@ -1,37 +1,121 @@
 package com.wit.witsdk.sensor.modular.device.interfaces.impl;
 
+import com.wit.witsdk.observer.role.ObserverBus;
 import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.DeviceRegisterFile;
 import com.wit.witsdk.sensor.modular.device.interfaces.IKeyUpdateObserver;
 import com.wit.witsdk.sensor.modular.device.interfaces.IKeyUpdateObserverable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * key刷新通知
+ * <p>
+ * 观察者按key登记：寄存器和实时数据按槽号放在数组里，其它key放在map里，
+ * 通知时只找订阅了这个key的观察者，没有人订阅的key不做任何事（也不装箱）。
+ * 不指定key登记的观察者收到所有key的通知。
+ * 每个key的观察者都是一个 {@link ObserverBus}，通知时不加锁。
+ */
 public class KeyUpdateObserverServer implements IKeyUpdateObserverable {
 
-    private List<IKeyUpdateObserver> list; //面向接口编程
+    /**
+     * 订阅所有key的观察者
+     */
+    private final ObserverBus<IKeyUpdateObserver> allKeys = newBus();
 
-    public KeyUpdateObserverServer() {
-        list = new ArrayList<>();
-    }
+    /**
+     * 按槽号订阅的观察者，第一次订阅时创建
+     */
+    private final AtomicReferenceArray<ObserverBus<IKeyUpdateObserver>> bySlot = new AtomicReferenceArray<>(DeviceRegisterFile.SLOT_COUNT);
+
+    /**
+     * 按其它key订阅的观察者
+     */
+    private final ConcurrentHashMap<String, ObserverBus<IKeyUpdateObserver>> byKey = new ConcurrentHashMap<>();
 
     @Override
     public void registerKeyUpdateObserver(IKeyUpdateObserver observer) {
-        list.add(observer);
+        allKeys.add(observer);
     }
 
     @Override
     public void removeKeyUpdateObserver(IKeyUpdateObserver observer) {
-        if (!list.isEmpty()) {
-            list.remove(observer);
+        allKeys.remove(observer);
+    }
+
+    @Override
+    public void registerKeyUpdateObserver(String key, IKeyUpdateObserver observer) {
+        int slot = DeviceRegisterFile.slotOf(key);
+        ObserverBus<IKeyUpdateObserver> bus;
+        if (slot >= 0) {
+            bus = bySlot.get(slot);
+            if (bus == null) {
+                bySlot.compareAndSet(slot, null, newBus());
+                bus = bySlot.get(slot);
+            }
+        } else {
+            bus = byKey.get(key);
+            if (bus == null) {
+                byKey.putIfAbsent(key, newBus());
+                bus = byKey.get(key);
+            }
+        }
+        bus.add(observer);
+    }
+
+    @Override
+    public void removeKeyUpdateObserver(String key, IKeyUpdateObserver observer) {
+        int slot = DeviceRegisterFile.slotOf(key);
+        ObserverBus<IKeyUpdateObserver> bus = slot >= 0 ? bySlot.get(slot) : byKey.get(key);
+        if (bus != null) {
+            bus.remove(observer);
         }
     }
 
     @Override
     public void notifyKeyUpdateObserver(DeviceModel deviceModel, String key, Object value) {
-        for (int i = 0; i < list.size(); i++) {
-            IKeyUpdateObserver observer = list.get(i);
-            observer.update(deviceModel, key, value);//通知Observer调用update方法
+        int slot = DeviceRegisterFile.slotOf(key);
+        ObserverBus<IKeyUpdateObserver> keyed = slot >= 0 ? bySlot.get(slot) : byKey.get(key);
+        if (keyed != null) {
+            dispatch(keyed.snapshot(), deviceModel, key, value);
+        }
+        dispatch(allKeys.snapshot(), deviceModel, key, value);
+    }
+
+    /**
+     * 寄存器或实时数据槽刷新，没有人订阅时直接返回
+     */
+    public void notifySlotUpdate(DeviceModel deviceModel, int slot, short value) {
+        ObserverBus<IKeyUpdateObserver> keyed = bySlot.get(slot);
+        IKeyUpdateObserver[] slotObservers = keyed == null ? null : keyed.snapshot();
+        IKeyUpdateObserver[] all = allKeys.snapshot();
+        if ((slotObservers == null || slotObservers.length == 0) && all.length == 0) {
+            return;
+        }
+        String key = DeviceRegisterFile.keyOf(slot);
+        Short boxed = value;
+        if (slotObservers != null) {
+            dispatch(slotObservers, deviceModel, key, boxed);
+        }
+        dispatch(all, deviceModel, key, boxed);
+    }
+
+    /**
+     * 是否有人订阅这个槽（包括订阅所有key的观察者）
+     */
+    public boolean hasObservers(int slot) {
+        ObserverBus<IKeyUpdateObserver> keyed = bySlot.get(slot);
+        return (keyed != null && !keyed.isEmpty()) || !allKeys.isEmpty();
+    }
+
+    private static void dispatch(IKeyUpdateObserver[] observers, DeviceModel deviceModel, String key, Object value) {
+        for (IKeyUpdateObserver observer : observers) {
+            observer.update(deviceModel, key, value);
         }
     }
+
+    private static ObserverBus<IKeyUpdateObserver> newBus() {
+        return new ObserverBus<>(new IKeyUpdateObserver[0]);
+    }
 }
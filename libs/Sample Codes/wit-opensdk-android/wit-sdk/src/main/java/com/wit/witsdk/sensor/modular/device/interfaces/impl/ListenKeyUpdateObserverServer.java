@@ -1,38 +1,27 @@
 package com.wit.witsdk.sensor.modular.device.interfaces.impl;
 
+import com.wit.witsdk.observer.role.ObserverBus;
 import com.wit.witsdk.sensor.modular.device.DeviceModel;
 import com.wit.witsdk.sensor.modular.device.interfaces.IListenKeyUpdateObserver;
 import com.wit.witsdk.sensor.modular.device.interfaces.IListenKeyUpdateObserverable;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ListenKeyUpdateObserverServer implements IListenKeyUpdateObserverable {
 
-    private List<IListenKeyUpdateObserver> list;
-
-    private String msg;
-
-    public ListenKeyUpdateObserverServer() {
-        list = new ArrayList<>();
-    }
+    private final ObserverBus<IListenKeyUpdateObserver> observers = new ObserverBus<>(new IListenKeyUpdateObserver[0]);
 
     @Override
     public void registerListenKeyUpdateObserver(IListenKeyUpdateObserver observer) {
-        list.add(observer);
+        observers.add(observer);
     }
 
     @Override
     public void removeListenKeyUpdateObserver(IListenKeyUpdateObserver observer) {
-        if (!list.isEmpty()) {
-            list.remove(observer);
-        }
+        observers.remove(observer);
     }
 
     @Override
     public void notifyListenKeyUpdateObserver(DeviceModel deviceModel){
-        for (int i = 0; i < list.size(); i++) {
-            IListenKeyUpdateObserver observer = list.get(i);
+        for (IListenKeyUpdateObserver observer : observers.snapshot()) {
             //通知Observer调用update方法
             observer.update(deviceModel);
         }
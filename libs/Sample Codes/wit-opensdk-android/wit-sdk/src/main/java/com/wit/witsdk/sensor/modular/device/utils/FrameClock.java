@@ -0,0 +1,419 @@
+package com.wit.witsdk.sensor.modular.device.utils;
+
+/**
+ * 实时数据帧的时间戳重建
+ * <p>
+ * 帧到达应用的时间 = 传感器输出时间 + 传输和调度延迟，延迟有抖动，一次通知里还可能带好几帧。
+ * 传感器按固定频率输出，所以第k帧的输出时间是一条直线 t = t0 + k * T：
+ * 1. 周期T：对到达时间和帧序号做带遗忘因子的在线线性拟合，跟踪传感器时钟的漂移，
+ *    知道名义频率（RRATE）时限制在名义周期附近。每次判定丢帧后开始新的一段，各段只共用斜率，
+ *    丢帧数估计得不准也不会带偏周期；拟合稳定之前直线直接跟着到达时间走，也不判定丢帧；
+ * 2. 直线贴着到达时间的下沿（延迟最小的帧）：帧比直线早到时把直线往下拉，晚到时只缓慢上移，
+ *    每一步的修正都有上限，抖动和成批到达不会让相邻时间戳的间隔偏离T太多；
+ * 3. 丢帧：连续的帧都比直线晚了超过 {@link #GAP_PERIODS} 个周期，并且这些帧是按正常节奏陆续到达的
+ *    （至少 {@link #CONFIRM_FRAMES} 帧、跨越 {@link #CONFIRM_PERIODS} 个周期），就认为中间丢了帧，序号跳过去。
+ *    调度卡顿后一次到达的一批帧晚到的程度逐帧减小，不会被当成丢帧。
+ *    丢帧在确认的那一帧上报告，之前几帧的时间戳仍按连续计算；
+ *    如果之后直线被早到的帧累计往下拉了一个周期以上，说明其实没有丢帧，把丢帧数退回来。
+ * <p>
+ * 时间戳和到达时间使用同一个时钟（纳秒），非线程安全，由接收线程调用。
+ */
+public class FrameClock {
+
+    /**
+     * 没有名义频率时假定的周期(ns)，50Hz
+     */
+    public static final long DEFAULT_PERIOD_NANOS = 20000000L;
+
+    /**
+     * 晚到超过几个周期算丢帧
+     */
+    public static final double GAP_PERIODS = 1.5;
+
+    /**
+     * 确认丢帧至少需要连续晚到的帧数
+     */
+    public static final int CONFIRM_FRAMES = 5;
+
+    /**
+     * 确认丢帧时连续晚到的帧至少跨越的周期数（按到达时间）
+     */
+    public static final double CONFIRM_PERIODS = 3;
+
+    /**
+     * 线性拟合的遗忘因子，约等于最近500帧
+     */
+    private static final double FORGETTING = 0.998;
+
+    /**
+     * 拟合稳定（开始判定丢帧）前至少需要的帧数
+     */
+    private static final int MIN_FIT_FRAMES = 50;
+
+    /**
+     * 开始使用拟合周期前至少需要的帧数
+     */
+    private static final int MIN_SLOPE_FRAMES = 10;
+
+    /**
+     * 知道名义频率时，拟合周期最多偏离名义周期的比例
+     */
+    private static final double NOMINAL_TOLERANCE = 0.05;
+
+    /**
+     * 每帧最多往下拉多少个周期
+     */
+    private static final double MAX_PULL = 0.1;
+
+    /**
+     * 晚到时直线上移的比例
+     */
+    private static final double CREEP_GAIN = 0.002;
+
+    /**
+     * 拟合稳定之前晚到时直线上移的比例
+     */
+    private static final double WARMUP_CREEP_GAIN = 0.05;
+
+    /**
+     * 平均延迟的平滑系数
+     */
+    private static final double LATENCY_GAIN = 0.05;
+
+    /**
+     * 相邻时间戳的最小间隔（周期的比例）
+     */
+    private static final double MIN_STEP = 0.5;
+
+    /**
+     * 判定丢帧后多少帧内可以退回
+     */
+    private static final int UNDO_WINDOW = 200;
+
+    /**
+     * 名义周期(ns)，0 表示不知道
+     */
+    private long nominalPeriodNanos;
+
+    /**
+     * 当前使用的周期(ns)
+     */
+    private double periodNanos = DEFAULT_PERIOD_NANOS;
+
+    /**
+     * 帧数，0 表示还没有收到帧
+     */
+    private long frameCount;
+
+    /**
+     * 上一帧的序号（包含丢掉的帧）和它在直线上的时间
+     */
+    private long lastIndex;
+
+    private double lastTimestamp;
+
+    /**
+     * 上一帧给出的时间戳
+     */
+    private double lastEmitted;
+
+    /**
+     * 退回的误判丢帧数
+     */
+    private long undoneFrames;
+
+    /**
+     * 还可以退回的丢帧数、判定后经过的帧数、直线被累计拉下的量(ns)
+     */
+    private long pendingGap;
+
+    private int framesSinceGap;
+
+    private double pulledNanos;
+
+    /**
+     * 当前一段的原点：这一段第一帧的序号和到达时间
+     */
+    private long fitOriginIndex;
+
+    private long fitOriginNanos;
+
+    /**
+     * 参与拟合的帧数
+     */
+    private long fitFrames;
+
+    /**
+     * 当前一段带遗忘因子的累加量（序号、到达时间(ns)相对原点）
+     */
+    private double sumW;
+    private double sumK;
+    private double sumA;
+    private double sumKK;
+    private double sumKA;
+
+    /**
+     * 之前各段去掉各自均值后的累加量，只用来求共同的斜率
+     */
+    private double pooledKK;
+    private double pooledKA;
+
+    /**
+     * 平均延迟（到达时间在直线以上的部分）
+     */
+    private double meanLatencyNanos;
+
+    /**
+     * 当前连续晚到的帧：帧数、第一帧的到达时间、最小的晚到时间(ns)
+     */
+    private int lateFrames;
+
+    private long lateSinceNanos;
+
+    private double lateMinNanos;
+
+    /**
+     * 上一帧前面丢掉的帧数
+     */
+    private long lastGap;
+
+    /**
+     * 累计丢帧数
+     */
+    private long droppedFrames;
+
+    /**
+     * 设置名义输出频率(Hz)，不知道时传0（周期完全由拟合得到）
+     */
+    public void setNominalRate(double hz) {
+        long period = hz > 0 ? Math.round(1e9 / hz) : 0;
+        if (period == nominalPeriodNanos) {
+            return;
+        }
+        nominalPeriodNanos = period;
+        if (period > 0) {
+            // 频率改了，之前的拟合不再有效
+            periodNanos = period;
+            resetFit();
+        }
+    }
+
+    /**
+     * 重新开始（重新连接后调用），名义频率保留
+     */
+    public void reset() {
+        frameCount = 0;
+        lastIndex = 0;
+        lastTimestamp = 0;
+        lastEmitted = 0;
+        meanLatencyNanos = 0;
+        lateFrames = 0;
+        lateSinceNanos = 0;
+        lateMinNanos = 0;
+        lastGap = 0;
+        undoneFrames = 0;
+        pendingGap = 0;
+        framesSinceGap = 0;
+        pulledNanos = 0;
+        droppedFrames = 0;
+        periodNanos = nominalPeriodNanos > 0 ? nominalPeriodNanos : DEFAULT_PERIOD_NANOS;
+        resetFit();
+    }
+
+    private void resetFit() {
+        sumW = 0;
+        pooledKK = 0;
+        pooledKA = 0;
+        fitFrames = 0;
+    }
+
+    /**
+     * 结束当前一段，下一帧开始新的一段
+     */
+    private void closeSegment() {
+        if (sumW > 0) {
+            pooledKK += sumKK - sumK * sumK / sumW;
+            pooledKA += sumKA - sumK * sumA / sumW;
+        }
+        sumW = 0;
+    }
+
+    private boolean isFitReady() {
+        return fitFrames >= MIN_FIT_FRAMES;
+    }
+
+    /**
+     * 收到一帧
+     *
+     * @param arrivalNanos 到达时间(ns)
+     * @return 重建的时间戳(ns)，和到达时间同一个时钟，单调递增
+     */
+    public long onFrame(long arrivalNanos) {
+        if (frameCount++ == 0) {
+            lastIndex = 0;
+            lastTimestamp = arrivalNanos;
+            lastEmitted = arrivalNanos;
+            lastGap = 0;
+            undoneFrames = 0;
+            pendingGap = 0;
+            fit(0, arrivalNanos);
+            return arrivalNanos;
+        }
+
+        long index = lastIndex + 1;
+        double error = arrivalNanos - predict(index);
+        long gap = 0;
+
+        if (isFitReady() && error > GAP_PERIODS * periodNanos) {
+            if (lateFrames++ == 0) {
+                lateSinceNanos = arrivalNanos;
+                lateMinNanos = error;
+            } else {
+                lateMinNanos = Math.min(lateMinNanos, error);
+            }
+            if (lateFrames >= CONFIRM_FRAMES && arrivalNanos - lateSinceNanos >= CONFIRM_PERIODS * periodNanos) {
+                // 按正常节奏到达却一直晚：中间丢了帧
+                gap = Math.max(1, Math.round(lateMinNanos / periodNanos));
+                index += gap;
+                droppedFrames += gap;
+                lateFrames = 0;
+                pendingGap = gap;
+                framesSinceGap = 0;
+                pulledNanos = 0;
+                closeSegment();
+                error = arrivalNanos - predict(index);
+            }
+        } else {
+            lateFrames = 0;
+        }
+
+        double line = predict(index);
+        if (error < 0) {
+            // 早到：往下拉，拟合稳定后每帧有上限
+            line += isFitReady() ? Math.max(error, -MAX_PULL * periodNanos) : error;
+        } else {
+            // 晚到：缓慢上移，跟踪延迟和周期的误差
+            line += error * (isFitReady() ? CREEP_GAIN : WARMUP_CREEP_GAIN);
+            meanLatencyNanos += (error - meanLatencyNanos) * LATENCY_GAIN;
+        }
+
+        if (pendingGap > 0) {
+            pulledNanos += predict(index) - line;
+            if (pulledNanos >= periodNanos) {
+                // 丢帧是误判：帧只是晚到，直线已经回到原来的位置
+                pendingGap--;
+                undoneFrames++;
+                droppedFrames--;
+                pulledNanos -= periodNanos;
+            }
+            if (++framesSinceGap >= UNDO_WINDOW) {
+                pendingGap = 0;
+            }
+        }
+
+        double timestamp = Math.max(line, lastEmitted + MIN_STEP * periodNanos);
+
+        fit(index, arrivalNanos);
+        lastIndex = index;
+        lastTimestamp = line;
+        lastEmitted = timestamp;
+        lastGap = gap;
+        return Math.round(timestamp);
+    }
+
+    private double predict(long index) {
+        return lastTimestamp + (index - lastIndex) * periodNanos;
+    }
+
+    /**
+     * 更新到达时间对序号的线性拟合，帧数够了以后用斜率作为周期
+     */
+    private void fit(long index, long arrivalNanos) {
+        if (sumW == 0) {
+            fitOriginIndex = index;
+            fitOriginNanos = arrivalNanos;
+            sumK = 0;
+            sumA = 0;
+            sumKK = 0;
+            sumKA = 0;
+        }
+        fitFrames++;
+        double k = index - fitOriginIndex;
+        double a = arrivalNanos - fitOriginNanos;
+        sumW = sumW * FORGETTING + 1;
+        sumK = sumK * FORGETTING + k;
+        sumA = sumA * FORGETTING + a;
+        sumKK = sumKK * FORGETTING + k * k;
+        sumKA = sumKA * FORGETTING + k * a;
+        pooledKK *= FORGETTING;
+        pooledKA *= FORGETTING;
+        if (fitFrames < MIN_SLOPE_FRAMES) {
+            return;
+        }
+        double varK = pooledKK + sumKK - sumK * sumK / sumW;
+        if (varK <= 0) {
+            return;
+        }
+        double slope = (pooledKA + sumKA - sumK * sumA / sumW) / varK;
+        if (nominalPeriodNanos > 0) {
+            double min = nominalPeriodNanos * (1 - NOMINAL_TOLERANCE);
+            double max = nominalPeriodNanos * (1 + NOMINAL_TOLERANCE);
+            periodNanos = Math.max(min, Math.min(max, slope));
+        } else if (slope > 0) {
+            periodNanos = slope;
+        }
+    }
+
+    /**
+     * 上一帧前面丢掉的帧数，0 表示连续
+     */
+    public long getLastGap() {
+        return lastGap;
+    }
+
+    /**
+     * 当前估计的周期(ns)
+     */
+    public double getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * 当前估计的输出频率(Hz)
+     */
+    public double getRateHz() {
+        return 1e9 / periodNanos;
+    }
+
+    /**
+     * 名义周期(ns)，不知道时为0
+     */
+    public long getNominalPeriodNanos() {
+        return nominalPeriodNanos;
+    }
+
+    /**
+     * 平均延迟(ns)：到达时间比重建时间晚多少
+     */
+    public double getMeanLatencyNanos() {
+        return meanLatencyNanos;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 累计丢帧数（已扣除退回的）
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * 退回的误判丢帧数
+     */
+    public long getUndoneFrames() {
+        return undoneFrames;
+    }
+}
@@ -0,0 +1,98 @@
+package com.wit.witsdk.sensor.modular.processor.entity;
+
+import com.wit.witsdk.sensor.modular.processor.enums.SensorCapability;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 解码配置：传感器实际回传哪些数据
+ * <p>
+ * 由 RSW 寄存器决定，处理器只换算和发布打开了的内容，
+ * 使用者可以据此判断哪些通道有数据，例如只回传加速度时角度一直是0。
+ * RSW 还没读到时按 {@link #DEFAULT}（加速度、角速度、角度）处理。
+ */
+public final class DecodeProfile {
+
+    /**
+     * RSW 未知时的默认配置
+     */
+    public static final DecodeProfile DEFAULT = new DecodeProfile(
+            SensorCapability.Acc.getRswMask() | SensorCapability.Gyro.getRswMask() | SensorCapability.Angle.getRswMask(),
+            false);
+
+    /**
+     * RSW 寄存器的值
+     */
+    private final int rsw;
+
+    /**
+     * 是否由读到的 RSW 得出
+     */
+    private final boolean known;
+
+    private DecodeProfile(int rsw, boolean known) {
+        this.rsw = rsw & 0xffff;
+        this.known = known;
+    }
+
+    /**
+     * 按读到的 RSW 寄存器值创建
+     */
+    public static DecodeProfile fromRsw(int rsw) {
+        return new DecodeProfile(rsw, true);
+    }
+
+    /**
+     * 是否回传这项内容
+     */
+    public boolean has(SensorCapability capability) {
+        return (rsw & capability.getRswMask()) != 0;
+    }
+
+    /**
+     * 回传的所有内容
+     */
+    public Set<SensorCapability> getCapabilities() {
+        EnumSet<SensorCapability> capabilities = EnumSet.noneOf(SensorCapability.class);
+        for (SensorCapability capability : SensorCapability.values()) {
+            if (has(capability)) {
+                capabilities.add(capability);
+            }
+        }
+        return capabilities;
+    }
+
+    public int getRsw() {
+        return rsw;
+    }
+
+    /**
+     * 是否由读到的 RSW 得出，false 表示还在用默认配置
+     */
+    public boolean isKnown() {
+        return known;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DecodeProfile)) {
+            return false;
+        }
+        DecodeProfile that = (DecodeProfile) o;
+        return rsw == that.rsw && known == that.known;
+    }
+
+    @Override
+    public int hashCode() {
+        return rsw * 2 + (known ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RSW=0x%04X%s %s", rsw, known ? "" : "(默认)", getCapabilities());
+    }
+}
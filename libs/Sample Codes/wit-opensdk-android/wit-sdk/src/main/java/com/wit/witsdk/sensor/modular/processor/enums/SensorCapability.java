@@ -0,0 +1,50 @@
+package com.wit.witsdk.sensor.modular.processor.enums;
+
+/**
+ * 传感器回传的数据内容，对应 RSW 寄存器(0x02)的位
+ */
+public enum SensorCapability {
+
+    /**
+     * 片上时间
+     */
+    Time(0x01),
+
+    /**
+     * 加速度
+     */
+    Acc(0x02),
+
+    /**
+     * 角速度
+     */
+    Gyro(0x04),
+
+    /**
+     * 角度
+     */
+    Angle(0x08),
+
+    /**
+     * 磁场
+     */
+    Mag(0x10),
+
+    /**
+     * 四元数
+     */
+    Quaternion(0x0200);
+
+    private final int rswMask;
+
+    SensorCapability(int rswMask) {
+        this.rswMask = rswMask;
+    }
+
+    /**
+     * RSW 中对应的位
+     */
+    public int getRswMask() {
+        return rswMask;
+    }
+}
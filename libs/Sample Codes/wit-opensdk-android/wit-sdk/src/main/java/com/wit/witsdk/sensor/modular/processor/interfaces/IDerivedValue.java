@@ -0,0 +1,19 @@
+package com.wit.witsdk.sensor.modular.processor.interfaces;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+
+/**
+ * 由寄存器推导出来的数据
+ * <p>
+ * 只在依赖的寄存器被更新后才计算，见 {@link com.wit.witsdk.sensor.modular.processor.roles.DerivedValueEngine}
+ */
+@FunctionalInterface
+public interface IDerivedValue {
+
+    /**
+     * 重新计算，调用时所有依赖的寄存器都已经读到
+     *
+     * @param deviceModel 设备模型
+     */
+    void compute(DeviceModel deviceModel);
+}
@@ -0,0 +1,48 @@
+package com.wit.witsdk.sensor.modular.processor.roles;
+
+import com.wit.witsdk.sensor.modular.processor.interfaces.IDerivedValue;
+
+/**
+ * 一个推导数据和它依赖的寄存器
+ * <p>
+ * 运行状态由 {@link DerivedValueEngine} 在它的锁内维护。
+ */
+public class DerivedValue {
+
+    /**
+     * 依赖的寄存器
+     */
+    private final int[] registers;
+
+    /**
+     * 计算方法
+     */
+    private final IDerivedValue value;
+
+    /**
+     * 上次计算时各寄存器的版本号
+     */
+    final long[] versions;
+
+    DerivedValue(IDerivedValue value, int[] registers) {
+        this.value = value;
+        this.registers = registers.clone();
+        this.versions = new long[registers.length];
+    }
+
+    public int[] getRegisters() {
+        return registers.clone();
+    }
+
+    public IDerivedValue getValue() {
+        return value;
+    }
+
+    int getRegister(int index) {
+        return registers[index];
+    }
+
+    int getRegisterCount() {
+        return registers.length;
+    }
+}
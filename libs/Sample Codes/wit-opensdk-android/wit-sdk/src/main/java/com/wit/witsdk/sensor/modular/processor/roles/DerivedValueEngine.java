@@ -0,0 +1,119 @@
+package com.wit.witsdk.sensor.modular.processor.roles;
+
+import android.util.Log;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.DeviceRegisterFile;
+import com.wit.witsdk.sensor.modular.processor.interfaces.IDerivedValue;
+
+import java.util.ArrayList;
+
+/**
+ * 推导数据的脏标记计算
+ * <p>
+ * 版本号、磁场、电量这类数据只依赖几个很少变化的寄存器，不需要每个实时数据帧都重新计算。
+ * 每个推导数据登记自己依赖的寄存器，{@link #update} 时比较寄存器的版本号，
+ * 所有依赖都读到过、并且至少有一个的版本号变了，才重新计算。
+ * 没有变化时每一项只比较几个版本号，不分配对象。
+ */
+public class DerivedValueEngine {
+
+    private final ArrayList<DerivedValue> values = new ArrayList<>();
+
+    /**
+     * 计算总次数
+     */
+    private long computeCount;
+
+    /**
+     * 登记推导数据
+     *
+     * @param value     计算方法
+     * @param registers 依赖的寄存器
+     */
+    public synchronized DerivedValueEngine add(IDerivedValue value, int... registers) {
+        if (registers.length == 0) {
+            throw new IllegalArgumentException("推导数据至少要依赖一个寄存器");
+        }
+        for (int register : registers) {
+            if (register < 0 || register >= DeviceRegisterFile.SLOT_COUNT) {
+                throw new IllegalArgumentException("寄存器地址超出范围: " + register);
+            }
+        }
+        values.add(new DerivedValue(value, registers));
+        return this;
+    }
+
+    /**
+     * 移除所有推导数据
+     */
+    public synchronized void clear() {
+        values.clear();
+    }
+
+    /**
+     * 让所有推导数据在下一次 {@link #update} 时重新计算（例如重新打开设备后）
+     */
+    public synchronized void invalidate() {
+        for (DerivedValue value : values) {
+            for (int i = 0; i < value.versions.length; i++) {
+                value.versions[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * 重新计算依赖的寄存器有变化的推导数据
+     *
+     * @return 这次计算了几项
+     */
+    public synchronized int update(DeviceModel deviceModel) {
+        DeviceRegisterFile registerFile = deviceModel.getRegisterFile();
+        int computed = 0;
+        // 下标遍历，不创建迭代器
+        for (int i = 0; i < values.size(); i++) {
+            DerivedValue value = values.get(i);
+            if (!isDirty(registerFile, value)) {
+                continue;
+            }
+            try {
+                value.getValue().compute(deviceModel);
+            } catch (Exception e) {
+                Log.e("", "推导数据计算错误: " + e.getMessage());
+            }
+            computeCount++;
+            computed++;
+        }
+        return computed;
+    }
+
+    /**
+     * 比较并记录版本号，所有依赖都读到过并且有变化时返回true
+     */
+    private static boolean isDirty(DeviceRegisterFile registerFile, DerivedValue value) {
+        boolean changed = false;
+        for (int i = 0; i < value.getRegisterCount(); i++) {
+            long version = registerFile.getVersion(value.getRegister(i));
+            if (version == 0) {
+                // 还没读到，等读到了再算
+                return false;
+            }
+            if (version != value.versions[i]) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            for (int i = 0; i < value.getRegisterCount(); i++) {
+                value.versions[i] = registerFile.getVersion(value.getRegister(i));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 计算总次数
+     */
+    public synchronized long getComputeCount() {
+        return computeCount;
+    }
+}
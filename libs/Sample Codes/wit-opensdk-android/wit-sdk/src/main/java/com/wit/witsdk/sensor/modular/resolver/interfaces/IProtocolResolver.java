@@ -34,4 +34,12 @@ public interface IProtocolResolver {
      */
     void passiveReceiveData(byte[] data, DeviceModel deviceModel);
 
+    /**
+     * 数据已写入发送通道
+     * <p>
+     * 读寄存器返回不带寄存器地址的协议（55 5F）用它记录读命令的顺序
+     */
+    default void onDataSent(byte[] data, DeviceModel deviceModel) {
+    }
+
 }
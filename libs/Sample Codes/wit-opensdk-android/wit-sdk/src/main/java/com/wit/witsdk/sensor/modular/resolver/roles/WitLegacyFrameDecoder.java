@@ -0,0 +1,294 @@
+package com.wit.witsdk.sensor.modular.resolver.roles;
+
+import com.wit.witsdk.sensor.utils.WitProtocolUtils;
+import com.wit.witsdk.utils.ByteRingBuffer;
+
+/**
+ * 串口、SPP、USB(CH340)、UDP 传感器 55 5x 数据流的帧解码器（11字节帧，带校验和）
+ * <p>
+ * 收到的字节写入原始byte[]环形缓冲区，用 {@link WitProtocolUtils#findFrame(ByteRingBuffer, int)}
+ * 在缓冲区内对齐校验和正确的帧头，校验失败只丢掉帧头一个字节，从下一个0x55重新对齐。解码过程中不分配对象。
+ * <p>
+ * 传感器每个输出周期按类型从小到大依次发出打开了的数据包（0x50时间、0x51加速度、0x52角速度、
+ * 0x53角度、0x54磁场……0x59四元数）。加速度、角速度、角度拼成一帧实时数据，
+ * 在一个周期的最后一个包到达时交给监听者；最后一个包是哪种类型从数据流里学习
+ * （类型变小或重复说明新的周期开始了），学会之前、或者这个包丢了的时候在下一个周期开始时交出，
+ * 每个周期只交出一次。最后一个包只有连续 {@link #CYCLE_END_RELEARN_CYCLES} 个周期都没收到才重新学习，
+ * 偶尔丢一个包不会学错。其余内容按寄存器地址交给监听者。
+ */
+public class WitLegacyFrameDecoder {
+
+    /**
+     * 帧长度
+     */
+    public static final int FRAME_LENGTH = WitProtocolUtils.LEGACY_FRAME_LENGTH;
+
+    /**
+     * 数据包类型
+     */
+    public static final int TYPE_TIME = 0x50;
+    public static final int TYPE_ACC = 0x51;
+    public static final int TYPE_GYRO = 0x52;
+    public static final int TYPE_ANGLE = 0x53;
+    public static final int TYPE_MAG = 0x54;
+    public static final int TYPE_QUATERNION = 0x59;
+
+    /**
+     * 每帧实时数据的字段数量（加速度、角速度、角度各3个）
+     */
+    public static final int FIELD_COUNT = 9;
+
+    /**
+     * 每个数据包里的int16个数
+     */
+    public static final int PACKET_VALUE_COUNT = 4;
+
+    /**
+     * 连续多少个周期没收到学到的最后一个包，才认为输出内容变了、重新学习
+     */
+    public static final int CYCLE_END_RELEARN_CYCLES = 3;
+
+    /**
+     * 寄存器地址：时间、磁场、温度、四元数
+     */
+    private static final int REG_TIME = 0x30;
+    private static final int REG_MAG = 0x3A;
+    private static final int REG_TEMP = 0x40;
+    private static final int REG_QUATERNION = 0x51;
+
+    /**
+     * 解码结果监听
+     */
+    public interface IFrameListener {
+
+        /**
+         * 一个输出周期结束，values 为加速度、角速度、角度的原始值，回调返回后会被覆盖
+         */
+        void onDataFrame(short[] values);
+
+        /**
+         * 数据包里的内容对应的寄存器，values 从 register 开始的 count 个值，回调返回后会被覆盖
+         */
+        default void onRegisterData(int register, short[] values, int count) {
+        }
+
+        /**
+         * 一帧 55 5F 读寄存器返回（不带寄存器地址），values 为4个值，回调返回后会被覆盖
+         */
+        default void onRegisterReply(short[] values) {
+        }
+
+        /**
+         * 帧对齐时一帧 55 5F 读寄存器返回校验失败，这次读取不会再有返回
+         */
+        default void onRegisterReplyLost() {
+        }
+    }
+
+    /**
+     * 待解析的数据
+     */
+    private final ByteRingBuffer buffer = new ByteRingBuffer(1024);
+
+    /**
+     * 当前周期的实时数据，没打开的内容保持上一次的值
+     */
+    private final short[] values = new short[FIELD_COUNT];
+
+    /**
+     * 复用的数据包字段数组
+     */
+    private final short[] packetValues = new short[PACKET_VALUE_COUNT];
+
+    /**
+     * 上一个包的类型，-1 表示还没有收到包
+     */
+    private int lastType = -1;
+
+    /**
+     * 当前周期有还没交出的实时数据
+     */
+    private boolean cyclePending;
+
+    /**
+     * 学到的每个周期最后一个包的类型，-1 表示还不知道
+     */
+    private int cycleEndType = -1;
+
+    /**
+     * 连续没收到最后一个包的周期数
+     */
+    private int missedCycleEnds;
+
+    /**
+     * 上一帧校验通过、缓冲区开头就是下一帧的位置。只有这时开头的 55 5F 校验失败才算丢了一个读返回，
+     * 重新对齐过程中遇到的 55 5F 可能只是数据里的字节
+     */
+    private boolean aligned;
+
+    /**
+     * 解出的实时数据帧数量
+     */
+    private long frameCount;
+
+    /**
+     * 解出的数据包数量
+     */
+    private long packetCount;
+
+    /**
+     * 校验失败的帧数量
+     */
+    private long checksumErrors;
+
+    /**
+     * 对齐帧头时丢弃的字节数
+     */
+    private long droppedBytes;
+
+    /**
+     * 写入收到的数据，并解出其中所有完整的帧
+     */
+    public void receive(byte[] data, int off, int len, IFrameListener listener) {
+        buffer.write(data, off, len);
+
+        while (buffer.size() >= 2) {
+            // 对齐帧头：校验失败的帧只跳过帧头一个字节，由 findFrame 从下一个0x55重新对齐
+            int start = WitProtocolUtils.findFrame(buffer, WitProtocolUtils.ANY_LEGACY_TYPE);
+            if (start != 0) {
+                if (aligned && isCompleteFrameAt(0) && (buffer.get(1) & 0xff) == WitProtocolUtils.TYPE_REGISTER_REPLY) {
+                    listener.onRegisterReplyLost();
+                }
+                int skip = start > 0 ? start : WitProtocolUtils.discardableBytes(buffer, FRAME_LENGTH);
+                // 跳过的完整帧头都是校验失败的
+                for (int i = 0; i < skip; i++) {
+                    if (isCompleteFrameAt(i)) {
+                        checksumErrors++;
+                    }
+                }
+                buffer.skip(skip);
+                droppedBytes += skip;
+                if (skip > 0) {
+                    aligned = false;
+                }
+                if (start < 0) {
+                    break;
+                }
+            }
+
+            int type = buffer.get(1) & 0xff;
+            for (int i = 0; i < PACKET_VALUE_COUNT; i++) {
+                packetValues[i] = buffer.getShortLE(2 + i * 2);
+            }
+            buffer.skip(FRAME_LENGTH);
+            packetCount++;
+            aligned = true;
+            if (type == WitProtocolUtils.TYPE_REGISTER_REPLY) {
+                listener.onRegisterReply(packetValues);
+            } else {
+                onPacket(type, listener);
+            }
+        }
+    }
+
+    /**
+     * 缓冲区 index 处是不是一个完整的11字节帧（不看校验和）
+     */
+    private boolean isCompleteFrameAt(int index) {
+        return index + FRAME_LENGTH <= buffer.size() && buffer.get(index) == WitProtocolUtils.HEADER
+                && WitProtocolUtils.frameLength(buffer.get(index + 1)) == FRAME_LENGTH;
+    }
+
+    /**
+     * 一个数据包：写入当前周期，周期结束时交出一帧
+     */
+    private void onPacket(int type, IFrameListener listener) {
+        boolean belongsToCycle = true;
+        if (lastType >= type) {
+            // 新的周期开始了，上个周期还没交出说明没收到最后一个包（还没学会、丢了或者输出内容变了）
+            if (cyclePending) {
+                commit(listener);
+                if (cycleEndType < 0 || ++missedCycleEnds >= CYCLE_END_RELEARN_CYCLES) {
+                    cycleEndType = lastType;
+                    missedCycleEnds = 0;
+                }
+            }
+        } else if (!cyclePending && lastType >= 0) {
+            // 这个周期已经交出了又来了更大的类型：输出内容多了一项，它才是最后一个包。
+            // 这次的值跟下一帧交出，不为它再交一次
+            cycleEndType = type;
+            missedCycleEnds = 0;
+            belongsToCycle = false;
+        }
+
+        switch (type) {
+            case TYPE_TIME:
+                listener.onRegisterData(REG_TIME, packetValues, 4);
+                break;
+            case TYPE_ACC:
+                System.arraycopy(packetValues, 0, values, 0, 3);
+                packetValues[0] = packetValues[3];
+                listener.onRegisterData(REG_TEMP, packetValues, 1);
+                break;
+            case TYPE_GYRO:
+                System.arraycopy(packetValues, 0, values, 3, 3);
+                break;
+            case TYPE_ANGLE:
+                System.arraycopy(packetValues, 0, values, 6, 3);
+                break;
+            case TYPE_MAG:
+                listener.onRegisterData(REG_MAG, packetValues, 3);
+                break;
+            case TYPE_QUATERNION:
+                listener.onRegisterData(REG_QUATERNION, packetValues, 4);
+                break;
+            default:
+                // 端口、气压、GPS等内容不在实时数据帧里
+                break;
+        }
+        lastType = type;
+        if (!belongsToCycle) {
+            return;
+        }
+        cyclePending = true;
+
+        if (type == cycleEndType) {
+            missedCycleEnds = 0;
+            commit(listener);
+        }
+    }
+
+    private void commit(IFrameListener listener) {
+        cyclePending = false;
+        frameCount++;
+        listener.onDataFrame(values);
+    }
+
+    /**
+     * 清空缓存的数据和学到的周期（重新连接后调用）
+     */
+    public void reset() {
+        buffer.clear();
+        lastType = -1;
+        cyclePending = false;
+        cycleEndType = -1;
+        missedCycleEnds = 0;
+        aligned = false;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    public long getChecksumErrors() {
+        return checksumErrors;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+}
@@ -0,0 +1,199 @@
+package com.wit.witsdk.sensor.modular.resolver.roles;
+
+import com.wit.witsdk.sensor.modular.device.DeviceModel;
+import com.wit.witsdk.sensor.modular.device.entity.WitImuFrame;
+import com.wit.witsdk.sensor.modular.device.utils.FrameClock;
+import com.wit.witsdk.sensor.modular.resolver.entity.SendDataResult;
+import com.wit.witsdk.sensor.modular.resolver.interfaces.IProtocolResolver;
+import com.wit.witsdk.sensor.modular.resolver.interfaces.ISendDataCallback;
+
+/**
+ * 11字节帧协议解析器，用于串口、蓝牙SPP、USB(CH340)、UDP连接的传感器
+ * <p>
+ * 实时数据按输出周期拼成一帧提交（和蓝牙5.0的 55 61 帧相同的9个字段），
+ * 磁场、四元数、温度、时间写入对应的寄存器，由数据处理器换算。
+ * <p>
+ * 55 5F 读寄存器返回不带寄存器地址，按读命令发出的顺序配对：
+ * 每发出一条读命令记下寄存器地址，收到返回时取最早的一条，
+ * 超过 {@link #PENDING_READ_TIMEOUT_MS} 还没有返回的读命令不再等待。
+ */
+public class WitLegacyResolver implements IProtocolResolver, WitLegacyFrameDecoder.IFrameListener {
+
+    /**
+     * 读命令等待返回的最长时间(ms)
+     */
+    public static final long PENDING_READ_TIMEOUT_MS = 1000;
+
+    /**
+     * 同时在途的读命令最多记录多少条
+     */
+    private static final int PENDING_READ_CAPACITY = 16;
+
+    /**
+     * 帧解码器
+     */
+    private final WitLegacyFrameDecoder frameDecoder = new WitLegacyFrameDecoder();
+
+    /**
+     * 已发出、还没有返回的读命令：寄存器地址和发出时间(ns)，按发出顺序的环形队列
+     */
+    private final int[] pendingRegisters = new int[PENDING_READ_CAPACITY];
+
+    private final long[] pendingSentNanos = new long[PENDING_READ_CAPACITY];
+
+    private int pendingHead;
+
+    private int pendingSize;
+
+    private final Object pendingLock = new Object();
+
+    /**
+     * 正在接收数据的设备模型
+     */
+    private DeviceModel receivingModel;
+
+    /**
+     * 正在解析的数据包到达的时间(ns)，同一个包里的帧到达时间相同
+     */
+    private long receiveNanos;
+
+    /**
+     * 发送数据，并且指定等待时长
+     */
+    @Override
+    public void sendData(byte[] sendData, DeviceModel deviceModel, int waitTime, ISendDataCallback callback) {
+
+        if (waitTime < 0) {
+            waitTime = 100;
+        }
+
+        // 读寄存器：等 55 5F 返回帧到达即回调
+        if (sendData != null && sendData.length >= 5 && sendData[2] == 0x27) {
+            int readReg = sendData[3] & 0xff;
+            deviceModel.readRegister(readReg, waitTime, 0)
+                    .whenComplete((register, values, error) -> callback.run(new SendDataResult(error == null)));
+            return;
+        }
+
+        // 写命令：在命令线程上发出并等待设备处理完，再回调
+        boolean success = deviceModel.sendData(sendData);
+        try {
+            Thread.sleep(waitTime);
+        } catch (InterruptedException e) {
+            success = false;
+        }
+        callback.run(new SendDataResult(success));
+    }
+
+    /**
+     * 发送数据
+     */
+    @Override
+    public void sendData(byte[] sendData, DeviceModel deviceModel) {
+        sendData(sendData, deviceModel, -1, (res) -> {
+        });
+    }
+
+    /**
+     * 记下发出的读命令，返回帧按这个顺序配对
+     */
+    @Override
+    public void onDataSent(byte[] data, DeviceModel deviceModel) {
+        if (data == null || data.length < 5 || data[0] != (byte) 0xff || data[1] != (byte) 0xaa || data[2] != 0x27) {
+            return;
+        }
+        synchronized (pendingLock) {
+            if (pendingSize == PENDING_READ_CAPACITY) {
+                // 队列满了，最早的一条不会再有返回
+                pendingHead = (pendingHead + 1) % PENDING_READ_CAPACITY;
+                pendingSize--;
+            }
+            int tail = (pendingHead + pendingSize) % PENDING_READ_CAPACITY;
+            pendingRegisters[tail] = data[3] & 0xff;
+            pendingSentNanos[tail] = System.nanoTime();
+            pendingSize++;
+        }
+    }
+
+    /**
+     * 取出最早的还在等待的读命令的寄存器地址，没有时返回-1
+     */
+    private int pollPendingRegister() {
+        long expired = System.nanoTime() - PENDING_READ_TIMEOUT_MS * 1000000L;
+        synchronized (pendingLock) {
+            while (pendingSize > 0) {
+                int register = pendingRegisters[pendingHead];
+                long sentNanos = pendingSentNanos[pendingHead];
+                pendingHead = (pendingHead + 1) % PENDING_READ_CAPACITY;
+                pendingSize--;
+                if (sentNanos - expired >= 0) {
+                    return register;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 解析传感器主动回传的数据
+     */
+    @Override
+    public void passiveReceiveData(byte[] data, DeviceModel deviceModel) {
+
+        if (data.length < 1) {
+            return;
+        }
+
+        receivingModel = deviceModel;
+        receiveNanos = System.nanoTime();
+        frameDecoder.receive(data, 0, data.length, this);
+    }
+
+    /**
+     * 一个输出周期的实时数据
+     */
+    @Override
+    public void onDataFrame(short[] values) {
+        WitImuFrame frame = receivingModel.getImuFrame();
+        FrameClock clock = receivingModel.getFrameClock();
+        long timestamp = clock.onFrame(receiveNanos);
+        frame.setTiming(receiveNanos, timestamp, clock.getLastGap());
+        frame.setRaw(values);
+        receivingModel.putStreamData(values);
+    }
+
+    /**
+     * 磁场、四元数、温度、时间
+     */
+    @Override
+    public void onRegisterData(int register, short[] values, int count) {
+        receivingModel.putRegisters(register, values, count);
+    }
+
+    /**
+     * 55 5F 读寄存器返回，配对最早的读命令
+     */
+    @Override
+    public void onRegisterReply(short[] values) {
+        int register = pollPendingRegister();
+        if (register >= 0) {
+            receivingModel.onRegisterReply(register, values);
+        }
+    }
+
+    /**
+     * 帧对齐时返回帧损坏：丢掉最早的读命令，后面的返回帧才能对上。
+     * 重新对齐时遇到的 55 5F 不会报告，那次读取由超时处理
+     */
+    @Override
+    public void onRegisterReplyLost() {
+        pollPendingRegister();
+    }
+
+    /**
+     * 帧解码器（统计用）
+     */
+    public WitLegacyFrameDecoder getFrameDecoder() {
+        return frameDecoder;
+    }
+}
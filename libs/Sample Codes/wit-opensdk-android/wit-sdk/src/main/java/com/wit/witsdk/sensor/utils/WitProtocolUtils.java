@@ -1,6 +1,8 @@
 package com.wit.witsdk.sensor.utils;
 
-import java.util.Arrays;
+import com.wit.witsdk.utils.ByteRingBuffer;
+
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -11,6 +13,51 @@ import java.util.List;
  */
 public class WitProtocolUtils {
 
+    /**
+     * 帧头
+     */
+    public static final byte HEADER = 0x55;
+
+    /**
+     * 旧协议帧长度（带校验和），类型 0x50~0x5F
+     */
+    public static final int LEGACY_FRAME_LENGTH = 11;
+
+    /**
+     * 蓝牙5.0帧长度（不带校验和），类型 0x61、0x71
+     */
+    public static final int BLE_FRAME_LENGTH = 20;
+
+    /**
+     * 旧协议读寄存器返回
+     */
+    public static final int TYPE_REGISTER_REPLY = 0x5F;
+
+    /**
+     * 蓝牙5.0实时数据
+     */
+    public static final int TYPE_BLE_DATA = 0x61;
+
+    /**
+     * 蓝牙5.0读寄存器返回
+     */
+    public static final int TYPE_BLE_REGISTER = 0x71;
+
+    /**
+     * 查找帧时匹配所有已知类型
+     */
+    public static final int ANY_TYPE = -1;
+
+    /**
+     * 查找帧时只匹配旧协议的11字节帧（0x50~0x5F）
+     */
+    public static final int ANY_LEGACY_TYPE = -2;
+
+    /**
+     * 查找帧时只匹配蓝牙5.0的20字节帧（0x61、0x71）
+     */
+    public static final int ANY_BLE_TYPE = -3;
+
     /**
      * 获得读取的命令
      *
@@ -31,6 +78,20 @@ public class WitProtocolUtils {
         return new byte[]{(byte) 0xff, (byte) 0xaa, (byte) reg, (byte) value, (byte) (value >> 8)};
     }
 
+    /**
+     * 帧类型对应的帧长度，未知类型返回-1
+     */
+    public static int frameLength(int type) {
+        type &= 0xff;
+        if (type == TYPE_BLE_DATA || type == TYPE_BLE_REGISTER) {
+            return BLE_FRAME_LENGTH;
+        }
+        if (type >= 0x50 && type <= 0x5F) {
+            return LEGACY_FRAME_LENGTH;
+        }
+        return -1;
+    }
+
     /**
      * 查找传感器返回的值
      *
@@ -38,45 +99,188 @@ public class WitProtocolUtils {
      * @date 2022/5/23 14:17
      */
     public static Byte[] findReturnData(Byte[] returnData) {
+        byte[] data = new byte[returnData.length];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = returnData[i];
+        }
+        int offset = findFrame(data, 0, data.length, TYPE_REGISTER_REPLY);
+        if (offset < 0) {
+            return null;
+        }
+        Byte[] frame = new Byte[LEGACY_FRAME_LENGTH];
+        for (int i = 0; i < LEGACY_FRAME_LENGTH; i++) {
+            frame[i] = data[offset + i];
+        }
+        return frame;
+    }
 
-        List<Byte> bytes = Arrays.asList(returnData);
+    /**
+     * 查找 55 5F 读寄存器返回，返回帧头的下标，找不到返回-1
+     */
+    public static int findReturnData(byte[] data, int off, int len) {
+        return findFrame(data, off, len, TYPE_REGISTER_REPLY);
+    }
 
-        for (int i = 0; i < bytes.size() && i + 11 <= bytes.size(); i++) {
-            List<Byte> tempList = bytes.subList(i, i + 11);
-            Byte[] tempArr = tempList.toArray(new Byte[tempList.size()]);
-            if (tempArr.length == 11 && tempArr[0] == 0x55 && tempArr[1] == 0x5f && checkSUM(tempArr)) {
-                return tempArr;
+    /**
+     * 在 data[off, off+len) 中查找一帧完整的数据，返回帧头的下标，找不到返回-1
+     * <p>
+     * type 为 {@link #ANY_TYPE}、{@link #ANY_LEGACY_TYPE}、{@link #ANY_BLE_TYPE} 时匹配对应的一类帧。
+     * 11字节的帧要求校验和正确，校验和按滑动窗口计算：起点每后移一个字节只减去移出的字节、加上移入的字节。
+     * 20字节的帧没有校验和，要通过 {@link #isPlausibleBleFrame} 的检查。
+     * 不分配对象。
+     */
+    public static int findFrame(byte[] data, int off, int len, int type) {
+        int end = off + len;
+        // 窗口 [i, i+10) 的和，i+10 是校验和字节
+        int sum = 0;
+        int windowEnd = Math.min(off + LEGACY_FRAME_LENGTH - 1, end);
+        for (int j = off; j < windowEnd; j++) {
+            sum += data[j] & 0xff;
+        }
+        for (int i = off; i + 1 < end; i++) {
+            if (data[i] == HEADER) {
+                int frameType = data[i + 1] & 0xff;
+                if (matchesType(type, frameType)) {
+                    int length = frameLength(frameType);
+                    if (length == LEGACY_FRAME_LENGTH) {
+                        if (i + LEGACY_FRAME_LENGTH <= end && (sum & 0xff) == (data[i + LEGACY_FRAME_LENGTH - 1] & 0xff)) {
+                            return i;
+                        }
+                    } else if (length > 0 && i + length <= end
+                            && isPlausibleBleFrame(frameType, data[i + 3], i + length < end ? data[i + length] : HEADER)) {
+                        return i;
+                    }
+                }
+            }
+            sum -= data[i] & 0xff;
+            if (i + LEGACY_FRAME_LENGTH - 1 < end) {
+                sum += data[i + LEGACY_FRAME_LENGTH - 1] & 0xff;
             }
         }
-        return null;
+        return -1;
     }
 
-
     /**
-     * 检查sum和
-     *
-     * @author huangyajun
-     * @date 2022/5/23 14:38
+     * 在 buffer 的 position 到 limit 之间查找一帧完整的数据，返回帧头的绝对下标，找不到返回-1
+     * <p>
+     * 和 {@link #findFrame(byte[], int, int, int)} 相同，按绝对下标读取，不改变 position，
+     * 堆内和直接缓冲区都可以用
      */
-    private static boolean checkSUM(Byte[] dataPack) {
-        if (dataPack == null || dataPack.length < 2) {
-            return false;
+    public static int findFrame(ByteBuffer buffer, int type) {
+        int off = buffer.position();
+        int end = buffer.limit();
+        int sum = 0;
+        int windowEnd = Math.min(off + LEGACY_FRAME_LENGTH - 1, end);
+        for (int j = off; j < windowEnd; j++) {
+            sum += buffer.get(j) & 0xff;
         }
+        for (int i = off; i + 1 < end; i++) {
+            if (buffer.get(i) == HEADER) {
+                int frameType = buffer.get(i + 1) & 0xff;
+                if (matchesType(type, frameType)) {
+                    int length = frameLength(frameType);
+                    if (length == LEGACY_FRAME_LENGTH) {
+                        if (i + LEGACY_FRAME_LENGTH <= end && (sum & 0xff) == (buffer.get(i + LEGACY_FRAME_LENGTH - 1) & 0xff)) {
+                            return i;
+                        }
+                    } else if (length > 0 && i + length <= end
+                            && isPlausibleBleFrame(frameType, buffer.get(i + 3), i + length < end ? buffer.get(i + length) : HEADER)) {
+                        return i;
+                    }
+                }
+            }
+            sum -= buffer.get(i) & 0xff;
+            if (i + LEGACY_FRAME_LENGTH - 1 < end) {
+                sum += buffer.get(i + LEGACY_FRAME_LENGTH - 1) & 0xff;
+            }
+        }
+        return -1;
+    }
 
+    /**
+     * 在环形缓冲区里查找一帧完整的数据，返回帧头相对读下标的位置，找不到返回-1
+     * <p>
+     * 和 {@link #findFrame(byte[], int, int, int)} 相同，不移动读下标。帧解码器用它对齐帧头
+     */
+    public static int findFrame(ByteRingBuffer buffer, int type) {
+        int end = buffer.size();
         int sum = 0;
-        for (int i = 0; i < dataPack.length - 1; i++) {
-            sum = sum + dataPack[i];
+        int windowEnd = Math.min(LEGACY_FRAME_LENGTH - 1, end);
+        for (int j = 0; j < windowEnd; j++) {
+            sum += buffer.get(j) & 0xff;
         }
-        //实际上num 这里已经是结果了，如果只是取int 可以直接返回了
-        byte check = (byte) sum;
+        for (int i = 0; i + 1 < end; i++) {
+            if (buffer.get(i) == HEADER) {
+                int frameType = buffer.get(i + 1) & 0xff;
+                if (matchesType(type, frameType)) {
+                    int length = frameLength(frameType);
+                    if (length == LEGACY_FRAME_LENGTH) {
+                        if (i + LEGACY_FRAME_LENGTH <= end && (sum & 0xff) == (buffer.get(i + LEGACY_FRAME_LENGTH - 1) & 0xff)) {
+                            return i;
+                        }
+                    } else if (length > 0 && i + length <= end
+                            && isPlausibleBleFrame(frameType, buffer.get(i + 3), i + length < end ? buffer.get(i + length) : HEADER)) {
+                        return i;
+                    }
+                }
+            }
+            sum -= buffer.get(i) & 0xff;
+            if (i + LEGACY_FRAME_LENGTH - 1 < end) {
+                sum += buffer.get(i + LEGACY_FRAME_LENGTH - 1) & 0xff;
+            }
+        }
+        return -1;
+    }
 
+    /**
+     * 没找到完整的帧时，缓冲区前面可以丢掉的字节数：末尾 maxLength-1 字节里第一个0x55开始的部分可能是半帧，要留着
+     */
+    public static int discardableBytes(ByteRingBuffer buffer, int maxLength) {
+        int size = buffer.size();
+        int keep = buffer.indexOf(HEADER, Math.max(0, size - (maxLength - 1)));
+        return keep < 0 ? size : keep;
+    }
 
-        //如果最后一个字节等于校验和就是通过
-        if (dataPack[dataPack.length - 1] == check) {
-            return true;
+    private static boolean matchesType(int type, int frameType) {
+        switch (type) {
+            case ANY_TYPE:
+                return true;
+            case ANY_LEGACY_TYPE:
+                return frameLength(frameType) == LEGACY_FRAME_LENGTH;
+            case ANY_BLE_TYPE:
+                return frameLength(frameType) == BLE_FRAME_LENGTH;
+            default:
+                return frameType == type;
         }
+    }
 
-        return false;
+    /**
+     * 蓝牙5.0帧没有校验和，只看帧头会把数据里的 55 61 / 55 71 当成帧：
+     * 读寄存器返回的寄存器地址高字节必须是0，帧后面还有数据时必须紧跟着下一个帧头
+     *
+     * @param registerHigh 帧的第4个字节（0x71帧的寄存器地址高字节）
+     * @param next         帧后面的第一个字节，帧正好在数据末尾时传 {@link #HEADER}
+     */
+    private static boolean isPlausibleBleFrame(int frameType, byte registerHigh, byte next) {
+        return next == HEADER && (frameType != TYPE_BLE_REGISTER || registerHigh == 0);
+    }
+
+    /**
+     * 求和校验：data[off, off+len) 的字节和的低8位
+     */
+    public static int checksum(byte[] data, int off, int len) {
+        int sum = 0;
+        for (int i = off; i < off + len; i++) {
+            sum += data[i];
+        }
+        return sum & 0xff;
+    }
+
+    /**
+     * 检查从 off 开始的11字节帧的校验和
+     */
+    public static boolean checkSum(byte[] data, int off) {
+        return checksum(data, off, LEGACY_FRAME_LENGTH - 1) == (data[off + LEGACY_FRAME_LENGTH - 1] & 0xff);
     }
 
     /**
@@ -84,7 +288,9 @@ public class WitProtocolUtils {
      *
      * @author huangyajun
      * @date 2022/8/25 15:50
+     * @deprecated 每个字节都要装箱，改用 {@link #checkSum(byte[], int)} 或 {@link #findFrame}
      */
+    @Deprecated
     public static boolean checkSum(List<Byte> activeByteTemp) {
 
         int sum = 0;
@@ -0,0 +1,143 @@
+package com.wit.witsdk.utils;
+
+/**
+ * 基于原始byte[]的环形缓冲区，用于协议解析时缓存未处理完的字节
+ * <p>
+ * 容量总是2的幂，读写只移动下标，不会为每帧数据分配对象。
+ * 只有当一次写入的数据超过剩余空间时才会扩容。
+ * 非线程安全，由调用方（解析器）保证单线程访问。
+ */
+public class ByteRingBuffer {
+
+    /**
+     * 数据
+     */
+    private byte[] data;
+
+    /**
+     * 下标掩码 (capacity - 1)
+     */
+    private int mask;
+
+    /**
+     * 读下标（只增不减，用mask取模）
+     */
+    private int head;
+
+    /**
+     * 写下标（只增不减，用mask取模）
+     */
+    private int tail;
+
+    /**
+     * 构造方法
+     *
+     * @param capacity 初始容量，会向上取整为2的幂
+     */
+    public ByteRingBuffer(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        data = new byte[cap];
+        mask = cap - 1;
+    }
+
+    /**
+     * 写入数据
+     */
+    public void write(byte[] src, int off, int len) {
+        ensureFree(len);
+        int pos = tail & mask;
+        int first = Math.min(len, data.length - pos);
+        System.arraycopy(src, off, data, pos, first);
+        if (first < len) {
+            System.arraycopy(src, off + first, data, 0, len - first);
+        }
+        tail += len;
+    }
+
+    /**
+     * 可读字节数
+     */
+    public int size() {
+        return tail - head;
+    }
+
+    /**
+     * 容量
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * 读取相对读下标index处的字节，不移动读下标
+     */
+    public byte get(int index) {
+        return data[(head + index) & mask];
+    }
+
+    /**
+     * 读取相对读下标index处的小端int16，不移动读下标
+     */
+    public short getShortLE(int index) {
+        return (short) ((data[(head + index) & mask] & 0xff) | (data[(head + index + 1) & mask] << 8));
+    }
+
+    /**
+     * 从相对读下标from开始查找字节b，找不到返回-1
+     */
+    public int indexOf(byte b, int from) {
+        int size = size();
+        for (int i = from; i < size; i++) {
+            if (data[(head + i) & mask] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把相对读下标的数据复制到dst，不移动读下标
+     */
+    public void copyTo(int index, byte[] dst, int off, int len) {
+        int pos = (head + index) & mask;
+        int first = Math.min(len, data.length - pos);
+        System.arraycopy(data, pos, dst, off, first);
+        if (first < len) {
+            System.arraycopy(data, 0, dst, off + first, len - first);
+        }
+    }
+
+    /**
+     * 丢弃n个字节
+     */
+    public void skip(int n) {
+        head += Math.min(n, size());
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        head = tail;
+    }
+
+    /**
+     * 确保至少有len字节空闲，不够时按2倍扩容
+     */
+    private void ensureFree(int len) {
+        int size = size();
+        if (data.length - size >= len) {
+            return;
+        }
+        int cap = data.length;
+        while (cap - size < len) {
+            cap <<= 1;
+        }
+        byte[] grown = new byte[cap];
+        copyTo(0, grown, 0, size);
+        data = grown;
+        mask = cap - 1;
+        head = 0;
+        tail = size;
+    }
+}
@@ -2,9 +2,11 @@ package com.inuker.bluetooth.library;
 
 import android.content.Context;
 
+import com.inuker.bluetooth.library.connect.BleNotifyDispatcher;
 import com.inuker.bluetooth.library.connect.listener.BleConnectStatusListener;
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
 import com.inuker.bluetooth.library.connect.response.BleMtuResponse;
 import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
 import com.inuker.bluetooth.library.connect.response.BleReadResponse;
@@ -18,7 +20,7 @@ import com.inuker.bluetooth.library.search.response.SearchResponse;
 import com.inuker.bluetooth.library.utils.BluetoothLog;
 import com.inuker.bluetooth.library.utils.BluetoothUtils;
 import com.inuker.bluetooth.library.utils.ByteUtils;
-import com.inuker.bluetooth.library.utils.proxy.ProxyUtils;
+import com.inuker.bluetooth.library.utils.dispatch.UIResponses;
 
 import java.util.UUID;
 
@@ -43,7 +45,7 @@ public class BluetoothClient implements IBluetoothClient {
     @Override
     public void connect(String mac, BleConnectOptions options, BleConnectResponse response) {
         BluetoothLog.v(String.format("connect %s", mac));
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapConnect(response);
         mClient.connect(mac, options, response);
     }
 
@@ -57,7 +59,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void read(String mac, UUID service, UUID character, BleReadResponse response) {
         BluetoothLog.v(String.format("read character for %s: service = %s, character = %s", mac, service, character));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapRead(response);
         mClient.read(mac, service, character, response);
     }
 
@@ -66,21 +68,21 @@ public class BluetoothClient implements IBluetoothClient {
         BluetoothLog.v(String.format("write character for %s: service = %s, character = %s, value = %s",
                 mac, service, character, ByteUtils.byteToString(value)));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapWrite(response);
         mClient.write(mac, service, character, value, response);
     }
 
     @Override
     public void readDescriptor(String mac, UUID service, UUID character, UUID descriptor, BleReadResponse response) {
         BluetoothLog.v(String.format("readDescriptor for %s: service = %s, character = %s", mac, service, character));
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapRead(response);
         mClient.readDescriptor(mac, service, character, descriptor, response);
     }
 
     @Override
     public void writeDescriptor(String mac, UUID service, UUID character, UUID descriptor, byte[] value, BleWriteResponse response) {
         BluetoothLog.v(String.format("writeDescriptor for %s: service = %s, character = %s", mac, service, character));
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapWrite(response);
         mClient.writeDescriptor(mac, service, character, descriptor, value, response);
     }
 
@@ -88,7 +90,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void writeNoRsp(String mac, UUID service, UUID character, byte[] value, BleWriteResponse response) {
         BluetoothLog.v(String.format("writeNoRsp %s: service = %s, character = %s, value = %s", mac, service, character, ByteUtils.byteToString(value)));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapWrite(response);
         mClient.writeNoRsp(mac, service, character, value, response);
     }
 
@@ -96,7 +98,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void notify(String mac, UUID service, UUID character, BleNotifyResponse response) {
         BluetoothLog.v(String.format("notify %s: service = %s, character = %s", mac, service, character));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = BleNotifyDispatcher.wrap(response);
         mClient.notify(mac, service, character, response);
     }
 
@@ -104,7 +106,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void unnotify(String mac, UUID service, UUID character, BleUnnotifyResponse response) {
         BluetoothLog.v(String.format("unnotify %s: service = %s, character = %s", mac, service, character));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapUnnotify(response);
         mClient.unnotify(mac, service, character, response);
     }
 
@@ -112,7 +114,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void indicate(String mac, UUID service, UUID character, BleNotifyResponse response) {
         BluetoothLog.v(String.format("indicate %s: service = %s, character = %s", mac, service, character));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = BleNotifyDispatcher.wrap(response);
         mClient.indicate(mac, service, character, response);
     }
 
@@ -120,7 +122,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void unindicate(String mac, UUID service, UUID character, BleUnnotifyResponse response) {
         BluetoothLog.v(String.format("indicate %s: service = %s, character = %s", mac, service, character));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapUnnotify(response);
         mClient.unindicate(mac, service, character, response);
     }
 
@@ -128,7 +130,7 @@ public class BluetoothClient implements IBluetoothClient {
     public void readRssi(String mac, BleReadRssiResponse response) {
         BluetoothLog.v(String.format("readRssi %s", mac));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapReadRssi(response);
         mClient.readRssi(mac, response);
     }
 
@@ -136,15 +138,34 @@ public class BluetoothClient implements IBluetoothClient {
     public void requestMtu(String mac, int mtu, BleMtuResponse response) {
         BluetoothLog.v(String.format("requestMtu %s", mac));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapMtu(response);
         mClient.requestMtu(mac, mtu, response);
     }
 
+    /**
+     * Active links (streaming, recording) get the active connection priority of the
+     * connect options, idle links the idle one. The response carries the negotiated
+     * link parameters once the link setup after connect is done.
+     */
+    @Override
+    public void setLinkActive(String mac, boolean active, BleLinkResponse response) {
+        BluetoothLog.v(String.format("setLinkActive %s: active = %b", mac, active));
+
+        response = UIResponses.wrapLink(response);
+        mClient.setLinkActive(mac, active, response);
+    }
+
+    @Override
+    public void readLinkParams(String mac, BleLinkResponse response) {
+        response = UIResponses.wrapLink(response);
+        mClient.readLinkParams(mac, response);
+    }
+
     @Override
     public void search(SearchRequest request, SearchResponse response) {
         BluetoothLog.v(String.format("search %s", request));
 
-        response = ProxyUtils.getUIProxy(response);
+        response = UIResponses.wrapSearch(response);
         mClient.search(request, response);
     }
 
@@ -0,0 +1,287 @@
+package com.inuker.bluetooth.library;
+
+import com.inuker.bluetooth.library.connect.listener.BleConnectStatusListener;
+import com.inuker.bluetooth.library.connect.listener.BluetoothStateListener;
+import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
+import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
+import com.inuker.bluetooth.library.connect.response.BleMtuResponse;
+import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
+import com.inuker.bluetooth.library.connect.response.BleReadResponse;
+import com.inuker.bluetooth.library.connect.response.BleReadRssiResponse;
+import com.inuker.bluetooth.library.connect.response.BleUnnotifyResponse;
+import com.inuker.bluetooth.library.connect.response.BleWriteResponse;
+import com.inuker.bluetooth.library.receiver.listener.BluetoothBondListener;
+import com.inuker.bluetooth.library.search.SearchRequest;
+import com.inuker.bluetooth.library.search.response.SearchResponse;
+import com.inuker.bluetooth.library.utils.dispatch.SafeRunnable;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Typed thread hop in front of {@link BluetoothClientImpl}: every call is posted to the
+ * client worker as one Runnable, instead of going through a reflective proxy
+ * (argument array, ProxyBulk and Method.invoke per call).
+ */
+public class BluetoothClientDispatcher implements IBluetoothClient {
+
+    private final IBluetoothClient mClient;
+
+    private final Executor mExecutor;
+
+    public BluetoothClientDispatcher(IBluetoothClient client, Executor executor) {
+        mClient = client;
+        mExecutor = executor;
+    }
+
+    @Override
+    public void connect(final String mac, final BleConnectOptions options, final BleConnectResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.connect(mac, options, response);
+            }
+        });
+    }
+
+    @Override
+    public void disconnect(final String mac) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.disconnect(mac);
+            }
+        });
+    }
+
+    @Override
+    public void registerConnectStatusListener(final String mac, final BleConnectStatusListener listener) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.registerConnectStatusListener(mac, listener);
+            }
+        });
+    }
+
+    @Override
+    public void unregisterConnectStatusListener(final String mac, final BleConnectStatusListener listener) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.unregisterConnectStatusListener(mac, listener);
+            }
+        });
+    }
+
+    @Override
+    public void read(final String mac, final UUID service, final UUID character, final BleReadResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.read(mac, service, character, response);
+            }
+        });
+    }
+
+    @Override
+    public void write(final String mac, final UUID service, final UUID character, final byte[] value, final BleWriteResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.write(mac, service, character, value, response);
+            }
+        });
+    }
+
+    @Override
+    public void readDescriptor(final String mac, final UUID service, final UUID character, final UUID descriptor, final BleReadResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.readDescriptor(mac, service, character, descriptor, response);
+            }
+        });
+    }
+
+    @Override
+    public void writeDescriptor(final String mac, final UUID service, final UUID character, final UUID descriptor, final byte[] value, final BleWriteResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.writeDescriptor(mac, service, character, descriptor, value, response);
+            }
+        });
+    }
+
+    @Override
+    public void writeNoRsp(final String mac, final UUID service, final UUID character, final byte[] value, final BleWriteResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.writeNoRsp(mac, service, character, value, response);
+            }
+        });
+    }
+
+    @Override
+    public void notify(final String mac, final UUID service, final UUID character, final BleNotifyResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.notify(mac, service, character, response);
+            }
+        });
+    }
+
+    @Override
+    public void unnotify(final String mac, final UUID service, final UUID character, final BleUnnotifyResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.unnotify(mac, service, character, response);
+            }
+        });
+    }
+
+    @Override
+    public void indicate(final String mac, final UUID service, final UUID character, final BleNotifyResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.indicate(mac, service, character, response);
+            }
+        });
+    }
+
+    @Override
+    public void unindicate(final String mac, final UUID service, final UUID character, final BleUnnotifyResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.unindicate(mac, service, character, response);
+            }
+        });
+    }
+
+    @Override
+    public void readRssi(final String mac, final BleReadRssiResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.readRssi(mac, response);
+            }
+        });
+    }
+
+    @Override
+    public void requestMtu(final String mac, final int mtu, final BleMtuResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.requestMtu(mac, mtu, response);
+            }
+        });
+    }
+
+    @Override
+    public void setLinkActive(final String mac, final boolean active, final BleLinkResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.setLinkActive(mac, active, response);
+            }
+        });
+    }
+
+    @Override
+    public void readLinkParams(final String mac, final BleLinkResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.readLinkParams(mac, response);
+            }
+        });
+    }
+
+    @Override
+    public void search(final SearchRequest request, final SearchResponse response) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.search(request, response);
+            }
+        });
+    }
+
+    @Override
+    public void stopSearch() {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.stopSearch();
+            }
+        });
+    }
+
+    @Override
+    public void registerBluetoothStateListener(final BluetoothStateListener listener) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.registerBluetoothStateListener(listener);
+            }
+        });
+    }
+
+    @Override
+    public void unregisterBluetoothStateListener(final BluetoothStateListener listener) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.unregisterBluetoothStateListener(listener);
+            }
+        });
+    }
+
+    @Override
+    public void registerBluetoothBondListener(final BluetoothBondListener listener) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.registerBluetoothBondListener(listener);
+            }
+        });
+    }
+
+    @Override
+    public void unregisterBluetoothBondListener(final BluetoothBondListener listener) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.unregisterBluetoothBondListener(listener);
+            }
+        });
+    }
+
+    @Override
+    public void clearRequest(final String mac, final int type) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.clearRequest(mac, type);
+            }
+        });
+    }
+
+    @Override
+    public void refreshCache(final String mac) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mClient.refreshCache(mac);
+            }
+        });
+    }
+}
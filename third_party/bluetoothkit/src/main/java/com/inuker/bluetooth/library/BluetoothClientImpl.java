@@ -12,9 +12,12 @@ import android.os.IBinder;
 import android.os.Looper;
 import android.os.Message;
 
+import com.inuker.bluetooth.library.connect.BleNotifyDispatcher;
 import com.inuker.bluetooth.library.connect.listener.BleConnectStatusListener;
+import com.inuker.bluetooth.library.connect.listener.CharacterChangeListener;
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
 import com.inuker.bluetooth.library.connect.response.BleMtuResponse;
 import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
 import com.inuker.bluetooth.library.connect.response.BleReadResponse;
@@ -23,6 +26,7 @@ import com.inuker.bluetooth.library.connect.response.BleUnnotifyResponse;
 import com.inuker.bluetooth.library.connect.response.BleWriteResponse;
 import com.inuker.bluetooth.library.connect.response.BluetoothResponse;
 import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleLinkParams;
 import com.inuker.bluetooth.library.receiver.BluetoothReceiver;
 import com.inuker.bluetooth.library.receiver.listener.BleCharacterChangeListener;
 import com.inuker.bluetooth.library.receiver.listener.BleConnectStatusChangeListener;
@@ -35,16 +39,16 @@ import com.inuker.bluetooth.library.search.SearchResult;
 import com.inuker.bluetooth.library.search.response.SearchResponse;
 import com.inuker.bluetooth.library.utils.BluetoothLog;
 import com.inuker.bluetooth.library.utils.ListUtils;
-import com.inuker.bluetooth.library.utils.proxy.ProxyBulk;
-import com.inuker.bluetooth.library.utils.proxy.ProxyInterceptor;
-import com.inuker.bluetooth.library.utils.proxy.ProxyUtils;
+import com.inuker.bluetooth.library.utils.dispatch.HandlerExecutor;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 
 import static com.inuker.bluetooth.library.Constants.CODE_CLEAR_REQUEST;
@@ -54,9 +58,11 @@ import static com.inuker.bluetooth.library.Constants.CODE_INDICATE;
 import static com.inuker.bluetooth.library.Constants.CODE_NOTIFY;
 import static com.inuker.bluetooth.library.Constants.CODE_READ;
 import static com.inuker.bluetooth.library.Constants.CODE_READ_DESCRIPTOR;
+import static com.inuker.bluetooth.library.Constants.CODE_READ_LINK_PARAMS;
 import static com.inuker.bluetooth.library.Constants.CODE_READ_RSSI;
 import static com.inuker.bluetooth.library.Constants.CODE_REFRESH_CACHE;
 import static com.inuker.bluetooth.library.Constants.CODE_SEARCH;
+import static com.inuker.bluetooth.library.Constants.CODE_SET_LINK_ACTIVE;
 import static com.inuker.bluetooth.library.Constants.CODE_STOP_SESARCH;
 import static com.inuker.bluetooth.library.Constants.CODE_UNNOTIFY;
 import static com.inuker.bluetooth.library.Constants.CODE_WRITE;
@@ -67,6 +73,8 @@ import static com.inuker.bluetooth.library.Constants.EXTRA_BYTE_VALUE;
 import static com.inuker.bluetooth.library.Constants.EXTRA_CHARACTER_UUID;
 import static com.inuker.bluetooth.library.Constants.EXTRA_DESCRIPTOR_UUID;
 import static com.inuker.bluetooth.library.Constants.EXTRA_GATT_PROFILE;
+import static com.inuker.bluetooth.library.Constants.EXTRA_LINK_ACTIVE;
+import static com.inuker.bluetooth.library.Constants.EXTRA_LINK_PARAMS;
 import static com.inuker.bluetooth.library.Constants.EXTRA_MAC;
 import static com.inuker.bluetooth.library.Constants.EXTRA_MTU;
 import static com.inuker.bluetooth.library.Constants.EXTRA_OPTIONS;
@@ -86,9 +94,8 @@ import static com.inuker.bluetooth.library.Constants.GATT_DEF_BLE_MTU_SIZE;
 /**
  * Created by dingjikerbo on 16/4/8.
  */
-public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor, Callback {
+public class BluetoothClientImpl implements IBluetoothClient, Callback {
 
-    private static final int MSG_INVOKE_PROXY = 1;
     private static final int MSG_REG_RECEIVER = 2;
 
     private static final String TAG = BluetoothClientImpl.class.getSimpleName();
@@ -104,7 +111,11 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
     private HandlerThread mWorkerThread;
     private Handler mWorkerHandler;
 
-    private HashMap<String, HashMap<String, List<BleNotifyResponse>>> mNotifyResponses;
+    /**
+     * mac -> service -> character -> responses, written on the worker thread,
+     * read on the connect worker thread by the direct notify path
+     */
+    private Map<String, Map<UUID, Map<UUID, List<BleNotifyResponse>>>> mNotifyResponses;
     private HashMap<String, List<BleConnectStatusListener>> mConnectStatusListeners;
     private List<BluetoothStateListener> mBluetoothStateListeners;
     private List<BluetoothBondListener> mBluetoothBondListeners;
@@ -118,13 +129,20 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
 
         mWorkerHandler = new Handler(mWorkerThread.getLooper(), this);
 
-        mNotifyResponses = new HashMap<String, HashMap<String, List<BleNotifyResponse>>>();
+        mNotifyResponses = new ConcurrentHashMap<String, Map<UUID, Map<UUID, List<BleNotifyResponse>>>>();
         mConnectStatusListeners = new HashMap<String, List<BleConnectStatusListener>>();
         mBluetoothStateListeners = new LinkedList<BluetoothStateListener>();
         mBluetoothBondListeners = new LinkedList<BluetoothBondListener>();
 
         mWorkerHandler.obtainMessage(MSG_REG_RECEIVER).sendToTarget();
 
+        BleNotifyDispatcher.setListener(new CharacterChangeListener() {
+            @Override
+            public void onCharacterChanged(String mac, UUID service, UUID character, byte[] value) {
+                dispatchCharacterNotify(mac, service, character, value);
+            }
+        });
+
 //        BluetoothHooker.hook();
     }
 
@@ -133,7 +151,7 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
             synchronized (BluetoothClientImpl.class) {
                 if (sInstance == null) {
                     BluetoothClientImpl client = new BluetoothClientImpl(context);
-                    sInstance = ProxyUtils.getProxy(client, IBluetoothClient.class, client);
+                    sInstance = new BluetoothClientDispatcher(client, new HandlerExecutor(client.mWorkerHandler));
                 }
             }
         }
@@ -322,17 +340,22 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
 
     private void saveNotifyListener(String mac, UUID service, UUID character, BleNotifyResponse response) {
         checkRuntime(true);
-        HashMap<String, List<BleNotifyResponse>> listenerMap = mNotifyResponses.get(mac);
-        if (listenerMap == null) {
-            listenerMap = new HashMap<String, List<BleNotifyResponse>>();
-            mNotifyResponses.put(mac, listenerMap);
+        Map<UUID, Map<UUID, List<BleNotifyResponse>>> serviceMap = mNotifyResponses.get(mac);
+        if (serviceMap == null) {
+            serviceMap = new ConcurrentHashMap<UUID, Map<UUID, List<BleNotifyResponse>>>();
+            mNotifyResponses.put(mac, serviceMap);
         }
 
-        String key = generateCharacterKey(service, character);
-        List<BleNotifyResponse> responses = listenerMap.get(key);
+        Map<UUID, List<BleNotifyResponse>> characterMap = serviceMap.get(service);
+        if (characterMap == null) {
+            characterMap = new ConcurrentHashMap<UUID, List<BleNotifyResponse>>();
+            serviceMap.put(service, characterMap);
+        }
+
+        List<BleNotifyResponse> responses = characterMap.get(character);
         if (responses == null) {
-            responses = new ArrayList<BleNotifyResponse>();
-            listenerMap.put(key, responses);
+            responses = new CopyOnWriteArrayList<BleNotifyResponse>();
+            characterMap.put(character, responses);
         }
 
         responses.add(response);
@@ -340,10 +363,12 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
 
     private void removeNotifyListener(String mac, UUID service, UUID character) {
         checkRuntime(true);
-        HashMap<String, List<BleNotifyResponse>> listenerMap = mNotifyResponses.get(mac);
-        if (listenerMap != null) {
-            String key = generateCharacterKey(service, character);
-            listenerMap.remove(key);
+        Map<UUID, Map<UUID, List<BleNotifyResponse>>> serviceMap = mNotifyResponses.get(mac);
+        if (serviceMap != null) {
+            Map<UUID, List<BleNotifyResponse>> characterMap = serviceMap.get(service);
+            if (characterMap != null) {
+                characterMap.remove(character);
+            }
         }
     }
 
@@ -352,10 +377,6 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
         mNotifyResponses.remove(mac);
     }
 
-    private String generateCharacterKey(UUID service, UUID character) {
-        return String.format("%s_%s", service, character);
-    }
-
     @Override
     public void notify(final String mac, final UUID service, final UUID character, final BleNotifyResponse response) {
         Bundle args = new Bundle();
@@ -452,6 +473,41 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
         });
     }
 
+    @Override
+    public void setLinkActive(String mac, boolean active, final BleLinkResponse response) {
+        Bundle args = new Bundle();
+        args.putString(EXTRA_MAC, mac);
+        args.putBoolean(EXTRA_LINK_ACTIVE, active);
+        safeCallBluetoothApi(CODE_SET_LINK_ACTIVE, args, new BluetoothResponse() {
+            @Override
+            protected void onAsyncResponse(int code, Bundle data) {
+                checkRuntime(true);
+                if (response != null) {
+                    data.setClassLoader(getClass().getClassLoader());
+                    BleLinkParams params = data.getParcelable(EXTRA_LINK_PARAMS);
+                    response.onResponse(code, params);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void readLinkParams(String mac, final BleLinkResponse response) {
+        Bundle args = new Bundle();
+        args.putString(EXTRA_MAC, mac);
+        safeCallBluetoothApi(CODE_READ_LINK_PARAMS, args, new BluetoothResponse() {
+            @Override
+            protected void onAsyncResponse(int code, Bundle data) {
+                checkRuntime(true);
+                if (response != null) {
+                    data.setClassLoader(getClass().getClassLoader());
+                    BleLinkParams params = data.getParcelable(EXTRA_LINK_PARAMS);
+                    response.onResponse(code, params);
+                }
+            }
+        });
+    }
+
     @Override
     public void search(SearchRequest request, final SearchResponse response) {
         Bundle args = new Bundle();
@@ -566,13 +622,6 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
         }
     }
 
-    @Override
-    public boolean onIntercept(final Object object, final Method method, final Object[] args) {
-        mWorkerHandler.obtainMessage(MSG_INVOKE_PROXY, new ProxyBulk(object, method, args))
-                .sendToTarget();
-        return true;
-    }
-
     private void notifyBluetoothManagerReady() {
 //        BluetoothLog.v(String.format("notifyBluetoothManagerReady %s", mCountDownLatch));
 
@@ -594,9 +643,6 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
     @Override
     public boolean handleMessage(Message msg) {
         switch (msg.what) {
-            case MSG_INVOKE_PROXY:
-                ProxyBulk.safeInvoke(msg.obj);
-                break;
             case MSG_REG_RECEIVER:
                 registerBluetoothReceiver();
                 break;
@@ -639,16 +685,22 @@ public class BluetoothClientImpl implements IBluetoothClient, ProxyInterceptor,
         });
     }
 
+    /**
+     * Called on the worker thread (broadcast mode) or directly on the connect worker thread
+     */
     private void dispatchCharacterNotify(String mac, UUID service, UUID character, byte[] value) {
-        checkRuntime(true);
-        HashMap<String, List<BleNotifyResponse>> notifyMap = mNotifyResponses.get(mac);
-        if (notifyMap != null) {
-            String key = generateCharacterKey(service, character);
-            List<BleNotifyResponse> responses = notifyMap.get(key);
-            if (responses != null) {
-                for (final BleNotifyResponse response : responses) {
-                    response.onNotify(service, character, value);
-                }
+        Map<UUID, Map<UUID, List<BleNotifyResponse>>> serviceMap = mNotifyResponses.get(mac);
+        if (serviceMap == null) {
+            return;
+        }
+        Map<UUID, List<BleNotifyResponse>> characterMap = serviceMap.get(service);
+        if (characterMap == null) {
+            return;
+        }
+        List<BleNotifyResponse> responses = characterMap.get(character);
+        if (responses != null) {
+            for (final BleNotifyResponse response : responses) {
+                response.onNotify(service, character, value);
             }
         }
     }
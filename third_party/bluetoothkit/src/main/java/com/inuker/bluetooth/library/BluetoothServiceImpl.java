@@ -22,10 +22,12 @@ import static com.inuker.bluetooth.library.Constants.CODE_INDICATE;
 import static com.inuker.bluetooth.library.Constants.CODE_NOTIFY;
 import static com.inuker.bluetooth.library.Constants.CODE_READ;
 import static com.inuker.bluetooth.library.Constants.CODE_READ_DESCRIPTOR;
+import static com.inuker.bluetooth.library.Constants.CODE_READ_LINK_PARAMS;
 import static com.inuker.bluetooth.library.Constants.CODE_READ_RSSI;
 import static com.inuker.bluetooth.library.Constants.CODE_REFRESH_CACHE;
 import static com.inuker.bluetooth.library.Constants.CODE_REQUEST_MTU;
 import static com.inuker.bluetooth.library.Constants.CODE_SEARCH;
+import static com.inuker.bluetooth.library.Constants.CODE_SET_LINK_ACTIVE;
 import static com.inuker.bluetooth.library.Constants.CODE_STOP_SESARCH;
 import static com.inuker.bluetooth.library.Constants.CODE_UNNOTIFY;
 import static com.inuker.bluetooth.library.Constants.CODE_WRITE;
@@ -34,6 +36,7 @@ import static com.inuker.bluetooth.library.Constants.CODE_WRITE_NORSP;
 import static com.inuker.bluetooth.library.Constants.EXTRA_BYTE_VALUE;
 import static com.inuker.bluetooth.library.Constants.EXTRA_CHARACTER_UUID;
 import static com.inuker.bluetooth.library.Constants.EXTRA_DESCRIPTOR_UUID;
+import static com.inuker.bluetooth.library.Constants.EXTRA_LINK_ACTIVE;
 import static com.inuker.bluetooth.library.Constants.EXTRA_MAC;
 import static com.inuker.bluetooth.library.Constants.EXTRA_MTU;
 import static com.inuker.bluetooth.library.Constants.EXTRA_OPTIONS;
@@ -159,6 +162,15 @@ public class BluetoothServiceImpl extends IBluetoothService.Stub implements Hand
                 BleConnectManager.requestMtu(mac, mtu, response);
                 break;
 
+            case CODE_SET_LINK_ACTIVE:
+                boolean active = args.getBoolean(EXTRA_LINK_ACTIVE);
+                BleConnectManager.setLinkActive(mac, active, response);
+                break;
+
+            case CODE_READ_LINK_PARAMS:
+                BleConnectManager.readLinkParams(mac, response);
+                break;
+
             case CODE_CLEAR_REQUEST:
                 int clearType = args.getInt(EXTRA_TYPE, 0);
                 BleConnectManager.clearRequest(mac, clearType);
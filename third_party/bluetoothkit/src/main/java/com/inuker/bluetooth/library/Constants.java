@@ -28,6 +28,8 @@ public class Constants {
     public static final String EXTRA_OPTIONS = "extra.options";
     public static final String EXTRA_TYPE = "extra.type";
     public static final String EXTRA_MTU = "extra.mtu";
+    public static final String EXTRA_LINK_ACTIVE = "extra.link.active";
+    public static final String EXTRA_LINK_PARAMS = "extra.link.params";
 
     /**
      * CallBluetoothApi response code
@@ -79,6 +81,8 @@ public class Constants {
     public static final int CODE_CLEAR_REQUEST = 20;
     public static final int CODE_REFRESH_CACHE = 21;
     public static final int CODE_REQUEST_MTU = 22;
+    public static final int CODE_SET_LINK_ACTIVE = 23;
+    public static final int CODE_READ_LINK_PARAMS = 24;
 
     public static final int STATUS_UNKNOWN = -1;
     public static final int STATUS_DEVICE_CONNECTED = BluetoothProfile.STATE_CONNECTED;
@@ -3,6 +3,7 @@ package com.inuker.bluetooth.library;
 import com.inuker.bluetooth.library.connect.listener.BleConnectStatusListener;
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
 import com.inuker.bluetooth.library.connect.response.BleMtuResponse;
 import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
 import com.inuker.bluetooth.library.connect.response.BleReadResponse;
@@ -51,6 +52,10 @@ public interface IBluetoothClient {
 
     void requestMtu(String mac, int mtu, BleMtuResponse response);
 
+    void setLinkActive(String mac, boolean active, BleLinkResponse response);
+
+    void readLinkParams(String mac, BleLinkResponse response);
+
     void search(SearchRequest request, SearchResponse response);
 
     void stopSearch();
@@ -17,11 +17,9 @@ import com.inuker.bluetooth.library.channel.packet.DataPacket;
 import com.inuker.bluetooth.library.channel.packet.Packet;
 import com.inuker.bluetooth.library.utils.BluetoothLog;
 import com.inuker.bluetooth.library.utils.ByteUtils;
-import com.inuker.bluetooth.library.utils.proxy.ProxyBulk;
-import com.inuker.bluetooth.library.utils.proxy.ProxyInterceptor;
-import com.inuker.bluetooth.library.utils.proxy.ProxyUtils;
+import com.inuker.bluetooth.library.utils.dispatch.SafeRunnable;
+import com.inuker.bluetooth.library.utils.dispatch.UIResponses;
 
-import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.TimeoutException;
@@ -29,7 +27,7 @@ import java.util.concurrent.TimeoutException;
 /**
  * 要保证所有操作都在同一个线程
  */
-public abstract class Channel implements IChannel, ProxyInterceptor {
+public abstract class Channel implements IChannel {
 
 	private static final long TIMEOUT = 5000;
 	private static final int MSG_WRITE_CALLBACK = 1;
@@ -59,15 +57,11 @@ public abstract class Channel implements IChannel, ProxyInterceptor {
 
 	private Handler mWorkerHandler;
 
-	private IChannel mChannel;
-
 	private int mLastSync;
 
 	public Channel() {
 		mPacketRecv = new SparseArray<>();
 
-		mChannel = ProxyUtils.getProxy(mChannelImpl, this);
-
 		HandlerThread thread = new HandlerThread(getClass().getSimpleName());
 		thread.start();
 
@@ -76,13 +70,23 @@ public abstract class Channel implements IChannel, ProxyInterceptor {
 
 	@Override
 	public final void onRead(final byte[] bytes) {
-		mChannel.onRead(bytes);
+		mWorkerHandler.post(new SafeRunnable() {
+			@Override
+			protected void safeRun() {
+				performOnRead(bytes);
+			}
+		});
 	}
 
 	@Override
-	public final void send(byte[] value, ChannelCallback callback) {
+	public final void send(final byte[] value, final ChannelCallback callback) {
 		BluetoothLog.e(String.format(">>> send %s", new String(value)));
-		mChannel.send(value, callback);
+		mWorkerHandler.post(new SafeRunnable() {
+			@Override
+			protected void safeRun() {
+				performSend(value, callback);
+			}
+		});
 	}
 
 	private final IChannelStateHandler mSyncPacketHandler = new IChannelStateHandler() {
@@ -553,29 +557,6 @@ public abstract class Channel implements IChannel, ProxyInterceptor {
 		}
 	}
 
-	private final IChannel mChannelImpl = new IChannel() {
-
-		@Override
-		public void write(byte[] bytes, ChannelCallback callback) {
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public void onRead(byte[] bytes) {
-			performOnRead(bytes);
-		}
-
-		@Override
-		public void onRecv(byte[] bytes) {
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public void send(byte[] value, ChannelCallback callback) {
-			performSend(value, callback);
-		}
-	};
-
 	private void performSend(byte[] value, ChannelCallback callback) {
 		assertRuntime(false);
 
@@ -585,7 +566,7 @@ public abstract class Channel implements IChannel, ProxyInterceptor {
 		}
 
 		mCurrentState = ChannelState.READY;
-		mChannelCallback = ProxyUtils.getUIProxy(callback);
+		mChannelCallback = UIResponses.wrapChannel(callback);
 
 		mTotalBytes = value.length;
 		mFrameCount = getFrameCount(mTotalBytes);
@@ -600,12 +581,6 @@ public abstract class Channel implements IChannel, ProxyInterceptor {
 		sendStartFlowPacket();
 	}
 
-	@Override
-	public boolean onIntercept(Object object, Method method, Object[] args) {
-		mWorkerHandler.obtainMessage(0, new ProxyBulk(object, method, args)).sendToTarget();
-		return true;
-	}
-
 	private final Handler.Callback mCallback = new Handler.Callback() {
 
 		@Override
@@ -615,10 +590,6 @@ public abstract class Channel implements IChannel, ProxyInterceptor {
 					ChannelCallback callback = (ChannelCallback) msg.obj;
 					callback.onCallback(msg.arg1);
 					break;
-
-				default:
-					ProxyBulk.safeInvoke(msg.obj);
-					break;
 			}
 
 			return false;
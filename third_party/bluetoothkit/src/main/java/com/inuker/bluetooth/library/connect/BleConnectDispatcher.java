@@ -10,6 +10,7 @@ import com.inuker.bluetooth.library.RuntimeChecker;
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.request.BleConnectRequest;
 import com.inuker.bluetooth.library.connect.request.BleIndicateRequest;
+import com.inuker.bluetooth.library.connect.request.BleLinkSetupRequest;
 import com.inuker.bluetooth.library.connect.request.BleMtuRequest;
 import com.inuker.bluetooth.library.connect.request.BleNotifyRequest;
 import com.inuker.bluetooth.library.connect.request.BleReadDescriptorRequest;
@@ -22,14 +23,16 @@ import com.inuker.bluetooth.library.connect.request.BleWriteDescriptorRequest;
 import com.inuker.bluetooth.library.connect.request.BleWriteNoRspRequest;
 import com.inuker.bluetooth.library.connect.request.BleWriteRequest;
 import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
+import com.inuker.bluetooth.library.model.BleGattProfile;
 import com.inuker.bluetooth.library.utils.BluetoothLog;
 import com.inuker.bluetooth.library.utils.ListUtils;
 
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
-public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeChecker, Handler.Callback {
+public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeChecker, Handler.Callback, BleWritePipeline.Callback {
 
     private static final int MAX_REQUEST_COUNT = 100;
     private static final int MSG_SCHEDULE_NEXT = 0x12;
@@ -39,22 +42,30 @@ public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeCheck
 
     private IBleConnectWorker mWorker;
 
+    private BleWritePipeline mWritePipeline;
+
+    private BleLinkPolicy mLinkPolicy;
+
     private String mAddress;
 
     private Handler mHandler;
 
-    public static BleConnectDispatcher newInstance(String mac) {
-        return new BleConnectDispatcher(mac);
+    public static BleConnectDispatcher newInstance(String mac, Executor callbackExecutor) {
+        return new BleConnectDispatcher(mac, callbackExecutor);
     }
 
-    private BleConnectDispatcher(String mac) {
+    private BleConnectDispatcher(String mac, Executor callbackExecutor) {
         mAddress = mac;
         mBleWorkList = new LinkedList<BleRequest>();
-        mWorker = new BleConnectWorker(mac, this);
+        mWorker = new BleConnectWorker(mac, this, callbackExecutor);
         mHandler = new Handler(Looper.myLooper(), this);
+        mWritePipeline = new BleWritePipeline(mWorker, this, this);
+        mLinkPolicy = new BleLinkPolicy(mWorker, this);
     }
 
     public void connect(BleConnectOptions options, BleGeneralResponse response) {
+        mWritePipeline.setWindow(options != null ? options.getWriteNoRspWindow() : BleWritePipeline.DEFAULT_WINDOW);
+        mLinkPolicy.setOptions(options);
         addNewRequest(new BleConnectRequest(options, response));
     }
 
@@ -74,6 +85,10 @@ public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeCheck
 
         mBleWorkList.clear();
 
+        mWritePipeline.cancel();
+
+        mLinkPolicy.onDisconnected();
+
         mWorker.closeGatt();
     }
 
@@ -103,6 +118,10 @@ public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeCheck
         }
 
         mBleWorkList.removeAll(requestClear);
+
+        if (clearType == 0 || (clearType & Constants.REQUEST_WRITE) != 0) {
+            mWritePipeline.cancelPending();
+        }
     }
 
     private boolean isRequestMatch(BleRequest request, int requestType) {
@@ -164,6 +183,14 @@ public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeCheck
         addNewRequest(new BleMtuRequest(mtu, response));
     }
 
+    public void setLinkActive(boolean active, BleGeneralResponse response) {
+        mLinkPolicy.setActive(active, response);
+    }
+
+    public void readLinkParams(BleGeneralResponse response) {
+        mLinkPolicy.readLinkParams(response);
+    }
+
     private void addNewRequest(BleRequest request) {
         checkRuntime();
 
@@ -171,11 +198,22 @@ public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeCheck
             request.setRuntimeChecker(this);
             request.setAddress(mAddress);
             request.setWorker(mWorker);
-            mBleWorkList.add(request);
         } else {
             request.onResponse(Code.REQUEST_OVERFLOW);
+            return;
         }
 
+        // nothing queued ahead of it: a write without response joins the pipeline right away
+        if (request instanceof BleWriteNoRspRequest && mBleWorkList.isEmpty() && mCurrentRequest == null) {
+            mWritePipeline.offer((BleWriteNoRspRequest) request);
+            if (!mWritePipeline.isActive()) {
+                mWritePipeline.start();
+            }
+            return;
+        }
+
+        mBleWorkList.add(request);
+
         scheduleNextRequest(10);
     }
 
@@ -189,24 +227,82 @@ public class BleConnectDispatcher implements IBleConnectDispatcher, RuntimeCheck
 
         mCurrentRequest = null;
 
+        if (request instanceof BleConnectRequest) {
+            if (mWorker.getCurrentStatus() == Constants.STATUS_DEVICE_SERVICE_READY) {
+                addConnectedRequests();
+            } else {
+                mLinkPolicy.onDisconnected();
+            }
+        } else if (request instanceof BleLinkSetupRequest) {
+            mLinkPolicy.onSetupCompleted();
+        }
+
         scheduleNextRequest(10);
     }
 
+    /**
+     * Notifications enabled on the previous connection come back first, so samples flow
+     * before the connect result has reached the application; then the link setup
+     */
+    private void addConnectedRequests() {
+        List<BleRequest> requests = new LinkedList<BleRequest>();
+
+        BleGattProfile profile = mWorker.getGattProfile();
+        for (BleGattCache.Subscription subscription : BleGattCache.getSubscriptions(mAddress)) {
+            if (profile == null || !profile.containsCharacter(subscription.getService(), subscription.getCharacter())) {
+                continue;
+            }
+            if (subscription.isIndicate()) {
+                requests.add(new BleIndicateRequest(subscription.getService(), subscription.getCharacter(), null));
+            } else {
+                requests.add(new BleNotifyRequest(subscription.getService(), subscription.getCharacter(), null));
+            }
+        }
+
+        requests.add(mLinkPolicy.newSetupRequest());
+
+        for (BleRequest request : requests) {
+            request.setRuntimeChecker(this);
+            request.setAddress(mAddress);
+            request.setWorker(mWorker);
+        }
+
+        // ahead of the requests the application queued after connect
+        mBleWorkList.addAll(0, requests);
+    }
+
     private void scheduleNextRequest(long delayInMillis) {
         mHandler.sendEmptyMessageDelayed(MSG_SCHEDULE_NEXT, delayInMillis);
     }
 
     private void scheduleNextRequest() {
-        if (mCurrentRequest != null) {
+        if (mCurrentRequest != null || mWritePipeline.isActive()) {
             return;
         }
 
-        if (!ListUtils.isEmpty(mBleWorkList)) {
+        if (ListUtils.isEmpty(mBleWorkList)) {
+            return;
+        }
+
+        if (mBleWorkList.get(0) instanceof BleWriteNoRspRequest) {
+            // hand every write without response at the head of the queue to the pipeline
+            while (!mBleWorkList.isEmpty() && mBleWorkList.get(0) instanceof BleWriteNoRspRequest) {
+                mWritePipeline.offer((BleWriteNoRspRequest) mBleWorkList.remove(0));
+            }
+            mWritePipeline.start();
+        } else {
             mCurrentRequest = mBleWorkList.remove(0);
             mCurrentRequest.process(this);
         }
     }
 
+    @Override
+    public void onPipelineDrained() {
+        checkRuntime();
+
+        scheduleNextRequest(10);
+    }
+
     @Override
     public void checkRuntime() {
         if (Thread.currentThread() != mHandler.getLooper().getThread()) {
@@ -1,43 +1,98 @@
 package com.inuker.bluetooth.library.connect;
 
-import android.os.HandlerThread;
-import android.os.Looper;
-
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
+import com.inuker.bluetooth.library.utils.BluetoothLog;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
  * Created by dingjikerbo on 2016/8/24.
+ * <p>
+ * Devices are spread over worker shards, see {@link #setWorkerShardCount}: by default every
+ * device gets its own worker thread, so one sensor's callbacks, timeouts and request
+ * scheduling never wait behind another's.
  */
 public class BleConnectManager {
 
     private static final String TAG = BleConnectManager.class.getSimpleName();
 
+    /**
+     * One worker thread per device
+     */
+    public static final int WORKER_PER_DEVICE = 0;
+
     private static HashMap<String, IBleConnectMaster> mBleConnectMasters;
 
-    private static HandlerThread mWorkerThread;
+    private static int sWorkerShardCount = WORKER_PER_DEVICE;
+
+    /**
+     * Fixed pool, filled lazily; unused in per-device mode
+     */
+    private static BleWorkerShard[] sShardPool;
+
+    private static final List<BleWorkerShard> sShards = new ArrayList<BleWorkerShard>();
 
     static {
         mBleConnectMasters = new HashMap<String, IBleConnectMaster>();
     }
 
-    private static Looper getWorkerLooper() {
-        if (mWorkerThread == null) {
-            mWorkerThread = new HandlerThread(TAG);
-            mWorkerThread.start();
+    /**
+     * {@link #WORKER_PER_DEVICE}, or the size of a fixed pool of worker threads that devices
+     * are hashed onto by MAC. Only has effect before the first device gets its worker.
+     */
+    public static synchronized void setWorkerShardCount(int count) {
+        if (!sShards.isEmpty()) {
+            BluetoothLog.e(String.format("setWorkerShardCount(%d) ignored, workers already running", count));
+            return;
         }
-        return mWorkerThread.getLooper();
+        sWorkerShardCount = Math.max(WORKER_PER_DEVICE, count);
     }
 
-    private static IBleConnectMaster getBleConnectMaster(String mac) {
+    /**
+     * Worker shards started so far, each with its queue delay statistics
+     */
+    public static synchronized List<BleWorkerShard> getWorkerShards() {
+        return new ArrayList<BleWorkerShard>(sShards);
+    }
+
+    private static BleWorkerShard newWorkerShard(String name) {
+        BleWorkerShard shard = new BleWorkerShard(name);
+        sShards.add(shard);
+        return shard;
+    }
+
+    private static BleWorkerShard getWorkerShard(String mac) {
+        BleWorkerShard shard;
+
+        if (sWorkerShardCount == WORKER_PER_DEVICE) {
+            shard = newWorkerShard(TAG + "-" + mac);
+        } else {
+            if (sShardPool == null) {
+                sShardPool = new BleWorkerShard[sWorkerShardCount];
+            }
+            // the same MAC lands on the same shard whatever its letter case
+            int index = (mac.toUpperCase(Locale.US).hashCode() & Integer.MAX_VALUE) % sShardPool.length;
+            if (sShardPool[index] == null) {
+                sShardPool[index] = newWorkerShard(TAG + "-" + index);
+            }
+            shard = sShardPool[index];
+        }
+
+        shard.addDevice();
+        return shard;
+    }
+
+    private static synchronized IBleConnectMaster getBleConnectMaster(String mac) {
         IBleConnectMaster master;
 
         master = mBleConnectMasters.get(mac);
         if (master == null) {
-            master = BleConnectMaster.newInstance(mac, getWorkerLooper());
+            master = BleConnectMaster.newInstance(mac, getWorkerShard(mac));
             mBleConnectMasters.put(mac, master);
         }
 
@@ -92,6 +147,14 @@ public class BleConnectManager {
         getBleConnectMaster(mac).requestMtu(mtu, response);
     }
 
+    public static void setLinkActive(String mac, boolean active, BleGeneralResponse response) {
+        getBleConnectMaster(mac).setLinkActive(active, response);
+    }
+
+    public static void readLinkParams(String mac, BleGeneralResponse response) {
+        getBleConnectMaster(mac).readLinkParams(response);
+    }
+
     public static void clearRequest(String mac, int type) {
         getBleConnectMaster(mac).clearRequest(type);
     }
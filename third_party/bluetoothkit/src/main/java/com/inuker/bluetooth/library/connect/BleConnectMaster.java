@@ -1,126 +1,197 @@
 package com.inuker.bluetooth.library.connect;
 
-import android.os.Handler;
-import android.os.Handler.Callback;
-import android.os.Looper;
-import android.os.Message;
-
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
-import com.inuker.bluetooth.library.utils.proxy.ProxyBulk;
-import com.inuker.bluetooth.library.utils.proxy.ProxyInterceptor;
-import com.inuker.bluetooth.library.utils.proxy.ProxyUtils;
+import com.inuker.bluetooth.library.utils.dispatch.SafeRunnable;
 
-import java.lang.reflect.Method;
 import java.util.UUID;
 
 /**
  * Created by dingjikerbo on 16/8/24.
+ * <p>
+ * Every call is posted to the worker shard of the device as a typed Runnable.
  */
-public class BleConnectMaster implements IBleConnectMaster, ProxyInterceptor, Callback {
+public class BleConnectMaster implements IBleConnectMaster {
 
-    private Handler mHandler;
+    private BleWorkerShard mShard;
 
     private String mAddress;
     private BleConnectDispatcher mBleConnectDispatcher;
 
-    private BleConnectMaster(String mac, Looper looper) {
+    private BleConnectMaster(String mac, BleWorkerShard shard) {
         mAddress = mac;
-        mHandler = new Handler(looper, this);
+        mShard = shard;
     }
 
     // Runs in worker thread
     private BleConnectDispatcher getConnectDispatcher() {
         if (mBleConnectDispatcher == null) {
-            mBleConnectDispatcher = BleConnectDispatcher.newInstance(mAddress);
+            mBleConnectDispatcher = BleConnectDispatcher.newInstance(mAddress, mShard);
         }
         return mBleConnectDispatcher;
     }
 
-    static IBleConnectMaster newInstance(String mac, Looper looper) {
-        BleConnectMaster master = new BleConnectMaster(mac, looper);
-        return ProxyUtils.getProxy(master, IBleConnectMaster.class, master);
+    static IBleConnectMaster newInstance(String mac, BleWorkerShard shard) {
+        return new BleConnectMaster(mac, shard);
     }
 
     @Override
-    public void connect(BleConnectOptions options, BleGeneralResponse response) {
-        getConnectDispatcher().connect(options, response);
+    public void connect(final BleConnectOptions options, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().connect(options, response);
+            }
+        });
     }
 
     @Override
     public void disconnect() {
-        getConnectDispatcher().disconnect();
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().disconnect();
+            }
+        });
     }
 
     @Override
-    public void read(UUID service, UUID character, BleGeneralResponse response) {
-        getConnectDispatcher().read(service, character, response);
+    public void read(final UUID service, final UUID character, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().read(service, character, response);
+            }
+        });
     }
 
     @Override
-    public void write(UUID service, UUID character, byte[] bytes, BleGeneralResponse response) {
-        getConnectDispatcher().write(service, character, bytes, response);
+    public void write(final UUID service, final UUID character, final byte[] bytes, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().write(service, character, bytes, response);
+            }
+        });
     }
 
     @Override
-    public void writeNoRsp(UUID service, UUID character, byte[] bytes, BleGeneralResponse response) {
-        getConnectDispatcher().writeNoRsp(service, character, bytes, response);
+    public void writeNoRsp(final UUID service, final UUID character, final byte[] bytes, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().writeNoRsp(service, character, bytes, response);
+            }
+        });
     }
 
     @Override
-    public void readDescriptor(UUID service, UUID character, UUID descriptor, BleGeneralResponse response) {
-        getConnectDispatcher().readDescriptor(service, character, descriptor, response);
+    public void readDescriptor(final UUID service, final UUID character, final UUID descriptor, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().readDescriptor(service, character, descriptor, response);
+            }
+        });
     }
 
     @Override
-    public void writeDescriptor(UUID service, UUID character, UUID descriptor, byte[] value, BleGeneralResponse response) {
-        getConnectDispatcher().writeDescriptor(service, character, descriptor, value, response);
+    public void writeDescriptor(final UUID service, final UUID character, final UUID descriptor, final byte[] value, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().writeDescriptor(service, character, descriptor, value, response);
+            }
+        });
     }
 
     @Override
-    public void notify(UUID service, UUID character, BleGeneralResponse response) {
-        getConnectDispatcher().notify(service, character, response);
+    public void notify(final UUID service, final UUID character, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().notify(service, character, response);
+            }
+        });
     }
 
     @Override
-    public void unnotify(UUID service, UUID character, BleGeneralResponse response) {
-        getConnectDispatcher().unnotify(service, character, response);
+    public void unnotify(final UUID service, final UUID character, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().unnotify(service, character, response);
+            }
+        });
     }
 
     @Override
-    public void readRssi(BleGeneralResponse response) {
-        getConnectDispatcher().readRemoteRssi(response);
+    public void readRssi(final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().readRemoteRssi(response);
+            }
+        });
     }
 
     @Override
-    public void indicate(UUID service, UUID character, BleGeneralResponse response) {
-        getConnectDispatcher().indicate(service, character, response);
+    public void indicate(final UUID service, final UUID character, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().indicate(service, character, response);
+            }
+        });
     }
 
     @Override
-    public void requestMtu(int mtu, BleGeneralResponse response) {
-        getConnectDispatcher().requestMtu(mtu, response);
+    public void requestMtu(final int mtu, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().requestMtu(mtu, response);
+            }
+        });
     }
 
     @Override
-    public void clearRequest(int clearType) {
-        getConnectDispatcher().clearRequest(clearType);
+    public void setLinkActive(final boolean active, final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().setLinkActive(active, response);
+            }
+        });
     }
 
     @Override
-    public void refreshCache() {
-        getConnectDispatcher().refreshCache();
+    public void readLinkParams(final BleGeneralResponse response) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().readLinkParams(response);
+            }
+        });
     }
 
     @Override
-    public boolean onIntercept(Object object, Method method, Object[] args) {
-        mHandler.obtainMessage(0, new ProxyBulk(object, method, args)).sendToTarget();
-        return true;
+    public void clearRequest(final int clearType) {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().clearRequest(clearType);
+            }
+        });
     }
 
     @Override
-    public boolean handleMessage(Message msg) {
-        ProxyBulk.safeInvoke(msg.obj);
-        return true;
+    public void refreshCache() {
+        mShard.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                getConnectDispatcher().refreshCache();
+            }
+        });
     }
 }
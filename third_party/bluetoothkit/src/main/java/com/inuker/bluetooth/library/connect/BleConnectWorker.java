@@ -12,9 +12,6 @@ import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.Message;
 
 import com.inuker.bluetooth.library.Constants;
 import com.inuker.bluetooth.library.RuntimeChecker;
@@ -29,35 +26,33 @@ import com.inuker.bluetooth.library.connect.listener.WriteCharacterListener;
 import com.inuker.bluetooth.library.connect.listener.WriteDescriptorListener;
 import com.inuker.bluetooth.library.connect.response.BluetoothGattResponse;
 import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleLinkParams;
 import com.inuker.bluetooth.library.utils.BluetoothLog;
 import com.inuker.bluetooth.library.utils.BluetoothUtils;
 import com.inuker.bluetooth.library.utils.ByteUtils;
 import com.inuker.bluetooth.library.utils.Version;
-import com.inuker.bluetooth.library.utils.proxy.ProxyBulk;
-import com.inuker.bluetooth.library.utils.proxy.ProxyInterceptor;
-import com.inuker.bluetooth.library.utils.proxy.ProxyUtils;
 
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 
 /**
  * Created by dingjikerbo on 16/4/8.
  */
-public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IBluetoothGattResponse, ProxyInterceptor, RuntimeChecker {
+public class BleConnectWorker implements IBleConnectWorker, IBluetoothGattResponse, RuntimeChecker {
 
-    private static final int MSG_GATT_RESPONSE = 0x120;
+    private static final int CLIENT_CONFIG_NOTIFICATION = 0x01;
+    private static final int CLIENT_CONFIG_INDICATION = 0x02;
+    private static final int CLIENT_CONFIG_MASK = CLIENT_CONFIG_NOTIFICATION | CLIENT_CONFIG_INDICATION;
 
     private BluetoothGatt mBluetoothGatt;
     private BluetoothDevice mBluetoothDevice;
 
     private GattResponseListener mGattResponseListener;
 
-    private Handler mWorkerHandler;
-
     private volatile int mConnectStatus;
 
     private BleGattProfile mBleGattProfile;
@@ -67,7 +62,20 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
 
     private RuntimeChecker mRuntimeChecker;
 
-    public BleConnectWorker(String mac, RuntimeChecker runtimeChecker) {
+    private int mMtu = Constants.GATT_DEF_BLE_MTU_SIZE;
+    private int mConnectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    private int mTxPhy = BluetoothDevice.PHY_LE_1M;
+    private int mRxPhy = BluetoothDevice.PHY_LE_1M;
+
+    /**
+     * Client characteristic configuration confirmed on this connection, by characteristic
+     */
+    private final Map<BluetoothGattCharacteristic, Integer> mClientConfigs = new HashMap<BluetoothGattCharacteristic, Integer>();
+
+    /**
+     * @param callbackExecutor runs GATT callbacks on the worker looper of this device
+     */
+    public BleConnectWorker(String mac, RuntimeChecker runtimeChecker, Executor callbackExecutor) {
         BluetoothAdapter adapter = BluetoothUtils.getBluetoothAdapter();
         if (adapter != null) {
             mBluetoothDevice = adapter.getRemoteDevice(mac);
@@ -76,9 +84,8 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
         }
 
         mRuntimeChecker = runtimeChecker;
-        mWorkerHandler = new Handler(Looper.myLooper(), this);
         mDeviceProfile = new HashMap<UUID, Map<UUID, BluetoothGattCharacteristic>>();
-        mBluetoothGattResponse = ProxyUtils.getProxy(this, IBluetoothGattResponse.class, this);
+        mBluetoothGattResponse = new GattResponseDispatcher(this, callbackExecutor);
     }
 
     private void refreshServiceProfile() {
@@ -88,13 +95,17 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
 
         Map<UUID, Map<UUID, BluetoothGattCharacteristic>> newProfiles = new HashMap<UUID, Map<UUID, BluetoothGattCharacteristic>>();
 
+        boolean verbose = BluetoothLog.isVerbose();
+
         for (BluetoothGattService service : services) {
             UUID serviceUUID = service.getUuid();
 
             Map<UUID, BluetoothGattCharacteristic> map = newProfiles.get(serviceUUID);
 
             if (map == null) {
-                BluetoothLog.v("Service: " + serviceUUID);
+                if (verbose) {
+                    BluetoothLog.v("Service: " + serviceUUID);
+                }
                 map = new HashMap<UUID, BluetoothGattCharacteristic>();
                 newProfiles.put(service.getUuid(), map);
             }
@@ -103,12 +114,15 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
                     .getCharacteristics();
 
             for (BluetoothGattCharacteristic character : characters) {
-                UUID characterUUID = character.getUuid();
-                BluetoothLog.v("character: uuid = " + characterUUID);
+                if (verbose) {
+                    BluetoothLog.v("character: uuid = " + character.getUuid());
+                }
                 map.put(character.getUuid(), character);
             }
         }
 
+        // characteristics of a new discovery are new objects, nothing is enabled on them yet
+        mClientConfigs.clear();
         mDeviceProfile.clear();
         mDeviceProfile.putAll(newProfiles);
         mBleGattProfile = new BleGattProfile(mDeviceProfile);
@@ -136,6 +150,13 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
         return characteristic;
     }
 
+    private void resetLinkParams() {
+        mMtu = Constants.GATT_DEF_BLE_MTU_SIZE;
+        mConnectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        mTxPhy = BluetoothDevice.PHY_LE_1M;
+        mRxPhy = BluetoothDevice.PHY_LE_1M;
+    }
+
     private void setConnectStatus(int status) {
         BluetoothLog.v(String.format("setConnectStatus status = %s", Constants.getStatusText(status)));
         mConnectStatus = status;
@@ -150,24 +171,12 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
 
         if (status == BluetoothGatt.GATT_SUCCESS && newState == BluetoothProfile.STATE_CONNECTED) {
             setConnectStatus(Constants.STATUS_DEVICE_CONNECTED);
+            resetLinkParams();
+            mClientConfigs.clear();
 
-            // ⚡ REQUEST HIGH PRIORITY CONNECTION FOR BETTER THROUGHPUT
-            // This reduces the BLE connection interval from ~30-100ms to ~7.5-15ms
-            // Enabling higher sample rates (potentially 40-50 Hz instead of 10 Hz)
-            if (mBluetoothGatt != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                try {
-                    boolean prioritySet = mBluetoothGatt.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
-                    BluetoothLog.v(String.format("⚡ requestConnectionPriority(HIGH) = %s", prioritySet));
-                    android.util.Log.i("BleConnectWorker", "⚡ requestConnectionPriority(HIGH) = " + prioritySet + " (SDK: " + Build.VERSION.SDK_INT + ")");
-                    if (!prioritySet) {
-                        android.util.Log.w("BleConnectWorker", "⚠️ requestConnectionPriority returned false - connection priority may not be set");
-                    }
-                } catch (Exception e) {
-                    android.util.Log.e("BleConnectWorker", "❌ Failed to request connection priority", e);
-                }
-            } else {
-                android.util.Log.w("BleConnectWorker", "⚠️ Cannot use requestConnectionPriority: SDK=" + Build.VERSION.SDK_INT + ", gatt=" + (mBluetoothGatt != null));
-            }
+            // service discovery and the MTU exchange run on the shortest interval,
+            // the link policy of the dispatcher settles the priority once they are done
+            requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
 
             if (mGattResponseListener != null) {
                 mGattResponseListener.onConnectStatusChanged(true);
@@ -233,13 +242,21 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
     public void onCharacteristicChanged(BluetoothGattCharacteristic characteristic, byte[] value) {
         checkRuntime();
 
-        BluetoothLog.v(String.format("onCharacteristicChanged for %s: value = %s, service = 0x%s, character = 0x%s",
-                mBluetoothDevice.getAddress(),
-                ByteUtils.byteToString(value),
-                characteristic.getService().getUuid(),
-                characteristic.getUuid()));
+        UUID service = characteristic.getService().getUuid();
+        UUID character = characteristic.getUuid();
+
+        // called for every sample, only format the log when it is enabled
+        if (BluetoothLog.isVerbose()) {
+            BluetoothLog.v(String.format("onCharacteristicChanged for %s: value = %s, service = 0x%s, character = 0x%s",
+                    mBluetoothDevice.getAddress(),
+                    ByteUtils.byteToString(value),
+                    service,
+                    character));
+        }
 
-        broadcastCharacterChanged(characteristic.getService().getUuid(), characteristic.getUuid(), value);
+        if (!BleNotifyDispatcher.dispatch(mBluetoothDevice.getAddress(), service, character, value)) {
+            broadcastCharacterChanged(service, character, value);
+        }
     }
 
     @Override
@@ -269,11 +286,31 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
                 descriptor.getCharacteristic().getUuid(),
                 descriptor.getUuid()));
 
+        if (status == BluetoothGatt.GATT_SUCCESS && Constants.CLIENT_CHARACTERISTIC_CONFIG.equals(descriptor.getUuid())) {
+            onClientConfigWritten(descriptor.getCharacteristic(), descriptor.getValue());
+        }
+
         if (mGattResponseListener != null && mGattResponseListener instanceof WriteDescriptorListener) {
             ((WriteDescriptorListener) mGattResponseListener).onDescriptorWrite(descriptor, status);
         }
     }
 
+    /**
+     * Whatever request wrote the descriptor, remember it for this connection and the next one
+     */
+    private void onClientConfigWritten(BluetoothGattCharacteristic characteristic, byte[] value) {
+        int config = value != null && value.length > 0 ? value[0] & CLIENT_CONFIG_MASK : 0;
+
+        if (config != 0) {
+            mClientConfigs.put(characteristic, config);
+        } else {
+            mClientConfigs.remove(characteristic);
+        }
+
+        BleGattCache.setSubscription(getAddress(), characteristic.getService().getUuid(), characteristic.getUuid(),
+                config != 0, config == CLIENT_CONFIG_INDICATION);
+    }
+
     @Override
     public void onReadRemoteRssi(int rssi, int status) {
         checkRuntime();
@@ -293,11 +330,28 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
         BluetoothLog.v(String.format("onMtuChanged for %s, mtu = %d, status = %d",
                 mBluetoothDevice.getAddress(), mtu, status));
 
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            mMtu = mtu;
+        }
+
         if (mGattResponseListener != null && mGattResponseListener instanceof RequestMtuListener) {
             ((RequestMtuListener) mGattResponseListener).onMtuChanged(mtu, status);
         }
     }
 
+    @Override
+    public void onPhyUpdate(int txPhy, int rxPhy, int status) {
+        checkRuntime();
+
+        BluetoothLog.v(String.format("onPhyUpdate for %s, txPhy = %d, rxPhy = %d, status = %d",
+                mBluetoothDevice.getAddress(), txPhy, rxPhy, status));
+
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            mTxPhy = txPhy;
+            mRxPhy = rxPhy;
+        }
+    }
+
     private void broadcastConnectStatus(int status) {
         Intent intent = new Intent(Constants.ACTION_CONNECT_STATUS_CHANGED);
         intent.putExtra(Constants.EXTRA_MAC, mBluetoothDevice.getAddress());
@@ -365,6 +419,8 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
         }
 
         setConnectStatus(Constants.STATUS_DEVICE_DISCONNECTED);
+        resetLinkParams();
+        mClientConfigs.clear();
         broadcastConnectStatus(Constants.STATUS_DISCONNECTED);
     }
 
@@ -736,11 +792,68 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
         return true;
     }
 
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        checkRuntime();
+
+        BluetoothLog.v(String.format("requestConnectionPriority for %s, priority = %d", getAddress(), priority));
+
+        if (mBluetoothGatt == null) {
+            BluetoothLog.e(String.format("ble gatt null"));
+            return false;
+        }
+
+        if (!mBluetoothGatt.requestConnectionPriority(priority)) {
+            BluetoothLog.e(String.format("requestConnectionPriority failed"));
+            return false;
+        }
+
+        mConnectionPriority = priority;
+        return true;
+    }
+
+    @TargetApi(Build.VERSION_CODES.O)
+    @Override
+    public boolean setPreferredPhy(int phy) {
+        checkRuntime();
+
+        BluetoothLog.v(String.format("setPreferredPhy for %s, phy = %d", getAddress(), phy));
+
+        if (!Version.isOreo()) {
+            BluetoothLog.e(String.format("setPreferredPhy needs Android 8.0"));
+            return false;
+        }
+
+        if (mBluetoothGatt == null) {
+            BluetoothLog.e(String.format("ble gatt null"));
+            return false;
+        }
+
+        // the result comes in onPhyUpdate, and only if the PHY actually changes
+        mBluetoothGatt.setPreferredPhy(phy, phy, BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+        return true;
+    }
+
+    @Override
+    public boolean isNotifyEnabled(UUID service, UUID character, boolean indicate) {
+        checkRuntime();
+
+        BluetoothGattCharacteristic characteristic = getCharacter(service, character);
+        Integer config = characteristic != null ? mClientConfigs.get(characteristic) : null;
+        return config != null && config == (indicate ? CLIENT_CONFIG_INDICATION : CLIENT_CONFIG_NOTIFICATION);
+    }
+
     @Override
     public BleGattProfile getGattProfile() {
         return mBleGattProfile;
     }
 
+    @Override
+    public BleLinkParams getLinkParams() {
+        return new BleLinkParams(mMtu, mConnectionPriority, mTxPhy, mRxPhy);
+    }
+
     private boolean isCharacteristicReadable(BluetoothGattCharacteristic characteristic) {
         return characteristic != null && (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_READ) != 0;
     }
@@ -762,23 +875,6 @@ public class BleConnectWorker implements Handler.Callback, IBleConnectWorker, IB
         return characteristic != null && (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
     }
 
-    @Override
-    public boolean handleMessage(Message msg) {
-        switch (msg.what) {
-            case MSG_GATT_RESPONSE:
-                ProxyBulk.safeInvoke(msg.obj);
-                break;
-        }
-        return true;
-    }
-
-    @Override
-    public boolean onIntercept(Object object, Method method, Object[] args) {
-        mWorkerHandler.obtainMessage(MSG_GATT_RESPONSE,
-                new ProxyBulk(object, method, args)).sendToTarget();
-        return true;
-    }
-
     @Override
     public void checkRuntime() {
         mRuntimeChecker.checkRuntime();
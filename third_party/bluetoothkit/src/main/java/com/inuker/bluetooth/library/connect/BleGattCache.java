@@ -0,0 +1,288 @@
+package com.inuker.bluetooth.library.connect;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.inuker.bluetooth.library.model.BleGattCharacter;
+import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleGattService;
+import com.inuker.bluetooth.library.utils.BluetoothLog;
+import com.inuker.bluetooth.library.utils.BluetoothUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-device cache of the discovered GATT profile and of the notifications / indications
+ * the application had enabled, kept in memory and persisted in shared preferences.
+ * <p>
+ * Android hands out characteristics only after service discovery, so a reconnect still
+ * discovers services, but for a known device it does so right after the link is up. The
+ * result is validated against the cache: only when characteristics from the cache are
+ * missing is the stack's own GATT cache refreshed and services discovered again. The
+ * cached subscriptions are then enabled again as part of the connect sequence, and the
+ * application's notify / indicate for them completes without another descriptor write.
+ */
+public class BleGattCache {
+
+    private static final String PREFS_NAME = "bluetoothkit_gatt_cache";
+
+    private static final String TAG_SERVICE = "S";
+    private static final String TAG_CHARACTER = "C";
+    private static final String TAG_NOTIFY = "N";
+    private static final String TAG_INDICATE = "I";
+
+    private static final Map<String, Entry> sEntries = new HashMap<String, Entry>();
+
+    private static boolean sEnabled = true;
+
+    private BleGattCache() {
+    }
+
+    /**
+     * On by default; when off, every connect discovers services as before and nothing is restored
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static synchronized boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Forgets the profile and the subscriptions of a device, e.g. after a firmware update
+     */
+    public static synchronized void clear(String mac) {
+        String key = key(mac);
+        sEntries.remove(key);
+        SharedPreferences prefs = getPreferences();
+        if (prefs != null) {
+            prefs.edit().remove(key).apply();
+        }
+    }
+
+    public static synchronized void clearAll() {
+        sEntries.clear();
+        SharedPreferences prefs = getPreferences();
+        if (prefs != null) {
+            prefs.edit().clear().apply();
+        }
+    }
+
+    /**
+     * @return true if services of this device were discovered before
+     */
+    public static synchronized boolean isKnown(String mac) {
+        return sEnabled && !getEntry(mac).characters.isEmpty();
+    }
+
+    /**
+     * @return true if the discovered profile lacks characteristics the cache knows,
+     * i.e. the stack answered discovery from an outdated cache of its own
+     */
+    public static synchronized boolean isStale(String mac, BleGattProfile profile) {
+        if (!sEnabled || profile == null) {
+            return false;
+        }
+
+        for (Map.Entry<UUID, List<UUID>> service : getEntry(mac).characters.entrySet()) {
+            for (UUID character : service.getValue()) {
+                if (!profile.containsCharacter(service.getKey(), character)) {
+                    BluetoothLog.w(String.format("gatt cache of %s: character %s of service %s not discovered",
+                            mac, character, service.getKey()));
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the discovered profile; subscriptions to characteristics it lacks are dropped
+     */
+    public static synchronized void putProfile(String mac, BleGattProfile profile) {
+        if (!sEnabled || profile == null) {
+            return;
+        }
+
+        Entry entry = getEntry(mac);
+
+        Map<UUID, List<UUID>> characters = new LinkedHashMap<UUID, List<UUID>>();
+        for (BleGattService service : profile.getServices()) {
+            List<UUID> list = new ArrayList<UUID>();
+            for (BleGattCharacter character : service.getCharacters()) {
+                list.add(character.getUuid());
+            }
+            characters.put(service.getUUID(), list);
+        }
+
+        List<Subscription> subscriptions = new ArrayList<Subscription>();
+        for (Subscription subscription : entry.subscriptions) {
+            if (profile.containsCharacter(subscription.mService, subscription.mCharacter)) {
+                subscriptions.add(subscription);
+            }
+        }
+
+        if (!characters.equals(entry.characters) || subscriptions.size() != entry.subscriptions.size()) {
+            entry.characters.clear();
+            entry.characters.putAll(characters);
+            entry.subscriptions.clear();
+            entry.subscriptions.addAll(subscriptions);
+            save(mac, entry);
+        }
+    }
+
+    /**
+     * Records a written client characteristic configuration, a disabled one removes the subscription
+     */
+    static synchronized void setSubscription(String mac, UUID service, UUID character, boolean enabled, boolean indicate) {
+        if (!sEnabled) {
+            return;
+        }
+
+        Entry entry = getEntry(mac);
+
+        Subscription current = null;
+        for (Subscription subscription : entry.subscriptions) {
+            if (subscription.mService.equals(service) && subscription.mCharacter.equals(character)) {
+                current = subscription;
+                break;
+            }
+        }
+
+        if (!enabled) {
+            if (current != null) {
+                entry.subscriptions.remove(current);
+                save(mac, entry);
+            }
+        } else if (current == null || current.mIndicate != indicate) {
+            entry.subscriptions.remove(current);
+            entry.subscriptions.add(new Subscription(service, character, indicate));
+            save(mac, entry);
+        }
+    }
+
+    static synchronized List<Subscription> getSubscriptions(String mac) {
+        if (!sEnabled) {
+            return new ArrayList<Subscription>();
+        }
+        return new ArrayList<Subscription>(getEntry(mac).subscriptions);
+    }
+
+    private static String key(String mac) {
+        return mac != null ? mac.toUpperCase(Locale.US) : "";
+    }
+
+    private static SharedPreferences getPreferences() {
+        Context context = BluetoothUtils.getContext();
+        return context != null ? context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE) : null;
+    }
+
+    private static Entry getEntry(String mac) {
+        String key = key(mac);
+        Entry entry = sEntries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            SharedPreferences prefs = getPreferences();
+            if (prefs != null) {
+                parse(prefs.getString(key, null), entry);
+            }
+            sEntries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static void save(String mac, Entry entry) {
+        SharedPreferences prefs = getPreferences();
+        if (prefs != null) {
+            prefs.edit().putString(key(mac), format(entry)).apply();
+        }
+    }
+
+    /**
+     * One line per service, characteristic and subscription:
+     * "S service", "C character", "N service character" or "I service character"
+     */
+    private static String format(Entry entry) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<UUID, List<UUID>> service : entry.characters.entrySet()) {
+            sb.append(TAG_SERVICE).append(' ').append(service.getKey()).append('\n');
+            for (UUID character : service.getValue()) {
+                sb.append(TAG_CHARACTER).append(' ').append(character).append('\n');
+            }
+        }
+        for (Subscription subscription : entry.subscriptions) {
+            sb.append(subscription.mIndicate ? TAG_INDICATE : TAG_NOTIFY).append(' ')
+                    .append(subscription.mService).append(' ')
+                    .append(subscription.mCharacter).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void parse(String text, Entry entry) {
+        if (text == null) {
+            return;
+        }
+
+        try {
+            List<UUID> characters = null;
+            for (String line : text.split("\n")) {
+                String[] fields = line.split(" ");
+                if (TAG_SERVICE.equals(fields[0])) {
+                    characters = new ArrayList<UUID>();
+                    entry.characters.put(UUID.fromString(fields[1]), characters);
+                } else if (TAG_CHARACTER.equals(fields[0]) && characters != null) {
+                    characters.add(UUID.fromString(fields[1]));
+                } else if (TAG_NOTIFY.equals(fields[0]) || TAG_INDICATE.equals(fields[0])) {
+                    entry.subscriptions.add(new Subscription(UUID.fromString(fields[1]),
+                            UUID.fromString(fields[2]), TAG_INDICATE.equals(fields[0])));
+                }
+            }
+        } catch (RuntimeException e) {
+            // written by another version, start over with a full discovery
+            BluetoothLog.e(e);
+            entry.characters.clear();
+            entry.subscriptions.clear();
+        }
+    }
+
+    private static class Entry {
+
+        final Map<UUID, List<UUID>> characters = new LinkedHashMap<UUID, List<UUID>>();
+
+        final List<Subscription> subscriptions = new ArrayList<Subscription>();
+    }
+
+    static class Subscription {
+
+        private final UUID mService;
+
+        private final UUID mCharacter;
+
+        private final boolean mIndicate;
+
+        Subscription(UUID service, UUID character, boolean indicate) {
+            mService = service;
+            mCharacter = character;
+            mIndicate = indicate;
+        }
+
+        UUID getService() {
+            return mService;
+        }
+
+        UUID getCharacter() {
+            return mCharacter;
+        }
+
+        boolean isIndicate() {
+            return mIndicate;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.inuker.bluetooth.library.connect;
+
+import android.os.Bundle;
+
+import com.inuker.bluetooth.library.Code;
+import com.inuker.bluetooth.library.Constants;
+import com.inuker.bluetooth.library.RuntimeChecker;
+import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
+import com.inuker.bluetooth.library.connect.request.BleLinkSetupRequest;
+import com.inuker.bluetooth.library.connect.request.BleRequest;
+import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
+import com.inuker.bluetooth.library.model.BleLinkParams;
+import com.inuker.bluetooth.library.utils.BluetoothLog;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Per-device link policy from {@link BleConnectOptions}.
+ * <p>
+ * After service discovery a {@link BleLinkSetupRequest} asks for the preferred PHY and
+ * exchanges the MTU, then the connection priority is settled: the active one while the
+ * application marks the link active (streaming, recording), the idle one otherwise.
+ * Until then the connection stays on the high priority the worker requests on connect.
+ */
+class BleLinkPolicy {
+
+    private final IBleConnectWorker mWorker;
+
+    private final RuntimeChecker mRuntimeChecker;
+
+    private BleConnectOptions mOptions = new BleConnectOptions.Builder().build();
+
+    private boolean mActive;
+
+    /**
+     * Link setup finished for the current connection
+     */
+    private boolean mReady;
+
+    private final List<BleGeneralResponse> mPendingResponses = new LinkedList<BleGeneralResponse>();
+
+    BleLinkPolicy(IBleConnectWorker worker, RuntimeChecker runtimeChecker) {
+        mWorker = worker;
+        mRuntimeChecker = runtimeChecker;
+    }
+
+    void setOptions(BleConnectOptions options) {
+        if (options != null) {
+            mOptions = options;
+        }
+    }
+
+    /**
+     * Connected and services discovered: the setup goes first in the request queue
+     */
+    BleRequest newSetupRequest() {
+        mRuntimeChecker.checkRuntime();
+        mReady = false;
+        return new BleLinkSetupRequest(mOptions, null);
+    }
+
+    void onSetupCompleted() {
+        mRuntimeChecker.checkRuntime();
+
+        if (!isConnected()) {
+            onDisconnected();
+            return;
+        }
+
+        mReady = true;
+        applyConnectionPriority();
+
+        BluetoothLog.v(String.format("link ready, active = %b, %s", mActive, mWorker.getLinkParams()));
+
+        for (BleGeneralResponse response : mPendingResponses) {
+            respond(response, Code.REQUEST_SUCCESS);
+        }
+        mPendingResponses.clear();
+    }
+
+    void onDisconnected() {
+        mRuntimeChecker.checkRuntime();
+
+        mReady = false;
+
+        for (BleGeneralResponse response : mPendingResponses) {
+            respond(response, Code.REQUEST_FAILED);
+        }
+        mPendingResponses.clear();
+    }
+
+    /**
+     * The state is kept across connections; the response comes once the priority is applied
+     */
+    void setActive(boolean active, BleGeneralResponse response) {
+        mRuntimeChecker.checkRuntime();
+
+        mActive = active;
+
+        if (!isConnected()) {
+            respond(response, Code.REQUEST_FAILED);
+        } else if (!mReady) {
+            if (response != null) {
+                mPendingResponses.add(response);
+            }
+        } else {
+            applyConnectionPriority();
+            respond(response, Code.REQUEST_SUCCESS);
+        }
+    }
+
+    void readLinkParams(BleGeneralResponse response) {
+        mRuntimeChecker.checkRuntime();
+        respond(response, isConnected() ? Code.REQUEST_SUCCESS : Code.REQUEST_FAILED);
+    }
+
+    private boolean isConnected() {
+        int status = mWorker.getCurrentStatus();
+        return status == Constants.STATUS_DEVICE_CONNECTED || status == Constants.STATUS_DEVICE_SERVICE_READY;
+    }
+
+    private void applyConnectionPriority() {
+        int priority = mActive ? mOptions.getActiveConnectionPriority() : mOptions.getIdleConnectionPriority();
+        // every request starts a connection update procedure, skip it when nothing changes
+        if (priority != mWorker.getLinkParams().getConnectionPriority()) {
+            mWorker.requestConnectionPriority(priority);
+        }
+    }
+
+    private void respond(BleGeneralResponse response, int code) {
+        if (response != null) {
+            Bundle data = new Bundle();
+            data.putParcelable(Constants.EXTRA_LINK_PARAMS, mWorker.getLinkParams());
+            response.onResponse(code, data);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.inuker.bluetooth.library.connect;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+
+import com.inuker.bluetooth.library.Constants;
+import com.inuker.bluetooth.library.connect.listener.CharacterChangeListener;
+import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
+import com.inuker.bluetooth.library.utils.BluetoothLog;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * In-process path for characteristic notifications.
+ * <p>
+ * The connect worker hands every notification straight to the listener registered here
+ * (the bluetooth client), so no Intent is built and nothing goes through system_server.
+ * When no listener lives in this process, or when broadcast mode is turned on for
+ * receivers of {@link Constants#ACTION_CHARACTER_CHANGED} outside the client,
+ * notifications are broadcast as before.
+ * <p>
+ * Notify responses wrapped by {@link #wrap(BleNotifyResponse)} get their
+ * {@link BleNotifyResponse#onNotify} on a dedicated data thread instead of the main
+ * looper, so samples do not queue behind layout and drawing. The result of
+ * notify / indicate ({@link BleNotifyResponse#onResponse}) is still posted to the main thread.
+ * The time every notification spends in the data queue is recorded, see {@link #getQueueStats}.
+ */
+public class BleNotifyDispatcher {
+
+    private static final String DATA_THREAD_NAME = "BleNotify";
+
+    private static final int MSG_NOTIFY = 1;
+
+    private static volatile CharacterChangeListener sListener;
+
+    private static volatile boolean sBroadcastEnabled;
+
+    private static volatile Looper sNotifyLooper;
+
+    private static volatile Executor sNotifyExecutor;
+
+    private static HandlerThread sDataThread;
+
+    private static int sDataThreadPriority = Process.THREAD_PRIORITY_URGENT_DISPLAY;
+
+    private static final QueueStats sQueueStats = new QueueStats();
+
+    private BleNotifyDispatcher() {
+    }
+
+    public static void setListener(CharacterChangeListener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * Compatibility mode: deliver notifications through the global
+     * {@link Constants#ACTION_CHARACTER_CHANGED} broadcast instead of the direct path.
+     * Off by default.
+     */
+    public static void setBroadcastEnabled(boolean enabled) {
+        sBroadcastEnabled = enabled;
+    }
+
+    public static boolean isBroadcastEnabled() {
+        return sBroadcastEnabled;
+    }
+
+    /**
+     * Deliver onNotify on this looper instead of the built-in data thread.
+     * Pass {@link Looper#getMainLooper()} for the old behaviour, null to go back to the data thread.
+     */
+    public static void setNotifyLooper(Looper looper) {
+        sNotifyLooper = looper;
+    }
+
+    /**
+     * Deliver onNotify through this executor; takes precedence over the looper.
+     * Every notification costs one Runnable on this path.
+     */
+    public static void setNotifyExecutor(Executor executor) {
+        sNotifyExecutor = executor;
+    }
+
+    /**
+     * Priority of the built-in data thread, {@link Process#THREAD_PRIORITY_URGENT_DISPLAY}
+     * by default. Only has effect before the first notification is delivered.
+     */
+    public static synchronized void setDataThreadPriority(int priority) {
+        sDataThreadPriority = priority;
+    }
+
+    public static QueueStats getQueueStats() {
+        return sQueueStats;
+    }
+
+    /**
+     * @return false if the notification has to be broadcast instead
+     */
+    static boolean dispatch(String mac, UUID service, UUID character, byte[] value) {
+        CharacterChangeListener listener = sListener;
+        if (sBroadcastEnabled || listener == null) {
+            return false;
+        }
+        listener.onCharacterChanged(mac, service, character, value);
+        return true;
+    }
+
+    /**
+     * Wraps a notify / indicate response: onNotify goes to the data thread, onResponse to the main thread
+     */
+    public static BleNotifyResponse wrap(BleNotifyResponse response) {
+        return response != null ? new DataThreadNotifyResponse(response) : null;
+    }
+
+    private static Looper getNotifyLooper() {
+        Looper looper = sNotifyLooper;
+        return looper != null ? looper : getDataThreadLooper();
+    }
+
+    private static synchronized Looper getDataThreadLooper() {
+        if (sDataThread == null) {
+            sDataThread = new HandlerThread(DATA_THREAD_NAME, sDataThreadPriority);
+            sDataThread.start();
+        }
+        return sDataThread.getLooper();
+    }
+
+    /**
+     * Each wrapper is registered for exactly one service / character pair, so those are
+     * kept in fields and a notification travels as a pooled Message: obj is the value,
+     * arg1 / arg2 the enqueue time in nanoseconds.
+     */
+    private static class DataThreadNotifyResponse implements BleNotifyResponse, Handler.Callback {
+
+        private final BleNotifyResponse mResponse;
+
+        private final Handler mMainHandler;
+
+        private volatile Handler mDataHandler;
+
+        private volatile UUID mService;
+
+        private volatile UUID mCharacter;
+
+        DataThreadNotifyResponse(BleNotifyResponse response) {
+            mResponse = response;
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        @Override
+        public void onNotify(final UUID service, final UUID character, final byte[] value) {
+            mService = service;
+            mCharacter = character;
+
+            final long enqueued = System.nanoTime();
+            sQueueStats.onEnqueued();
+
+            Executor executor = sNotifyExecutor;
+            if (executor != null) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(service, character, value, enqueued);
+                    }
+                });
+                return;
+            }
+
+            Looper looper = getNotifyLooper();
+            Handler handler = mDataHandler;
+            if (handler == null || handler.getLooper() != looper) {
+                handler = new Handler(looper, this);
+                mDataHandler = handler;
+            }
+            handler.obtainMessage(MSG_NOTIFY, (int) (enqueued >>> 32), (int) enqueued, value).sendToTarget();
+        }
+
+        @Override
+        public boolean handleMessage(Message msg) {
+            long enqueued = ((long) msg.arg1 << 32) | (msg.arg2 & 0xFFFFFFFFL);
+            deliver(mService, mCharacter, (byte[]) msg.obj, enqueued);
+            return true;
+        }
+
+        private void deliver(UUID service, UUID character, byte[] value, long enqueued) {
+            sQueueStats.onDelivered(System.nanoTime() - enqueued);
+            try {
+                mResponse.onNotify(service, character, value);
+            } catch (Throwable e) {
+                // same as the UI proxy: a failing callback must not kill the data thread
+                BluetoothLog.e(e);
+            }
+        }
+
+        @Override
+        public void onResponse(final int code) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mResponse.onResponse(code);
+                }
+            });
+        }
+    }
+}
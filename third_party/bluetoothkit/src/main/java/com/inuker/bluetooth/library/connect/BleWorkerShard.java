@@ -0,0 +1,80 @@
+package com.inuker.bluetooth.library.connect;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+
+import java.util.concurrent.Executor;
+
+/**
+ * One connect worker thread of {@link BleConnectManager}.
+ * <p>
+ * A device stays on its shard for the life of the process: the calls into its
+ * {@link BleConnectMaster}, its request scheduling and timeouts and its GATT callbacks all
+ * run here. Calls and callbacks go through {@link #execute} as pooled Messages (arg1 / arg2
+ * the enqueue time in nanoseconds), so the time they wait behind other devices on the same
+ * shard shows in {@link #getQueueStats()}.
+ */
+public class BleWorkerShard implements Executor, Handler.Callback {
+
+    private static final int MSG_RUN = 1;
+
+    private final String mName;
+
+    private final Handler mHandler;
+
+    private final QueueStats mQueueStats = new QueueStats();
+
+    private volatile int mDeviceCount;
+
+    BleWorkerShard(String name) {
+        mName = name;
+        HandlerThread thread = new HandlerThread(name);
+        thread.start();
+        mHandler = new Handler(thread.getLooper(), this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long enqueued = System.nanoTime();
+        mQueueStats.onEnqueued();
+        mHandler.obtainMessage(MSG_RUN, (int) (enqueued >>> 32), (int) enqueued, command).sendToTarget();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        long enqueued = ((long) msg.arg1 << 32) | (msg.arg2 & 0xFFFFFFFFL);
+        mQueueStats.onDelivered(System.nanoTime() - enqueued);
+        ((Runnable) msg.obj).run();
+        return true;
+    }
+
+    void addDevice() {
+        mDeviceCount++;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public Looper getLooper() {
+        return mHandler.getLooper();
+    }
+
+    /**
+     * Devices bound to this shard
+     */
+    public int getDeviceCount() {
+        return mDeviceCount;
+    }
+
+    public QueueStats getQueueStats() {
+        return mQueueStats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: devices = %d, %s", mName, mDeviceCount, mQueueStats);
+    }
+}
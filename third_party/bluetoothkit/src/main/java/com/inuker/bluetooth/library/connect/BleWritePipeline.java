@@ -0,0 +1,230 @@
+package com.inuker.bluetooth.library.connect;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+import com.inuker.bluetooth.library.Code;
+import com.inuker.bluetooth.library.Constants;
+import com.inuker.bluetooth.library.RuntimeChecker;
+import com.inuker.bluetooth.library.connect.listener.WriteCharacterListener;
+import com.inuker.bluetooth.library.connect.request.BleRequest;
+import com.inuker.bluetooth.library.connect.request.BleWriteNoRspRequest;
+import com.inuker.bluetooth.library.utils.BluetoothLog;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pipelined write without response.
+ * <p>
+ * Consecutive {@link BleWriteNoRspRequest}s are taken out of the serialized request queue
+ * and written back to back: up to a credit window of writes is handed to the stack, and
+ * each onCharacteristicWrite (the platform's "ready for the next packet" callback for this
+ * write type) returns one credit and sends the next write right away, without the fixed
+ * delay between requests.
+ * <p>
+ * Most Android stacks accept one outstanding GATT operation per connection and refuse the
+ * next write until the callback arrives. A refusal while writes are in flight is taken as
+ * back pressure: the write stays queued and the window shrinks to what the stack accepted.
+ */
+class BleWritePipeline implements WriteCharacterListener, Handler.Callback {
+
+    static final int DEFAULT_WINDOW = 4;
+
+    private static final int MSG_WRITE_TIMEOUT = 1;
+
+    private static final long WRITE_TIMEOUT = 5000;
+
+    interface Callback {
+
+        /**
+         * All writes are answered, the serialized queue can go on
+         */
+        void onPipelineDrained();
+    }
+
+    private final IBleConnectWorker mWorker;
+
+    private final RuntimeChecker mRuntimeChecker;
+
+    private final Callback mCallback;
+
+    private final Handler mHandler;
+
+    private final ArrayDeque<BleWriteNoRspRequest> mPending = new ArrayDeque<BleWriteNoRspRequest>();
+
+    private final ArrayDeque<BleWriteNoRspRequest> mInFlight = new ArrayDeque<BleWriteNoRspRequest>();
+
+    private int mWindow = DEFAULT_WINDOW;
+
+    /**
+     * Writes the stack accepted before refusing one, 0 until a refusal was seen
+     */
+    private int mStackWindow;
+
+    private boolean mActive;
+
+    private boolean mTimedOut;
+
+    BleWritePipeline(IBleConnectWorker worker, RuntimeChecker runtimeChecker, Callback callback) {
+        mWorker = worker;
+        mRuntimeChecker = runtimeChecker;
+        mCallback = callback;
+        mHandler = new Handler(Looper.myLooper(), this);
+    }
+
+    /**
+     * New connection: the window from the connect options, the stack limit is learned again
+     */
+    void setWindow(int window) {
+        mWindow = Math.max(1, window);
+        mStackWindow = 0;
+    }
+
+    boolean isActive() {
+        return mActive;
+    }
+
+    void offer(BleWriteNoRspRequest request) {
+        mRuntimeChecker.checkRuntime();
+        mPending.add(request);
+        if (mActive) {
+            pump();
+        }
+    }
+
+    void start() {
+        mRuntimeChecker.checkRuntime();
+        mActive = true;
+        mTimedOut = false;
+        mWorker.registerGattResponseListener(this);
+        pump();
+    }
+
+    private int credits() {
+        int window = mStackWindow > 0 ? Math.min(mWindow, mStackWindow) : mWindow;
+        return window - mInFlight.size();
+    }
+
+    private void pump() {
+        int status = mWorker.getCurrentStatus();
+        if (status != Constants.STATUS_DEVICE_CONNECTED && status != Constants.STATUS_DEVICE_SERVICE_READY) {
+            failAll(Code.REQUEST_FAILED);
+            return;
+        }
+
+        while (!mPending.isEmpty() && credits() > 0) {
+            BleWriteNoRspRequest request = mPending.peek();
+            if (mWorker.writeCharacteristicWithNoRsp(request.getServiceUUID(), request.getCharacterUUID(), request.getBytes())) {
+                mPending.poll();
+                mInFlight.add(request);
+            } else if (!mInFlight.isEmpty()) {
+                // the stack is busy with the writes already handed over, retry on the next callback
+                if (mStackWindow != mInFlight.size()) {
+                    mStackWindow = mInFlight.size();
+                    BluetoothLog.v(String.format("write pipeline: stack accepts %d writes in flight", mStackWindow));
+                }
+                break;
+            } else {
+                mPending.poll();
+                request.onResponse(Code.REQUEST_FAILED);
+            }
+        }
+
+        mHandler.removeMessages(MSG_WRITE_TIMEOUT);
+        if (!mInFlight.isEmpty()) {
+            mHandler.sendEmptyMessageDelayed(MSG_WRITE_TIMEOUT, WRITE_TIMEOUT);
+        } else if (mPending.isEmpty()) {
+            finish();
+        }
+    }
+
+    @Override
+    public void onCharacteristicWrite(BluetoothGattCharacteristic characteristic, int status, byte[] value) {
+        mRuntimeChecker.checkRuntime();
+
+        BleWriteNoRspRequest request = mInFlight.poll();
+        if (request == null) {
+            return;
+        }
+        request.onResponse(status == BluetoothGatt.GATT_SUCCESS ? Code.REQUEST_SUCCESS : Code.REQUEST_FAILED);
+        pump();
+    }
+
+    @Override
+    public void onConnectStatusChanged(boolean connectedOrDisconnected) {
+        if (!connectedOrDisconnected) {
+            failAll(mTimedOut ? Code.REQUEST_TIMEDOUT : Code.REQUEST_FAILED);
+        }
+    }
+
+    /**
+     * Cancels writes that have not been handed to the stack yet
+     */
+    void cancelPending() {
+        mRuntimeChecker.checkRuntime();
+        for (BleRequest request : mPending) {
+            request.cancel();
+        }
+        mPending.clear();
+        if (mActive && mInFlight.isEmpty()) {
+            finish();
+        }
+    }
+
+    /**
+     * Cancels everything without calling back the dispatcher (disconnect)
+     */
+    void cancel() {
+        mRuntimeChecker.checkRuntime();
+        for (BleRequest request : mInFlight) {
+            request.cancel();
+        }
+        mInFlight.clear();
+        for (BleRequest request : mPending) {
+            request.cancel();
+        }
+        mPending.clear();
+        mHandler.removeCallbacksAndMessages(null);
+        if (mActive) {
+            mActive = false;
+            mWorker.clearGattResponseListener(this);
+        }
+    }
+
+    private void failAll(int code) {
+        for (BleRequest request : mInFlight) {
+            request.onResponse(code);
+        }
+        mInFlight.clear();
+        for (BleRequest request : mPending) {
+            request.onResponse(code);
+        }
+        mPending.clear();
+        if (mActive) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        mHandler.removeCallbacksAndMessages(null);
+        mActive = false;
+        mWorker.clearGattResponseListener(this);
+        mCallback.onPipelineDrained();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_WRITE_TIMEOUT:
+                // same as a request timeout: the link is stuck, close it and fail the writes on disconnect
+                BluetoothLog.e(String.format("write pipeline timeout, %d writes in flight", mInFlight.size()));
+                mTimedOut = true;
+                mWorker.closeGatt();
+                break;
+        }
+        return true;
+    }
+}
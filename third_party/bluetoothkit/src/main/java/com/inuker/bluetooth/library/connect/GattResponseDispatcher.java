@@ -0,0 +1,124 @@
+package com.inuker.bluetooth.library.connect;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import com.inuker.bluetooth.library.connect.listener.IBluetoothGattResponse;
+import com.inuker.bluetooth.library.utils.dispatch.SafeRunnable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Moves GATT callbacks from the binder thread to the connect worker,
+ * one typed Runnable per callback.
+ */
+class GattResponseDispatcher implements IBluetoothGattResponse {
+
+    private final IBluetoothGattResponse mResponse;
+
+    private final Executor mExecutor;
+
+    GattResponseDispatcher(IBluetoothGattResponse response, Executor executor) {
+        mResponse = response;
+        mExecutor = executor;
+    }
+
+    @Override
+    public void onConnectionStateChange(final int status, final int newState) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onConnectionStateChange(status, newState);
+            }
+        });
+    }
+
+    @Override
+    public void onServicesDiscovered(final int status) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onServicesDiscovered(status);
+            }
+        });
+    }
+
+    @Override
+    public void onCharacteristicRead(final BluetoothGattCharacteristic characteristic, final int status, final byte[] value) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onCharacteristicRead(characteristic, status, value);
+            }
+        });
+    }
+
+    @Override
+    public void onCharacteristicWrite(final BluetoothGattCharacteristic characteristic, final int status, final byte[] value) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onCharacteristicWrite(characteristic, status, value);
+            }
+        });
+    }
+
+    @Override
+    public void onCharacteristicChanged(final BluetoothGattCharacteristic characteristic, final byte[] value) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onCharacteristicChanged(characteristic, value);
+            }
+        });
+    }
+
+    @Override
+    public void onDescriptorRead(final BluetoothGattDescriptor descriptor, final int status, final byte[] value) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onDescriptorRead(descriptor, status, value);
+            }
+        });
+    }
+
+    @Override
+    public void onDescriptorWrite(final BluetoothGattDescriptor descriptor, final int status) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onDescriptorWrite(descriptor, status);
+            }
+        });
+    }
+
+    @Override
+    public void onReadRemoteRssi(final int rssi, final int status) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onReadRemoteRssi(rssi, status);
+            }
+        });
+    }
+
+    @Override
+    public void onMtuChanged(final int mtu, final int status) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onMtuChanged(mtu, status);
+            }
+        });
+    }
+
+    @Override
+    public void onPhyUpdate(final int txPhy, final int rxPhy, final int status) {
+        mExecutor.execute(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                mResponse.onPhyUpdate(txPhy, rxPhy, status);
+            }
+        });
+    }
+}
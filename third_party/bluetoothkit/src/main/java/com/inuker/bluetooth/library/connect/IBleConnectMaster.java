@@ -34,6 +34,10 @@ public interface IBleConnectMaster {
 
     void requestMtu(int mtu, BleGeneralResponse response);
 
+    void setLinkActive(boolean active, BleGeneralResponse response);
+
+    void readLinkParams(BleGeneralResponse response);
+
     void clearRequest(int clearType);
 
     void refreshCache();
@@ -2,6 +2,7 @@ package com.inuker.bluetooth.library.connect;
 
 import com.inuker.bluetooth.library.connect.listener.GattResponseListener;
 import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleLinkParams;
 
 import java.util.UUID;
 
@@ -43,5 +44,16 @@ public interface IBleConnectWorker {
 
     boolean requestMtu(int mtu);
 
+    boolean requestConnectionPriority(int priority);
+
+    boolean setPreferredPhy(int phy);
+
+    /**
+     * Notification (or indication) already enabled on this connection
+     */
+    boolean isNotifyEnabled(UUID service, UUID character, boolean indicate);
+
     BleGattProfile getGattProfile();
+
+    BleLinkParams getLinkParams();
 }
@@ -0,0 +1,80 @@
+package com.inuker.bluetooth.library.connect;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time tasks spend in a looper queue before they run: notifications on their way to the
+ * data thread ({@link BleNotifyDispatcher#getQueueStats()}) and calls and GATT callbacks
+ * on a connect worker ({@link BleWorkerShard#getQueueStats()}).
+ */
+public class QueueStats {
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    private final AtomicLong mTotalNanos = new AtomicLong();
+
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    private final AtomicLong mPending = new AtomicLong();
+
+    private volatile long mLastNanos;
+
+    void onEnqueued() {
+        mPending.incrementAndGet();
+    }
+
+    void onDelivered(long delayNanos) {
+        mPending.decrementAndGet();
+        mCount.incrementAndGet();
+        mTotalNanos.addAndGet(delayNanos);
+        mLastNanos = delayNanos;
+        long max = mMaxNanos.get();
+        while (delayNanos > max && !mMaxNanos.compareAndSet(max, delayNanos)) {
+            max = mMaxNanos.get();
+        }
+    }
+
+    /**
+     * Tasks run since the last reset
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Tasks queued but not run yet
+     */
+    public long getPending() {
+        return mPending.get();
+    }
+
+    public long getMeanDelayNanos() {
+        long count = mCount.get();
+        return count > 0 ? mTotalNanos.get() / count : 0;
+    }
+
+    public long getMaxDelayNanos() {
+        return mMaxNanos.get();
+    }
+
+    public long getLastDelayNanos() {
+        return mLastNanos;
+    }
+
+    /**
+     * Starts a new measuring window; pending tasks are still counted
+     */
+    public void reset() {
+        mCount.set(0);
+        mTotalNanos.set(0);
+        mMaxNanos.set(0);
+        mLastNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count = %d, pending = %d, mean = %.2fms, max = %.2fms, last = %.2fms",
+                getCount(), getPending(), getMeanDelayNanos() / 1e6,
+                getMaxDelayNanos() / 1e6, getLastDelayNanos() / 1e6);
+    }
+}
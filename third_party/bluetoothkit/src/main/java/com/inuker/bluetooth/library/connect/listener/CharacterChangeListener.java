@@ -0,0 +1,12 @@
+package com.inuker.bluetooth.library.connect.listener;
+
+import java.util.UUID;
+
+/**
+ * Receives characteristic notifications directly from the connect worker,
+ * on the worker thread, without the Intent broadcast hop.
+ */
+public interface CharacterChangeListener {
+
+    void onCharacterChanged(String mac, UUID service, UUID character, byte[] value);
+}
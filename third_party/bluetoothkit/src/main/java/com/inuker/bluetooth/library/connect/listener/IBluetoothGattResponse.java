@@ -26,4 +26,6 @@ public interface IBluetoothGattResponse {
     void onReadRemoteRssi(int rssi, int status);
 
     void onMtuChanged(int mtu, int status);
+
+    void onPhyUpdate(int txPhy, int rxPhy, int status);
 }
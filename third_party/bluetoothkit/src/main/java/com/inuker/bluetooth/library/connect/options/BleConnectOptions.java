@@ -1,5 +1,7 @@
 package com.inuker.bluetooth.library.connect.options;
 
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
 import android.os.Parcel;
 import android.os.Parcelable;
 
@@ -16,12 +18,42 @@ public class BleConnectOptions implements Parcelable {
 
     private int serviceDiscoverTimeout;
 
+    /**
+     * Writes without response handed to the stack before waiting for its callback
+     */
+    private int writeNoRspWindow;
+
+    /**
+     * MTU requested right after service discovery, 0 keeps the default 23
+     */
+    private int mtu;
+
+    /**
+     * Connection priority while the link is marked active (streaming, recording)
+     */
+    private int activeConnectionPriority;
+
+    /**
+     * Connection priority while the link is idle
+     */
+    private int idleConnectionPriority;
+
+    /**
+     * BluetoothDevice.PHY_LE_*_MASK preferred for both directions, 0 leaves the PHY alone
+     */
+    private int preferredPhy;
+
     public static class Builder {
 
         private static final int DEFAULT_CONNECT_RETRY = 0;
         private static final int DEFAULT_SERVICE_DISCOVER_RETRY = 0;
         private static final int DEFAULT_CONNECT_TIMEOUT=  30000;
         private static final int DEFAULT_SERVICE_DISCOVER_TIMEOUT = 30000;
+        private static final int DEFAULT_WRITE_NO_RSP_WINDOW = 4;
+        private static final int DEFAULT_MTU = 247;
+        private static final int DEFAULT_ACTIVE_CONNECTION_PRIORITY = BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+        private static final int DEFAULT_IDLE_CONNECTION_PRIORITY = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        private static final int DEFAULT_PREFERRED_PHY = BluetoothDevice.PHY_LE_2M_MASK;
 
         private int connectRetry = DEFAULT_CONNECT_RETRY;
 
@@ -31,6 +63,16 @@ public class BleConnectOptions implements Parcelable {
 
         private int serviceDiscoverTimeout = DEFAULT_SERVICE_DISCOVER_TIMEOUT;
 
+        private int writeNoRspWindow = DEFAULT_WRITE_NO_RSP_WINDOW;
+
+        private int mtu = DEFAULT_MTU;
+
+        private int activeConnectionPriority = DEFAULT_ACTIVE_CONNECTION_PRIORITY;
+
+        private int idleConnectionPriority = DEFAULT_IDLE_CONNECTION_PRIORITY;
+
+        private int preferredPhy = DEFAULT_PREFERRED_PHY;
+
         public Builder setConnectRetry(int retry) {
             connectRetry = retry;
             return this;
@@ -51,6 +93,31 @@ public class BleConnectOptions implements Parcelable {
             return this;
         }
 
+        public Builder setWriteNoRspWindow(int window) {
+            writeNoRspWindow = window;
+            return this;
+        }
+
+        public Builder setMtu(int mtu) {
+            this.mtu = mtu;
+            return this;
+        }
+
+        public Builder setActiveConnectionPriority(int priority) {
+            activeConnectionPriority = priority;
+            return this;
+        }
+
+        public Builder setIdleConnectionPriority(int priority) {
+            idleConnectionPriority = priority;
+            return this;
+        }
+
+        public Builder setPreferredPhy(int phy) {
+            preferredPhy = phy;
+            return this;
+        }
+
         public BleConnectOptions build() {
             return new BleConnectOptions(this);
         }
@@ -61,6 +128,11 @@ public class BleConnectOptions implements Parcelable {
         this.serviceDiscoverRetry = builder.serviceDiscoverRetry;
         this.connectTimeout = builder.connectTimeout;
         this.serviceDiscoverTimeout = builder.serviceDiscoverTimeout;
+        this.writeNoRspWindow = builder.writeNoRspWindow;
+        this.mtu = builder.mtu;
+        this.activeConnectionPriority = builder.activeConnectionPriority;
+        this.idleConnectionPriority = builder.idleConnectionPriority;
+        this.preferredPhy = builder.preferredPhy;
     }
 
     protected BleConnectOptions(Parcel in) {
@@ -68,6 +140,11 @@ public class BleConnectOptions implements Parcelable {
         serviceDiscoverRetry = in.readInt();
         connectTimeout = in.readInt();
         serviceDiscoverTimeout = in.readInt();
+        writeNoRspWindow = in.readInt();
+        mtu = in.readInt();
+        activeConnectionPriority = in.readInt();
+        idleConnectionPriority = in.readInt();
+        preferredPhy = in.readInt();
     }
 
     public static final Creator<BleConnectOptions> CREATOR = new Creator<BleConnectOptions>() {
@@ -94,6 +171,11 @@ public class BleConnectOptions implements Parcelable {
         dest.writeInt(serviceDiscoverRetry);
         dest.writeInt(connectTimeout);
         dest.writeInt(serviceDiscoverTimeout);
+        dest.writeInt(writeNoRspWindow);
+        dest.writeInt(mtu);
+        dest.writeInt(activeConnectionPriority);
+        dest.writeInt(idleConnectionPriority);
+        dest.writeInt(preferredPhy);
     }
 
     public int getConnectRetry() {
@@ -128,6 +210,46 @@ public class BleConnectOptions implements Parcelable {
         this.serviceDiscoverTimeout = serviceDiscoverTimeout;
     }
 
+    public int getWriteNoRspWindow() {
+        return writeNoRspWindow;
+    }
+
+    public void setWriteNoRspWindow(int writeNoRspWindow) {
+        this.writeNoRspWindow = writeNoRspWindow;
+    }
+
+    public int getMtu() {
+        return mtu;
+    }
+
+    public void setMtu(int mtu) {
+        this.mtu = mtu;
+    }
+
+    public int getActiveConnectionPriority() {
+        return activeConnectionPriority;
+    }
+
+    public void setActiveConnectionPriority(int activeConnectionPriority) {
+        this.activeConnectionPriority = activeConnectionPriority;
+    }
+
+    public int getIdleConnectionPriority() {
+        return idleConnectionPriority;
+    }
+
+    public void setIdleConnectionPriority(int idleConnectionPriority) {
+        this.idleConnectionPriority = idleConnectionPriority;
+    }
+
+    public int getPreferredPhy() {
+        return preferredPhy;
+    }
+
+    public void setPreferredPhy(int preferredPhy) {
+        this.preferredPhy = preferredPhy;
+    }
+
     @Override
     public String toString() {
         return "BleConnectOptions{" +
@@ -135,6 +257,11 @@ public class BleConnectOptions implements Parcelable {
                 ", serviceDiscoverRetry=" + serviceDiscoverRetry +
                 ", connectTimeout=" + connectTimeout +
                 ", serviceDiscoverTimeout=" + serviceDiscoverTimeout +
+                ", writeNoRspWindow=" + writeNoRspWindow +
+                ", mtu=" + mtu +
+                ", activeConnectionPriority=" + activeConnectionPriority +
+                ", idleConnectionPriority=" + idleConnectionPriority +
+                ", preferredPhy=" + preferredPhy +
                 '}';
     }
 }
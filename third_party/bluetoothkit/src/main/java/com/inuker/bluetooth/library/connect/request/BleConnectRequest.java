@@ -5,6 +5,7 @@ import android.os.Message;
 
 import com.inuker.bluetooth.library.Code;
 import com.inuker.bluetooth.library.Constants;
+import com.inuker.bluetooth.library.connect.BleGattCache;
 import com.inuker.bluetooth.library.connect.listener.ServiceDiscoverListener;
 import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
 import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
@@ -18,6 +19,14 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
     private static final int MSG_CONNECT_TIMEOUT = 3;
     private static final int MSG_DISCOVER_SERVICE_TIMEOUT = 4;
     private static final int MSG_RETRY_DISCOVER_SERVICE = 5;
+    private static final int MSG_REDISCOVER_SERVICE = 6;
+
+    private static final long DISCOVER_SERVICE_DELAY = 300;
+
+    /**
+     * The stack drops its gatt cache asynchronously after a refresh
+     */
+    private static final long REDISCOVER_SERVICE_DELAY = 600;
 
     private BleConnectOptions mConnectOptions;
 
@@ -25,6 +34,13 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
 
     private int mServiceDiscoverCount;
 
+    /**
+     * Services of this device were discovered before, see {@link BleGattCache}
+     */
+    private boolean mKnownDevice;
+
+    private boolean mCacheRefreshed;
+
     public BleConnectRequest(BleConnectOptions options, BleGeneralResponse response) {
         super(response);
         this.mConnectOptions = options != null ? options : new BleConnectOptions.Builder().build();
@@ -32,6 +48,7 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
 
     @Override
     public void processRequest() {
+        mKnownDevice = BleGattCache.isKnown(getAddress());
         processConnect();
     }
 
@@ -124,6 +141,27 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
         mHandler.sendEmptyMessageDelayed(MSG_DISCOVER_SERVICE, 1000);
     }
 
+    /**
+     * The discovered profile lacks characteristics of the cached one: drop the stack's
+     * cache and discover once more over the air
+     */
+    private void rediscoverService() {
+        log(String.format("gatt cache stale, discover service again"));
+        mCacheRefreshed = true;
+        refreshDeviceCache();
+        mHandler.sendEmptyMessageDelayed(MSG_REDISCOVER_SERVICE, REDISCOVER_SERVICE_DELAY);
+    }
+
+    private void processRediscoverService() {
+        if (getCurrentStatus() == Constants.STATUS_DEVICE_DISCONNECTED) {
+            retryConnectIfNeeded();
+        } else if (!doDiscoverService()) {
+            onServiceDiscoverFailed();
+        } else {
+            mHandler.sendEmptyMessageDelayed(MSG_DISCOVER_SERVICE_TIMEOUT, mConnectOptions.getServiceDiscoverTimeout());
+        }
+    }
+
     private void processConnectTimeout() {
         log(String.format("connect timeout"));
         mHandler.removeCallbacksAndMessages(null);
@@ -151,6 +189,10 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
                 retryDiscoverServiceIfNeeded();
                 break;
 
+            case MSG_REDISCOVER_SERVICE:
+                processRediscoverService();
+                break;
+
             case MSG_CONNECT_TIMEOUT:
                 processConnectTimeout();
                 break;
@@ -176,7 +218,8 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
         mHandler.removeMessages(MSG_CONNECT_TIMEOUT);
 
         if (connectedOrDisconnected) {
-            mHandler.sendEmptyMessageDelayed(MSG_DISCOVER_SERVICE, 300);
+            // a known device skips the settle delay, its profile is validated after discovery
+            mHandler.sendEmptyMessageDelayed(MSG_DISCOVER_SERVICE, mKnownDevice ? 0 : DISCOVER_SERVICE_DELAY);
         } else {
             mHandler.removeCallbacksAndMessages(null);
             retryConnectIfNeeded();
@@ -189,10 +232,13 @@ public class BleConnectRequest extends BleRequest implements ServiceDiscoverList
 
         mHandler.removeMessages(MSG_DISCOVER_SERVICE_TIMEOUT);
 
-        if (status == BluetoothGatt.GATT_SUCCESS) {
-            onConnectSuccess();
-        } else {
+        if (status != BluetoothGatt.GATT_SUCCESS) {
             onServiceDiscoverFailed();
+        } else if (!mCacheRefreshed && BleGattCache.isStale(getAddress(), profile)) {
+            rediscoverService();
+        } else {
+            BleGattCache.putProfile(getAddress(), profile);
+            onConnectSuccess();
         }
     }
 
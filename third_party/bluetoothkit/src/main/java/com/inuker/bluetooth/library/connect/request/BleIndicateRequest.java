@@ -47,7 +47,10 @@ public class BleIndicateRequest extends BleRequest implements WriteDescriptorLis
     }
 
     private void openIndicate() {
-        if (!setCharacteristicIndication(mServiceUUID, mCharacterUUID, true)) {
+        if (isNotifyEnabled(mServiceUUID, mCharacterUUID, true)) {
+            // restored from the gatt cache on connect, the descriptor is written already
+            onRequestCompleted(Code.REQUEST_SUCCESS);
+        } else if (!setCharacteristicIndication(mServiceUUID, mCharacterUUID, true)) {
             onRequestCompleted(Code.REQUEST_FAILED);
         } else {
             startRequestTiming();
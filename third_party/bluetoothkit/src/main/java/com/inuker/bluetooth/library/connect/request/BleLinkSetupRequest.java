@@ -0,0 +1,95 @@
+package com.inuker.bluetooth.library.connect.request;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Message;
+
+import com.inuker.bluetooth.library.Code;
+import com.inuker.bluetooth.library.Constants;
+import com.inuker.bluetooth.library.connect.listener.RequestMtuListener;
+import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
+import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
+
+/**
+ * Link setup right after service discovery: asks for the preferred PHY and exchanges the
+ * MTU from the connect options. Queued like any other request, so the MTU exchange does
+ * not collide with the reads and writes that follow the connect.
+ */
+public class BleLinkSetupRequest extends BleRequest implements RequestMtuListener {
+
+    private static final int MSG_MTU_TIMEOUT = 1;
+
+    /**
+     * A peer that answers the MTU exchange does so within a few connection events;
+     * past this the link goes on with the default MTU instead of waiting for the request timeout
+     */
+    private static final long MTU_TIMEOUT = 3000;
+
+    private BleConnectOptions mConnectOptions;
+
+    public BleLinkSetupRequest(BleConnectOptions options, BleGeneralResponse response) {
+        super(response);
+        mConnectOptions = options;
+    }
+
+    @Override
+    public void processRequest() {
+        switch (getCurrentStatus()) {
+            case Constants.STATUS_DEVICE_CONNECTED:
+            case Constants.STATUS_DEVICE_SERVICE_READY:
+                setupLink();
+                break;
+
+            default:
+                onRequestCompleted(Code.REQUEST_FAILED);
+                break;
+        }
+    }
+
+    private void setupLink() {
+        // not a GATT operation, the controller answers in onPhyUpdate on its own time
+        if (mConnectOptions.getPreferredPhy() != 0) {
+            setPreferredPhy(mConnectOptions.getPreferredPhy());
+        }
+
+        int mtu = Math.min(mConnectOptions.getMtu(), Constants.GATT_MAX_MTU_SIZE);
+        if (mtu <= getLinkParams().getMtu()) {
+            onRequestCompleted(Code.REQUEST_SUCCESS);
+        } else if (!requestMtu(mtu)) {
+            // an MTU the peer refuses is not worth the connection, go on with the default
+            onRequestCompleted(Code.REQUEST_SUCCESS);
+        } else {
+            mHandler.sendEmptyMessageDelayed(MSG_MTU_TIMEOUT, MTU_TIMEOUT);
+        }
+    }
+
+    @Override
+    public void onMtuChanged(int mtu, int status) {
+        mHandler.removeMessages(MSG_MTU_TIMEOUT);
+
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            putIntExtra(Constants.EXTRA_MTU, mtu);
+        } else {
+            log(String.format("mtu exchange failed, status = %d", status));
+        }
+        onRequestCompleted(Code.REQUEST_SUCCESS);
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_MTU_TIMEOUT:
+                // a late answer still updates the link params in the worker
+                log(String.format("mtu exchange timeout, mtu = %d", getLinkParams().getMtu()));
+                onRequestCompleted(Code.REQUEST_SUCCESS);
+                return true;
+        }
+        return super.handleMessage(msg);
+    }
+
+    @Override
+    public String toString() {
+        return "BleLinkSetupRequest{" +
+                "options=" + mConnectOptions +
+                '}';
+    }
+}
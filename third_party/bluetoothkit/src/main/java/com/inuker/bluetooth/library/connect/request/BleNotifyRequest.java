@@ -46,7 +46,10 @@ public class BleNotifyRequest extends BleRequest implements WriteDescriptorListe
     }
 
     private void openNotify() {
-        if (!setCharacteristicNotification(mServiceUUID, mCharacterUUID, true)) {
+        if (isNotifyEnabled(mServiceUUID, mCharacterUUID, false)) {
+            // restored from the gatt cache on connect, the descriptor is written already
+            onRequestCompleted(Code.REQUEST_SUCCESS);
+        } else if (!setCharacteristicNotification(mServiceUUID, mCharacterUUID, true)) {
             onRequestCompleted(Code.REQUEST_FAILED);
         } else {
             startRequestTiming();
@@ -14,6 +14,7 @@ import com.inuker.bluetooth.library.connect.IBleConnectWorker;
 import com.inuker.bluetooth.library.connect.listener.GattResponseListener;
 import com.inuker.bluetooth.library.connect.response.BleGeneralResponse;
 import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleLinkParams;
 import com.inuker.bluetooth.library.utils.BluetoothLog;
 import com.inuker.bluetooth.library.utils.BluetoothUtils;
 
@@ -249,6 +250,21 @@ public abstract class BleRequest implements IBleConnectWorker, IBleRequest, Hand
         return mWorker.requestMtu(mtu);
     }
 
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        return mWorker.requestConnectionPriority(priority);
+    }
+
+    @Override
+    public boolean setPreferredPhy(int phy) {
+        return mWorker.setPreferredPhy(phy);
+    }
+
+    @Override
+    public boolean isNotifyEnabled(UUID service, UUID character, boolean indicate) {
+        return mWorker.isNotifyEnabled(service, character, indicate);
+    }
+
     protected void log(String msg) {
         BluetoothLog.v(String.format("%s %s >>> %s", getClass().getSimpleName(), getAddress(), msg));
     }
@@ -297,5 +313,10 @@ public abstract class BleRequest implements IBleConnectWorker, IBleRequest, Hand
     public BleGattProfile getGattProfile() {
         return mWorker.getGattProfile();
     }
+
+    @Override
+    public BleLinkParams getLinkParams() {
+        return mWorker.getLinkParams();
+    }
 }
 
@@ -23,6 +23,18 @@ public class BleWriteNoRspRequest extends BleRequest implements WriteCharacterLi
         mBytes = bytes;
     }
 
+    public UUID getServiceUUID() {
+        return mServiceUUID;
+    }
+
+    public UUID getCharacterUUID() {
+        return mCharacterUUID;
+    }
+
+    public byte[] getBytes() {
+        return mBytes;
+    }
+
     @Override
     public void processRequest() {
         switch (getCurrentStatus()) {
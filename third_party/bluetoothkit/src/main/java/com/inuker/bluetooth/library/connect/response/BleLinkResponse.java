@@ -0,0 +1,6 @@
+package com.inuker.bluetooth.library.connect.response;
+
+import com.inuker.bluetooth.library.model.BleLinkParams;
+
+public interface BleLinkResponse extends BleTResponse<BleLinkParams> {
+}
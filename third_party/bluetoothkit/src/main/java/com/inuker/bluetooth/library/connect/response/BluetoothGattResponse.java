@@ -62,4 +62,9 @@ public class BluetoothGattResponse extends BluetoothGattCallback {
     public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
         response.onMtuChanged(mtu, status);
     }
+
+    @Override
+    public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+        response.onPhyUpdate(txPhy, rxPhy, status);
+    }
 }
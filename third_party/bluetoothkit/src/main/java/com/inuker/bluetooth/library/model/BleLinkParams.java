@@ -0,0 +1,93 @@
+package com.inuker.bluetooth.library.model;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Link parameters negotiated for a connection: ATT MTU, the connection priority last
+ * requested and the PHY in use in each direction.
+ */
+public class BleLinkParams implements Parcelable {
+
+    private int mtu;
+
+    private int connectionPriority;
+
+    private int txPhy;
+
+    private int rxPhy;
+
+    public BleLinkParams(int mtu, int connectionPriority, int txPhy, int rxPhy) {
+        this.mtu = mtu;
+        this.connectionPriority = connectionPriority;
+        this.txPhy = txPhy;
+        this.rxPhy = rxPhy;
+    }
+
+    protected BleLinkParams(Parcel in) {
+        mtu = in.readInt();
+        connectionPriority = in.readInt();
+        txPhy = in.readInt();
+        rxPhy = in.readInt();
+    }
+
+    public static final Creator<BleLinkParams> CREATOR = new Creator<BleLinkParams>() {
+        @Override
+        public BleLinkParams createFromParcel(Parcel in) {
+            return new BleLinkParams(in);
+        }
+
+        @Override
+        public BleLinkParams[] newArray(int size) {
+            return new BleLinkParams[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(mtu);
+        dest.writeInt(connectionPriority);
+        dest.writeInt(txPhy);
+        dest.writeInt(rxPhy);
+    }
+
+    /**
+     * ATT MTU, a notification carries up to mtu - 3 bytes
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * One of BluetoothGatt.CONNECTION_PRIORITY_*
+     */
+    public int getConnectionPriority() {
+        return connectionPriority;
+    }
+
+    /**
+     * One of BluetoothDevice.PHY_LE_*
+     */
+    public int getTxPhy() {
+        return txPhy;
+    }
+
+    public int getRxPhy() {
+        return rxPhy;
+    }
+
+    @Override
+    public String toString() {
+        return "BleLinkParams{" +
+                "mtu=" + mtu +
+                ", connectionPriority=" + connectionPriority +
+                ", txPhy=" + txPhy +
+                ", rxPhy=" + rxPhy +
+                '}';
+    }
+}
@@ -1,22 +1,18 @@
 package com.inuker.bluetooth.library.search;
 
 import android.os.Handler;
-import android.os.Handler.Callback;
 import android.os.Looper;
-import android.os.Message;
 
 import com.inuker.bluetooth.library.search.response.BluetoothSearchResponse;
 import com.inuker.bluetooth.library.utils.BluetoothUtils;
-import com.inuker.bluetooth.library.utils.proxy.ProxyBulk;
-import com.inuker.bluetooth.library.utils.proxy.ProxyInterceptor;
-import com.inuker.bluetooth.library.utils.proxy.ProxyUtils;
-
-import java.lang.reflect.Method;
+import com.inuker.bluetooth.library.utils.dispatch.SafeRunnable;
 
 /**
  * Created by dingjikerbo on 2016/8/28.
+ * <p>
+ * Search runs on the main thread, calls are posted there as typed Runnables.
  */
-public class BluetoothSearchHelper implements IBluetoothSearchHelper, ProxyInterceptor, Callback {
+public class BluetoothSearchHelper implements IBluetoothSearchHelper {
 
     private BluetoothSearchRequest mCurrentRequest;
 
@@ -25,15 +21,14 @@ public class BluetoothSearchHelper implements IBluetoothSearchHelper, ProxyInter
     private Handler mHandler;
 
     private BluetoothSearchHelper() {
-        mHandler = new Handler(Looper.getMainLooper(), this);
+        mHandler = new Handler(Looper.getMainLooper());
     }
 
     public static IBluetoothSearchHelper getInstance() {
         if (sInstance == null) {
             synchronized (BluetoothSearchHelper.class) {
                 if (sInstance == null) {
-                    BluetoothSearchHelper helper = new BluetoothSearchHelper();
-                    sInstance = ProxyUtils.getProxy(helper, IBluetoothSearchHelper.class, helper);
+                    sInstance = new BluetoothSearchHelper();
                 }
             }
         }
@@ -41,13 +36,32 @@ public class BluetoothSearchHelper implements IBluetoothSearchHelper, ProxyInter
     }
 
     @Override
-    public void startSearch(BluetoothSearchRequest request, BluetoothSearchResponse response) {
+    public void startSearch(final BluetoothSearchRequest request, final BluetoothSearchResponse response) {
+        mHandler.post(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                performStartSearch(request, response);
+            }
+        });
+    }
+
+    @Override
+    public void stopSearch() {
+        mHandler.post(new SafeRunnable() {
+            @Override
+            protected void safeRun() {
+                performStopSearch();
+            }
+        });
+    }
+
+    private void performStartSearch(BluetoothSearchRequest request, BluetoothSearchResponse response) {
         request.setSearchResponse(new BluetoothSearchResponseImpl(response));
 
         if (!BluetoothUtils.isBluetoothEnabled()) {
             request.cancel();
         } else {
-            stopSearch();
+            performStopSearch();
 
             if (mCurrentRequest == null) {
                 mCurrentRequest = request;
@@ -87,23 +101,10 @@ public class BluetoothSearchHelper implements IBluetoothSearchHelper, ProxyInter
         }
     }
 
-    @Override
-    public void stopSearch() {
+    private void performStopSearch() {
         if (mCurrentRequest != null) {
             mCurrentRequest.cancel();
             mCurrentRequest = null;
         }
     }
-
-    @Override
-    public boolean onIntercept(Object object, Method method, Object[] args) {
-        mHandler.obtainMessage(0, new ProxyBulk(object, method,args)).sendToTarget();
-        return true;
-    }
-
-    @Override
-    public boolean handleMessage(Message msg) {
-        ProxyBulk.safeInvoke(msg.obj);
-        return true;
-    }
 }
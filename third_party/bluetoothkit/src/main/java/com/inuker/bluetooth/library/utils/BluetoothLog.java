@@ -25,6 +25,13 @@ public class BluetoothLog {
         Log.v(LOG_TAG, msg);
     }
 
+    /**
+     * Whether verbose logs are printed, check before formatting logs on hot paths
+     */
+    public static boolean isVerbose() {
+        return Log.isLoggable(LOG_TAG, Log.VERBOSE);
+    }
+
     public static void d(String msg) {
         Log.d(LOG_TAG, msg);
     }
@@ -0,0 +1,27 @@
+package com.inuker.bluetooth.library.utils.dispatch;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs posted calls on a looper thread
+ */
+public class HandlerExecutor implements Executor {
+
+    private final Handler mHandler;
+
+    public HandlerExecutor(Handler handler) {
+        mHandler = handler;
+    }
+
+    public HandlerExecutor(Looper looper) {
+        this(new Handler(looper));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        mHandler.post(command);
+    }
+}
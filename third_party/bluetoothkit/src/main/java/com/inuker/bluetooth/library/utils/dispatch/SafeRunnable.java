@@ -0,0 +1,22 @@
+package com.inuker.bluetooth.library.utils.dispatch;
+
+import com.inuker.bluetooth.library.utils.BluetoothLog;
+
+/**
+ * A call posted to another thread by a typed dispatcher.
+ * Like the reflective proxies it replaces, a failing call is logged instead of
+ * killing the looper it runs on.
+ */
+public abstract class SafeRunnable implements Runnable {
+
+    protected abstract void safeRun();
+
+    @Override
+    public final void run() {
+        try {
+            safeRun();
+        } catch (Throwable e) {
+            BluetoothLog.e(e);
+        }
+    }
+}
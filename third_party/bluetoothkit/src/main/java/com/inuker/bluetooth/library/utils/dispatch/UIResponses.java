@@ -0,0 +1,229 @@
+package com.inuker.bluetooth.library.utils.dispatch;
+
+import android.os.Looper;
+
+import com.inuker.bluetooth.library.channel.ChannelCallback;
+import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
+import com.inuker.bluetooth.library.connect.response.BleMtuResponse;
+import com.inuker.bluetooth.library.connect.response.BleReadResponse;
+import com.inuker.bluetooth.library.connect.response.BleReadRssiResponse;
+import com.inuker.bluetooth.library.connect.response.BleResponse;
+import com.inuker.bluetooth.library.connect.response.BleTResponse;
+import com.inuker.bluetooth.library.connect.response.BleUnnotifyResponse;
+import com.inuker.bluetooth.library.connect.response.BleWriteResponse;
+import com.inuker.bluetooth.library.model.BleGattProfile;
+import com.inuker.bluetooth.library.model.BleLinkParams;
+import com.inuker.bluetooth.library.search.SearchResult;
+import com.inuker.bluetooth.library.search.response.SearchResponse;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Typed replacements for {@code ProxyUtils.getUIProxy}: each wrapper posts the callback
+ * to the main thread as one Runnable, without reflection or an argument array.
+ */
+public class UIResponses {
+
+    private static volatile Executor sMainExecutor;
+
+    private UIResponses() {
+    }
+
+    private static Executor main() {
+        if (sMainExecutor == null) {
+            synchronized (UIResponses.class) {
+                if (sMainExecutor == null) {
+                    sMainExecutor = new HandlerExecutor(Looper.getMainLooper());
+                }
+            }
+        }
+        return sMainExecutor;
+    }
+
+    public static BleConnectResponse wrapConnect(final BleConnectResponse response) {
+        if (response == null) {
+            return null;
+        }
+        final Executor executor = main();
+        return new BleConnectResponse() {
+            @Override
+            public void onResponse(final int code, final BleGattProfile data) {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onResponse(code, data);
+                    }
+                });
+            }
+        };
+    }
+
+    public static BleReadResponse wrapRead(final BleReadResponse response) {
+        if (response == null) {
+            return null;
+        }
+        final Executor executor = main();
+        return new BleReadResponse() {
+            @Override
+            public void onResponse(final int code, final byte[] data) {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onResponse(code, data);
+                    }
+                });
+            }
+        };
+    }
+
+    public static BleWriteResponse wrapWrite(BleWriteResponse response) {
+        return response != null ? new UIResponse(response, main()) : null;
+    }
+
+    public static BleUnnotifyResponse wrapUnnotify(BleUnnotifyResponse response) {
+        return response != null ? new UIResponse(response, main()) : null;
+    }
+
+    public static BleReadRssiResponse wrapReadRssi(BleReadRssiResponse response) {
+        return response != null ? new UIIntegerResponse(response, main()) : null;
+    }
+
+    public static BleMtuResponse wrapMtu(BleMtuResponse response) {
+        return response != null ? new UIIntegerResponse(response, main()) : null;
+    }
+
+    public static BleLinkResponse wrapLink(final BleLinkResponse response) {
+        if (response == null) {
+            return null;
+        }
+        final Executor executor = main();
+        return new BleLinkResponse() {
+            @Override
+            public void onResponse(final int code, final BleLinkParams data) {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onResponse(code, data);
+                    }
+                });
+            }
+        };
+    }
+
+    public static SearchResponse wrapSearch(final SearchResponse response) {
+        if (response == null) {
+            return null;
+        }
+        final Executor executor = main();
+        return new SearchResponse() {
+            @Override
+            public void onSearchStarted() {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onSearchStarted();
+                    }
+                });
+            }
+
+            @Override
+            public void onDeviceFounded(final SearchResult device) {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onDeviceFounded(device);
+                    }
+                });
+            }
+
+            @Override
+            public void onSearchStopped() {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onSearchStopped();
+                    }
+                });
+            }
+
+            @Override
+            public void onSearchCanceled() {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        response.onSearchCanceled();
+                    }
+                });
+            }
+        };
+    }
+
+    public static ChannelCallback wrapChannel(final ChannelCallback callback) {
+        if (callback == null) {
+            return null;
+        }
+        final Executor executor = main();
+        return new ChannelCallback() {
+            @Override
+            public void onCallback(final int code) {
+                executor.execute(new SafeRunnable() {
+                    @Override
+                    protected void safeRun() {
+                        callback.onCallback(code);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Write and unnotify results share the plain {@link BleResponse} shape
+     */
+    private static class UIResponse implements BleWriteResponse, BleUnnotifyResponse {
+
+        private final BleResponse mResponse;
+
+        private final Executor mExecutor;
+
+        UIResponse(BleResponse response, Executor executor) {
+            mResponse = response;
+            mExecutor = executor;
+        }
+
+        @Override
+        public void onResponse(final int code) {
+            mExecutor.execute(new SafeRunnable() {
+                @Override
+                protected void safeRun() {
+                    mResponse.onResponse(code);
+                }
+            });
+        }
+    }
+
+    /**
+     * RSSI and MTU results both carry an Integer
+     */
+    private static class UIIntegerResponse implements BleReadRssiResponse, BleMtuResponse {
+
+        private final BleTResponse<Integer> mResponse;
+
+        private final Executor mExecutor;
+
+        UIIntegerResponse(BleTResponse<Integer> response, Executor executor) {
+            mResponse = response;
+            mExecutor = executor;
+        }
+
+        @Override
+        public void onResponse(final int code, final Integer data) {
+            mExecutor.execute(new SafeRunnable() {
+                @Override
+                protected void safeRun() {
+                    mResponse.onResponse(code, data);
+                }
+            });
+        }
+    }
+}
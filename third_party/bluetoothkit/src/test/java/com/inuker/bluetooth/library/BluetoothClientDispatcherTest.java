@@ -0,0 +1,48 @@
+package com.inuker.bluetooth.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link BluetoothClientDispatcher} hands every call to the executor and runs them on the target in order.
+ */
+public class BluetoothClientDispatcherTest {
+
+    private static final String MAC = "AA:BB:CC:DD:EE:FF";
+    private static final UUID SERVICE = UUID.fromString("0000ffe5-0000-1000-8000-00805f9a34fb");
+    private static final UUID CHARACTER = UUID.fromString("0000ffe9-0000-1000-8000-00805f9a34fb");
+
+    @Test
+    public void dispatcherRunsCallsOnExecutorInOrder() {
+        CountingClient client = new CountingClient();
+        final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+        IBluetoothClient dispatcher = new BluetoothClientDispatcher(client, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queue.add(command);
+            }
+        });
+
+        byte[] value = {1, 2, 3};
+        dispatcher.write(MAC, SERVICE, CHARACTER, value, null);
+        dispatcher.readRssi(MAC, null);
+        dispatcher.requestMtu(MAC, 247, null);
+
+        // nothing reaches the target before the queue runs
+        assertEquals(0, client.calls);
+        assertEquals(3, queue.size());
+        queue.poll().run();
+        assertEquals(1, client.writes);
+        assertTrue(client.lastValue == value);
+        queue.poll().run();
+        queue.poll().run();
+        assertEquals(247, client.lastMtu);
+        assertEquals("write,readRssi,requestMtu", client.log.toString());
+    }
+}
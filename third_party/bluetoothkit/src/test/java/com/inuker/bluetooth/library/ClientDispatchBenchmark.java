@@ -0,0 +1,132 @@
+package com.inuker.bluetooth.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.inuker.bluetooth.library.utils.proxy.ProxyBulk;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Thread hop onto the BluetoothClientImpl worker: the former reflective proxy
+ * (Object[] of arguments, ProxyBulk, Method.invoke) against the typed {@link BluetoothClientDispatcher}.
+ * <p>
+ * Both sides run the call directly instead of posting it to a Handler, so the numbers are the
+ * cost of the dispatch itself on top of one Message. The posted object (ProxyBulk or Runnable)
+ * is kept in a field, as a message queue would, so the JIT cannot drop its allocation.
+ * <p>
+ * Not part of the unit test run; use {@code ./gradlew test -Pbenchmark}.
+ */
+public class ClientDispatchBenchmark {
+
+    private static final int CALLS = 1000000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final String MAC = "AA:BB:CC:DD:EE:FF";
+    private static final UUID SERVICE = UUID.fromString("0000ffe5-0000-1000-8000-00805f9a34fb");
+    private static final UUID CHARACTER = UUID.fromString("0000ffe9-0000-1000-8000-00805f9a34fb");
+
+    /**
+     * Last posted message
+     */
+    private static Object posted;
+
+    @Test
+    public void dispatchCostComparedWithProxy() {
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                posted = command;
+                command.run();
+            }
+        };
+        CountingClient proxyTarget = new CountingClient();
+        IBluetoothClient proxy = reflectiveProxy(proxyTarget);
+        CountingClient typedTarget = new CountingClient();
+        IBluetoothClient typed = new BluetoothClientDispatcher(typedTarget, direct);
+        byte[] value = new byte[20];
+
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            calls(proxy, value, CALLS / 10);
+            calls(typed, value, CALLS / 10);
+        }
+
+        // best of several alternating rounds, to smooth out JIT and GC
+        long proxyElapsed = Long.MAX_VALUE;
+        long typedElapsed = Long.MAX_VALUE;
+        long proxyBytes = 0;
+        long typedBytes = 0;
+        for (int r = 0; r < MEASURED_ROUNDS; r++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            calls(proxy, value, CALLS);
+            proxyElapsed = Math.min(proxyElapsed, System.nanoTime() - start);
+            proxyBytes = allocatedBytes() - bytesBefore;
+
+            bytesBefore = allocatedBytes();
+            start = System.nanoTime();
+            calls(typed, value, CALLS);
+            typedElapsed = Math.min(typedElapsed, System.nanoTime() - start);
+            typedBytes = allocatedBytes() - bytesBefore;
+        }
+
+        assertEquals(proxyTarget.calls, typedTarget.calls);
+        assertTrue("typed dispatcher " + perCall(typedElapsed, typedBytes)
+                        + " vs proxy " + perCall(proxyElapsed, proxyBytes),
+                typedBytes < proxyBytes);
+        assertTrue(posted != null);
+    }
+
+    /**
+     * Hot path calls: write, notify and readRssi in turn
+     */
+    private static void calls(IBluetoothClient client, byte[] value, int count) {
+        for (int n = 0; n < count; n++) {
+            switch (n % 3) {
+                case 0:
+                    client.write(MAC, SERVICE, CHARACTER, value, null);
+                    break;
+                case 1:
+                    client.notify(MAC, SERVICE, CHARACTER, null);
+                    break;
+                default:
+                    client.readRssi(MAC, null);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Same path as ProxyUtils.getProxy + onIntercept in BluetoothClientImpl,
+     * except that the ProxyBulk is run at once instead of from a Message
+     */
+    private static IBluetoothClient reflectiveProxy(final IBluetoothClient target) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                ProxyBulk bulk = new ProxyBulk(target, method, args);
+                posted = bulk;
+                return ProxyBulk.safeInvoke(bulk);
+            }
+        };
+        return (IBluetoothClient) Proxy.newProxyInstance(IBluetoothClient.class.getClassLoader(),
+                new Class<?>[]{IBluetoothClient.class}, handler);
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String perCall(long elapsedNs, long bytes) {
+        return elapsedNs / CALLS + " ns, " + bytes / CALLS + " bytes per call";
+    }
+}
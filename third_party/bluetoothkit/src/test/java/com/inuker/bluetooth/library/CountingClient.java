@@ -0,0 +1,165 @@
+package com.inuker.bluetooth.library;
+
+import com.inuker.bluetooth.library.connect.listener.BleConnectStatusListener;
+import com.inuker.bluetooth.library.connect.listener.BluetoothStateListener;
+import com.inuker.bluetooth.library.connect.options.BleConnectOptions;
+import com.inuker.bluetooth.library.connect.response.BleConnectResponse;
+import com.inuker.bluetooth.library.connect.response.BleLinkResponse;
+import com.inuker.bluetooth.library.connect.response.BleMtuResponse;
+import com.inuker.bluetooth.library.connect.response.BleNotifyResponse;
+import com.inuker.bluetooth.library.connect.response.BleReadResponse;
+import com.inuker.bluetooth.library.connect.response.BleReadRssiResponse;
+import com.inuker.bluetooth.library.connect.response.BleUnnotifyResponse;
+import com.inuker.bluetooth.library.connect.response.BleWriteResponse;
+import com.inuker.bluetooth.library.receiver.listener.BluetoothBondListener;
+import com.inuker.bluetooth.library.search.SearchRequest;
+import com.inuker.bluetooth.library.search.response.SearchResponse;
+
+import java.util.UUID;
+
+/**
+ * Counts calls and records the first of them by name
+ */
+class CountingClient implements IBluetoothClient {
+
+    int calls;
+    int writes;
+    int lastMtu;
+    byte[] lastValue;
+    final StringBuilder log = new StringBuilder();
+
+    private void call(String name) {
+        calls++;
+        if (log.length() < 64) {
+            log.append(log.length() > 0 ? "," : "").append(name);
+        }
+    }
+
+    @Override
+    public void connect(String mac, BleConnectOptions options, BleConnectResponse response) {
+        call("connect");
+    }
+
+    @Override
+    public void disconnect(String mac) {
+        call("disconnect");
+    }
+
+    @Override
+    public void registerConnectStatusListener(String mac, BleConnectStatusListener listener) {
+        call("registerConnectStatusListener");
+    }
+
+    @Override
+    public void unregisterConnectStatusListener(String mac, BleConnectStatusListener listener) {
+        call("unregisterConnectStatusListener");
+    }
+
+    @Override
+    public void read(String mac, UUID service, UUID character, BleReadResponse response) {
+        call("read");
+    }
+
+    @Override
+    public void write(String mac, UUID service, UUID character, byte[] value, BleWriteResponse response) {
+        call("write");
+        writes++;
+        lastValue = value;
+    }
+
+    @Override
+    public void readDescriptor(String mac, UUID service, UUID character, UUID descriptor, BleReadResponse response) {
+        call("readDescriptor");
+    }
+
+    @Override
+    public void writeDescriptor(String mac, UUID service, UUID character, UUID descriptor, byte[] value, BleWriteResponse response) {
+        call("writeDescriptor");
+    }
+
+    @Override
+    public void writeNoRsp(String mac, UUID service, UUID character, byte[] value, BleWriteResponse response) {
+        call("writeNoRsp");
+    }
+
+    @Override
+    public void notify(String mac, UUID service, UUID character, BleNotifyResponse response) {
+        call("notify");
+    }
+
+    @Override
+    public void unnotify(String mac, UUID service, UUID character, BleUnnotifyResponse response) {
+        call("unnotify");
+    }
+
+    @Override
+    public void indicate(String mac, UUID service, UUID character, BleNotifyResponse response) {
+        call("indicate");
+    }
+
+    @Override
+    public void unindicate(String mac, UUID service, UUID character, BleUnnotifyResponse response) {
+        call("unindicate");
+    }
+
+    @Override
+    public void readRssi(String mac, BleReadRssiResponse response) {
+        call("readRssi");
+    }
+
+    @Override
+    public void requestMtu(String mac, int mtu, BleMtuResponse response) {
+        call("requestMtu");
+        lastMtu = mtu;
+    }
+
+    @Override
+    public void setLinkActive(String mac, boolean active, BleLinkResponse response) {
+        call("setLinkActive");
+    }
+
+    @Override
+    public void readLinkParams(String mac, BleLinkResponse response) {
+        call("readLinkParams");
+    }
+
+    @Override
+    public void search(SearchRequest request, SearchResponse response) {
+        call("search");
+    }
+
+    @Override
+    public void stopSearch() {
+        call("stopSearch");
+    }
+
+    @Override
+    public void registerBluetoothStateListener(BluetoothStateListener listener) {
+        call("registerBluetoothStateListener");
+    }
+
+    @Override
+    public void unregisterBluetoothStateListener(BluetoothStateListener listener) {
+        call("unregisterBluetoothStateListener");
+    }
+
+    @Override
+    public void registerBluetoothBondListener(BluetoothBondListener listener) {
+        call("registerBluetoothBondListener");
+    }
+
+    @Override
+    public void unregisterBluetoothBondListener(BluetoothBondListener listener) {
+        call("unregisterBluetoothBondListener");
+    }
+
+    @Override
+    public void clearRequest(String mac, int type) {
+        call("clearRequest");
+    }
+
+    @Override
+    public void refreshCache(String mac) {
+        call("refreshCache");
+    }
+}